@@ -18,6 +18,8 @@ import com.marketplace.demo.repositories.ImageRepository;
 import com.marketplace.demo.repositories.ItemRepository;
 import com.marketplace.demo.repositories.ReviewRepository;
 import com.marketplace.demo.repositories.UserRepository;
+import com.marketplace.demo.services.PasswordService;
+import com.marketplace.demo.services.ReputationService;
 
 @Configuration
 public class Config {
@@ -31,11 +33,18 @@ public class Config {
 			ItemRepository itemRepository,
 			CategoryRepository categoryRepository,
 			ImageRepository imageRepository,
-			ReviewRepository reviewRepository) {
+			ReviewRepository reviewRepository,
+			ReputationService reputationService,
+			PasswordService passwordService) {
 		return args -> {
-			User u1 = new User("geot", "George Test", "email@example.com", "password", "I am a student...", "Greece", "Thessaloniki", "6900000000");
-			User u2 = new User("johnk", "John K.", "jk@example.com", "password2", "I am a programmer...", "Greece", "Athens", "6911111111");
-			User u3 = new User("gk", "George K.", "gk@example.com", "password3", "", "Greece", "Ioannina", "6922222222");
+			// The schema outlives restarts since it comes from migrations, only seed an empty database
+			if (userRepository.count() > 0) {
+				return;
+			}
+			
+			User u1 = new User("geot", "George Test", "email@example.com", passwordService.hash("password"), "I am a student...", "Greece", "Thessaloniki", "6900000000");
+			User u2 = new User("johnk", "John K.", "jk@example.com", passwordService.hash("password2"), "I am a programmer...", "Greece", "Athens", "6911111111");
+			User u3 = new User("gk", "George K.", "gk@example.com", passwordService.hash("password3"), "", "Greece", "Ioannina", "6922222222");
 			userRepository.save(u1);
 			userRepository.save(u2);
 			userRepository.save(u3);
@@ -77,6 +86,8 @@ public class Config {
 			Review review2 = new Review(u3, u1, 1, "Rude and disrespectful!", LocalDate.now());
 			reviewRepository.save(review1);
 			reviewRepository.save(review2);
+			reputationService.reviewAdded(review1);
+			reputationService.reviewAdded(review2);
 			
 			u1.addReviewToWrittenReviews(review1);
 			u2.addReviewToReceivedReviews(review1);
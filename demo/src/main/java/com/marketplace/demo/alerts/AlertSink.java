@@ -0,0 +1,14 @@
+package com.marketplace.demo.alerts;
+
+import java.util.List;
+
+import com.marketplace.demo.models.dto.SavedSearchAlert;
+
+// Where saved search alerts go. Every AlertSink bean gets every batch (the alerts of one item),
+// on the alert worker thread of SavedSearchService, never inside the transaction that listed the item.
+// Add a bean (mail, push, a message queue) to deliver them somewhere, LogAlertSink only logs them.
+public interface AlertSink {
+
+	void deliver(List<SavedSearchAlert> alerts);
+
+}
@@ -0,0 +1,31 @@
+package com.marketplace.demo.alerts;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.marketplace.demo.models.dto.SavedSearchAlert;
+
+// Logs the alerts, until a real delivery exists. Turned off with saved-searches.log-alerts=false
+@Component
+public class LogAlertSink implements AlertSink {
+
+	private static final Logger log = LoggerFactory.getLogger(LogAlertSink.class);
+
+	@Value("${saved-searches.log-alerts:true}")
+	private boolean logAlerts;
+
+	@Override
+	public void deliver(List<SavedSearchAlert> alerts) {
+		if (!logAlerts) {
+			return;
+		}
+		for (SavedSearchAlert alert : alerts) {
+			log.info("Saved search {} of user {} matches item {}", alert.getSearch_id(), alert.getUser_id(), alert.getItem_id());
+		}
+	}
+
+}
@@ -0,0 +1,297 @@
+package com.marketplace.demo.alerts;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+
+// Reverse search: the saved searches are indexed, and each listing is run against them.
+// A saved search is a conjunction of an optional category, price ceiling, condition and keywords.
+//	- searches are grouped by category (or "any category"), then by their anchor keyword (or "no keywords"),
+//	  the anchor being the longest keyword as a cheap guess at the most selective one
+//	- each group splits its searches into price ceiling buckets by powers of two, so a listing
+//	  skips every bucket whose ceilings are all below its price
+//	- a listing only looks at the groups of its category and of any category, for each of its own terms
+//	  and for no keywords, and fully checks the searches of the buckets left (condition, all keywords)
+// Keywords and listing text go through the same analyzer as the item text index (case and punctuation
+// ignored), so a saved search matches the words the text search would. Matching runs under a read lock, adding and removing searches under the write lock.
+public class SavedSearchMatcher {
+
+	// Bucket 0 holds ceilings under 1, bucket n ceilings in [2^(n-1), 2^n), the last one no ceiling
+	private static final int BUCKETS = 64;
+	private static final int NO_CEILING = BUCKETS - 1;
+	private static final String ANY = "";
+
+	// A listing as matched: the item's fields and the analyzed terms of its title and description
+	public static final class Listing {
+		private final String categoryId;
+		private final double price;
+		private final String condition;
+		private final Set<String> terms;
+
+		Listing(String categoryId, double price, String condition, Set<String> terms) {
+			this.categoryId = categoryId;
+			this.price = price;
+			this.condition = condition;
+			this.terms = terms;
+		}
+
+		public Set<String> getTerms() {
+			return terms;
+		}
+	}
+
+	// A saved search that matched a listing
+	public static final class Match {
+		private final String searchId;
+		private final String userId;
+
+		Match(String searchId, String userId) {
+			this.searchId = searchId;
+			this.userId = userId;
+		}
+
+		public String getSearchId() {
+			return searchId;
+		}
+
+		public String getUserId() {
+			return userId;
+		}
+	}
+
+	private static final class Query {
+		private final String id;
+		private final String userId;
+		private final String categoryKey;
+		private final double maxPrice;
+		private final String condition;
+		private final String[] terms;
+		private final String anchor;
+		// Where it sits in its group
+		private int bucket;
+		private int slot;
+
+		Query(String id, String userId, String categoryKey, double maxPrice, String condition, String[] terms, String anchor) {
+			this.id = id;
+			this.userId = userId;
+			this.categoryKey = categoryKey;
+			this.maxPrice = maxPrice;
+			this.condition = condition;
+			this.terms = terms;
+			this.anchor = anchor;
+		}
+
+		boolean matches(Listing listing) {
+			if (listing.price > maxPrice) {
+				return false;
+			}
+			if (condition != null && !condition.equalsIgnoreCase(listing.condition)) {
+				return false;
+			}
+			for (String term : terms) {
+				if (!listing.terms.contains(term)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	// The searches of one category and anchor, by price ceiling bucket
+	private static final class Group {
+		private final Query[][] buckets = new Query[BUCKETS][];
+		private final int[] sizes = new int[BUCKETS];
+		// Bit n set when bucket n isn't empty
+		private long nonEmpty = 0;
+		private int size = 0;
+
+		void add(Query query) {
+			int bucket = query.bucket;
+			if (buckets[bucket] == null) {
+				buckets[bucket] = new Query[4];
+			} else if (sizes[bucket] == buckets[bucket].length) {
+				buckets[bucket] = Arrays.copyOf(buckets[bucket], sizes[bucket] * 2);
+			}
+			query.slot = sizes[bucket];
+			buckets[bucket][sizes[bucket]++] = query;
+			nonEmpty |= 1L << bucket;
+			size++;
+		}
+
+		// The last one of the bucket takes its place
+		void remove(Query query) {
+			int bucket = query.bucket;
+			Query[] queries = buckets[bucket];
+			int last = --sizes[bucket];
+			queries[query.slot] = queries[last];
+			queries[query.slot].slot = query.slot;
+			queries[last] = null;
+			if (last == 0) {
+				buckets[bucket] = null;
+				nonEmpty &= ~(1L << bucket);
+			}
+			size--;
+		}
+
+		void collect(Listing listing, List<Match> matches) {
+			// Buckets under the listing's one only hold lower ceilings
+			long candidates = nonEmpty & (-1L << bucketOf(listing.price));
+			while (candidates != 0) {
+				int bucket = Long.numberOfTrailingZeros(candidates);
+				candidates &= candidates - 1;
+				Query[] queries = buckets[bucket];
+				for (int i = 0, n = sizes[bucket]; i < n; i++) {
+					if (queries[i].matches(listing)) {
+						matches.add(new Match(queries[i].id, queries[i].userId));
+					}
+				}
+			}
+		}
+	}
+
+	private final Analyzer analyzer = new StandardAnalyzer();
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	// Category (or ANY) -> anchor keyword (or ANY) -> searches
+	private final Map<String, Map<String, Group>> groups = new HashMap<>();
+	private final Map<String, Query> byId = new HashMap<>();
+	// One instance of each keyword for all the searches using it. Keeps the keywords of removed
+	// searches too, there are far fewer distinct keywords than searches
+	private final Map<String, String> vocabulary = new HashMap<>();
+
+	// Adds or replaces a search. category_id, maxPrice, condition and keywords may be null for "any"
+	public void add(String search_id, String user_id, String category_id, Double maxPrice, String condition, String keywords) {
+		String[] terms = analyze(keywords).toArray(new String[0]);
+
+		lock.writeLock().lock();
+		try {
+			String anchor = ANY;
+			for (int i = 0; i < terms.length; i++) {
+				terms[i] = vocabulary.computeIfAbsent(terms[i], term -> term);
+				if (terms[i].length() > anchor.length()) {
+					anchor = terms[i];
+				}
+			}
+			Query query = new Query(search_id, user_id, category_id == null ? ANY : category_id,
+					maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice, condition, terms, anchor);
+			query.bucket = maxPrice == null ? NO_CEILING : bucketOf(maxPrice);
+			removeLocked(search_id);
+			groups.computeIfAbsent(query.categoryKey, key -> new HashMap<>())
+					.computeIfAbsent(query.anchor, key -> new Group())
+					.add(query);
+			byId.put(search_id, query);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(String search_id) {
+		lock.writeLock().lock();
+		try {
+			removeLocked(search_id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return byId.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public Listing listing(String category_id, double price, String condition, String title, String description) {
+		Set<String> terms = analyze(title);
+		terms.addAll(analyze(description));
+		return new Listing(category_id, price, condition, terms);
+	}
+
+	public List<Match> match(Listing listing) {
+		List<Match> matches = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			collect(groups.get(ANY), listing, matches);
+			if (listing.categoryId != null) {
+				collect(groups.get(listing.categoryId), listing, matches);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return matches;
+	}
+
+	// Lower-cased words, in order without duplicates
+	public Set<String> analyze(String text) {
+		Set<String> terms = new LinkedHashSet<>();
+		if (text == null || text.isEmpty()) {
+			return terms;
+		}
+		try (TokenStream stream = analyzer.tokenStream("text", text)) {
+			CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+			stream.reset();
+			while (stream.incrementToken()) {
+				terms.add(term.toString());
+			}
+			stream.end();
+		} catch (IOException e) {
+			// Only thrown by a failing Reader, a String never fails
+			throw new UncheckedIOException(e);
+		}
+		return terms;
+	}
+
+	private void collect(Map<String, Group> byAnchor, Listing listing, List<Match> matches) {
+		if (byAnchor == null) {
+			return;
+		}
+		Group noKeywords = byAnchor.get(ANY);
+		if (noKeywords != null) {
+			noKeywords.collect(listing, matches);
+		}
+		for (String term : listing.terms) {
+			Group group = byAnchor.get(term);
+			if (group != null) {
+				group.collect(listing, matches);
+			}
+		}
+	}
+
+	private void removeLocked(String search_id) {
+		Query query = byId.remove(search_id);
+		if (query == null) {
+			return;
+		}
+		Map<String, Group> byAnchor = groups.get(query.categoryKey);
+		Group group = byAnchor.get(query.anchor);
+		group.remove(query);
+		if (group.size == 0) {
+			byAnchor.remove(query.anchor);
+			if (byAnchor.isEmpty()) {
+				groups.remove(query.categoryKey);
+			}
+		}
+	}
+
+	// Non-decreasing in price, so every ceiling of a lower bucket is below the price
+	private static int bucketOf(double price) {
+		if (!(price >= 1)) {
+			return 0;
+		}
+		return Math.min(Math.getExponent(price) + 1, NO_CEILING - 1);
+	}
+
+}
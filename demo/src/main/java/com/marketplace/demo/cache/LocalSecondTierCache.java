@@ -0,0 +1,59 @@
+package com.marketplace.demo.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Local stand-in for a shared second tier.
+// Values are stored serialized, so it behaves like a remote store: every read returns a copy
+// and anything that can't be serialized fails here instead of in production.
+public class LocalSecondTierCache implements SecondTierCache {
+
+	private final Map<String, Map<String, byte[]>> regions = new ConcurrentHashMap<>();
+
+	@Override
+	public Serializable get(String region, String key) {
+		byte[] bytes = region(region).get(key);
+		if (bytes == null) {
+			return null;
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return (Serializable) in.readObject();
+		} catch (IOException | ClassNotFoundException e) {
+			// A corrupt entry is just a miss
+			region(region).remove(key);
+			return null;
+		}
+	}
+
+	@Override
+	public void put(String region, String key, Serializable value) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(value);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Cache value is not serializable: " + value.getClass().getName(), e);
+		}
+		region(region).put(key, bytes.toByteArray());
+	}
+
+	@Override
+	public void evict(String region, String key) {
+		region(region).remove(key);
+	}
+
+	@Override
+	public void clear(String region) {
+		region(region).clear();
+	}
+
+	private Map<String, byte[]> region(String region) {
+		return regions.computeIfAbsent(region, r -> new ConcurrentHashMap<>());
+	}
+
+}
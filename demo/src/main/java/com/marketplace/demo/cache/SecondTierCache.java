@@ -0,0 +1,17 @@
+package com.marketplace.demo.cache;
+
+import java.io.Serializable;
+
+// Optional second cache tier behind the in-process one (e.g. a shared cache server).
+// Keys are strings and values must be serializable, as they would be for a remote store.
+public interface SecondTierCache {
+
+	Serializable get(String region, String key);
+
+	void put(String region, String key, Serializable value);
+
+	void evict(String region, String key);
+
+	void clear(String region);
+
+}
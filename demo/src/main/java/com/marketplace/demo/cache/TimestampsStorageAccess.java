@@ -0,0 +1,45 @@
+package com.marketplace.demo.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+// Last update time per table, used by Hibernate to invalidate cached query results.
+// One small entry per table, so it is never evicted.
+public class TimestampsStorageAccess implements StorageAccess {
+
+	private final Map<Object, Object> timestamps = new ConcurrentHashMap<>();
+
+	@Override
+	public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+		return timestamps.get(key);
+	}
+
+	@Override
+	public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+		timestamps.put(key, value);
+	}
+
+	@Override
+	public boolean contains(Object key) {
+		return timestamps.containsKey(key);
+	}
+
+	@Override
+	public void evictData() {
+		timestamps.clear();
+	}
+
+	@Override
+	public void evictData(Object key) {
+		timestamps.remove(key);
+	}
+
+	@Override
+	public void release() {
+		timestamps.clear();
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.marketplace.demo.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import com.marketplace.demo.models.dto.CacheRegionStats;
+
+// Hibernate second-level cache provider backed by TwoTierStorageAccess.
+// Entity and query result regions are bounded, the update timestamps region is not:
+// losing a timestamp would make the query cache serve stale results.
+public class TwoTierRegionFactory extends RegionFactoryTemplate {
+
+	private final long maxEntries;
+	private final Duration timeToLive;
+	private final SecondTierCache secondTier;
+	private final Map<String, TwoTierStorageAccess> regions = new ConcurrentHashMap<>();
+
+	public TwoTierRegionFactory(long maxEntries, Duration timeToLive, SecondTierCache secondTier) {
+		this.maxEntries = maxEntries;
+		this.timeToLive = timeToLive;
+		this.secondTier = secondTier;
+	}
+
+	@Override
+	protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+	}
+
+	@Override
+	protected void releaseFromUse() {
+		regions.values().forEach(TwoTierStorageAccess::release);
+		regions.clear();
+	}
+
+	@Override
+	protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+			DomainDataRegionBuildingContext buildingContext) {
+		return register(new TwoTierStorageAccess(regionConfig.getRegionName(), maxEntries, timeToLive, secondTier));
+	}
+
+	@Override
+	protected StorageAccess createQueryResultsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+		// Query results are only valid against the local timestamps region, so they stay in-process
+		return register(new TwoTierStorageAccess(regionName, maxEntries, timeToLive, null));
+	}
+
+	@Override
+	protected StorageAccess createTimestampsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+		return new TimestampsStorageAccess();
+	}
+
+	public List<CacheRegionStats> getStats() {
+		List<CacheRegionStats> stats = new ArrayList<>();
+		regions.values().forEach(region -> stats.add(region.getStats()));
+		return stats;
+	}
+
+	private TwoTierStorageAccess register(TwoTierStorageAccess storageAccess) {
+		regions.put(storageAccess.getRegionName(), storageAccess);
+		return storageAccess;
+	}
+
+}
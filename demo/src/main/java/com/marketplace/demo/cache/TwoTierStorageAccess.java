@@ -0,0 +1,98 @@
+package com.marketplace.demo.cache;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.marketplace.demo.models.dto.CacheRegionStats;
+
+// Storage of one Hibernate cache region.
+//	- first tier: bounded in-process cache with size and time based eviction
+//	- second tier (optional): consulted on a first tier miss, hits are promoted to the first tier
+// Hibernate evicts entries through here whenever an entity is updated or deleted.
+public class TwoTierStorageAccess implements DomainDataStorageAccess {
+
+	private final String regionName;
+	private final Cache<Object, Object> firstTier;
+	private final SecondTierCache secondTier;
+	private final AtomicLong secondTierHits = new AtomicLong();
+	private final AtomicLong secondTierMisses = new AtomicLong();
+
+	public TwoTierStorageAccess(String regionName, long maxEntries, Duration timeToLive, SecondTierCache secondTier) {
+		this.regionName = regionName;
+		this.firstTier = Caffeine.newBuilder()
+				.maximumSize(maxEntries)
+				.expireAfterWrite(timeToLive)
+				.recordStats()
+				.build();
+		this.secondTier = secondTier;
+	}
+
+	@Override
+	public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+		Object value = firstTier.getIfPresent(key);
+		if (value != null || secondTier == null) {
+			return value;
+		}
+		value = secondTier.get(regionName, String.valueOf(key));
+		if (value == null) {
+			secondTierMisses.incrementAndGet();
+			return null;
+		}
+		secondTierHits.incrementAndGet();
+		firstTier.put(key, value);
+		return value;
+	}
+
+	@Override
+	public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+		firstTier.put(key, value);
+		if (secondTier != null && value instanceof Serializable) {
+			secondTier.put(regionName, String.valueOf(key), (Serializable) value);
+		}
+	}
+
+	@Override
+	public boolean contains(Object key) {
+		return firstTier.getIfPresent(key) != null
+				|| (secondTier != null && secondTier.get(regionName, String.valueOf(key)) != null);
+	}
+
+	@Override
+	public void evictData() {
+		firstTier.invalidateAll();
+		if (secondTier != null) {
+			secondTier.clear(regionName);
+		}
+	}
+
+	@Override
+	public void evictData(Object key) {
+		firstTier.invalidate(key);
+		if (secondTier != null) {
+			secondTier.evict(regionName, String.valueOf(key));
+		}
+	}
+
+	@Override
+	public void release() {
+		firstTier.invalidateAll();
+	}
+
+	public String getRegionName() {
+		return regionName;
+	}
+
+	public CacheRegionStats getStats() {
+		CacheStats stats = firstTier.stats();
+		return new CacheRegionStats(regionName, firstTier.estimatedSize(), stats.hitCount(), stats.missCount(),
+				stats.evictionCount(), secondTierHits.get(), secondTierMisses.get());
+	}
+
+}
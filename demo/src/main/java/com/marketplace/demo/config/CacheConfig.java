@@ -0,0 +1,49 @@
+package com.marketplace.demo.config;
+
+import java.time.Duration;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.marketplace.demo.cache.LocalSecondTierCache;
+import com.marketplace.demo.cache.SecondTierCache;
+import com.marketplace.demo.cache.TwoTierRegionFactory;
+
+// Read-through entity cache: Hibernate's second-level cache on top of TwoTierRegionFactory.
+// Lookups by id (getItem, getUser, ...) are served from memory, and Hibernate evicts
+// an entity from both tiers whenever it is updated or deleted.
+@Configuration
+public class CacheConfig {
+
+	@Value("${cache.max-entries:10000}")
+	private long maxEntries;
+	@Value("${cache.ttl-seconds:600}")
+	private long ttlSeconds;
+	// "none" or "local"
+	@Value("${cache.second-tier:none}")
+	private String secondTier;
+
+	@Bean
+	public TwoTierRegionFactory cacheRegionFactory() {
+		SecondTierCache secondTierCache = null;
+		if ("local".equals(secondTier)) {
+			secondTierCache = new LocalSecondTierCache();
+		} else if (!"none".equals(secondTier)) {
+			throw new IllegalArgumentException("Unknown cache.second-tier: " + secondTier);
+		}
+		return new TwoTierRegionFactory(maxEntries, Duration.ofSeconds(ttlSeconds), secondTierCache);
+	}
+
+	@Bean
+	public HibernatePropertiesCustomizer cacheHibernatePropertiesCustomizer(TwoTierRegionFactory cacheRegionFactory) {
+		return hibernateProperties -> {
+			hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+			hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, true);
+			hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, cacheRegionFactory);
+		};
+	}
+
+}
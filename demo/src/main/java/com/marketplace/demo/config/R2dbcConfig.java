@@ -0,0 +1,33 @@
+package com.marketplace.demo.config;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+// Lets JPA and the R2DBC read path (ReactiveCatalogService) live side by side.
+//	- Spring Boot skips the JDBC DataSource when an R2DBC ConnectionFactory exists,
+//	  so the pool of the primary is declared here from the same spring.datasource.* properties.
+//	  JPA and JdbcTemplate reach it through the routing DataSource of ReadReplicaConfig
+//	- R2DBC brings its own (reactive) transaction manager, the JPA one (ReadReplicaConfig) is primary
+//	  so @Transactional service methods keep using it
+@Configuration
+public class R2dbcConfig {
+
+	@Bean
+	@Primary
+	@ConfigurationProperties("spring.datasource")
+	public DataSourceProperties dataSourceProperties() {
+		return new DataSourceProperties();
+	}
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+		return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.marketplace.demo.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.transaction.annotation.Transactional;
+
+// Spring's @Transactional(readOnly = true), for services that otherwise use jakarta.transaction.Transactional
+// (which has no read-only flag). A read-only transaction of a read request may be served by a replica,
+// see ReplicaRoutingDataSource.
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional(readOnly = true)
+public @interface ReadOnlyTransactional {
+}
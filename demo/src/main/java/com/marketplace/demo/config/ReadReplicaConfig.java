@@ -0,0 +1,85 @@
+package com.marketplace.demo.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Read replicas: the DataSource of JPA, JdbcTemplate and Flyway is a ReplicaRoutingDataSource over the
+// primary pool (R2dbcConfig) and one pool per datasource.replicas.urls entry. Without replicas every
+// connection comes from the primary, as before.
+//	- replicas share the primary's driver, and its credentials unless datasource.replicas.username/password are set
+//	- replica connections are read-only, a write that reaches one fails instead of diverging from the primary
+//	- with replicas, Hibernate gives the connection back after each transaction instead of holding it
+//	  for the whole open-in-view session, so each transaction of a request can go its own way
+@Configuration
+public class ReadReplicaConfig {
+
+	@Value("${datasource.replicas.username:${spring.datasource.username:}}")
+	private String username;
+	@Value("${datasource.replicas.password:${spring.datasource.password:}}")
+	private String password;
+	@Value("${datasource.replicas.pool-size:10}")
+	private int poolSize;
+	@Value("${datasource.replicas.max-lag-ms:1000}")
+	private long maxLagMs;
+	@Value("${datasource.replicas.max-callers:100000}")
+	private long maxCallers;
+
+	@Bean
+	@Primary
+	public ReplicaRoutingDataSource dataSource(HikariDataSource primaryDataSource, DataSourceProperties dataSourceProperties, Environment environment) {
+		List<HikariDataSource> replicaPools = new ArrayList<HikariDataSource>();
+		List<String> urls = replicaUrls(environment);
+		for (int i = 0; i < urls.size(); i++) {
+			HikariDataSource pool = new HikariDataSource();
+			pool.setPoolName("replica-" + i);
+			pool.setJdbcUrl(urls.get(i));
+			pool.setUsername(username);
+			pool.setPassword(password);
+			pool.setDriverClassName(dataSourceProperties.determineDriverClassName());
+			pool.setMaximumPoolSize(poolSize);
+			pool.setReadOnly(true);
+			replicaPools.add(pool);
+		}
+		return new ReplicaRoutingDataSource(primaryDataSource, replicaPools, maxLagMs, maxCallers);
+	}
+
+	@Bean
+	@Primary
+	public ReplicaRoutingTransactionManager transactionManager(EntityManagerFactory entityManagerFactory, ReplicaRoutingDataSource dataSource) {
+		return new ReplicaRoutingTransactionManager(entityManagerFactory, dataSource);
+	}
+
+	@Bean
+	public HibernatePropertiesCustomizer replicaHibernatePropertiesCustomizer(Environment environment) {
+		return hibernateProperties -> {
+			if (!replicaUrls(environment).isEmpty()) {
+				hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+						PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+			}
+		};
+	}
+
+	// A comma separated list, or urls[0], urls[1], ... for urls with commas
+	private List<String> replicaUrls(Environment environment) {
+		List<String> urls = new ArrayList<String>(Binder.get(environment).bind("datasource.replicas.urls", Bindable.listOf(String.class)).orElse(List.of()));
+		urls.removeIf(url -> url.isBlank());
+		return urls;
+	}
+
+}
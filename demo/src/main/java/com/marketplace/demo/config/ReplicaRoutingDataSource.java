@@ -0,0 +1,291 @@
+package com.marketplace.demo.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marketplace.demo.models.dto.AuthenticatedUser;
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// The DataSource of the application: read-only transactions of read requests go to an up-to-date replica,
+// everything else to the primary.
+//	- ReplicaRoutingTransactionManager asks begin() where each new transaction goes, its connections
+//	  come from there until end()
+//	- only GET and HEAD requests read from replicas. The reads of a request changing something, and of
+//	  background jobs, decide what gets written
+//	- lag: every datasource.replicas.heartbeat-interval-ms this instance writes the time to its own row of
+//	  REPLICA_HEARTBEAT on the primary and reads the row back from each replica. The time a replica has is its
+//	  position, one further behind than datasource.replicas.max-lag-ms, or not answering, is skipped
+//	- read-your-writes: the last commit of each caller is kept for max-lag-ms, the caller only reads from
+//	  replicas whose position is past it. A heartbeat written after the commit replicates after it.
+//	  Callers are the user of the token, and the client: a random id in the CLIENT_COOKIE cookie, set on the
+//	  response of its first write. Not the client address, all the clients behind one proxy or NAT share it.
+//	  A client that doesn't keep cookies and has no token may not see its writes right away.
+//	  Per instance, a caller on another instance can still read a replica behind
+//	- a request stays on the first replica it reads from, and on the primary once it falls back,
+//	  so its reads never go back in time
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+	public static final String CLIENT_COOKIE = "replica_client";
+
+	private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+	private static final String REQUEST_TARGET = ReplicaRoutingDataSource.class.getName() + ".target";
+	private static final String UPSERT_HEARTBEAT_SQL = "INSERT INTO replica_heartbeat (instance_id, beat_at) VALUES (?, ?) "
+			+ "ON DUPLICATE KEY UPDATE beat_at = VALUES(beat_at)";
+	// Rows of instances that stopped without removing theirs
+	private static final long ABANDONED_HEARTBEAT_MS = 24 * 3600 * 1000;
+
+	private static final class Replica {
+		private final String name;
+		private final HikariDataSource pool;
+		private final JdbcTemplate jdbcTemplate;
+		// Heartbeat time last read from it, 0 before the first
+		private volatile long position = 0;
+		private volatile boolean up = false;
+
+		Replica(HikariDataSource pool) {
+			this.name = pool.getPoolName();
+			this.pool = pool;
+			this.jdbcTemplate = new JdbcTemplate(pool);
+		}
+	}
+
+	private final DataSource primary;
+	private final JdbcTemplate primaryJdbcTemplate;
+	private final List<Replica> replicas = new ArrayList<Replica>();
+	private final long maxLagMs;
+	private final String instanceId = UUID.randomUUID().toString();
+	// "user:<id>" or "client:<cookie>" -> time of the caller's last commit
+	private final Cache<String, Long> lastWrites;
+	private final AtomicInteger nextReplica = new AtomicInteger();
+	// Where the connections of the transactions running on this thread come from, innermost first
+	private final ThreadLocal<Deque<DataSource>> targets = ThreadLocal.withInitial(ArrayDeque::new);
+	private boolean abandonedRowsDeleted = false;
+
+	public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicaPools, long maxLagMs, long maxCallers) {
+		this.primary = primary;
+		this.primaryJdbcTemplate = new JdbcTemplate(primary);
+		for (HikariDataSource pool : replicaPools) {
+			replicas.add(new Replica(pool));
+		}
+		this.maxLagMs = maxLagMs;
+		// Past max-lag-ms every replica still used is beyond the commit anyway
+		this.lastWrites = Caffeine.newBuilder()
+				.maximumSize(maxCallers)
+				.expireAfterWrite(Duration.ofMillis(maxLagMs))
+				.build();
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return currentTarget().getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return currentTarget().getConnection(username, password);
+	}
+
+	// Called as a transaction begins, returns true when it reads from a replica
+	boolean begin(boolean readOnly) {
+		Replica replica = readOnly ? replicaForRequest() : null;
+		targets.get().push(replica == null ? primary : replica.pool);
+		return replica != null;
+	}
+
+	// Called once the transaction begin() was called for is over
+	void end() {
+		Deque<DataSource> stack = targets.get();
+		stack.pop();
+		if (stack.isEmpty()) {
+			targets.remove();
+		}
+	}
+
+	boolean onReplica() {
+		return currentTarget() != primary;
+	}
+
+	// Called after a read-write transaction committed
+	void committed() {
+		HttpServletRequest request = currentRequest();
+		if (replicas.isEmpty() || request == null) {
+			return;
+		}
+		if (clientId(request) == null) {
+			newClientId(request);
+		}
+		long now = System.currentTimeMillis();
+		for (String caller : callers(request)) {
+			lastWrites.put(caller, now);
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${datasource.replicas.heartbeat-interval-ms:250}")
+	public void heartbeat() {
+		if (replicas.isEmpty()) {
+			return;
+		}
+		try {
+			if (!abandonedRowsDeleted) {
+				primaryJdbcTemplate.update("DELETE FROM replica_heartbeat WHERE beat_at < ?", System.currentTimeMillis() - ABANDONED_HEARTBEAT_MS);
+				abandonedRowsDeleted = true;
+			}
+			primaryJdbcTemplate.update(UPSERT_HEARTBEAT_SQL, instanceId, System.currentTimeMillis());
+		} catch (DataAccessException e) {
+			log.warn("Replica heartbeat: could not write to the primary: {}", e.getMessage());
+		}
+		for (Replica replica : replicas) {
+			try {
+				List<Long> seen = replica.jdbcTemplate.queryForList("SELECT beat_at FROM replica_heartbeat WHERE instance_id = ?", Long.class, instanceId);
+				replica.position = seen.isEmpty() ? 0 : seen.get(0);
+				if (!replica.up) {
+					replica.up = true;
+					log.info("Replica {} is up", replica.name);
+				}
+			} catch (DataAccessException e) {
+				if (replica.up) {
+					replica.up = false;
+					log.warn("Replica {} is down, reading from the primary: {}", replica.name, e.getMessage());
+				}
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		if (!replicas.isEmpty()) {
+			try {
+				primaryJdbcTemplate.update("DELETE FROM replica_heartbeat WHERE instance_id = ?", instanceId);
+			} catch (DataAccessException e) {
+				log.warn("Replica heartbeat: could not remove the row of this instance: {}", e.getMessage());
+			}
+		}
+		for (Replica replica : replicas) {
+			replica.pool.close();
+		}
+	}
+
+	private DataSource currentTarget() {
+		DataSource target = targets.get().peek();
+		return target == null ? primary : target;
+	}
+
+	// null for the primary
+	private Replica replicaForRequest() {
+		HttpServletRequest request = currentRequest();
+		if (replicas.isEmpty() || request == null
+				|| !(HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod()))) {
+			return null;
+		}
+		long now = System.currentTimeMillis();
+		long lastWrite = lastWrite(request);
+		Object chosen = request.getAttribute(REQUEST_TARGET);
+		if (chosen == primary) {
+			return null;
+		}
+		if (chosen instanceof Replica replica) {
+			if (isCurrent(replica, now, lastWrite)) {
+				return replica;
+			}
+			request.setAttribute(REQUEST_TARGET, primary);
+			return null;
+		}
+		int first = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+		for (int i = 0; i < replicas.size(); i++) {
+			Replica replica = replicas.get((first + i) % replicas.size());
+			if (isCurrent(replica, now, lastWrite)) {
+				request.setAttribute(REQUEST_TARGET, replica);
+				return replica;
+			}
+		}
+		request.setAttribute(REQUEST_TARGET, primary);
+		return null;
+	}
+
+	private boolean isCurrent(Replica replica, long now, long lastWrite) {
+		return replica.up && now - replica.position <= maxLagMs && replica.position > lastWrite;
+	}
+
+	private long lastWrite(HttpServletRequest request) {
+		long lastWrite = 0;
+		for (String caller : callers(request)) {
+			Long time = lastWrites.getIfPresent(caller);
+			if (time != null) {
+				lastWrite = Math.max(lastWrite, time);
+			}
+		}
+		return lastWrite;
+	}
+
+	// By user and by client: a user that just signed up writes anonymously, then reads with a token
+	private List<String> callers(HttpServletRequest request) {
+		List<String> callers = new ArrayList<String>(2);
+		if (request.getAttribute(AuthenticatedUser.ATTRIBUTE) instanceof AuthenticatedUser caller) {
+			callers.add("user:" + caller.getId());
+		}
+		String client_id = clientId(request);
+		if (client_id != null) {
+			callers.add("client:" + client_id);
+		}
+		return callers;
+	}
+
+	// The id of the cookie, or the one given to the client earlier in this request
+	private String clientId(HttpServletRequest request) {
+		if (request.getAttribute(CLIENT_COOKIE) instanceof String client_id) {
+			return client_id;
+		}
+		if (request.getCookies() != null) {
+			for (Cookie cookie : request.getCookies()) {
+				if (CLIENT_COOKIE.equals(cookie.getName()) && !cookie.getValue().isBlank()) {
+					return cookie.getValue();
+				}
+			}
+		}
+		return null;
+	}
+
+	// Kept for the browser session. Nothing is set once the response is sent, the client then goes by its token only
+	private void newClientId(HttpServletRequest request) {
+		HttpServletResponse response = RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes ? attributes.getResponse() : null;
+		if (response == null || response.isCommitted()) {
+			return;
+		}
+		String client_id = UUID.randomUUID().toString();
+		request.setAttribute(CLIENT_COOKIE, client_id);
+		response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(CLIENT_COOKIE, client_id)
+				.path("/").httpOnly(true).sameSite("Lax").build().toString());
+	}
+
+	private HttpServletRequest currentRequest() {
+		return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes ? attributes.getRequest() : null;
+	}
+
+}
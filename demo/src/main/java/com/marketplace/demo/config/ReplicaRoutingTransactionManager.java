@@ -0,0 +1,72 @@
+package com.marketplace.demo.config;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+// JPA transactions routed by ReplicaRoutingDataSource: each new transaction gets its target before
+// Hibernate takes a connection, and keeps it until it is over.
+// A replica may be behind the primary, what is read from it isn't put in the second-level cache, where it
+// would outlive the lag. Lookups still use the cache.
+public class ReplicaRoutingTransactionManager extends JpaTransactionManager {
+
+	private final ReplicaRoutingDataSource routingDataSource;
+
+	public ReplicaRoutingTransactionManager(EntityManagerFactory entityManagerFactory, ReplicaRoutingDataSource routingDataSource) {
+		super(entityManagerFactory);
+		this.routingDataSource = routingDataSource;
+	}
+
+	@Override
+	protected void doBegin(Object transaction, TransactionDefinition definition) {
+		boolean onReplica = routingDataSource.begin(definition.isReadOnly());
+		try {
+			super.doBegin(transaction, definition);
+		} catch (RuntimeException | Error e) {
+			routingDataSource.end();
+			throw e;
+		}
+		if (onReplica) {
+			cacheStoreMode(CacheStoreMode.BYPASS);
+		}
+	}
+
+	@Override
+	protected void doCommit(DefaultTransactionStatus status) {
+		super.doCommit(status);
+		if (!status.isReadOnly()) {
+			routingDataSource.committed();
+		}
+	}
+
+	@Override
+	protected void doCleanupAfterCompletion(Object transaction) {
+		try {
+			// The session outlives the transaction with open-in-view
+			if (routingDataSource.onReplica()) {
+				cacheStoreMode(CacheStoreMode.USE);
+			}
+			super.doCleanupAfterCompletion(transaction);
+		} finally {
+			routingDataSource.end();
+		}
+	}
+
+	// Queries follow the session's cache mode, find() the store mode property
+	private void cacheStoreMode(CacheStoreMode storeMode) {
+		EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+		EntityManager entityManager = holder.getEntityManager();
+		entityManager.setProperty(AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE, storeMode);
+		entityManager.unwrap(Session.class).setCacheMode(storeMode == CacheStoreMode.BYPASS ? CacheMode.GET : CacheMode.NORMAL);
+	}
+
+}
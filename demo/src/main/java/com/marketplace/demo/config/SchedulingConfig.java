@@ -0,0 +1,11 @@
+package com.marketplace.demo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Enables the @Scheduled background jobs (e.g. flushing favorite counters)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+}
@@ -0,0 +1,107 @@
+package com.marketplace.demo.config;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Refuses to start against a schema without the indexes the hot queries rely on
+// (created by db/migration/V2__query_path_indexes.sql and the later migrations of new tables),
+// instead of silently running them as table scans.
+// Runs after all singletons, so after Flyway migrated the schema. Turned off with schema.validate-indexes=false.
+// An index is found by its leading columns, whatever its name, and the primary key counts as an index.
+@Component
+public class SchemaIndexValidator implements SmartInitializingSingleton {
+
+	// Table first, then the leading columns of the index
+	private static final String[][] REQUIRED_INDEXES = {
+			{ "items", "seller_id" },
+			{ "items", "category_id", "price" },
+			{ "items", "item_condition", "price" },
+			{ "items", "sold", "category_id", "price" },
+			{ "users", "username" },
+			{ "users", "country", "city" },
+			{ "reviews", "reviewee_id" },
+			{ "reviews", "reviewer_id" },
+			{ "favorites", "user_id", "item_id" },
+			{ "favorites", "item_id", "user_id" },
+			{ "images", "item_id" },
+			{ "images", "blob_hash" },
+			{ "image_variants", "blob_hash" },
+			{ "reputation_buckets", "user_id", "month_start" },
+			{ "saved_searches", "user_id" }
+	};
+
+	@Autowired
+	DataSource dataSource;
+
+	@Value("${schema.validate-indexes:true}")
+	private boolean validateIndexes;
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (!validateIndexes) {
+			return;
+		}
+
+		List<String> missing = new ArrayList<String>();
+		try (Connection connection = dataSource.getConnection()) {
+			DatabaseMetaData metaData = connection.getMetaData();
+			for (String[] required : REQUIRED_INDEXES) {
+				List<String> columns = List.of(required).subList(1, required.length);
+				if (!hasIndex(indexColumns(metaData, connection, required[0]), columns)) {
+					missing.add(required[0] + " (" + String.join(", ", columns) + ")");
+				}
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException("Could not read the indexes of the schema: " + e.getMessage(), e);
+		}
+
+		if (!missing.isEmpty()) {
+			throw new IllegalStateException("The schema is missing indexes the application needs: " + String.join(", ", missing)
+					+ ". Run the migrations in db/migration, or set schema.validate-indexes=false to start anyway.");
+		}
+	}
+
+	// Index name -> its columns in order
+	private Map<String, List<String>> indexColumns(DatabaseMetaData metaData, Connection connection, String table) throws SQLException {
+		Map<String, List<String>> indexes = new TreeMap<String, List<String>>();
+		try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), table, false, false)) {
+			while (rs.next()) {
+				String index = rs.getString("INDEX_NAME");
+				String column = rs.getString("COLUMN_NAME");
+				if (index == null || column == null) {
+					continue;
+				}
+				List<String> columns = indexes.computeIfAbsent(index, name -> new ArrayList<String>());
+				int position = rs.getShort("ORDINAL_POSITION") - 1;
+				while (columns.size() <= position) {
+					columns.add(null);
+				}
+				columns.set(position, column.toLowerCase());
+			}
+		}
+		return indexes;
+	}
+
+	private boolean hasIndex(Map<String, List<String>> indexes, List<String> columns) {
+		for (List<String> indexColumns : indexes.values()) {
+			if (indexColumns.size() >= columns.size() && indexColumns.subList(0, columns.size()).equals(columns)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
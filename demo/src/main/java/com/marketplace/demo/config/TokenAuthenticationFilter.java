@@ -0,0 +1,46 @@
+package com.marketplace.demo.config;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.marketplace.demo.models.dto.AuthenticatedUser;
+import com.marketplace.demo.services.TokenService;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Reads "Authorization: Bearer <token>" and puts the caller in the request (AuthenticatedUser.ATTRIBUTE).
+// Only checks the signature and the claims, nothing is loaded.
+// A request without a token goes through anonymously, a bad or expired token gets 401.
+@Component
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+	private static final String BEARER = "Bearer ";
+
+	@Autowired
+	TokenService tokenService;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+		if (header != null && header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+			AuthenticatedUser caller = tokenService.verify(header.substring(BEARER.length()).trim());
+			if (caller == null) {
+				response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+				response.sendError(HttpStatus.UNAUTHORIZED.value(), "Invalid or expired token");
+				return;
+			}
+			request.setAttribute(AuthenticatedUser.ATTRIBUTE, caller);
+		}
+		filterChain.doFilter(request, response);
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.marketplace.demo.config;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+// Virtual-thread mode, switched on with spring.threads.virtual.enabled=true.
+// Spring Boot then runs Tomcat's request handling, @Async and @Scheduled work on virtual threads,
+// this adds the connection pool's own threads (opening / closing connections).
+// CPU-bound work stays on platform pools (image variants, see ImageVariantService).
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+	@Bean
+	public static BeanPostProcessor hikariVirtualThreads() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+				if (bean instanceof HikariDataSource dataSource) {
+					dataSource.setThreadFactory(Thread.ofVirtual().name("hikari-", 0).factory());
+				}
+				return bean;
+			}
+		};
+	}
+
+}
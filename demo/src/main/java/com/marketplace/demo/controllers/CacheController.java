@@ -0,0 +1,24 @@
+package com.marketplace.demo.controllers;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.marketplace.demo.cache.TwoTierRegionFactory;
+import com.marketplace.demo.models.dto.CacheRegionStats;
+
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+	
+	@Autowired
+	TwoTierRegionFactory cacheRegionFactory;
+
+	@GetMapping("/stats")
+	public List<CacheRegionStats> getCacheStats(){
+		return cacheRegionFactory.getStats();
+	}
+}
@@ -4,11 +4,15 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.dto.TrendingItem;
 import com.marketplace.demo.services.CategoryService;
+import com.marketplace.demo.services.TrendingService;
 
 @RestController
 @RequestMapping("/categories")
@@ -16,9 +20,18 @@ public class CategoryController {
 	
 	@Autowired
 	CategoryService categoryService;
+	@Autowired
+	TrendingService trendingService;
 
 	@GetMapping("/")
 	public List<Category> getAllCategories(){
 		return categoryService.getAllItems();
 	}
+	
+	// Most favorited items of the category lately, from memory, e.g. /categories/{id}/trending?page=0&size=20
+	@GetMapping("/{category_id}/trending")
+	public List<TrendingItem> getTrendingItems(@PathVariable("category_id") String category_id,
+			@RequestParam(required = false) Integer page, @RequestParam(required = false) Integer size) {
+		return trendingService.getTrending(category_id, page, size);
+	}
 }
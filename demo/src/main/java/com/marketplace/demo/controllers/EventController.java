@@ -0,0 +1,33 @@
+package com.marketplace.demo.controllers;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.marketplace.demo.services.EventRelayService;
+
+@RestController
+@RequestMapping("/events")
+public class EventController {
+	
+	@Autowired
+	EventRelayService eventRelayService;
+
+	// Last event handled by each subscriber
+	@GetMapping("/cursors")
+	public Map<String, Long> getCursors(){
+		return eventRelayService.getCursors();
+	}
+	
+	// Delivers the events after after_event_id to the subscriber again, e.g. to rebuild what it derives from them
+	@PostMapping("/cursors/{subscriber}/replay")
+	public void replay(@PathVariable("subscriber") String subscriber, @RequestParam long after_event_id) {
+		eventRelayService.replay(subscriber, after_event_id);
+	}
+}
@@ -1,15 +1,17 @@
 package com.marketplace.demo.controllers;
 
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.marketplace.demo.services.ImageService;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
 
 @RestController
 @RequestMapping("/images/")
@@ -18,9 +20,11 @@ public class ImageController {
 	@Autowired
 	ImageService imageService;
 	
+	// Written directly to the response: conditional, range and sendfile handling are in ImageService
 	@GetMapping("/{image_id}")
-	public ResponseEntity<Resource> getImageFile(@PathVariable("image_id") String image_id) {
-	    return imageService.getImageFile(image_id);
+	public void getImageFile(@PathVariable("image_id") String image_id, @RequestParam(name = "size", required = false) String size,
+			HttpServletRequest request, HttpServletResponse response) {
+	    imageService.writeImageFile(image_id, size, request, response);
 	}
 
 }
@@ -1,5 +1,7 @@
 package com.marketplace.demo.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -12,14 +14,26 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.dto.CursorPage;
+import com.marketplace.demo.models.dto.FacetCount;
+import com.marketplace.demo.models.dto.ItemImportResult;
 import com.marketplace.demo.models.dto.ItemInputDTO;
+import com.marketplace.demo.models.dto.ItemSearchDTO;
+import com.marketplace.demo.models.dto.ItemSearchResult;
 import com.marketplace.demo.models.dto.ItemStripped;
+import com.marketplace.demo.models.dto.SimilarItem;
+import com.marketplace.demo.services.ItemImportService;
 import com.marketplace.demo.services.ItemService;
+import com.marketplace.demo.services.ListStreamingService;
+import com.marketplace.demo.services.SimilarItemsService;
+
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/items")
@@ -27,10 +41,42 @@ public class ItemController {
 	
 	@Autowired
 	ItemService itemService;
+	@Autowired
+	ItemImportService itemImportService;
+	@Autowired
+	ListStreamingService listStreamingService;
+	@Autowired
+	SimilarItemsService similarItemsService;
 	
+	// Deprecated, use /items/page. Kept for old clients, and written straight from a database cursor
+	// (see ListStreamingService) so that it doesn't hold the whole catalogue in memory. ?stream=true is accepted and ignored
+	@Deprecated
 	@GetMapping("/")
-	public List<ItemStripped> getAllItems(){
-		List<Item> list = itemService.getAllItems();
+	public void getAllItems(HttpServletResponse response) throws IOException {
+		LegacyListing.deprecate(response, "/items/page");
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		listStreamingService.writeAllItems(response.getOutputStream());
+	}
+	
+	@GetMapping("/page")
+	public CursorPage<ItemStripped> getItemsPage(@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size){
+		CursorPage<Item> page = itemService.getItemsPage(cursor, size);
+		return page.map(item -> new ItemStripped(item));
+	}
+	
+	// Faceted search, e.g. /items/browse?category_id=..&min_price=10&max_price=200&itemCondition=Used&sold=false&country=Greece
+	@GetMapping("/browse")
+	public ItemSearchResult browseItems(ItemSearchDTO search, @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size){
+		CursorPage<Item> page = itemService.searchItems(search, cursor, size);
+		List<FacetCount> categoryFacets = itemService.getCategoryFacets(search);
+		List<FacetCount> conditionFacets = itemService.getConditionFacets(search);
+		return new ItemSearchResult(page.map(item -> new ItemStripped(item)), categoryFacets, conditionFacets);
+	}
+	
+	// Ranked full-text search over titles and descriptions, e.g. /items/search?q=electric+guitar&page=0&size=20
+	@GetMapping("/search")
+	public List<ItemStripped> searchItems(@RequestParam String q, @RequestParam(required = false) Integer page, @RequestParam(required = false) Integer size){
+		List<Item> list = itemService.searchItemsByText(q, page, size);
 		return list.stream()
 				.map(item -> new ItemStripped(item))
 				.collect(Collectors.toList());
@@ -42,6 +88,12 @@ public class ItemController {
 		return new ItemStripped(item);
 	}
 	
+	// Items favorited by the same users, precomputed in memory, e.g. /items/{id}/similar?size=10
+	@GetMapping("/{item_id}/similar")
+	public List<SimilarItem> getSimilarItems(@PathVariable("item_id") String item_id, @RequestParam(required = false) Integer size) {
+		return similarItemsService.getSimilarItems(item_id, size);
+	}
+	
 	@DeleteMapping("{item_id}")
 	public void removeItem(@PathVariable("item_id") String item_id) {
 		itemService.removeItem(item_id);
@@ -53,6 +105,17 @@ public class ItemController {
 		return new ItemStripped(item);
 	}
 	
+	// Bulk import, the body is streamed row by row and never held in memory as a whole
+	@PostMapping(path = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ItemImportResult importItemsJson(InputStream body) {
+		return itemImportService.importJson(body);
+	}
+	
+	@PostMapping(path = "/import", consumes = "text/csv")
+	public ItemImportResult importItemsCsv(InputStream body) {
+		return itemImportService.importCsv(body);
+	}
+	
 	@PutMapping("/{item_id}")
 	public ItemStripped updateItem(@PathVariable("item_id") String item_id, @RequestBody ItemInputDTO itemInput) {
 		Item item = itemService.updateItem(item_id, itemInput);
@@ -0,0 +1,17 @@
+package com.marketplace.demo.controllers;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+// The full list endpoints predate cursor pagination. They stay for old clients, but every response
+// tells them so (Deprecation header) and where to go instead (Link rel="successor-version").
+final class LegacyListing {
+
+	private LegacyListing() {
+	}
+
+	static void deprecate(HttpServletResponse response, String successor) {
+		response.setHeader("Deprecation", "true");
+		response.setHeader("Link", "<" + successor + ">; rel=\"successor-version\"");
+	}
+
+}
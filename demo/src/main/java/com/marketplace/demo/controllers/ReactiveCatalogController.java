@@ -0,0 +1,47 @@
+package com.marketplace.demo.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.marketplace.demo.models.CategoryRow;
+import com.marketplace.demo.models.dto.ItemStripped;
+import com.marketplace.demo.services.ReactiveCatalogService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Streaming versions of the browse endpoints.
+// Lists are written one JSON object per line (Accept: application/x-ndjson)
+// or as server-sent events (Accept: text/event-stream), each element as soon as its row arrives.
+@RestController
+@RequestMapping("/reactive")
+public class ReactiveCatalogController {
+
+	@Autowired
+	ReactiveCatalogService reactiveCatalogService;
+
+	@GetMapping(path = "/items/", produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+	public Flux<ItemStripped> getAllItems() {
+		return reactiveCatalogService.getAllItems();
+	}
+
+	@GetMapping("/items/{item_id}")
+	public Mono<ItemStripped> getItem(@PathVariable("item_id") String item_id) {
+		return reactiveCatalogService.getItem(item_id);
+	}
+
+	@GetMapping(path = "/users/{user_id}/items/", produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+	public Flux<ItemStripped> getItemsOfUser(@PathVariable("user_id") String user_id) {
+		return reactiveCatalogService.getItemsOfUser(user_id);
+	}
+
+	@GetMapping(path = "/categories/", produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+	public Flux<CategoryRow> getAllCategories() {
+		return reactiveCatalogService.getAllCategories();
+	}
+
+}
@@ -1,9 +1,9 @@
 package com.marketplace.demo.controllers;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.io.IOException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -11,26 +11,40 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.marketplace.demo.models.Review;
+import com.marketplace.demo.models.dto.CursorPage;
 import com.marketplace.demo.models.dto.ReviewInputDTO;
 import com.marketplace.demo.models.dto.ReviewStripped;
+import com.marketplace.demo.services.ListStreamingService;
 import com.marketplace.demo.services.ReviewService;
 
+import jakarta.servlet.http.HttpServletResponse;
+
 @RestController
 @RequestMapping("/reviews")
 public class ReviewController {
 	
 	@Autowired
 	ReviewService reviewService;
+	@Autowired
+	ListStreamingService listStreamingService;
 
+	// Deprecated, use /reviews/page. Written from a database cursor, like /items/
+	@Deprecated
 	@GetMapping("/")
-	public List<ReviewStripped> getAllReviews(){
-		List<Review> list = reviewService.getAllReviews();
-		return list.stream()
-				.map(review -> new ReviewStripped(review))
-				.collect(Collectors.toList());
+	public void getAllReviews(HttpServletResponse response) throws IOException {
+		LegacyListing.deprecate(response, "/reviews/page");
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		listStreamingService.writeAllReviews(response.getOutputStream());
+	}
+	
+	@GetMapping("/page")
+	public CursorPage<ReviewStripped> getReviewsPage(@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size){
+		CursorPage<Review> page = reviewService.getReviewsPage(cursor, size);
+		return page.map(review -> new ReviewStripped(review));
 	}
 	
 	@GetMapping("/{review_id}")
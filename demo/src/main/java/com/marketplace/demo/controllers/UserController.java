@@ -1,30 +1,45 @@
 package com.marketplace.demo.controllers;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.marketplace.demo.models.Item;
 import com.marketplace.demo.models.Review;
+import com.marketplace.demo.models.SavedSearch;
 import com.marketplace.demo.models.User;
+import com.marketplace.demo.models.dto.AuthenticatedUser;
+import com.marketplace.demo.models.dto.CursorPage;
 import com.marketplace.demo.models.dto.ItemStripped;
+import com.marketplace.demo.models.dto.ReputationDTO;
 import com.marketplace.demo.models.dto.ReviewStripped;
+import com.marketplace.demo.models.dto.SavedSearchInputDTO;
+import com.marketplace.demo.models.dto.SavedSearchStripped;
 import com.marketplace.demo.models.dto.UserInputDTO;
 import com.marketplace.demo.models.dto.UserStripped;
 import com.marketplace.demo.services.ItemService;
+import com.marketplace.demo.services.ListStreamingService;
+import com.marketplace.demo.services.ReputationService;
 import com.marketplace.demo.services.ReviewService;
+import com.marketplace.demo.services.SavedSearchService;
 import com.marketplace.demo.services.UserService;
 
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/users")
@@ -36,13 +51,35 @@ public class UserController {
 	ItemService itemService;
 	@Autowired
 	ReviewService reviewService;
+	@Autowired
+	ReputationService reputationService;
+	@Autowired
+	ListStreamingService listStreamingService;
+	@Autowired
+	SavedSearchService savedSearchService;
 
+	// Deprecated, use /users/page. Written from a database cursor, like /items/
+	@Deprecated
 	@GetMapping("/")
-	public List<UserStripped> getAllUsers(){
-		List<User> list = userService.getAllUsers();
-		return list.stream()
-				.map(u -> new UserStripped(u))
-				.collect(Collectors.toList());
+	public void getAllUsers(HttpServletResponse response) throws IOException {
+		LegacyListing.deprecate(response, "/users/page");
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		listStreamingService.writeAllUsers(response.getOutputStream());
+	}
+	
+	@GetMapping("/page")
+	public CursorPage<UserStripped> getUsersPage(@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size){
+		CursorPage<User> page = userService.getUsersPage(cursor, size);
+		return page.map(u -> new UserStripped(u));
+	}
+	
+	// The caller, from its token alone
+	@GetMapping("/me")
+	public AuthenticatedUser getCaller(@RequestAttribute(name = AuthenticatedUser.ATTRIBUTE, required = false) AuthenticatedUser caller) {
+		if (caller == null) {
+			throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Login required");
+		}
+		return caller;
 	}
 	
 	@GetMapping("/{user_id}")
@@ -60,6 +97,13 @@ public class UserController {
 				.collect(Collectors.toList());
 	}
 	
+	@GetMapping(path = "/{user_id}/items/", params = "stream=true")
+	public void streamItemsOfUser(@PathVariable("user_id") String user_id, HttpServletResponse response) throws IOException {
+		User u = userService.getUser(user_id);
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		listStreamingService.writeItemsOfUser(u.getId(), response.getOutputStream());
+	}
+	
 	@DeleteMapping("/{user_id}")
 	public void removeUser(@PathVariable("user_id") String user_id) {
 		userService.removeUser(user_id);
@@ -95,27 +139,84 @@ public class UserController {
 				.collect(Collectors.toList());
 	}
 	
+	// Precomputed review aggregates, doesn't load any review
+	@GetMapping("/{user_id}/reputation")
+	public ReputationDTO getReputationOfUser(@PathVariable("user_id") String user_id) {
+		return reputationService.getReputation(user_id);
+	}
+	
 	@PostMapping("/{user_id}/favoriteItems/")
-	public void addItemToUserFavorites(@PathVariable("user_id") String user_id, @RequestParam String item_id) {
-		User u = userService.getUser(user_id);
+	public void addItemToUserFavorites(@PathVariable("user_id") String user_id, @RequestParam String item_id,
+			@RequestAttribute(name = AuthenticatedUser.ATTRIBUTE, required = false) AuthenticatedUser caller) {
+		String id = resolveUserId(user_id, caller);
 		Item i = itemService.getItem(item_id);
-		userService.addItemToUserFavorites(u, i);
+		userService.addItemToUserFavorites(id, i);
 	}
 	
 	@DeleteMapping("/{user_id}/favoriteItems/")
-	public void removeItemFromUserFavorites(@PathVariable("user_id") String user_id, @RequestParam String item_id) {
-		User u = userService.getUser(user_id);
+	public void removeItemFromUserFavorites(@PathVariable("user_id") String user_id, @RequestParam String item_id,
+			@RequestAttribute(name = AuthenticatedUser.ATTRIBUTE, required = false) AuthenticatedUser caller) {
+		String id = resolveUserId(user_id, caller);
 		Item i = itemService.getItem(item_id);
-		userService.removeItemFromUserFavorites(u, i);
+		userService.removeItemFromUserFavorites(id, i);
 	}
 	
 	@GetMapping("/{user_id}/favoriteItems/")
-	public List<ItemStripped> getUserFavorites(@PathVariable("user_id") String user_id) {
-		User u = userService.getUser(user_id);
-		List<Item> list = userService.getUserFavorites(u);
+	public List<ItemStripped> getUserFavorites(@PathVariable("user_id") String user_id,
+			@RequestAttribute(name = AuthenticatedUser.ATTRIBUTE, required = false) AuthenticatedUser caller) {
+		// Anyone's favorites can be read, only the caller's own skip the user lookup
+		String id = caller != null && caller.getId().equals(user_id) ? caller.getId() : userService.getUser(user_id).getId();
+		List<Item> list = userService.getUserFavorites(id);
 		return list.stream()
 				.map(i -> new ItemStripped(i))
 				.collect(Collectors.toList());
 	}
+	
+	// Saved searches are private: only their owner lists, adds and removes them, with a token
+	@GetMapping("/{user_id}/savedSearches/")
+	public List<SavedSearchStripped> getSavedSearches(@PathVariable("user_id") String user_id,
+			@RequestAttribute(name = AuthenticatedUser.ATTRIBUTE, required = false) AuthenticatedUser caller) {
+		String id = ownerId(user_id, caller);
+		List<SavedSearch> list = savedSearchService.getSavedSearches(id);
+		return list.stream()
+				.map(s -> new SavedSearchStripped(s))
+				.collect(Collectors.toList());
+	}
+	
+	// Alerts the user about items listed from now on that match, see SavedSearchService
+	@PostMapping("/{user_id}/savedSearches/")
+	public SavedSearchStripped createSavedSearch(@PathVariable("user_id") String user_id, @RequestBody SavedSearchInputDTO savedSearchInput,
+			@RequestAttribute(name = AuthenticatedUser.ATTRIBUTE, required = false) AuthenticatedUser caller) {
+		String id = ownerId(user_id, caller);
+		SavedSearch s = savedSearchService.createSavedSearch(id, savedSearchInput);
+		return new SavedSearchStripped(s);
+	}
+	
+	@DeleteMapping("/{user_id}/savedSearches/{search_id}")
+	public void removeSavedSearch(@PathVariable("user_id") String user_id, @PathVariable("search_id") String search_id,
+			@RequestAttribute(name = AuthenticatedUser.ATTRIBUTE, required = false) AuthenticatedUser caller) {
+		String id = ownerId(user_id, caller);
+		savedSearchService.removeSavedSearch(id, search_id);
+	}
+	
+	// With a token the caller acts on its own id, taken from the token without loading the user.
+	// Without one the user is loaded to check it exists
+	private String resolveUserId(String user_id, AuthenticatedUser caller) {
+		if (caller == null) {
+			return userService.getUser(user_id).getId();
+		}
+		if (!caller.getId().equals(user_id)) {
+			throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Cannot act on behalf of another user");
+		}
+		return caller.getId();
+	}
+
+	// Like resolveUserId, but a token is required
+	private String ownerId(String user_id, AuthenticatedUser caller) {
+		if (caller == null) {
+			throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Login required");
+		}
+		return resolveUserId(user_id, caller);
+	}
 
 }
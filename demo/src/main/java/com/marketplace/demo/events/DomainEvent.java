@@ -0,0 +1,43 @@
+package com.marketplace.demo.events;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+// One committed change, as read back from OUTBOX_EVENTS. Ids increase in the order the changes were recorded
+public class DomainEvent {
+
+	private final long id;
+	private final DomainEventType type;
+	// Id of the item, user or review the event is about
+	private final String aggregateId;
+	private final JsonNode payload;
+	private final long createdAt;
+
+	public DomainEvent(long id, DomainEventType type, String aggregateId, JsonNode payload, long createdAt) {
+		this.id = id;
+		this.type = type;
+		this.aggregateId = aggregateId;
+		this.payload = payload;
+		this.createdAt = createdAt;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public DomainEventType getType() {
+		return type;
+	}
+
+	public String getAggregateId() {
+		return aggregateId;
+	}
+
+	public JsonNode getPayload() {
+		return payload;
+	}
+
+	public long getCreatedAt() {
+		return createdAt;
+	}
+
+}
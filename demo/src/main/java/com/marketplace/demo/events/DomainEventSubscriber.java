@@ -0,0 +1,25 @@
+package com.marketplace.demo.events;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+// Gets the committed domain events, in id order and in batches, from EventRelayService. Except an event whose
+// transaction committed after later ones were relayed: it comes on its own once it shows up, see EventRelayService.
+// Every subscriber bean has its own cursor (OUTBOX_CURSORS, by name), advanced once onEvents returns:
+// when it throws the same batch comes again on the next run, so events are delivered at least once
+// and a subscriber must tolerate seeing one twice. A new subscriber starts at the oldest event kept.
+public interface DomainEventSubscriber {
+
+	// Stable across restarts, the cursor is stored under it. Instances sharing the database share the
+	// cursors of the same names, a subscriber keeping state in memory needs a name per instance
+	String getName();
+
+	void onEvents(List<DomainEvent> events);
+
+	// The other types are skipped without calling onEvents
+	default Set<DomainEventType> getEventTypes() {
+		return EnumSet.allOf(DomainEventType.class);
+	}
+
+}
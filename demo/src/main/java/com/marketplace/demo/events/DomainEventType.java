@@ -0,0 +1,18 @@
+package com.marketplace.demo.events;
+
+// What changed, see OutboxService for where each is recorded and what its payload holds
+public enum DomainEventType {
+	ITEM_CREATED,
+	ITEM_UPDATED,
+	// Also recorded as ITEM_UPDATED, this one only when an item goes from unsold to sold
+	ITEM_SOLD,
+	ITEM_REMOVED,
+	FAVORITE_ADDED,
+	FAVORITE_REMOVED,
+	REVIEW_CREATED,
+	REVIEW_UPDATED,
+	REVIEW_REMOVED,
+	USER_CREATED,
+	USER_UPDATED,
+	USER_REMOVED
+}
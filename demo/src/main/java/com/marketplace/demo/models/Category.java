@@ -1,17 +1,28 @@
 package com.marketplace.demo.models;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Type;
+
+import com.marketplace.demo.models.ids.BinaryUuidType;
+import com.marketplace.demo.models.ids.TimeOrderedId;
+
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 
 @Entity
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
 @Table(name="CATEGORIES")
 public class Category {
 
 	@Id
-	@GeneratedValue(strategy=GenerationType.UUID)
+	@TimeOrderedId
+	@Type(BinaryUuidType.class)
+	@Column(length=16)
 	public String id;
 	public String name;
 	
@@ -0,0 +1,35 @@
+package com.marketplace.demo.models;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+// Read-only R2DBC view of a CATEGORIES row, serialized like Category
+@Table("categories")
+public class CategoryRow {
+
+	@Id
+	private String id;
+	private String name;
+	
+	
+	public CategoryRow() {
+		
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+	
+}
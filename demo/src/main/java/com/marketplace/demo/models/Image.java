@@ -1,10 +1,17 @@
 package com.marketplace.demo.models;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Type;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.marketplace.demo.models.ids.BinaryUuidType;
+import com.marketplace.demo.models.ids.TimeOrderedId;
 
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
@@ -12,10 +19,14 @@ import jakarta.persistence.Table;
 
 @Entity
 @Table(name="IMAGES")
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
 public class Image {
 	
 	@Id
-	@GeneratedValue(strategy=GenerationType.UUID)
+	@TimeOrderedId
+	@Type(BinaryUuidType.class)
+	@Column(length=16)
 	String id;
 	@ManyToOne
 	@JoinColumn(name="item_id", referencedColumnName="id")
@@ -23,6 +34,16 @@ public class Image {
 	Item item;
 	@JsonIgnore
 	String image_path;
+	// Stored file of the image, null for images uploaded before content-addressed storage
+	@ManyToOne(fetch=FetchType.LAZY)
+	@JoinColumn(name="blob_hash", referencedColumnName="hash")
+	@JsonIgnore
+	ImageBlob blob;
+	// Copied from the blob on upload, so serving the file needs nothing but this row
+	@JsonIgnore
+	String contentType;
+	@JsonIgnore
+	Long size;
 	
 	
 	public Image(String id, Item item, String image_path) {
@@ -36,6 +57,14 @@ public class Image {
 		this.image_path = image_path;
 	}
 	
+	public Image(Item item, ImageBlob blob, String image_path) {
+		this.item = item;
+		this.blob = blob;
+		this.image_path = image_path;
+		this.contentType = blob.getContentType();
+		this.size = blob.getSize();
+	}
+	
 	public Image(Item item) {
 		this.item = item;
 	}
@@ -67,5 +96,29 @@ public class Image {
 	public void setImage_path(String image_path) {
 		this.image_path = image_path;
 	}
+
+	public ImageBlob getBlob() {
+		return blob;
+	}
+
+	public void setBlob(ImageBlob blob) {
+		this.blob = blob;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public Long getSize() {
+		return size;
+	}
+
+	public void setSize(Long size) {
+		this.size = size;
+	}
 	
 }
@@ -0,0 +1,69 @@
+package com.marketplace.demo.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// One stored image file, named after the SHA-256 of its bytes.
+// Every Image pointing at it holds one reference, the file is deleted with the last one.
+@Entity
+@Table(name="IMAGE_BLOBS")
+public class ImageBlob {
+
+	// Hex SHA-256 of the content
+	@Id
+	private String hash;
+	// Relative to images.upload-dir
+	private String path;
+	private long size;
+	private String contentType;
+	@Column(name="ref_count")
+	private long refCount;
+	
+	
+	public ImageBlob() {
+		
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	public void setHash(String hash) {
+		this.hash = hash;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public long getRefCount() {
+		return refCount;
+	}
+
+	public void setRefCount(long refCount) {
+		this.refCount = refCount;
+	}
+	
+}
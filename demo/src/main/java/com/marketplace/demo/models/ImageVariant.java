@@ -0,0 +1,121 @@
+package com.marketplace.demo.models;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+// A resized copy of a stored image file.
+// Variants belong to the blob, not to the Image, so duplicate uploads share them too.
+@Entity
+@Table(name="IMAGE_VARIANTS", indexes = @Index(name="idx_image_variants_blob", columnList="blob_hash"))
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
+public class ImageVariant {
+
+	// <blob hash>_<size>, so serving a variant is a lookup by primary key
+	@Id
+	private String id;
+	@Column(name="blob_hash")
+	private String blobHash;
+	@Enumerated(EnumType.STRING)
+	private ImageVariantSize variant;
+	// Relative to images.upload-dir
+	private String path;
+	private String contentType;
+	private long size;
+	private int width;
+	private int height;
+	
+	
+	public ImageVariant(String blobHash, ImageVariantSize variant, String path, String contentType, long size, int width, int height) {
+		this.id = idOf(blobHash, variant);
+		this.blobHash = blobHash;
+		this.variant = variant;
+		this.path = path;
+		this.contentType = contentType;
+		this.size = size;
+		this.width = width;
+		this.height = height;
+	}
+	
+	public ImageVariant() {
+		
+	}
+
+	public static String idOf(String blobHash, ImageVariantSize variant) {
+		return blobHash + "_" + variant.getName();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getBlobHash() {
+		return blobHash;
+	}
+
+	public void setBlobHash(String blobHash) {
+		this.blobHash = blobHash;
+	}
+
+	public ImageVariantSize getVariant() {
+		return variant;
+	}
+
+	public void setVariant(ImageVariantSize variant) {
+		this.variant = variant;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public void setWidth(int width) {
+		this.width = width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public void setHeight(int height) {
+		this.height = height;
+	}
+	
+}
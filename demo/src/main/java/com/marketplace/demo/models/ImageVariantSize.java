@@ -0,0 +1,34 @@
+package com.marketplace.demo.models;
+
+// Resized versions generated for every uploaded image, selected with /images/{id}?size=
+public enum ImageVariantSize {
+
+	THUMBNAIL(160),
+	CARD(480),
+	FULL(1600);
+
+	// Longest side in pixels, smaller originals are not scaled up
+	private final int maxDimension;
+
+	ImageVariantSize(int maxDimension) {
+		this.maxDimension = maxDimension;
+	}
+
+	public int getMaxDimension() {
+		return maxDimension;
+	}
+
+	public String getName() {
+		return name().toLowerCase();
+	}
+
+	public static ImageVariantSize fromName(String name) {
+		for (ImageVariantSize size : values()) {
+			if (size.getName().equalsIgnoreCase(name)) {
+				return size;
+			}
+		}
+		return null;
+	}
+
+}
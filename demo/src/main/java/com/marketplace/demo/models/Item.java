@@ -3,22 +3,49 @@ package com.marketplace.demo.models;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Type;
+
+import com.marketplace.demo.models.ids.BinaryUuidType;
+import com.marketplace.demo.models.ids.TimeOrderedId;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name="ITEMS")
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
+// Fetch plan for list endpoints: everything ItemStripped reads is loaded with the item itself
+@NamedEntityGraph(name="Item.listing", attributeNodes = {
+		@NamedAttributeNode("category"),
+		@NamedAttributeNode("seller")
+})
+@Table(name="ITEMS", indexes = {
+		// Composite indexes backing the faceted search filters and facet counts
+		@Index(name="idx_items_category_price", columnList="category_id, price"),
+		@Index(name="idx_items_condition_price", columnList="itemCondition, price"),
+		@Index(name="idx_items_sold_category_price", columnList="sold, category_id, price"),
+		// Items of a seller, and the "is this my own item" check when favoriting
+		@Index(name="idx_items_seller", columnList="seller_id")
+})
 public class Item {
 	
 	@Id
-	@GeneratedValue(strategy=GenerationType.UUID)
+	@TimeOrderedId
+	@Type(BinaryUuidType.class)
+	@Column(length=16)
 	public String id;
 	public String title;
 	@ManyToOne
@@ -28,12 +55,16 @@ public class Item {
 	@JoinColumn(name="seller_id", referencedColumnName="id")
 	public User seller;
 	public double price;
+	@Column(length=2000)
 	public String description;
 	public String itemCondition;
 	public boolean sold;
 	@OneToMany(mappedBy="item", cascade=CascadeType.ALL)
+	@BatchSize(size=100)	// images of a whole page of items are loaded with one query
 	public List<Image> images = new ArrayList<Image>();
-	private int favoriteCount = 0;	
+	// Only ever changed by FavoriteCounterService with atomic increments, never written back from the entity
+	@Column(updatable=false)
+	private int favoriteCount = 0;
 	
 	
 	public Item(String id, String title, Category category, User seller, double price, String description,
@@ -151,14 +182,4 @@ public class Item {
 	    this.favoriteCount = favoriteCount;
 	}
 
-	public void incrementFavoriteCount() {
-	    this.favoriteCount++;
-	}
-
-	public void decrementFavoriteCount() {
-	    if (this.favoriteCount > 0) {
-	        this.favoriteCount--;
-	    }
-	}
-
 }
@@ -0,0 +1,128 @@
+package com.marketplace.demo.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+// Read-only R2DBC view of an ITEMS row for ReactiveCatalogService.
+// Holds ids instead of the category, seller and images, the same shape ItemStripped returns.
+@Table("items")
+public class ItemRow {
+
+	@Id
+	private String id;
+	private String title;
+	@Column("category_id")
+	private String categoryId;
+	@Column("seller_id")
+	private String sellerId;
+	private double price;
+	private String description;
+	@Column("item_condition")
+	private String itemCondition;
+	private boolean sold;
+	@Column("favorite_count")
+	private int favoriteCount;
+	// Comma separated, from a subquery on IMAGES
+	@Column("image_ids")
+	private String imageIds;
+	
+	
+	public ItemRow() {
+		
+	}
+
+	public List<String> getImageIdList() {
+		List<String> ids = new ArrayList<String>();
+		if (imageIds != null && !imageIds.isEmpty()) {
+			for (String id : imageIds.split(",")) {
+				ids.add(id);
+			}
+		}
+		return ids;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public String getCategoryId() {
+		return categoryId;
+	}
+
+	public void setCategoryId(String categoryId) {
+		this.categoryId = categoryId;
+	}
+
+	public String getSellerId() {
+		return sellerId;
+	}
+
+	public void setSellerId(String sellerId) {
+		this.sellerId = sellerId;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	public void setPrice(double price) {
+		this.price = price;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
+
+	public String getItemCondition() {
+		return itemCondition;
+	}
+
+	public void setItemCondition(String itemCondition) {
+		this.itemCondition = itemCondition;
+	}
+
+	public boolean isSold() {
+		return sold;
+	}
+
+	public void setSold(boolean sold) {
+		this.sold = sold;
+	}
+
+	public int getFavoriteCount() {
+		return favoriteCount;
+	}
+
+	public void setFavoriteCount(int favoriteCount) {
+		this.favoriteCount = favoriteCount;
+	}
+
+	public String getImageIds() {
+		return imageIds;
+	}
+
+	public void setImageIds(String imageIds) {
+		this.imageIds = imageIds;
+	}
+	
+}
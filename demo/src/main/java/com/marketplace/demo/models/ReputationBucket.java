@@ -0,0 +1,97 @@
+package com.marketplace.demo.models;
+
+import java.time.LocalDate;
+
+import org.hibernate.annotations.Type;
+
+import com.marketplace.demo.models.ids.BinaryUuidType;
+import com.marketplace.demo.models.ids.TimeOrderedId;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+// Review count and rating sum of one user for one month (by review date).
+// The recent average of a reputation is computed from the last few buckets.
+@Entity
+@Table(name="REPUTATION_BUCKETS",
+	uniqueConstraints = @UniqueConstraint(name="uk_reputation_buckets_user_month", columnNames={"user_id", "month_start"}))
+public class ReputationBucket {
+
+	@Id
+	@TimeOrderedId
+	@Type(BinaryUuidType.class)
+	@Column(length=16)
+	private String id;
+	@Type(BinaryUuidType.class)
+	@Column(name="user_id", length=16)
+	private String userId;
+	// First day of the month
+	@Column(name="month_start")
+	private LocalDate monthStart;
+	private long reviewCount = 0;
+	private long ratingSum = 0;
+	
+	
+	public ReputationBucket(String userId, LocalDate monthStart) {
+		this.userId = userId;
+		this.monthStart = monthStart;
+	}
+	
+	public ReputationBucket() {
+		
+	}
+
+	public void addRating(int rating) {
+		this.reviewCount++;
+		this.ratingSum += rating;
+	}
+	
+	public void removeRating(int rating) {
+		this.reviewCount--;
+		this.ratingSum -= rating;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public LocalDate getMonthStart() {
+		return monthStart;
+	}
+
+	public void setMonthStart(LocalDate monthStart) {
+		this.monthStart = monthStart;
+	}
+
+	public long getReviewCount() {
+		return reviewCount;
+	}
+
+	public void setReviewCount(long reviewCount) {
+		this.reviewCount = reviewCount;
+	}
+
+	public long getRatingSum() {
+		return ratingSum;
+	}
+
+	public void setRatingSum(long ratingSum) {
+		this.ratingSum = ratingSum;
+	}
+	
+}
@@ -2,20 +2,38 @@ package com.marketplace.demo.models;
 
 import java.time.LocalDate;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Type;
+
+import com.marketplace.demo.models.ids.BinaryUuidType;
+import com.marketplace.demo.models.ids.TimeOrderedId;
+
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
 
 @Entity
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
+// Fetch plan for list endpoints: reviewer and reviewee are loaded with the review itself
+@NamedEntityGraph(name="Review.listing", attributeNodes = {
+		@NamedAttributeNode("reviewer"),
+		@NamedAttributeNode("reviewee")
+})
 @Table(name="REVIEWS")
 public class Review {
 
 	@Id
-	@GeneratedValue(strategy=GenerationType.UUID)
+	@TimeOrderedId
+	@Type(BinaryUuidType.class)
+	@Column(length=16)
 	private String id;
 	@ManyToOne()
 	@JoinColumn(name="reviewer_id", referencedColumnName="id")
@@ -24,6 +42,7 @@ public class Review {
 	@JoinColumn(name="reviewee_id", referencedColumnName="id")
 	private User reviewee;
 	private Integer rating;
+	@Column(length=1000)
 	private String comment;
 	private LocalDate date;
 	
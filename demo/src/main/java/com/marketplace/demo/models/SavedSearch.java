@@ -0,0 +1,99 @@
+package com.marketplace.demo.models;
+
+import org.hibernate.annotations.Type;
+
+import com.marketplace.demo.models.ids.BinaryUuidType;
+import com.marketplace.demo.models.ids.TimeOrderedId;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+// A search a user wants to be alerted about when a matching item is listed, see SavedSearchService.
+// Every criterion is optional (null for any), keywords must all appear in the title or description.
+@Entity
+@Table(name="SAVED_SEARCHES", indexes = {
+		// Saved searches of a user
+		@Index(name="idx_saved_searches_user", columnList="user_id")
+})
+public class SavedSearch {
+
+	@Id
+	@TimeOrderedId
+	@Type(BinaryUuidType.class)
+	@Column(length=16)
+	private String id;
+	@Type(BinaryUuidType.class)
+	@Column(name="user_id", length=16)
+	private String userId;
+	@Type(BinaryUuidType.class)
+	@Column(name="category_id", length=16)
+	private String categoryId;
+	private Double maxPrice;
+	private String itemCondition;
+	private String keywords;
+	
+	
+	public SavedSearch(String userId, String categoryId, Double maxPrice, String itemCondition, String keywords) {
+		this.userId = userId;
+		this.categoryId = categoryId;
+		this.maxPrice = maxPrice;
+		this.itemCondition = itemCondition;
+		this.keywords = keywords;
+	}
+	
+	public SavedSearch() {
+		
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public String getCategoryId() {
+		return categoryId;
+	}
+
+	public void setCategoryId(String categoryId) {
+		this.categoryId = categoryId;
+	}
+
+	public Double getMaxPrice() {
+		return maxPrice;
+	}
+
+	public void setMaxPrice(Double maxPrice) {
+		this.maxPrice = maxPrice;
+	}
+
+	public String getItemCondition() {
+		return itemCondition;
+	}
+
+	public void setItemCondition(String itemCondition) {
+		this.itemCondition = itemCondition;
+	}
+
+	public String getKeywords() {
+		return keywords;
+	}
+
+	public void setKeywords(String keywords) {
+		this.keywords = keywords;
+	}
+	
+}
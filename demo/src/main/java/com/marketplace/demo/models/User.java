@@ -1,16 +1,25 @@
 package com.marketplace.demo.models;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.marketplace.demo.models.dto.UserInputDTO;
+import com.marketplace.demo.models.ids.BinaryUuidType;
+import com.marketplace.demo.models.ids.TimeOrderedId;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Type;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
@@ -18,16 +27,24 @@ import jakarta.persistence.Table;
 import jakarta.persistence.JoinColumn;
 
 @Entity
-@Table(name="USERS")
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
+@Table(name="USERS", indexes = {
+		// Used by the seller location filter of the faceted item search
+		@Index(name="idx_users_country_city", columnList="country, city")
+})
 public class User {
 
 	@Id
-	@GeneratedValue(strategy=GenerationType.UUID)
+	@TimeOrderedId
+	@Type(BinaryUuidType.class)
+	@Column(length=16)
 	private String id;
 	private String username;
 	private String full_name;
 	private String email;
 	private String password;
+	@Column(length=1000)
 	private String bio;
 	private String country;
 	private String city;
@@ -46,7 +63,7 @@ public class User {
 	    inverseJoinColumns = @JoinColumn(name = "item_id")
 	)
 	@JsonIgnore
-	private List<Item> favoriteItems = new ArrayList<>();
+	private Set<Item> favoriteItems = new HashSet<>();	// a set gives FAVORITES a (user_id, item_id) primary key
 	
 
 	public User(String id, String username, String full_name, String email, String password, String bio, String country,
@@ -201,11 +218,11 @@ public class User {
 		this.receivedReviews.remove(review);
 	}
 	
-	public List<Item> getFavoriteItems() {
+	public Set<Item> getFavoriteItems() {
 	    return favoriteItems;
 	}
 
-	public void setFavoriteItems(List<Item> favoriteItems) {
+	public void setFavoriteItems(Set<Item> favoriteItems) {
 	    this.favoriteItems = favoriteItems;
 	}
 
@@ -216,14 +233,5 @@ public class User {
 	public void removeFavoriteItem(Item item) {
 	    this.favoriteItems.remove(item);
 	}
-	
-	public boolean isItemInFavorites(Item item) {
-	    return this.favoriteItems.stream()
-	            .anyMatch(favItem -> favItem.getId().equals(item.getId()));
-	}
-	
-	public boolean isItemInUserItems(Item item) {
-	    return this.items.stream()
-	            .anyMatch(userItem -> userItem.getId().equals(item.getId()));
-	}
+
 }
@@ -0,0 +1,96 @@
+package com.marketplace.demo.models;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Type;
+
+import com.marketplace.demo.models.ids.BinaryUuidType;
+
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// Running totals of the reviews a user has received.
+// Kept up to date by ReputationService on every review change, so reading
+// a user's reputation never has to touch the REVIEWS table.
+@Entity
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
+@Table(name="USER_REPUTATIONS")
+public class UserReputation {
+
+	@Id
+	@Type(BinaryUuidType.class)
+	@Column(name="user_id", length=16)
+	private String userId;
+	private long reviewCount = 0;
+	private long ratingSum = 0;
+	// Histogram of ratings
+	private long oneStarCount = 0;
+	private long twoStarCount = 0;
+	private long threeStarCount = 0;
+	private long fourStarCount = 0;
+	private long fiveStarCount = 0;
+	
+	
+	public UserReputation(String userId) {
+		this.userId = userId;
+	}
+	
+	public UserReputation() {
+		
+	}
+	
+	public void addRating(int rating) {
+		applyRating(rating, 1);
+	}
+	
+	public void removeRating(int rating) {
+		applyRating(rating, -1);
+	}
+	
+	private void applyRating(int rating, int delta) {
+		this.reviewCount += delta;
+		this.ratingSum += delta * rating;
+		switch (rating) {
+			case 1 -> this.oneStarCount += delta;
+			case 2 -> this.twoStarCount += delta;
+			case 3 -> this.threeStarCount += delta;
+			case 4 -> this.fourStarCount += delta;
+			case 5 -> this.fiveStarCount += delta;
+			default -> throw new IllegalArgumentException("Rating must be between 1 and 5");
+		}
+	}
+	
+	// Number of reviews per rating, index 0 is 1 star
+	public long[] getHistogram() {
+		return new long[] { oneStarCount, twoStarCount, threeStarCount, fourStarCount, fiveStarCount };
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public long getReviewCount() {
+		return reviewCount;
+	}
+
+	public void setReviewCount(long reviewCount) {
+		this.reviewCount = reviewCount;
+	}
+
+	public long getRatingSum() {
+		return ratingSum;
+	}
+
+	public void setRatingSum(long ratingSum) {
+		this.ratingSum = ratingSum;
+	}
+
+}
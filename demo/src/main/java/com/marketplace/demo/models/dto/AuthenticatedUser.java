@@ -0,0 +1,32 @@
+package com.marketplace.demo.models.dto;
+
+// The caller of a request, as read from its access token (TokenService) without loading the user.
+// Set as a request attribute by TokenAuthenticationFilter, controllers take it with
+// @RequestAttribute(name = AuthenticatedUser.ATTRIBUTE, required = false)
+public class AuthenticatedUser {
+
+	public static final String ATTRIBUTE = "authenticatedUser";
+
+	private String id;
+	private String username;
+	private long expires_at;	// epoch seconds
+
+	public AuthenticatedUser(String id, String username, long expires_at) {
+		this.id = id;
+		this.username = username;
+		this.expires_at = expires_at;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public long getExpires_at() {
+		return expires_at;
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.marketplace.demo.models.dto;
+
+// Hit/miss/eviction counters of one cache region, used to size the cache
+public class CacheRegionStats {
+	
+	private String region;
+	private long size;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long second_tier_hits;
+	private long second_tier_misses;
+	
+	
+	public CacheRegionStats(String region, long size, long hits, long misses, long evictions,
+			long second_tier_hits, long second_tier_misses) {
+		this.region = region;
+		this.size = size;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.second_tier_hits = second_tier_hits;
+		this.second_tier_misses = second_tier_misses;
+	}
+
+	public String getRegion() {
+		return region;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public long getSecond_tier_hits() {
+		return second_tier_hits;
+	}
+
+	public long getSecond_tier_misses() {
+		return second_tier_misses;
+	}
+	
+}
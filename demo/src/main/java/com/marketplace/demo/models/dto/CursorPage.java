@@ -0,0 +1,44 @@
+package com.marketplace.demo.models.dto;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// A page of results for keyset (cursor) pagination
+//	- next_cursor is an opaque token to pass back as ?cursor= to get the next page
+//	- next_cursor is null when there are no more results
+public class CursorPage<T> {
+
+	private List<T> items;
+	private String next_cursor;
+	
+	
+	public CursorPage(List<T> items, String next_cursor) {
+		this.items = items;
+		this.next_cursor = next_cursor;
+	}
+	
+	public <R> CursorPage<R> map(Function<T, R> mapper) {
+		List<R> mapped = items.stream()
+				.map(mapper)
+				.collect(Collectors.toList());
+		return new CursorPage<R>(mapped, next_cursor);
+	}
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	public void setItems(List<T> items) {
+		this.items = items;
+	}
+
+	public String getNext_cursor() {
+		return next_cursor;
+	}
+
+	public void setNext_cursor(String next_cursor) {
+		this.next_cursor = next_cursor;
+	}
+	
+}
@@ -0,0 +1,31 @@
+package com.marketplace.demo.models.dto;
+
+// Number of matching items for one value of a facet (a category id or an item condition)
+public class FacetCount {
+	
+	private String value;
+	private long count;
+	
+	
+	public FacetCount(String value, Long count) {
+		this.value = value;
+		this.count = count;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	public void setValue(String value) {
+		this.value = value;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public void setCount(long count) {
+		this.count = count;
+	}
+	
+}
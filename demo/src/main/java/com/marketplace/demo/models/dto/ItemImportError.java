@@ -0,0 +1,32 @@
+package com.marketplace.demo.models.dto;
+
+// A row of a bulk item import that was not imported.
+// Rows are numbered from 1 in the order they were sent, the CSV header is not a row
+public class ItemImportError {
+	
+	private long row;
+	private String message;
+	
+	
+	public ItemImportError(long row, String message) {
+		this.row = row;
+		this.message = message;
+	}
+
+	public long getRow() {
+		return row;
+	}
+
+	public void setRow(long row) {
+		this.row = row;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+	
+}
@@ -0,0 +1,39 @@
+package com.marketplace.demo.models.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of a bulk item import.
+// errors holds at most items.import.max-errors entries, failed counts all of them
+public class ItemImportResult {
+	
+	private long imported;
+	private long failed;
+	private List<ItemImportError> errors = new ArrayList<ItemImportError>();
+	
+	
+	public long getImported() {
+		return imported;
+	}
+
+	public void setImported(long imported) {
+		this.imported = imported;
+	}
+
+	public long getFailed() {
+		return failed;
+	}
+
+	public void setFailed(long failed) {
+		this.failed = failed;
+	}
+
+	public List<ItemImportError> getErrors() {
+		return errors;
+	}
+
+	public void setErrors(List<ItemImportError> errors) {
+		this.errors = errors;
+	}
+	
+}
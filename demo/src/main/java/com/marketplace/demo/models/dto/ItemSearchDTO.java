@@ -0,0 +1,73 @@
+package com.marketplace.demo.models.dto;
+
+
+// Filters for the faceted item search, bound from the query string
+// Every field is optional, a null field means "don't filter on it"
+public class ItemSearchDTO {
+	
+	private String category_id;
+	private Double min_price;
+	private Double max_price;
+	private String itemCondition;
+	private Boolean sold;
+	private String city;
+	private String country;
+	
+	
+	public String getCategory_id() {
+		return category_id;
+	}
+	
+	public void setCategory_id(String category_id) {
+		this.category_id = category_id;
+	}
+	
+	public Double getMin_price() {
+		return min_price;
+	}
+	
+	public void setMin_price(Double min_price) {
+		this.min_price = min_price;
+	}
+	
+	public Double getMax_price() {
+		return max_price;
+	}
+	
+	public void setMax_price(Double max_price) {
+		this.max_price = max_price;
+	}
+	
+	public String getItemCondition() {
+		return itemCondition;
+	}
+	
+	public void setItemCondition(String itemCondition) {
+		this.itemCondition = itemCondition;
+	}
+	
+	public Boolean getSold() {
+		return sold;
+	}
+	
+	public void setSold(Boolean sold) {
+		this.sold = sold;
+	}
+	
+	public String getCity() {
+		return city;
+	}
+	
+	public void setCity(String city) {
+		this.city = city;
+	}
+	
+	public String getCountry() {
+		return country;
+	}
+	
+	public void setCountry(String country) {
+		this.country = country;
+	}
+	
+}
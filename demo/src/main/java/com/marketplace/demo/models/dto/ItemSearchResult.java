@@ -0,0 +1,55 @@
+package com.marketplace.demo.models.dto;
+
+import java.util.List;
+
+// Result of the faceted item search
+//	- a cursor page of matching items
+//	- counts per category and per condition, each computed with all the other filters applied
+public class ItemSearchResult {
+	
+	private List<ItemStripped> items;
+	private String next_cursor;
+	private List<FacetCount> category_facets;
+	private List<FacetCount> condition_facets;
+	
+	
+	public ItemSearchResult(CursorPage<ItemStripped> page, List<FacetCount> category_facets, List<FacetCount> condition_facets) {
+		this.items = page.getItems();
+		this.next_cursor = page.getNext_cursor();
+		this.category_facets = category_facets;
+		this.condition_facets = condition_facets;
+	}
+
+	public List<ItemStripped> getItems() {
+		return items;
+	}
+
+	public void setItems(List<ItemStripped> items) {
+		this.items = items;
+	}
+
+	public String getNext_cursor() {
+		return next_cursor;
+	}
+
+	public void setNext_cursor(String next_cursor) {
+		this.next_cursor = next_cursor;
+	}
+
+	public List<FacetCount> getCategory_facets() {
+		return category_facets;
+	}
+
+	public void setCategory_facets(List<FacetCount> category_facets) {
+		this.category_facets = category_facets;
+	}
+
+	public List<FacetCount> getCondition_facets() {
+		return condition_facets;
+	}
+
+	public void setCondition_facets(List<FacetCount> condition_facets) {
+		this.condition_facets = condition_facets;
+	}
+	
+}
@@ -1,9 +1,11 @@
 package com.marketplace.demo.models.dto;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.marketplace.demo.models.Image;
 import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.ItemRow;
 
 
 //Data Transfer Object for Item
@@ -36,6 +38,23 @@ public class ItemStripped {
 		this.images = item.getImages();
 		this.favoriteCount = item.getFavoriteCount();
 	}
+	
+	// From the reactive read path, images only carry their id like in the JSON of an Item
+	public ItemStripped(ItemRow row) {
+		this.id = row.getId();
+		this.title = row.getTitle();
+		this.category_id = row.getCategoryId();
+		this.seller_id = row.getSellerId();
+		this.price = row.getPrice();
+		this.description = row.getDescription();
+		this.itemCondition = row.getItemCondition();
+		this.sold = row.isSold();
+		this.images = new ArrayList<Image>();
+		for (String image_id : row.getImageIdList()) {
+			this.images.add(new Image(image_id, null, null));
+		}
+		this.favoriteCount = row.getFavoriteCount();
+	}
 
 	public String getId() {
 		return id;
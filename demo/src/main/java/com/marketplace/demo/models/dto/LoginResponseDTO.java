@@ -5,6 +5,9 @@ public class LoginResponseDTO {
     private boolean success;
     private String message;
     private UserStripped user;
+    // Access token for the Authorization: Bearer header, see TokenService
+    private String token;
+    private long expires_at;
     
     public LoginResponseDTO() {
     }
@@ -20,6 +23,14 @@ public class LoginResponseDTO {
         this.user = user;
     }
     
+    public LoginResponseDTO(boolean success, String message, UserStripped user, String token, long expires_at) {
+        this.success = success;
+        this.message = message;
+        this.user = user;
+        this.token = token;
+        this.expires_at = expires_at;
+    }
+    
     public boolean isSuccess() {
         return success;
     }
@@ -43,4 +54,20 @@ public class LoginResponseDTO {
     public void setUser(UserStripped user) {
         this.user = user;
     }
+    
+    public String getToken() {
+        return token;
+    }
+    
+    public void setToken(String token) {
+        this.token = token;
+    }
+    
+    public long getExpires_at() {
+        return expires_at;
+    }
+    
+    public void setExpires_at(long expires_at) {
+        this.expires_at = expires_at;
+    }
 }
\ No newline at end of file
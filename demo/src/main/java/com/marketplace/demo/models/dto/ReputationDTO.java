@@ -0,0 +1,58 @@
+package com.marketplace.demo.models.dto;
+
+import java.util.List;
+
+// Reputation of a user as a reviewee
+//	- histogram is the number of reviews per rating, from 1 star to 5 stars
+//	- the recent_* fields only count reviews dated within the last recent_months months
+public class ReputationDTO {
+	
+	private String user_id;
+	private long review_count;
+	private Double average_rating;
+	private List<Long> histogram;
+	private int recent_months;
+	private long recent_review_count;
+	private Double recent_average_rating;
+	
+	
+	public ReputationDTO(String user_id, long review_count, Double average_rating, List<Long> histogram,
+			int recent_months, long recent_review_count, Double recent_average_rating) {
+		this.user_id = user_id;
+		this.review_count = review_count;
+		this.average_rating = average_rating;
+		this.histogram = histogram;
+		this.recent_months = recent_months;
+		this.recent_review_count = recent_review_count;
+		this.recent_average_rating = recent_average_rating;
+	}
+
+	public String getUser_id() {
+		return user_id;
+	}
+
+	public long getReview_count() {
+		return review_count;
+	}
+
+	public Double getAverage_rating() {
+		return average_rating;
+	}
+
+	public List<Long> getHistogram() {
+		return histogram;
+	}
+
+	public int getRecent_months() {
+		return recent_months;
+	}
+
+	public long getRecent_review_count() {
+		return recent_review_count;
+	}
+
+	public Double getRecent_average_rating() {
+		return recent_average_rating;
+	}
+	
+}
@@ -0,0 +1,40 @@
+package com.marketplace.demo.models.dto;
+
+// A newly listed (or changed) item matching a saved search, handed to the AlertSinks
+public class SavedSearchAlert {
+
+	private String search_id;
+	private String user_id;		// owner of the saved search, the one to alert
+	private String item_id;
+
+	public SavedSearchAlert(String search_id, String user_id, String item_id) {
+		this.search_id = search_id;
+		this.user_id = user_id;
+		this.item_id = item_id;
+	}
+
+	public String getSearch_id() {
+		return search_id;
+	}
+
+	public void setSearch_id(String search_id) {
+		this.search_id = search_id;
+	}
+
+	public String getUser_id() {
+		return user_id;
+	}
+
+	public void setUser_id(String user_id) {
+		this.user_id = user_id;
+	}
+
+	public String getItem_id() {
+		return item_id;
+	}
+
+	public void setItem_id(String item_id) {
+		this.item_id = item_id;
+	}
+
+}
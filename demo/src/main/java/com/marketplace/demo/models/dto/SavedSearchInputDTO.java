@@ -0,0 +1,44 @@
+package com.marketplace.demo.models.dto;
+
+// A Data Transfer Object for saving a search, every field is optional but not all of them
+public class SavedSearchInputDTO {
+	
+	public String category_id;
+	public Double max_price;
+	public String itemCondition;
+	public String keywords;
+	
+	
+	public String getCategory_id() {
+		return category_id;
+	}
+	
+	public void setCategory_id(String category_id) {
+		this.category_id = category_id;
+	}
+	
+	public Double getMax_price() {
+		return max_price;
+	}
+	
+	public void setMax_price(Double max_price) {
+		this.max_price = max_price;
+	}
+	
+	public String getItemCondition() {
+		return itemCondition;
+	}
+	
+	public void setItemCondition(String itemCondition) {
+		this.itemCondition = itemCondition;
+	}
+	
+	public String getKeywords() {
+		return keywords;
+	}
+	
+	public void setKeywords(String keywords) {
+		this.keywords = keywords;
+	}
+	
+}
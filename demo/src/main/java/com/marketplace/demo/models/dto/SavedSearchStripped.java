@@ -0,0 +1,25 @@
+package com.marketplace.demo.models.dto;
+
+import com.marketplace.demo.models.SavedSearch;
+
+// Data Transfer Object for SavedSearch, with the field names of SavedSearchInputDTO
+public class SavedSearchStripped {
+
+	public String id;
+	public String user_id;
+	public String category_id;
+	public Double max_price;
+	public String itemCondition;
+	public String keywords;
+	
+	
+	public SavedSearchStripped(SavedSearch search) {
+		this.id = search.getId();
+		this.user_id = search.getUserId();
+		this.category_id = search.getCategoryId();
+		this.max_price = search.getMaxPrice();
+		this.itemCondition = search.getItemCondition();
+		this.keywords = search.getKeywords();
+	}
+	
+}
@@ -0,0 +1,40 @@
+package com.marketplace.demo.models.dto;
+
+// An item often favorited together with another one, see SimilarItemsService
+public class SimilarItem {
+
+	private String item_id;
+	private float score;		// cosine similarity of the two items' favoriting users, 0..1
+	private int co_favorites;	// users who favorite both
+
+	public SimilarItem(String item_id, float score, int co_favorites) {
+		this.item_id = item_id;
+		this.score = score;
+		this.co_favorites = co_favorites;
+	}
+
+	public String getItem_id() {
+		return item_id;
+	}
+
+	public void setItem_id(String item_id) {
+		this.item_id = item_id;
+	}
+
+	public float getScore() {
+		return score;
+	}
+
+	public void setScore(float score) {
+		this.score = score;
+	}
+
+	public int getCo_favorites() {
+		return co_favorites;
+	}
+
+	public void setCo_favorites(int co_favorites) {
+		this.co_favorites = co_favorites;
+	}
+
+}
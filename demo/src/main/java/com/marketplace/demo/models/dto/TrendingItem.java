@@ -0,0 +1,30 @@
+package com.marketplace.demo.models.dto;
+
+// An item of a category's trending page, see TrendingService
+public class TrendingItem {
+
+	private String item_id;
+	private double score;	// favorites, each counted less the older it is (halved every half-life)
+
+	public TrendingItem(String item_id, double score) {
+		this.item_id = item_id;
+		this.score = score;
+	}
+
+	public String getItem_id() {
+		return item_id;
+	}
+
+	public void setItem_id(String item_id) {
+		this.item_id = item_id;
+	}
+
+	public double getScore() {
+		return score;
+	}
+
+	public void setScore(double score) {
+		this.score = score;
+	}
+
+}
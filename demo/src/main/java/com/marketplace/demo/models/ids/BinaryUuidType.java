@@ -0,0 +1,73 @@
+package com.marketplace.demo.models.ids;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Objects;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.usertype.UserType;
+
+// Maps a String id attribute to a BINARY(16) column, see BinaryUuids.
+// Foreign keys to the attribute (@ManyToOne, join tables) get the same mapping.
+// A string that isn't a UUID is bound as NULL, so looking it up finds nothing instead of failing.
+public class BinaryUuidType implements UserType<String> {
+
+	@Override
+	public int getSqlType() {
+		return Types.BINARY;
+	}
+
+	@Override
+	public Class<String> returnedClass() {
+		return String.class;
+	}
+
+	@Override
+	public boolean equals(String x, String y) {
+		return Objects.equals(x, y);
+	}
+
+	@Override
+	public int hashCode(String x) {
+		return Objects.hashCode(x);
+	}
+
+	@Override
+	public String nullSafeGet(ResultSet rs, int position, SharedSessionContractImplementor session, Object owner) throws SQLException {
+		return BinaryUuids.fromBytes(rs.getBytes(position));
+	}
+
+	@Override
+	public void nullSafeSet(PreparedStatement st, String value, int index, SharedSessionContractImplementor session) throws SQLException {
+		byte[] bytes = BinaryUuids.toBytes(value);
+		if (bytes == null) {
+			st.setNull(index, Types.BINARY);
+		} else {
+			st.setBytes(index, bytes);
+		}
+	}
+
+	@Override
+	public String deepCopy(String value) {
+		return value;
+	}
+
+	@Override
+	public boolean isMutable() {
+		return false;
+	}
+
+	@Override
+	public Serializable disassemble(String value) {
+		return value;
+	}
+
+	@Override
+	public String assemble(Serializable cached, Object owner) {
+		return (String) cached;
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.marketplace.demo.models.ids;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+// Entity ids: time-ordered UUIDs (version 7, RFC 9562) stored as BINARY(16).
+// The first 48 bits are the creation time in milliseconds, so new rows are appended at the end of
+// the primary key and foreign key indexes instead of landing on a random page.
+// Everything above the database (REST, Lucene, caches, cursors) keeps the canonical string form.
+public final class BinaryUuids {
+
+	private static final SecureRandom random = new SecureRandom();
+
+	// 12 bit counter after the timestamp keeps ids from the same millisecond in creation order
+	private static final int COUNTER_BITS = 12;
+	private static long lastMillis = 0;
+	private static long counter = 0;
+
+	private BinaryUuids() {
+	}
+
+	public static String next() {
+		long millis;
+		long sequence;
+		synchronized (BinaryUuids.class) {
+			long now = System.currentTimeMillis();
+			if (now > lastMillis) {
+				lastMillis = now;
+				// Random start, with room left to count up within the millisecond
+				counter = random.nextInt(1 << (COUNTER_BITS - 1));
+			} else if (++counter >= (1 << COUNTER_BITS)) {
+				// Counter overflow, or the clock went back: borrow the next millisecond
+				lastMillis++;
+				counter = 0;
+			}
+			millis = lastMillis;
+			sequence = counter;
+		}
+		long mostSigBits = (millis << 16) | 0x7000L | sequence;
+		long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		return new UUID(mostSigBits, leastSigBits).toString();
+	}
+
+	// null for anything that isn't a canonical UUID, such a value never matches a row
+	public static byte[] toBytes(String id) {
+		if (id == null || id.length() != 36) {
+			return null;
+		}
+		UUID uuid;
+		try {
+			uuid = UUID.fromString(id);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		return ByteBuffer.allocate(16)
+				.putLong(uuid.getMostSignificantBits())
+				.putLong(uuid.getLeastSignificantBits())
+				.array();
+	}
+
+	public static String fromBytes(byte[] bytes) {
+		if (bytes == null) {
+			return null;
+		}
+		// Called for every id column of every row read, so no ByteBuffer in between
+		return new UUID(readLong(bytes, 0), readLong(bytes, 8)).toString();
+	}
+
+	private static long readLong(byte[] bytes, int offset) {
+		long value = 0;
+		for (int i = offset; i < offset + 8; i++) {
+			value = (value << 8) | (bytes[i] & 0xFF);
+		}
+		return value;
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.marketplace.demo.models.ids;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+// Generates the id of a new entity with BinaryUuids.next(), use with BinaryUuidType:
+//	@Id
+//	@TimeOrderedId
+//	@Type(BinaryUuidType.class)
+//	@Column(length=16)
+//	private String id;
+@IdGeneratorType(TimeOrderedIdGenerator.class)
+@Retention(RUNTIME)
+@Target({ FIELD, METHOD })
+public @interface TimeOrderedId {
+}
@@ -0,0 +1,322 @@
+package com.marketplace.demo.recommendations;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Item to item similarity from co-favorites: two items are similar when the same users favorite both.
+//	- items and users get dense int indexes, the matrix is one sparse row per item
+//	  (IntIntHashMap: other item -> number of users who favorite both)
+//	- every favorite / unfavorite updates the rows of the item and of the user's other favorites,
+//	  and marks them for refresh()
+//	- refresh() recomputes the top-K neighbours of the marked items by cosine similarity,
+//	  co-favorites / sqrt(favorites of one * favorites of the other), so popular items don't rank everywhere
+//	- neighbours() only reads an immutable precomputed list, no lock
+// Users with more than maxUserFavorites favorites are left out of the counts (each of their favorites
+// would touch that many rows), and counted again once they drop back under it.
+// Writes are serialized on this object.
+public class CoFavoriteMatrix {
+
+	// Top-K of one item, shared with readers, never changed after construction
+	public static final class Neighbors {
+		public static final Neighbors NONE = new Neighbors(new String[0], new float[0], new int[0]);
+
+		private final String[] ids;
+		private final float[] scores;
+		private final int[] coFavorites;
+
+		Neighbors(String[] ids, float[] scores, int[] coFavorites) {
+			this.ids = ids;
+			this.scores = scores;
+			this.coFavorites = coFavorites;
+		}
+
+		public int size() {
+			return ids.length;
+		}
+
+		public String idAt(int i) {
+			return ids[i];
+		}
+
+		public float scoreAt(int i) {
+			return scores[i];
+		}
+
+		public int coFavoritesAt(int i) {
+			return coFavorites[i];
+		}
+	}
+
+	private final int topK;
+	private final int maxUserFavorites;
+
+	// Read without the lock by neighbours()
+	private final Map<String, Integer> itemIndex = new ConcurrentHashMap<>();
+	private final Map<String, Integer> userIndex = new HashMap<>();
+	private String[] itemIds = new String[1024];
+	private int items = 0;
+	// Counted users favoriting the item
+	private int[] favoriteCounts = new int[1024];
+	private IntIntHashMap[] rows = new IntIntHashMap[1024];
+	private volatile Neighbors[] neighbors = new Neighbors[1024];
+	// Favorites per user, used as a set (value 1)
+	private IntIntHashMap[] userItems = new IntIntHashMap[1024];
+	private int users = 0;
+	// Items whose neighbours need recomputing, used as a set
+	private IntIntHashMap dirty = new IntIntHashMap();
+
+	public CoFavoriteMatrix(int topK, int maxUserFavorites) {
+		this.topK = topK;
+		this.maxUserFavorites = maxUserFavorites;
+	}
+
+	public synchronized void add(String user_id, String item_id) {
+		int user = userIndex(user_id);
+		int item = itemIndex(item_id);
+		IntIntHashMap favorites = userItems[user];
+		if (favorites.containsKey(item)) {
+			return;
+		}
+		int before = favorites.size();
+		if (before < maxUserFavorites) {
+			pair(item, favorites, 1);
+			favorites.addTo(item, 1);
+		} else if (before == maxUserFavorites) {
+			// Over the limit from now on: take back everything the user counted for
+			count(favorites, -1);
+			favorites.addTo(item, 1);
+		} else {
+			favorites.addTo(item, 1);
+		}
+	}
+
+	public synchronized void remove(String user_id, String item_id) {
+		Integer user = userIndex.get(user_id);
+		Integer item = itemIndex.get(item_id);
+		if (user == null || item == null || !userItems[user].containsKey(item)) {
+			return;
+		}
+		removeFavorite(user, item);
+	}
+
+	// The item's favorites were deleted with it. Users aren't indexed by item, all of them are looked at:
+	// items are removed far less often than favorited
+	public synchronized void removeItem(String item_id) {
+		Integer item = itemIndex.remove(item_id);
+		if (item == null) {
+			return;
+		}
+		for (int user = 0; user < users; user++) {
+			if (userItems[user] != null && userItems[user].containsKey(item)) {
+				removeFavorite(user, item);
+			}
+		}
+		// The index isn't reused
+		itemIds[item] = null;
+		neighbors[item] = null;
+	}
+
+	// The user's favorites were deleted with it
+	public synchronized void removeUser(String user_id) {
+		Integer user = userIndex.remove(user_id);
+		if (user == null) {
+			return;
+		}
+		IntIntHashMap favorites = userItems[user];
+		if (favorites.size() <= maxUserFavorites) {
+			count(favorites, -1);
+		}
+		userItems[user] = null;
+	}
+
+	// Recomputes the neighbours of the items changed since the last call, returns how many
+	public int refresh() {
+		IntIntHashMap changed;
+		synchronized (this) {
+			if (dirty.size() == 0) {
+				return 0;
+			}
+			changed = dirty;
+			dirty = new IntIntHashMap();
+		}
+		for (int item : changed.keys()) {
+			// Scored under the lock, one row at a time, so writers wait at most for one row
+			synchronized (this) {
+				neighbors[item] = topNeighbors(item);
+			}
+		}
+		return changed.size();
+	}
+
+	// Lock free, null when the item was never favorited
+	public Neighbors neighbors(String item_id) {
+		Integer item = itemIndex.get(item_id);
+		if (item == null) {
+			return null;
+		}
+		Neighbors[] current = neighbors;
+		Neighbors found = item < current.length ? current[item] : null;
+		return found == null ? Neighbors.NONE : found;
+	}
+
+	private void removeFavorite(int user, int item) {
+		IntIntHashMap favorites = userItems[user];
+		int before = favorites.size();
+		favorites.remove(item);
+		if (before <= maxUserFavorites) {
+			pair(item, favorites, -1);
+		} else if (before == maxUserFavorites + 1) {
+			// Back under the limit, the remaining favorites count again
+			count(favorites, 1);
+		}
+	}
+
+	// Adds sign to the co-favorite count of item with every one of the other items
+	private void pair(int item, IntIntHashMap others, int sign) {
+		favoriteCounts[item] += sign;
+		markDirty(item);
+		for (int other : others.keys()) {
+			if (other != item) {
+				rows[item].addTo(other, sign);
+				rows[other].addTo(item, sign);
+				markDirty(other);
+			}
+		}
+	}
+
+	// Adds or takes back all the pairs of one user's favorites
+	private void count(IntIntHashMap favorites, int sign) {
+		int[] all = favorites.keys();
+		for (int i = 0; i < all.length; i++) {
+			favoriteCounts[all[i]] += sign;
+			markDirty(all[i]);
+			for (int j = i + 1; j < all.length; j++) {
+				rows[all[i]].addTo(all[j], sign);
+				rows[all[j]].addTo(all[i], sign);
+			}
+		}
+	}
+
+	private void markDirty(int item) {
+		if (!dirty.containsKey(item)) {
+			dirty.addTo(item, 1);
+		}
+	}
+
+	private Neighbors topNeighbors(int item) {
+		IntIntHashMap row = rows[item];
+		int favorites = favoriteCounts[item];
+		if (row.size() == 0 || favorites == 0) {
+			return Neighbors.NONE;
+		}
+		// Min-heap of the best topK slots of the row, by score then co-favorites
+		int[] heap = new int[Math.min(topK, row.size())];
+		float[] heapScores = new float[heap.length];
+		int heapSize = 0;
+		for (int slot = 0; slot < row.capacity(); slot++) {
+			int other = row.keyAt(slot);
+			if (other < 0) {
+				continue;
+			}
+			float score = (float) (row.valueAt(slot) / Math.sqrt((double) favorites * favoriteCounts[other]));
+			if (heapSize < heap.length) {
+				heap[heapSize] = slot;
+				heapScores[heapSize] = score;
+				siftUp(heap, heapScores, heapSize++, row);
+			} else if (better(score, row.valueAt(slot), heapScores[0], row.valueAt(heap[0]))) {
+				heap[0] = slot;
+				heapScores[0] = score;
+				siftDown(heap, heapScores, heapSize, row);
+			}
+		}
+
+		// Best first
+		String[] ids = new String[heapSize];
+		float[] scores = new float[heapSize];
+		int[] coFavorites = new int[heapSize];
+		for (int i = heapSize - 1; i >= 0; i--) {
+			ids[i] = itemIds[row.keyAt(heap[0])];
+			scores[i] = heapScores[0];
+			coFavorites[i] = row.valueAt(heap[0]);
+			heap[0] = heap[i];
+			heapScores[0] = heapScores[i];
+			siftDown(heap, heapScores, i, row);
+		}
+		return new Neighbors(ids, scores, coFavorites);
+	}
+
+	private static boolean better(float score, int coFavorites, float otherScore, int otherCoFavorites) {
+		return score > otherScore || (score == otherScore && coFavorites > otherCoFavorites);
+	}
+
+	private static void siftUp(int[] heap, float[] scores, int i, IntIntHashMap row) {
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (!better(scores[parent], row.valueAt(heap[parent]), scores[i], row.valueAt(heap[i]))) {
+				break;
+			}
+			swap(heap, scores, i, parent);
+			i = parent;
+		}
+	}
+
+	private static void siftDown(int[] heap, float[] scores, int size, IntIntHashMap row) {
+		int i = 0;
+		while (true) {
+			int smallest = i;
+			for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+				if (better(scores[smallest], row.valueAt(heap[smallest]), scores[child], row.valueAt(heap[child]))) {
+					smallest = child;
+				}
+			}
+			if (smallest == i) {
+				return;
+			}
+			swap(heap, scores, i, smallest);
+			i = smallest;
+		}
+	}
+
+	private static void swap(int[] heap, float[] scores, int a, int b) {
+		int slot = heap[a];
+		heap[a] = heap[b];
+		heap[b] = slot;
+		float score = scores[a];
+		scores[a] = scores[b];
+		scores[b] = score;
+	}
+
+	private int itemIndex(String item_id) {
+		Integer index = itemIndex.get(item_id);
+		if (index != null) {
+			return index;
+		}
+		if (items == itemIds.length) {
+			int capacity = items * 2;
+			itemIds = Arrays.copyOf(itemIds, capacity);
+			favoriteCounts = Arrays.copyOf(favoriteCounts, capacity);
+			rows = Arrays.copyOf(rows, capacity);
+			neighbors = Arrays.copyOf(neighbors, capacity);
+		}
+		itemIds[items] = item_id;
+		rows[items] = new IntIntHashMap();
+		itemIndex.put(item_id, items);
+		return items++;
+	}
+
+	private int userIndex(String user_id) {
+		Integer index = userIndex.get(user_id);
+		if (index != null) {
+			return index;
+		}
+		if (users == userItems.length) {
+			userItems = Arrays.copyOf(userItems, users * 2);
+		}
+		userItems[users] = new IntIntHashMap();
+		userIndex.put(user_id, users);
+		return users++;
+	}
+
+}
@@ -0,0 +1,155 @@
+package com.marketplace.demo.recommendations;
+
+import java.util.Arrays;
+
+// Open addressing int -> int map with linear probing, for the co-favorite counts.
+// No boxing and two arrays per map, where a HashMap<Integer, Integer> costs a node and two Integers per entry.
+// Keys are non-negative (item and user indexes), an entry whose value drops to 0 is removed.
+// Not thread-safe, CoFavoriteMatrix guards it.
+public class IntIntHashMap {
+
+	private static final int EMPTY = -1;
+	private static final int MIN_CAPACITY = 4;
+
+	private int[] keys;
+	private int[] values;
+	private int size;
+
+	public IntIntHashMap() {
+		keys = new int[MIN_CAPACITY];
+		values = new int[MIN_CAPACITY];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int get(int key) {
+		int slot = find(key);
+		return slot < 0 ? 0 : values[slot];
+	}
+
+	public boolean containsKey(int key) {
+		return find(key) >= 0;
+	}
+
+	// Adds delta to the value of key (0 when absent) and returns the new value
+	public int addTo(int key, int delta) {
+		int slot = find(key);
+		if (slot >= 0) {
+			int value = values[slot] + delta;
+			if (value == 0) {
+				removeSlot(slot);
+			} else {
+				values[slot] = value;
+			}
+			return value;
+		}
+		if (delta == 0) {
+			return 0;
+		}
+		if ((size + 1) * 4 > keys.length * 3) {
+			resize(keys.length * 2);
+		}
+		slot = slotOf(key, keys.length);
+		while (keys[slot] != EMPTY) {
+			slot = (slot + 1) & (keys.length - 1);
+		}
+		keys[slot] = key;
+		values[slot] = delta;
+		size++;
+		return delta;
+	}
+
+	public void remove(int key) {
+		int slot = find(key);
+		if (slot >= 0) {
+			removeSlot(slot);
+		}
+	}
+
+	// Iteration over the slots: for (int slot = 0; slot < capacity(); slot++) if (keyAt(slot) >= 0) ...
+	public int capacity() {
+		return keys.length;
+	}
+
+	public int keyAt(int slot) {
+		return keys[slot];
+	}
+
+	public int valueAt(int slot) {
+		return values[slot];
+	}
+
+	// Copy of the keys, for loops that change this map
+	public int[] keys() {
+		int[] copy = new int[size];
+		int i = 0;
+		for (int key : keys) {
+			if (key != EMPTY) {
+				copy[i++] = key;
+			}
+		}
+		return copy;
+	}
+
+	private int find(int key) {
+		int slot = slotOf(key, keys.length);
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & (keys.length - 1);
+		}
+		return -1;
+	}
+
+	// Backward shift deletion, keeps probe chains intact without tombstones
+	private void removeSlot(int slot) {
+		int mask = keys.length - 1;
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (keys[next] != EMPTY) {
+			int home = slotOf(keys[next], keys.length);
+			// Move the entry into the hole unless its home lies cyclically in (hole, next]
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[hole] = EMPTY;
+		values[hole] = 0;
+		size--;
+		if (keys.length > MIN_CAPACITY && size * 8 < keys.length) {
+			resize(keys.length / 2);
+		}
+	}
+
+	private void resize(int capacity) {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new int[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = slotOf(oldKeys[i], capacity);
+				while (keys[slot] != EMPTY) {
+					slot = (slot + 1) & (capacity - 1);
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	// Indexes are dense and sequential, mix them so neighbours don't cluster
+	private static int slotOf(int key, int capacity) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (capacity - 1);
+	}
+
+}
@@ -0,0 +1,252 @@
+package com.marketplace.demo.recommendations;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Trending items per category: favorites with exponential time decay, ranked in memory.
+// An item's score is the sum of its live favorites, each 1 when added and halved every half-life.
+// Scores are kept scaled to the epoch instead of to now, in log2 to stay finite:
+//	logScore = log2(sum of weight * 2^(event time in half-lives))
+//	score now = 2^(logScore - now in half-lives)
+// so time passing never changes the order and nothing is rescanned, only an event moves its item.
+// Each category is a sorted set (best first) plus an index by item id, guarded by its own lock.
+public class TrendingScores {
+
+	// One entry of a ranking, also handed out as a read result
+	public static final class Scored {
+		private final String itemId;
+		private final double score;
+
+		Scored(String itemId, double score) {
+			this.itemId = itemId;
+			this.score = score;
+		}
+
+		public String getItemId() {
+			return itemId;
+		}
+
+		public double getScore() {
+			return score;
+		}
+	}
+
+	private static final class Entry {
+		private final String itemId;
+		private double logScore;
+
+		Entry(String itemId, double logScore) {
+			this.itemId = itemId;
+			this.logScore = logScore;
+		}
+	}
+
+	private static final Comparator<Entry> BEST_FIRST = Comparator.<Entry> comparingDouble(e -> -e.logScore)
+			.thenComparing(e -> e.itemId);
+
+	private static final class Ranking {
+		private final TreeSet<Entry> ranked = new TreeSet<>(BEST_FIRST);
+		private final Map<String, Entry> byItem = new HashMap<>();
+	}
+
+	private final double halfLifeMillis;
+	private final int maxItemsPerCategory;
+	private final Map<String, Ranking> rankings = new ConcurrentHashMap<>();
+	// Category of every ranked item, for moves and removals
+	private final Map<String, String> categoryOf = new ConcurrentHashMap<>();
+	// Items changed since the last snapshot (written, or deleted when no longer ranked)
+	private final Set<String> changed = ConcurrentHashMap.newKeySet();
+
+	public TrendingScores(double halfLifeMillis, int maxItemsPerCategory) {
+		this.halfLifeMillis = halfLifeMillis;
+		this.maxItemsPerCategory = maxItemsPerCategory;
+	}
+
+	// weight +1 for a favorite at atMillis, -1 for the removal of the favorite made at atMillis
+	// (not of when it is removed: it takes back what the favorite added, decayed as much)
+	public void record(String category_id, String item_id, int weight, long atMillis) {
+		String previous = categoryOf.get(item_id);
+		if (previous != null && !previous.equals(category_id)) {
+			moved(item_id, category_id);
+		}
+		double eventLog = Math.log(Math.abs(weight)) / Math.log(2) + atMillis / halfLifeMillis;
+		Ranking ranking = rankings.computeIfAbsent(category_id, c -> new Ranking());
+		synchronized (ranking) {
+			Entry entry = ranking.byItem.get(item_id);
+			if (entry == null) {
+				if (weight < 0) {
+					return;
+				}
+				entry = new Entry(item_id, eventLog);
+				ranking.byItem.put(item_id, entry);
+				categoryOf.put(item_id, category_id);
+			} else {
+				ranking.ranked.remove(entry);
+				if (weight > 0) {
+					entry.logScore = logAdd(entry.logScore, eventLog);
+				} else if (entry.logScore > eventLog) {
+					entry.logScore = logSubtract(entry.logScore, eventLog);
+				} else {
+					// Nothing left of the score
+					ranking.byItem.remove(item_id);
+					categoryOf.remove(item_id);
+					changed.add(item_id);
+					return;
+				}
+			}
+			ranking.ranked.add(entry);
+			changed.add(item_id);
+			trim(ranking);
+		}
+	}
+
+	// Read back from a snapshot
+	public void restore(String category_id, String item_id, double logScore) {
+		Ranking ranking = rankings.computeIfAbsent(category_id, c -> new Ranking());
+		synchronized (ranking) {
+			Entry entry = new Entry(item_id, logScore);
+			ranking.byItem.put(item_id, entry);
+			ranking.ranked.add(entry);
+			categoryOf.put(item_id, category_id);
+		}
+	}
+
+	// The item changed category, its score goes with it
+	public void moved(String item_id, String category_id) {
+		Entry entry = take(item_id);
+		if (entry == null) {
+			return;
+		}
+		Ranking ranking = rankings.computeIfAbsent(category_id, c -> new Ranking());
+		synchronized (ranking) {
+			ranking.byItem.put(item_id, entry);
+			ranking.ranked.add(entry);
+			categoryOf.put(item_id, category_id);
+			trim(ranking);
+		}
+		changed.add(item_id);
+	}
+
+	public void removed(String item_id) {
+		if (take(item_id) != null) {
+			changed.add(item_id);
+		}
+	}
+
+	// Best first, from offset, with their scores as of now
+	public List<Scored> top(String category_id, int offset, int size, long nowMillis) {
+		List<Scored> page = new ArrayList<>(size);
+		Ranking ranking = rankings.get(category_id);
+		if (ranking == null) {
+			return page;
+		}
+		double now = nowMillis / halfLifeMillis;
+		synchronized (ranking) {
+			Iterator<Entry> entries = ranking.ranked.iterator();
+			for (int i = 0; i < offset && entries.hasNext(); i++) {
+				entries.next();
+			}
+			while (page.size() < size && entries.hasNext()) {
+				Entry entry = entries.next();
+				page.add(new Scored(entry.itemId, Math.pow(2, entry.logScore - now)));
+			}
+		}
+		return page;
+	}
+
+	// Drops the items whose score decayed under minScore, returns how many
+	public int prune(double minScore, long nowMillis) {
+		double threshold = Math.log(minScore) / Math.log(2) + nowMillis / halfLifeMillis;
+		int pruned = 0;
+		for (Ranking ranking : rankings.values()) {
+			synchronized (ranking) {
+				// Lowest first, stop at the first one still above
+				while (!ranking.ranked.isEmpty() && ranking.ranked.last().logScore < threshold) {
+					Entry entry = ranking.ranked.pollLast();
+					ranking.byItem.remove(entry.itemId);
+					categoryOf.remove(entry.itemId);
+					changed.add(entry.itemId);
+					pruned++;
+				}
+			}
+		}
+		return pruned;
+	}
+
+	// Items changed since the last call. For each, categoryOf() and logScoreOf() give what to write,
+	// a null category means delete
+	public List<String> drainChanged() {
+		List<String> drained = new ArrayList<>();
+		for (Iterator<String> items = changed.iterator(); items.hasNext();) {
+			drained.add(items.next());
+			items.remove();
+		}
+		return drained;
+	}
+
+	// A snapshot that failed is retried with the next one
+	public void markChanged(List<String> item_ids) {
+		changed.addAll(item_ids);
+	}
+
+	public String categoryOf(String item_id) {
+		return categoryOf.get(item_id);
+	}
+
+	// NaN when the item isn't ranked
+	public double logScoreOf(String item_id) {
+		String category_id = categoryOf.get(item_id);
+		Ranking ranking = category_id == null ? null : rankings.get(category_id);
+		if (ranking == null) {
+			return Double.NaN;
+		}
+		synchronized (ranking) {
+			Entry entry = ranking.byItem.get(item_id);
+			return entry == null ? Double.NaN : entry.logScore;
+		}
+	}
+
+	private Entry take(String item_id) {
+		String category_id = categoryOf.remove(item_id);
+		Ranking ranking = category_id == null ? null : rankings.get(category_id);
+		if (ranking == null) {
+			return null;
+		}
+		synchronized (ranking) {
+			Entry entry = ranking.byItem.remove(item_id);
+			if (entry != null) {
+				ranking.ranked.remove(entry);
+			}
+			return entry;
+		}
+	}
+
+	// Keeps a category at maxItemsPerCategory by dropping its lowest
+	private void trim(Ranking ranking) {
+		while (ranking.ranked.size() > maxItemsPerCategory) {
+			Entry entry = ranking.ranked.pollLast();
+			ranking.byItem.remove(entry.itemId);
+			categoryOf.remove(entry.itemId);
+			changed.add(entry.itemId);
+		}
+	}
+
+	// log2(2^a + 2^b)
+	private static double logAdd(double a, double b) {
+		double max = Math.max(a, b);
+		return max + Math.log1p(Math.pow(2, Math.min(a, b) - max)) / Math.log(2);
+	}
+
+	// log2(2^a - 2^b), a > b
+	private static double logSubtract(double a, double b) {
+		return a + Math.log1p(-Math.pow(2, b - a)) / Math.log(2);
+	}
+
+}
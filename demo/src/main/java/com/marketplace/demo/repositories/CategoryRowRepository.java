@@ -0,0 +1,18 @@
+package com.marketplace.demo.repositories;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+
+import com.marketplace.demo.models.CategoryRow;
+
+import reactor.core.publisher.Flux;
+
+// Reactive counterpart of the CategoryRepository reads, see ItemRowRepository for the id columns
+@Repository
+public interface CategoryRowRepository extends R2dbcRepository<CategoryRow, String> {
+
+	@Query("SELECT BIN_TO_UUID(id) AS id, name FROM categories")
+	Flux<CategoryRow> findAllRows();
+
+}
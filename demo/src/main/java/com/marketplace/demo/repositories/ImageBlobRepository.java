@@ -0,0 +1,47 @@
+package com.marketplace.demo.repositories;
+
+import java.util.Optional;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.marketplace.demo.models.ImageBlob;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+	// Inserts the blob with one reference, or adds a reference if it is already stored.
+	// The row stays locked until commit, so a concurrent release can't delete the file meanwhile.
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "image_blobs"))
+	@Query(value = "INSERT INTO image_blobs (hash, path, size, content_type, ref_count) VALUES (:hash, :path, :size, :contentType, 1) "
+			+ "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1", nativeQuery = true)
+	int addReference(@Param("hash") String hash, @Param("path") String path, @Param("size") long size, @Param("contentType") String contentType);
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT b FROM ImageBlob b WHERE b.hash = :hash")
+	Optional<ImageBlob> findForUpdate(@Param("hash") String hash);
+
+	// Locks the key before the file of a released blob is deleted (FileReclaimerService): inserts a row without references,
+	// or waits for an upload of the same bytes that inserted one and hasn't committed. Removed again by deleteUnreferenced.
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "image_blobs"))
+	@Query(value = "INSERT INTO image_blobs (hash, size, ref_count) VALUES (:hash, 0, 0) ON DUPLICATE KEY UPDATE ref_count = ref_count", nativeQuery = true)
+	int lockForDelete(@Param("hash") String hash);
+
+	// 0 when the blob was uploaded again and is referenced
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "image_blobs"))
+	@Query(value = "DELETE FROM image_blobs WHERE hash = :hash AND ref_count = 0", nativeQuery = true)
+	int deleteUnreferenced(@Param("hash") String hash);
+
+}
@@ -1,11 +1,16 @@
 package com.marketplace.demo.repositories;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import com.marketplace.demo.models.Image;
+import com.marketplace.demo.models.User;
 
 @Repository
 public interface ImageRepository extends JpaRepository<Image, String> {
 
+	List<Image> findByItemSeller(User seller);
+
 }
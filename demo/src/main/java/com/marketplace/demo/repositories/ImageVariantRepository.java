@@ -0,0 +1,24 @@
+package com.marketplace.demo.repositories;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.marketplace.demo.models.ImageVariant;
+
+import jakarta.transaction.Transactional;
+
+@Repository
+public interface ImageVariantRepository extends JpaRepository<ImageVariant, String> {
+
+	List<ImageVariant> findByBlobHash(String blobHash);
+
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM ImageVariant v WHERE v.blobHash NOT IN (SELECT b.hash FROM ImageBlob b)")
+	int deleteWithoutBlob();
+
+}
@@ -1,15 +1,64 @@
 package com.marketplace.demo.repositories;
 
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.marketplace.demo.models.Item;
 import com.marketplace.demo.models.User;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
-public interface ItemRepository  extends JpaRepository<Item, String>{
+public interface ItemRepository  extends JpaRepository<Item, String>, ItemSearchRepository{
+	
+	// List queries use the Item.listing fetch plan so mapping them to ItemStripped
+	// costs a constant number of statements instead of one per row
+	@Override
+	@EntityGraph("Item.listing")
+	List<Item> findAll();
+	
+	@Override
+	@EntityGraph("Item.listing")
+	List<Item> findAllById(Iterable<String> ids);
 	
+	@EntityGraph("Item.listing")
 	List<Item> findBySeller(User user);
+	
+	// Cursors for ListStreamingService, read from the database as they are written out.
+	// Read-only, so no snapshots are kept for dirty checking. On MySQL the fetch size
+	// only streams with useCursorFetch=true on the connection URL
+	@EntityGraph("Item.listing")
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+			@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100") })
+	@Query("SELECT i FROM Item i ORDER BY i.id")
+	Stream<Item> streamAll();
+	
+	@EntityGraph("Item.listing")
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+			@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100") })
+	@Query("SELECT i FROM Item i WHERE i.seller.id = :sellerId ORDER BY i.id")
+	Stream<Item> streamBySellerId(@Param("sellerId") String sellerId);
+	
+	boolean existsByIdAndSeller_Id(String id, String sellerId);
+	
+	// A user's favorites, without loading the user first
+	@EntityGraph("Item.listing")
+	@Query("SELECT i FROM Item i WHERE i IN (SELECT f FROM User u JOIN u.favoriteItems f WHERE u.id = :userId)")
+	List<Item> findFavoritesOfUserId(@Param("userId") String userId);
+	
+	// Keyset pagination: first page, then every page after the last seen id
+	@EntityGraph("Item.listing")
+	List<Item> findAllByOrderByIdAsc(Limit limit);
+	
+	@EntityGraph("Item.listing")
+	List<Item> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
 }
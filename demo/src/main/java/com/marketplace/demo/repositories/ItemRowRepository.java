@@ -0,0 +1,35 @@
+package com.marketplace.demo.repositories;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.marketplace.demo.models.ItemRow;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Reactive counterpart of the ItemRepository reads, rows are streamed as the driver produces them.
+// Ids are BINARY(16) columns: selected as strings with BIN_TO_UUID, bound as bytes (BinaryUuids.toBytes)
+@Repository
+public interface ItemRowRepository extends R2dbcRepository<ItemRow, String> {
+
+	String SELECT_ITEM_ROWS = "SELECT BIN_TO_UUID(i.id) AS id, i.title, BIN_TO_UUID(i.category_id) AS category_id, BIN_TO_UUID(i.seller_id) AS seller_id, "
+			+ "i.price, i.description, i.item_condition, i.sold, i.favorite_count, "
+			+ "(SELECT GROUP_CONCAT(BIN_TO_UUID(im.id)) FROM images im WHERE im.item_id = i.id) AS image_ids "
+			+ "FROM items i ";
+
+	@Query(SELECT_ITEM_ROWS + "ORDER BY i.id")
+	Flux<ItemRow> findAllRows();
+
+	@Query(SELECT_ITEM_ROWS + "WHERE i.id = :id")
+	Mono<ItemRow> findRowById(@Param("id") byte[] id);
+
+	@Query(SELECT_ITEM_ROWS + "WHERE i.seller_id = :sellerId ORDER BY i.id")
+	Flux<ItemRow> findRowsBySellerId(@Param("sellerId") byte[] sellerId);
+
+	@Query("SELECT COUNT(*) FROM users WHERE id = :userId")
+	Mono<Long> countUsersById(@Param("userId") byte[] userId);
+
+}
@@ -0,0 +1,23 @@
+package com.marketplace.demo.repositories;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.dto.FacetCount;
+import com.marketplace.demo.models.dto.ItemSearchDTO;
+
+// Faceted search, part of ItemRepository. Only the filters that are set go into the WHERE clause.
+// Each facet query leaves out the filter on its own dimension, so the client
+// sees how many items every other category / condition would give.
+public interface ItemSearchRepository {
+
+	// Items after afterId (null for the first page), in id order
+	List<Item> search(ItemSearchDTO search, String afterId, Limit limit);
+
+	List<FacetCount> countByCategory(ItemSearchDTO search);
+
+	List<FacetCount> countByCondition(ItemSearchDTO search);
+
+}
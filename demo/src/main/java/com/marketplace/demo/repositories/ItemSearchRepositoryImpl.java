@@ -0,0 +1,98 @@
+package com.marketplace.demo.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.dto.FacetCount;
+import com.marketplace.demo.models.dto.ItemSearchDTO;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+// Criteria queries built per request, rather than one JPQL query with a "(:p IS NULL OR ...)" per filter:
+// the optimizer plans those for any combination of parameters, and can't pick the index of the filters set.
+// The seller is only joined when filtering by city or country.
+public class ItemSearchRepositoryImpl implements ItemSearchRepository {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<Item> search(ItemSearchDTO search, String afterId, Limit limit) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Item> query = cb.createQuery(Item.class);
+		Root<Item> item = query.from(Item.class);
+		List<Predicate> filters = filters(cb, item, search, true, true);
+		if (afterId != null) {
+			filters.add(cb.greaterThan(item.<String>get("id"), afterId));
+		}
+		query.select(item).where(filters.toArray(new Predicate[0])).orderBy(cb.asc(item.get("id")));
+
+		TypedQuery<Item> typed = entityManager.createQuery(query)
+				.setHint("jakarta.persistence.fetchgraph", entityManager.getEntityGraph("Item.listing"));
+		if (limit.isLimited()) {
+			typed.setMaxResults(limit.max());
+		}
+		return typed.getResultList();
+	}
+
+	@Override
+	public List<FacetCount> countByCategory(ItemSearchDTO search) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<FacetCount> query = cb.createQuery(FacetCount.class);
+		Root<Item> item = query.from(Item.class);
+		Path<String> category = item.get("category").get("id");
+		query.select(cb.construct(FacetCount.class, category, cb.count(item)))
+				.where(filters(cb, item, search, false, true).toArray(new Predicate[0]))
+				.groupBy(category);
+		return entityManager.createQuery(query).getResultList();
+	}
+
+	@Override
+	public List<FacetCount> countByCondition(ItemSearchDTO search) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<FacetCount> query = cb.createQuery(FacetCount.class);
+		Root<Item> item = query.from(Item.class);
+		Path<String> condition = item.get("itemCondition");
+		query.select(cb.construct(FacetCount.class, condition, cb.count(item)))
+				.where(filters(cb, item, search, true, false).toArray(new Predicate[0]))
+				.groupBy(condition);
+		return entityManager.createQuery(query).getResultList();
+	}
+
+	private List<Predicate> filters(CriteriaBuilder cb, Root<Item> item, ItemSearchDTO search, boolean byCategory, boolean byCondition) {
+		List<Predicate> filters = new ArrayList<Predicate>();
+		if (byCategory && search.getCategory_id() != null) {
+			filters.add(cb.equal(item.get("category").get("id"), search.getCategory_id()));
+		}
+		if (search.getMin_price() != null) {
+			filters.add(cb.greaterThanOrEqualTo(item.<Double>get("price"), search.getMin_price()));
+		}
+		if (search.getMax_price() != null) {
+			filters.add(cb.lessThanOrEqualTo(item.<Double>get("price"), search.getMax_price()));
+		}
+		if (byCondition && search.getItemCondition() != null) {
+			filters.add(cb.equal(item.get("itemCondition"), search.getItemCondition()));
+		}
+		if (search.getSold() != null) {
+			filters.add(cb.equal(item.get("sold"), search.getSold()));
+		}
+		if (search.getCity() != null) {
+			filters.add(cb.equal(item.get("seller").get("city"), search.getCity()));
+		}
+		if (search.getCountry() != null) {
+			filters.add(cb.equal(item.get("seller").get("country"), search.getCountry()));
+		}
+		return filters;
+	}
+
+}
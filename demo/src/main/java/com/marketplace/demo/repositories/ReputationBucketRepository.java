@@ -0,0 +1,38 @@
+package com.marketplace.demo.repositories;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.marketplace.demo.models.ReputationBucket;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface ReputationBucketRepository extends JpaRepository<ReputationBucket, String>{
+	
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	Optional<ReputationBucket> findByUserIdAndMonthStart(String userId, LocalDate monthStart);
+	
+	// Inserts an empty bucket unless the user has one for the month, the user/month unique key decides
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "reputation_buckets"))
+	@Query(value = "INSERT INTO reputation_buckets (id, user_id, month_start, review_count, rating_sum) VALUES (:id, :userId, :monthStart, 0, 0) "
+			+ "ON DUPLICATE KEY UPDATE id = id", nativeQuery = true)
+	int insertIfMissing(@Param("id") byte[] id, @Param("userId") byte[] userId, @Param("monthStart") LocalDate monthStart);
+	
+	List<ReputationBucket> findByUserIdAndMonthStartGreaterThanEqual(String userId, LocalDate since);
+	
+	void deleteByUserId(String userId);
+
+}
@@ -1,11 +1,48 @@
 package com.marketplace.demo.repositories;
 
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import com.marketplace.demo.models.Review;
+import com.marketplace.demo.models.User;
+
+import jakarta.persistence.QueryHint;
 
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, String>{
+	
+	// List queries use the Review.listing fetch plan so mapping them to ReviewStripped
+	// costs a constant number of statements instead of one per row
+	@Override
+	@EntityGraph("Review.listing")
+	List<Review> findAll();
+	
+	@EntityGraph("Review.listing")
+	List<Review> findByReviewer(User reviewer);
+	
+	@EntityGraph("Review.listing")
+	List<Review> findByReviewee(User reviewee);
+	
+	// Keyset pagination: first page, then every page after the last seen id
+	@EntityGraph("Review.listing")
+	List<Review> findAllByOrderByIdAsc(Limit limit);
+	
+	@EntityGraph("Review.listing")
+	List<Review> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+	
+	// Cursor for ListStreamingService, see ItemRepository.streamAll
+	@EntityGraph("Review.listing")
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+			@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100") })
+	@Query("SELECT r FROM Review r ORDER BY r.id")
+	Stream<Review> streamAll();
 
 }
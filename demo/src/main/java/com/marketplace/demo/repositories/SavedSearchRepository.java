@@ -0,0 +1,17 @@
+package com.marketplace.demo.repositories;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.marketplace.demo.models.SavedSearch;
+
+@Repository
+public interface SavedSearchRepository extends JpaRepository<SavedSearch, String>{
+	
+	List<SavedSearch> findByUserIdOrderByIdAsc(String userId);
+	
+	long countByUserId(String userId);
+
+}
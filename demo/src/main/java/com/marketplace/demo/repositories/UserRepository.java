@@ -1,15 +1,69 @@
 package com.marketplace.demo.repositories;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.marketplace.demo.models.User;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, String>{
 	
 	Optional<User> findByUsername(String username);
+	
+	// Keyset pagination: first page, then every page after the last seen id
+	List<User> findAllByOrderByIdAsc(Limit limit);
+	
+	List<User> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+	
+	// Cursor for ListStreamingService, see ItemRepository.streamAll
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+			@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100") })
+	@Query("SELECT u FROM User u ORDER BY u.id")
+	Stream<User> streamAll();
+	
+	// Favorites are changed with single-row statements on the FAVORITES primary key,
+	// so they never load the user's favoriteItems collection.
+	// Both return the number of rows changed: 0 when the item was already / wasn't a favorite.
+	// The native spaces hint keeps Hibernate from dropping the whole entity cache after them.
+	// Ids are bound in their BINARY(16) form, see BinaryUuids.toBytes
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "favorites"))
+	// The primary key decides, not a prior check: two concurrent adds of the same favorite insert one row,
+	// the other is ignored and returns 0. Not ON DUPLICATE KEY UPDATE, Connector/J counts the matched row as changed
+	@Query(value = "INSERT IGNORE INTO favorites (user_id, item_id, created_at) VALUES (:userId, :itemId, :createdAt)", nativeQuery = true)
+	int addFavorite(@Param("userId") byte[] userId, @Param("itemId") byte[] itemId, @Param("createdAt") long createdAt);
+	
+	// When the favorite was added, locked until the removal commits. null when it isn't a favorite,
+	// or was added before the time was kept
+	@Query(value = "SELECT created_at FROM favorites WHERE user_id = :userId AND item_id = :itemId FOR UPDATE", nativeQuery = true)
+	Long findFavoriteCreatedAt(@Param("userId") byte[] userId, @Param("itemId") byte[] itemId);
+	
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "favorites"))
+	@Query(value = "DELETE FROM favorites WHERE user_id = :userId AND item_id = :itemId", nativeQuery = true)
+	int removeFavorite(@Param("userId") byte[] userId, @Param("itemId") byte[] itemId);
+	
+	// Every user's favorites of an item, or of a seller's items, which can't be deleted before them
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "favorites"))
+	@Query(value = "DELETE FROM favorites WHERE item_id = :itemId", nativeQuery = true)
+	int removeFavoritesOfItem(@Param("itemId") byte[] itemId);
+	
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "favorites"))
+	@Query(value = "DELETE FROM favorites WHERE item_id IN (SELECT id FROM items WHERE seller_id = :sellerId)", nativeQuery = true)
+	int removeFavoritesOfItemsOf(@Param("sellerId") byte[] sellerId);
 
 }
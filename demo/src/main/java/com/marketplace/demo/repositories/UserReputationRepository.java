@@ -0,0 +1,35 @@
+package com.marketplace.demo.repositories;
+
+import java.util.Optional;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.marketplace.demo.models.UserReputation;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface UserReputationRepository extends JpaRepository<UserReputation, String>{
+	
+	// Locks the row so concurrent review changes for the same user don't lose updates
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT r FROM UserReputation r WHERE r.userId = :userId")
+	Optional<UserReputation> findForUpdate(@Param("userId") String userId);
+	
+	// Inserts an empty reputation unless the user has one. The primary key decides, two concurrent first
+	// reviews of a user insert one row and the other waits for it
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_reputations"))
+	@Query(value = "INSERT INTO user_reputations (user_id, review_count, rating_sum, one_star_count, two_star_count, three_star_count, four_star_count, five_star_count) "
+			+ "VALUES (:userId, 0, 0, 0, 0, 0, 0, 0) ON DUPLICATE KEY UPDATE user_id = user_id", nativeQuery = true)
+	int insertIfMissing(@Param("userId") byte[] userId);
+
+}
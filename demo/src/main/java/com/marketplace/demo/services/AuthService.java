@@ -1,23 +1,106 @@
 package com.marketplace.demo.services;
 
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.marketplace.demo.models.User;
 import com.marketplace.demo.models.dto.LoginRequestDTO;
 import com.marketplace.demo.models.dto.LoginResponseDTO;
 import com.marketplace.demo.models.dto.UserStripped;
 import com.marketplace.demo.repositories.UserRepository;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Login against bcrypt hashes (PasswordService).
+//	- every attempt costs one hash check, also for unknown usernames, so the response time
+//	  doesn't tell whether a username exists
+//	- hash checks run on a bounded pool (auth.workers threads, auth.queue-size waiting), a burst
+//	  beyond that gets 503 instead of tying up request threads and every CPU
+//	- credentials are looked up through two local caches: unknown usernames (auth.negative-cache-*)
+//	  and username -> id and hash (auth.credential-cache-*), so repeated attempts don't reach the database.
+//	  UserService drops the entries of a username whenever it is created, changed or removed
+//	- a successful login returns a signed access token (TokenService) for the following requests
 @Service
 public class AuthService {
 
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private PasswordService passwordService;
+    @Autowired
+    private TokenService tokenService;
+
+    @Value("${auth.workers:0}")
+    private int workers;
+    @Value("${auth.queue-size:64}")
+    private int queueSize;
+    @Value("${auth.timeout-ms:5000}")
+    private long timeoutMs;
+    @Value("${auth.negative-cache-size:100000}")
+    private long negativeCacheSize;
+    @Value("${auth.negative-cache-ttl-seconds:300}")
+    private long negativeCacheTtlSeconds;
+    @Value("${auth.credential-cache-size:10000}")
+    private long credentialCacheSize;
+    @Value("${auth.credential-cache-ttl-seconds:30}")
+    private long credentialCacheTtlSeconds;
+
+    // Not a bean, see ImageVariantService
+    private ThreadPoolTaskExecutor authExecutor;
+    private Cache<String, Boolean> unknownUsernames;
+    private Cache<String, Credentials> credentials;
+
+    private static class Credentials {
+        private final String userId;
+        private final String passwordHash;
+
+        Credentials(String userId, String passwordHash) {
+            this.userId = userId;
+            this.passwordHash = passwordHash;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        authExecutor = new ThreadPoolTaskExecutor();
+        authExecutor.setCorePoolSize(threads);
+        authExecutor.setMaxPoolSize(threads);
+        authExecutor.setQueueCapacity(queueSize);
+        authExecutor.setThreadNamePrefix("auth-");
+        authExecutor.initialize();
+
+        unknownUsernames = Caffeine.newBuilder()
+                .maximumSize(negativeCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(negativeCacheTtlSeconds))
+                .build();
+        credentials = Caffeine.newBuilder()
+                .maximumSize(credentialCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(credentialCacheTtlSeconds))
+                .build();
+    }
+
+    @PreDestroy
+    public void stop() {
+        authExecutor.shutdown();
+    }
 
     public LoginResponseDTO authenticate(LoginRequestDTO loginRequest) {
         if (loginRequest.getUsername() == null || loginRequest.getUsername().trim().isEmpty()) {
@@ -28,21 +111,96 @@ public class AuthService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Password is required");
         }
 
-        Optional<User> userOptional = userRepository.findByUsername(loginRequest.getUsername());
+        Credentials userCredentials = findCredentials(loginRequest.getUsername());
+
+        if (!checkPassword(loginRequest.getPassword(), userCredentials)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid username or password");
+        }
+
+        Optional<User> userOptional = userRepository.findById(userCredentials.userId);
 
         if (!userOptional.isPresent()) {
+            // Removed since its credentials were cached
+            credentialsChanged(loginRequest.getUsername());
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid username or password");
         }
 
         User user = userOptional.get();
 
-        // Simple password comparison (in production, you should use password hashing)
-        if (!user.getPassword().equals(loginRequest.getPassword())) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid username or password");
+        // Plain text from before hashing, or an older strength
+        if (passwordService.needsRehash(userCredentials.passwordHash)) {
+            user.setPassword(passwordService.hash(loginRequest.getPassword()));
+            userRepository.save(user);
+            credentialsChanged(loginRequest.getUsername());
         }
 
-        // Authentication successful
+        // Authentication successful, later requests authenticate with the token instead of reloading the user
         UserStripped userStripped = new UserStripped(user);
-        return new LoginResponseDTO(true, "Login successful", userStripped);
+        long now = System.currentTimeMillis();
+        return new LoginResponseDTO(true, "Login successful", userStripped, tokenService.issue(user, now), tokenService.expiresAt(now));
+    }
+
+    // Called by UserService when a user with this username is created, changed or removed.
+    // Dropped again after commit, a login between the change and the commit may have cached the old row
+    public void credentialsChanged(String username) {
+        if (username == null) {
+            return;
+        }
+        forget(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    forget(username);
+                }
+            });
+        }
+    }
+
+    private void forget(String username) {
+        unknownUsernames.invalidate(username);
+        credentials.invalidate(username);
+    }
+
+    // null when there is no such user
+    private Credentials findCredentials(String username) {
+        if (unknownUsernames.getIfPresent(username) != null) {
+            return null;
+        }
+        // Concurrent attempts on the same username share one lookup
+        Credentials found = credentials.get(username, name -> {
+            Optional<User> userOptional = userRepository.findByUsername(name);
+            if (!userOptional.isPresent()) {
+                return null;
+            }
+            return new Credentials(userOptional.get().getId(), userOptional.get().getPassword());
+        });
+        if (found == null) {
+            unknownUsernames.put(username, Boolean.TRUE);
+        }
+        return found;
+    }
+
+    private boolean checkPassword(String password, Credentials userCredentials) {
+        Future<Boolean> check;
+        try {
+            check = authExecutor.submit(() -> userCredentials == null
+                    ? passwordService.matchesNothing(password)
+                    : passwordService.matches(password, userCredentials.passwordHash));
+        } catch (TaskRejectedException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many login attempts in progress, try again later");
+        }
+
+        try {
+            return check.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            check.cancel(true);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many login attempts in progress, try again later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Login interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password check failed", e.getCause());
+        }
     }
 }
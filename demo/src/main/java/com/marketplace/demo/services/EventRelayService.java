@@ -0,0 +1,269 @@
+package com.marketplace.demo.services;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplace.demo.events.DomainEvent;
+import com.marketplace.demo.events.DomainEventSubscriber;
+import com.marketplace.demo.events.DomainEventType;
+import com.marketplace.demo.models.ids.BinaryUuids;
+
+import jakarta.annotation.PostConstruct;
+
+// Publishes the events of OUTBOX_EVENTS to the DomainEventSubscriber beans, off the request path.
+//	- every outbox.relay-interval-ms one read of up to outbox.batch-size events after the lowest cursor
+//	  feeds all subscribers, each gets the events after its own cursor, in id order, in one call
+//	- a subscriber's cursor is saved once it returned, one that throws gets the same events again next run
+//	- ids come from AUTO_INCREMENT, taken at insert but visible at commit, so a later id can show up first.
+//	  The relay doesn't wait for a missing id: it goes on and keeps the id, which is looked for again on every
+//	  run for outbox.gap-timeout-ms. A transaction still running then gets its event delivered on its own once
+//	  it commits, to the subscribers that went past it (the others get it in order). A rolled back one never
+//	  shows up and is forgotten. Skipped ids are kept in memory, a restart forgets them
+//	- events every cursor has passed are deleted once older than outbox.retention-hours, until then
+//	  a cursor can be moved back to replay them (replay()). So are the cursors of no subscriber of this
+//	  instance not moved for as long, left by instances that stopped
+@Service
+public class EventRelayService {
+
+	private static final Logger log = LoggerFactory.getLogger(EventRelayService.class);
+
+	private static final String SELECT_EVENTS_SQL = "SELECT id, event_type, aggregate_id, payload, created_at FROM outbox_events ";
+	// Looked for again at most, the oldest are forgotten beyond it
+	private static final int MAX_SKIPPED = 100000;
+	private static final String UPSERT_CURSOR_SQL = "INSERT INTO outbox_cursors (subscriber, last_event_id, updated_at) VALUES (?, ?, ?) "
+			+ "ON DUPLICATE KEY UPDATE last_event_id = VALUES(last_event_id), updated_at = VALUES(updated_at)";
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired(required = false)
+	List<DomainEventSubscriber> subscribers = new ArrayList<DomainEventSubscriber>();
+
+	@Value("${outbox.batch-size:500}")
+	private int batchSize;
+	@Value("${outbox.gap-timeout-ms:600000}")
+	private long gapTimeoutMs;
+	@Value("${outbox.retention-hours:168}")
+	private long retentionHours;
+
+	// Subscriber name -> last event handled. Only changed by the relay and replay(), under this object's lock
+	private final Map<String, Long> cursors = new HashMap<String, Long>();
+	// Highest id the relay went past
+	private long relayedUpTo = 0;
+	// Missing ids the relay went past -> since when, in id order
+	private final TreeMap<Long, Long> skipped = new TreeMap<Long, Long>();
+
+	@PostConstruct
+	public void loadCursors() {
+		Map<String, Long> stored = new HashMap<String, Long>();
+		jdbcTemplate.query("SELECT subscriber, last_event_id FROM outbox_cursors", rs -> {
+			stored.put(rs.getString(1), rs.getLong(2));
+		});
+		for (DomainEventSubscriber subscriber : subscribers) {
+			cursors.put(subscriber.getName(), stored.getOrDefault(subscriber.getName(), 0L));
+		}
+		for (long cursor : stored.values()) {
+			relayedUpTo = Math.max(relayedUpTo, cursor);
+		}
+		// Older ids were deleted, not waited for
+		Long oldest = jdbcTemplate.queryForObject("SELECT MIN(id) FROM outbox_events", Long.class);
+		if (oldest != null) {
+			relayedUpTo = Math.max(relayedUpTo, oldest - 1);
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${outbox.relay-interval-ms:200}")
+	public synchronized void relay() {
+		if (subscribers.isEmpty()) {
+			return;
+		}
+		relaySkipped();
+		// A full batch means more may be waiting
+		int relayed;
+		do {
+			relayed = relayBatch();
+		} while (relayed == batchSize);
+	}
+
+	// Moves the cursor of a subscriber back (or forward), the next run delivers the events after after_event_id
+	public synchronized void replay(String subscriber, long after_event_id) {
+		if (!cursors.containsKey(subscriber)) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Subscriber not Found");
+		}
+		if (after_event_id < 0) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "after_event_id cannot be negative");
+		}
+		saveCursor(subscriber, after_event_id);
+	}
+
+	public synchronized Map<String, Long> getCursors() {
+		return new LinkedHashMap<String, Long>(cursors);
+	}
+
+	@Scheduled(fixedDelayString = "${outbox.cleanup-interval-ms:3600000}")
+	public void deleteRelayedEvents() {
+		long passedByAll;
+		List<String> names;
+		synchronized (this) {
+			passedByAll = cursors.isEmpty() ? Long.MAX_VALUE : cursors.values().stream().mapToLong(Long::longValue).min().getAsLong();
+			names = new ArrayList<String>(cursors.keySet());
+		}
+		long olderThan = System.currentTimeMillis() - retentionHours * 3600 * 1000;
+		int deleted = jdbcTemplate.update("DELETE FROM outbox_events WHERE id <= ? AND created_at < ?", passedByAll, olderThan);
+		if (deleted > 0) {
+			log.info("Outbox: deleted {} relayed events", deleted);
+		}
+		// Per instance cursors of instances that stopped without removing theirs
+		List<Object> arguments = new ArrayList<Object>(names);
+		arguments.add(0, olderThan);
+		String notIn = names.isEmpty() ? "" : " AND subscriber NOT IN (" + String.join(",", Collections.nCopies(names.size(), "?")) + ")";
+		jdbcTemplate.update("DELETE FROM outbox_cursors WHERE updated_at < ?" + notIn, arguments.toArray());
+	}
+
+	// Returns the number of events read, 0 when a subscriber failed so the run stops there
+	private int relayBatch() {
+		long from = cursors.values().stream().mapToLong(Long::longValue).min().getAsLong();
+		List<DomainEvent> events = jdbcTemplate.query(SELECT_EVENTS_SQL + "WHERE id > ? ORDER BY id LIMIT ?", this::mapEvent, from, batchSize);
+		if (events.isEmpty()) {
+			return 0;
+		}
+		skipMissing(events);
+		long upTo = events.get(events.size() - 1).getId();
+
+		boolean failed = false;
+		for (DomainEventSubscriber subscriber : subscribers) {
+			long cursor = cursors.get(subscriber.getName());
+			if (cursor >= upTo) {
+				continue;
+			}
+			Set<DomainEventType> types = subscriber.getEventTypes();
+			List<DomainEvent> delivered = new ArrayList<DomainEvent>();
+			for (DomainEvent event : events) {
+				if (event.getId() > cursor && types.contains(event.getType())) {
+					delivered.add(event);
+				}
+			}
+			try {
+				if (!delivered.isEmpty()) {
+					subscriber.onEvents(delivered);
+				}
+				saveCursor(subscriber.getName(), upTo);
+			} catch (RuntimeException e) {
+				failed = true;
+				log.warn("Subscriber {} failed on events {}..{}, retrying next run", subscriber.getName(), cursor + 1, upTo, e);
+			}
+		}
+		return failed ? 0 : events.size();
+	}
+
+	// Keeps the ids missing below the events read, the first time the relay goes past them
+	private void skipMissing(List<DomainEvent> events) {
+		long now = System.currentTimeMillis();
+		for (DomainEvent event : events) {
+			for (long missing = relayedUpTo + 1; missing < event.getId(); missing++) {
+				skipped.put(missing, now);
+			}
+			relayedUpTo = Math.max(relayedUpTo, event.getId());
+		}
+		if (skipped.size() > MAX_SKIPPED) {
+			log.warn("Outbox: more than {} missing events, no longer looking for the oldest ones", MAX_SKIPPED);
+			while (skipped.size() > MAX_SKIPPED) {
+				skipped.pollFirstEntry();
+			}
+		}
+	}
+
+	// Skipped ids that committed since go to the subscribers already past them, then the ones missing
+	// for longer than the gap timeout are given up
+	private void relaySkipped() {
+		List<Long> ids = new ArrayList<Long>(skipped.keySet());
+		for (int i = 0; i < ids.size(); i += batchSize) {
+			List<Long> chunk = ids.subList(i, Math.min(i + batchSize, ids.size()));
+			String in = String.join(",", Collections.nCopies(chunk.size(), "?"));
+			List<DomainEvent> found = jdbcTemplate.query(SELECT_EVENTS_SQL + "WHERE id IN (" + in + ") ORDER BY id", this::mapEvent, chunk.toArray());
+			if (!found.isEmpty() && deliverLate(found)) {
+				for (DomainEvent event : found) {
+					skipped.remove(event.getId());
+				}
+			}
+		}
+		long now = System.currentTimeMillis();
+		int givenUp = 0;
+		for (Iterator<Long> since = skipped.values().iterator(); since.hasNext();) {
+			if (now - since.next() > gapTimeoutMs) {
+				since.remove();
+				givenUp++;
+			}
+		}
+		if (givenUp > 0) {
+			log.warn("Outbox: {} missing events not committed after {} ms, no longer looking for them", givenUp, gapTimeoutMs);
+		}
+	}
+
+	// false when a subscriber failed, all of them get the events again next run (at least once)
+	private boolean deliverLate(List<DomainEvent> found) {
+		boolean delivered = true;
+		for (DomainEventSubscriber subscriber : subscribers) {
+			long cursor = cursors.get(subscriber.getName());
+			Set<DomainEventType> types = subscriber.getEventTypes();
+			List<DomainEvent> late = new ArrayList<DomainEvent>();
+			for (DomainEvent event : found) {
+				if (event.getId() <= cursor && types.contains(event.getType())) {
+					late.add(event);
+				}
+			}
+			try {
+				if (!late.isEmpty()) {
+					subscriber.onEvents(late);
+				}
+			} catch (RuntimeException e) {
+				delivered = false;
+				log.warn("Subscriber {} failed on {} late events, retrying next run", subscriber.getName(), late.size(), e);
+			}
+		}
+		return delivered;
+	}
+
+	private DomainEvent mapEvent(ResultSet rs, int rowNum) throws SQLException {
+		return new DomainEvent(rs.getLong(1), DomainEventType.valueOf(rs.getString(2)), BinaryUuids.fromBytes(rs.getBytes(3)),
+				readPayload(rs.getString(4)), rs.getLong(5));
+	}
+
+	private void saveCursor(String subscriber, long last_event_id) {
+		jdbcTemplate.update(UPSERT_CURSOR_SQL, subscriber, last_event_id, System.currentTimeMillis());
+		cursors.put(subscriber, last_event_id);
+	}
+
+	private JsonNode readPayload(String payload) {
+		try {
+			return payload == null ? objectMapper.createObjectNode() : objectMapper.readTree(payload);
+		} catch (IOException e) {
+			log.warn("Outbox: unreadable event payload, delivered empty: {}", e.getMessage());
+			return objectMapper.createObjectNode();
+		}
+	}
+
+}
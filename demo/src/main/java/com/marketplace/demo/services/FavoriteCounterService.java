@@ -0,0 +1,151 @@
+package com.marketplace.demo.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.ids.BinaryUuids;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+
+// Keeps Item.favoriteCount exact without locking the item row on every favorite.
+//	- each favorite / unfavorite adds +1 / -1 to an in-memory accumulator for the item,
+//	  but only once its transaction has committed
+//	- accumulators are flushed in one JDBC batch of UPDATE ... SET favorite_count = favorite_count + ?
+// Between flushes the count read from the database can lag behind by up to favorites.flush-interval-ms.
+// Deltas not flushed when an instance dies (or whose shutdown flush fails) are lost, reconcile() corrects
+// the counts they leave behind from the FAVORITES rows.
+@Service
+public class FavoriteCounterService {
+
+	private static final Logger log = LoggerFactory.getLogger(FavoriteCounterService.class);
+
+	private static final String INCREMENT_SQL = "UPDATE items SET favorite_count = favorite_count + ? WHERE id = ?";
+	private static final String MISMATCH_SQL = "SELECT i.id, i.favorite_count, COUNT(f.item_id) FROM items i LEFT JOIN favorites f ON f.item_id = i.id "
+			+ "GROUP BY i.id, i.favorite_count HAVING i.favorite_count <> COUNT(f.item_id)";
+	// Only while neither the count nor the rows have moved since the mismatch was seen
+	private static final String CORRECT_SQL = "UPDATE items SET favorite_count = ? WHERE id = ? AND favorite_count = ? "
+			+ "AND (SELECT COUNT(*) FROM favorites WHERE item_id = ?) = ?";
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	// Pending delta per item id. merge/remove are atomic per key, so no change is lost
+	// between a favorite and a concurrent flush, and flushed items don't stay in memory.
+	private final Map<String, Long> pending = new ConcurrentHashMap<>();
+	// Mismatches seen by the last reconcile: item id -> { favorite_count, FAVORITES rows }
+	private Map<String, long[]> mismatches = new HashMap<>();
+
+	public void favoriteAdded(String item_id) {
+		recordAfterCommit(item_id, 1);
+	}
+
+	public void favoriteRemoved(String item_id) {
+		recordAfterCommit(item_id, -1);
+	}
+
+	public long getPendingDelta(String item_id) {
+		return pending.getOrDefault(item_id, 0L);
+	}
+
+	private void recordAfterCommit(String item_id, long delta) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			record(item_id, delta);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				record(item_id, delta);
+			}
+		});
+	}
+
+	private void record(String item_id, long delta) {
+		pending.merge(item_id, delta, (current, added) -> current + added == 0 ? null : current + added);
+	}
+
+	@Scheduled(fixedDelayString = "${favorites.flush-interval-ms:1000}")
+	public void flush() {
+		List<Object[]> batch = new ArrayList<>();
+		for (String item_id : pending.keySet()) {
+			Long delta = pending.remove(item_id);
+			if (delta != null) {
+				batch.add(new Object[] { delta, item_id });
+			}
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		try {
+			List<Object[]> args = new ArrayList<>(batch.size());
+			for (Object[] row : batch) {
+				args.add(new Object[] { row[0], BinaryUuids.toBytes((String) row[1]) });
+			}
+			jdbcTemplate.batchUpdate(INCREMENT_SQL, args);
+		} catch (RuntimeException e) {
+			// Put the deltas back, the next flush will retry them
+			for (Object[] row : batch) {
+				record((String) row[1], (Long) row[0]);
+			}
+			log.warn("Failed to flush favorite counters, retrying next run: {}", e.getMessage());
+			return;
+		}
+
+		// The update bypassed Hibernate, drop the cached copies of these items
+		for (Object[] row : batch) {
+			entityManagerFactory.getCache().evict(Item.class, row[1]);
+		}
+	}
+
+	// A count that differs from the rows may only be lagging: its deltas are still pending here or on another instance.
+	// Mismatches are corrected on the next run, if they haven't moved in between (any favorite since would have changed the rows)
+	// and no delta is pending here. By then the other instances have flushed what they held.
+	@Scheduled(initialDelayString = "${favorites.reconcile-interval-ms:3600000}", fixedDelayString = "${favorites.reconcile-interval-ms:3600000}")
+	public synchronized void reconcile() {
+		List<String> corrected = new ArrayList<>();
+		for (Map.Entry<String, long[]> mismatch : mismatches.entrySet()) {
+			String item_id = mismatch.getKey();
+			long[] counts = mismatch.getValue();
+			if (pending.containsKey(item_id)) {
+				continue;
+			}
+			byte[] id = BinaryUuids.toBytes(item_id);
+			if (jdbcTemplate.update(CORRECT_SQL, counts[1], id, counts[0], id, counts[1]) > 0) {
+				corrected.add(item_id);
+				entityManagerFactory.getCache().evict(Item.class, item_id);
+			}
+		}
+		if (!corrected.isEmpty()) {
+			log.warn("Corrected the favorite count of {} items, their deltas were lost", corrected.size());
+		}
+
+		Map<String, long[]> seen = new HashMap<>();
+		jdbcTemplate.query(MISMATCH_SQL, rs -> {
+			seen.put(BinaryUuids.fromBytes(rs.getBytes(1)), new long[] { rs.getLong(2), rs.getLong(3) });
+		});
+		mismatches = seen;
+	}
+
+	@PreDestroy
+	public void flushOnShutdown() {
+		flush();
+	}
+
+}
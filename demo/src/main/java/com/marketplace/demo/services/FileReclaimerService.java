@@ -0,0 +1,205 @@
+package com.marketplace.demo.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.marketplace.demo.repositories.ImageBlobRepository;
+import com.marketplace.demo.repositories.ImageVariantRepository;
+
+import jakarta.annotation.PreDestroy;
+
+// Deletes image files off the request thread.
+//	- files are queued once the transaction that dropped their rows has committed,
+//	  and deleted in batches of images.reclaim.batch-size every images.reclaim.interval-ms
+//	- a periodic mark-and-sweep queues every file in images.upload-dir that no row points at
+//	  (and is older than images.gc.min-age-ms, so uploads in flight are left alone),
+//	  pausing between chunks of the directory walk so it doesn't compete with request I/O
+@Service
+public class FileReclaimerService {
+
+	private static final Logger log = LoggerFactory.getLogger(FileReclaimerService.class);
+
+	private static final int SWEEP_CHUNK = 1000;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	ImageBlobRepository imageBlobRepository;
+	@Autowired
+	ImageVariantRepository imageVariantRepository;
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Value("${images.upload-dir}")
+	private String uploadDir;
+	@Value("${images.reclaim.batch-size:100}")
+	private int batchSize;
+	@Value("${images.gc.min-age-ms:3600000}")
+	private long minAgeMs;
+	@Value("${images.gc.pause-ms:50}")
+	private long pauseMs;
+
+	private final Queue<PendingDelete> pending = new ConcurrentLinkedQueue<>();
+
+	// blobHash: the content hash the file is stored under, null for files of their own.
+	// Such a file is kept if the same bytes were uploaded again before it got deleted.
+	private record PendingDelete(Path path, String blobHash) {
+	}
+
+	public void deleteAfterCommit(Path path, String blobHash) {
+		PendingDelete delete = new PendingDelete(path, blobHash);
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			pending.add(delete);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				pending.add(delete);
+			}
+		});
+	}
+
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	@Scheduled(fixedDelayString = "${images.reclaim.interval-ms:1000}")
+	public void reclaim() {
+		List<PendingDelete> batch = new ArrayList<>();
+		PendingDelete next;
+		while (batch.size() < batchSize && (next = pending.poll()) != null) {
+			batch.add(next);
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		Set<String> hashes = new TreeSet<>();
+		for (PendingDelete delete : batch) {
+			if (delete.blobHash() != null) {
+				hashes.add(delete.blobHash());
+			}
+		}
+		if (hashes.isEmpty()) {
+			delete(batch, Set.of());
+			return;
+		}
+
+		// The files are deleted while their keys are locked, so an upload of the same bytes can't put a row
+		// in the table meanwhile (ImageStorageService.store): one that hasn't committed is waited for and keeps the file,
+		// one that comes later waits until the file is gone and moves its own into place.
+		// Keys are locked in hash order, two reclaims of overlapping batches can't deadlock.
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			Set<String> reuploaded = new HashSet<>();
+			for (String hash : hashes) {
+				imageBlobRepository.lockForDelete(hash);
+				if (imageBlobRepository.deleteUnreferenced(hash) == 0) {
+					reuploaded.add(hash);
+				}
+			}
+			delete(batch, reuploaded);
+		});
+	}
+
+	private void delete(List<PendingDelete> batch, Set<String> reuploaded) {
+		for (PendingDelete delete : batch) {
+			if (delete.blobHash() != null && reuploaded.contains(delete.blobHash())) {
+				continue;
+			}
+			try {
+				Files.deleteIfExists(delete.path());
+			} catch (IOException e) {
+				log.warn("Failed to delete image file {}: {}", delete.path(), e.getMessage());
+			}
+		}
+	}
+
+	@Scheduled(initialDelayString = "${images.gc.initial-delay-ms:600000}", fixedDelayString = "${images.gc.interval-ms:21600000}")
+	public void sweep() {
+		Path root = root();
+		if (!Files.isDirectory(root)) {
+			return;
+		}
+
+		// Variants of blobs deleted while they were being generated
+		imageVariantRepository.deleteWithoutBlob();
+
+		// Mark
+		Set<Path> referenced = new HashSet<>();
+		jdbcTemplate.query("SELECT path FROM image_blobs", rs -> {
+			referenced.add(root.resolve(rs.getString(1)).normalize());
+		});
+		jdbcTemplate.query("SELECT path FROM image_variants", rs -> {
+			referenced.add(root.resolve(rs.getString(1)).normalize());
+		});
+		// Images stored before content-addressed storage own their file
+		jdbcTemplate.query("SELECT image_path FROM images WHERE blob_hash IS NULL AND image_path IS NOT NULL", rs -> {
+			referenced.add(Paths.get(rs.getString(1)).toAbsolutePath().normalize());
+		});
+
+		// Sweep
+		long cutoff = System.currentTimeMillis() - minAgeMs;
+		int scanned = 0;
+		try (Stream<Path> files = Files.walk(root)) {
+			Iterator<Path> it = files.filter(Files::isRegularFile).iterator();
+			while (it.hasNext()) {
+				Path file = it.next().toAbsolutePath().normalize();
+				if (!referenced.contains(file) && Files.getLastModifiedTime(file).toMillis() < cutoff) {
+					pending.add(new PendingDelete(file, hashOf(file)));
+				}
+				if (++scanned % SWEEP_CHUNK == 0) {
+					Thread.sleep(pauseMs);
+				}
+			}
+		} catch (IOException e) {
+			log.error("Image file sweep failed", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@PreDestroy
+	public void reclaimOnShutdown() {
+		while (!pending.isEmpty()) {
+			reclaim();
+		}
+	}
+
+	// Blob files are named <hash>, their variants <hash>.jpg: an orphan is kept like a released blob
+	// if the same bytes are uploaded between the sweep and the delete. null for other files
+	private String hashOf(Path file) {
+		String name = file.getFileName().toString();
+		int dot = name.indexOf('.');
+		String hash = dot < 0 ? name : name.substring(0, dot);
+		return hash.length() == 64 && hash.chars().allMatch(c -> (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f')) ? hash : null;
+	}
+
+	private Path root() {
+		return Paths.get(System.getProperty("user.dir"), uploadDir).toAbsolutePath().normalize();
+	}
+
+}
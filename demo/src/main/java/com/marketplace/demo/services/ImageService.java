@@ -1,64 +1,209 @@
 package com.marketplace.demo.services;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.Optional;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.marketplace.demo.models.Image;
+import com.marketplace.demo.models.ImageVariant;
+import com.marketplace.demo.models.ImageVariantSize;
 import com.marketplace.demo.repositories.ImageRepository;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Serves image files straight to the servlet response.
+//	- ?size= serves a generated variant, or the original while it doesn't exist
+//	- strong ETag (content hash, or file size and time for images stored before hashing)
+//	  and Last-Modified, conditional GETs are answered with 304
+//	- a single byte range is answered with 206, anything else with the whole file
+//	- the bytes are sent with sendfile when the connector supports it (Tomcat NIO),
+//	  otherwise with FileChannel.transferTo into the response
 @Service
 public class ImageService {
 
+	private static final Logger log = LoggerFactory.getLogger(ImageService.class);
+
+	private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
 	@Autowired
 	ImageRepository imageRepository;
+	@Autowired
+	ImageVariantService imageVariantService;
+
+	@Value("${images.cache-max-age-seconds:31536000}")
+	private long cacheMaxAgeSeconds;
+
+	// size selects a generated variant (thumbnail, card, full), null for the original
+	public void writeImageFile(String image_id, String size, HttpServletRequest request, HttpServletResponse response) {
+		ImageVariantSize variantSize = null;
+		if (size != null) {
+			variantSize = ImageVariantSize.fromName(size);
+			if (variantSize == null) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown image size '" + size + "'");
+			}
+		}
+
+		Optional<Image> imageOptional = imageRepository.findById(image_id);
+		if (!imageOptional.isPresent()) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Image not Found");
+		}
+
+		Image image = imageOptional.get();
+		if (image.getImage_path() == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Image not Found");
+		}
+		Path filePath = Paths.get(image.getImage_path());
+		String storedContentType = image.getContentType();
+		Long storedSize = image.getSize();
+		String etag = image.getBlob() != null ? "\"" + image.getBlob().getHash() + "\"" : null;
+		// An image id always points at the same bytes
+		String cacheControl = "public, max-age=" + cacheMaxAgeSeconds + ", immutable";
+
+		if (variantSize != null && image.getBlob() != null) {
+			ImageVariant variant = imageVariantService.getVariant(image.getBlob().getHash(), variantSize);
+			if (variant != null) {
+				filePath = imageVariantService.resolve(variant);
+				storedContentType = variant.getContentType();
+				storedSize = variant.getSize();
+				etag = "\"" + variant.getId() + "\"";
+			} else {
+				// Variant not generated (yet), the original stands in for it but must be revalidated
+				cacheControl = "no-cache";
+			}
+		}
+
+		try {
+			if (!Files.isRegularFile(filePath)) {
+				throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Image not Found");
+			}
+
+			// Type and size were recorded on upload, only images stored before that are probed
+			String contentType = storedContentType != null ? storedContentType : Files.probeContentType(filePath);
+			if (contentType == null) {
+				contentType = "application/octet-stream";
+			}
+			long fileSize = storedSize != null ? storedSize : Files.size(filePath);
+			long lastModified = Files.getLastModifiedTime(filePath).toMillis();
+			if (etag == null) {
+				// Stored before content-addressed storage: no hash, but the file is the image's own
+				// and is never rewritten in place, its size and time stand for its content
+				etag = "\"" + image.getId() + "-" + fileSize + "-" + lastModified + "\"";
+			}
 
-	public ResponseEntity<Resource> getImageFile(String image_id) {
+			// Sets ETag and Last-Modified, and the 304 status when the client copy is current
+			ServletWebRequest webRequest = new ServletWebRequest(request, response);
+			if (webRequest.checkNotModified(etag, lastModified)) {
+				return;
+			}
+
+			response.setContentType(contentType);
+			response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+			response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+
+			long start = 0;
+			long end = fileSize - 1;
+			HttpRange range = requestedRange(request, etag, lastModified);
+			if (range != null) {
+				if (fileSize == 0 || range.getRangeStart(fileSize) >= fileSize) {
+					response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+					response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+					return;
+				}
+				start = range.getRangeStart(fileSize);
+				end = range.getRangeEnd(fileSize);
+				response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize);
+			}
+			long length = end - start + 1;
+			response.setContentLengthLong(length);
+
+			if ("HEAD".equals(request.getMethod()) || length == 0) {
+				return;
+			}
+			if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+				// The connector writes the file itself once the servlet returns
+				request.setAttribute(SENDFILE_FILENAME, filePath.toAbsolutePath().toString());
+				request.setAttribute(SENDFILE_START, start);
+				request.setAttribute(SENDFILE_END, end + 1);
+				return;
+			}
+			transfer(filePath, start, length, response.getOutputStream());
+		} catch (IOException e) {
+			log.error("Failed to serve image file {}", filePath, e);
+			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "There was an error while obtaining the image");
+		}
+	}
+
+	// The single range to serve, or null for the whole file.
+	// If-Range that doesn't match the current file and multiple ranges both get the whole file.
+	private HttpRange requestedRange(HttpServletRequest request, String etag, long lastModified) {
+		String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+		if (rangeHeader == null) {
+			return null;
+		}
+
+		String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+		if (ifRange != null) {
+			boolean current = ifRange.startsWith("\"") ? ifRange.equals(etag) : ifRangeDateMatches(request, lastModified);
+			if (!current) {
+				return null;
+			}
+		}
+
+		List<HttpRange> ranges;
+		try {
+			ranges = HttpRange.parseRanges(rangeHeader);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		return ranges.size() == 1 ? ranges.get(0) : null;
+	}
+
+	private boolean ifRangeDateMatches(HttpServletRequest request, long lastModified) {
 		try {
-	    	
-	    	Optional<Image> imageOptional = imageRepository.findById(image_id);
-	    	if (!imageOptional.isPresent()) {
-	    		throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Image not Found");
-	    	}
-	    	
-	    	Image image = imageOptional.get();
-	    	
-	        Path filePath = Paths.get(image.getImage_path());
-	        Resource resource = new UrlResource(filePath.toUri());
-
-	        if (resource.exists()) {
-	            // Optional: detect the content type dynamically
-	            String contentType = Files.probeContentType(filePath);
-	            if (contentType == null) {
-	                contentType = "application/octet-stream";
-	            }
-
-	            return ResponseEntity.ok()
-	                    .contentType(MediaType.parseMediaType(contentType))
-	                    .body(resource);
-	        } else {
-	        	throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Image not Found");
-	        }
-	    } catch (MalformedURLException e) {
-	        e.printStackTrace();
-	        throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "There was an error while obtaining the image");
-	    } catch (IOException e) {
-	        e.printStackTrace();
-	        throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "There was an error while obtaining the image");
-	    }
+			return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	private void transfer(Path filePath, long start, long length, OutputStream out) throws IOException {
+		try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+			WritableByteChannel target = Channels.newChannel(out);
+			long position = start;
+			long remaining = length;
+			while (remaining > 0) {
+				long sent = channel.transferTo(position, remaining, target);
+				if (sent <= 0) {
+					break;
+				}
+				position += sent;
+				remaining -= sent;
+			}
+		}
 	}
-	
 
 }
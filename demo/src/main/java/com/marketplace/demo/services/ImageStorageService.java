@@ -0,0 +1,166 @@
+package com.marketplace.demo.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.marketplace.demo.models.Image;
+import com.marketplace.demo.models.ImageBlob;
+import com.marketplace.demo.repositories.ImageBlobRepository;
+
+import jakarta.transaction.Transactional;
+
+// Content-addressed storage of uploaded image files.
+//	- an upload is streamed to a temp file while its SHA-256 is computed
+//	- the file is then stored once under images.upload-dir/<aa>/<bb>/<hash>,
+//	  uploading the same bytes again only adds a reference to the existing IMAGE_BLOBS row
+//	- the content type is read from the file's leading bytes, not taken from the client:
+//	  it is served back with the file. Anything but JPEG, PNG, GIF and WebP is refused
+//	- releasing the last reference deletes the row and its variants,
+//	  the files are deleted by FileReclaimerService after the commit
+@Service
+public class ImageStorageService {
+
+	private static final String TEMP_DIR = ".tmp";
+
+	@Autowired
+	ImageBlobRepository imageBlobRepository;
+	@Autowired
+	ImageVariantService imageVariantService;
+	@Autowired
+	FileReclaimerService fileReclaimerService;
+
+	@Value("${images.upload-dir}")
+	private String uploadDir;
+
+	// Must run in the transaction that creates the Image, the blob row stays locked until it commits
+	@Transactional
+	public ImageBlob store(MultipartFile file) throws IOException {
+		Path root = root();
+		Path tempDir = root.resolve(TEMP_DIR);
+		Files.createDirectories(tempDir);
+
+		// Temp file in the upload dir, so the move below is a rename on the same file system
+		Path temp = Files.createTempFile(tempDir, "upload-", ".part");
+		try {
+			MessageDigest digest = sha256();
+			long size;
+			try (InputStream in = new DigestInputStream(file.getInputStream(), digest);
+					OutputStream out = Files.newOutputStream(temp)) {
+				size = in.transferTo(out);
+			}
+			String contentType = contentTypeOf(temp);
+			if (contentType == null) {
+				throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Only JPEG, PNG, GIF and WebP images can be uploaded");
+			}
+			String hash = HexFormat.of().formatHex(digest.digest());
+			String relativePath = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+
+			imageBlobRepository.addReference(hash, relativePath, size, contentType);
+
+			// Same content, so replacing an existing file is harmless, and it restores a file
+			// deleted by a release that committed just before our reference was added
+			Path target = root.resolve(relativePath);
+			Files.createDirectories(target.getParent());
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			return imageBlobRepository.findById(hash).get();
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	// Drops the file reference of an image whose row is being deleted
+	@Transactional
+	public void release(Image image) {
+		if (image.getBlob() != null) {
+			releaseBlob(image.getBlob().getHash());
+		} else if (image.getImage_path() != null && !image.getImage_path().isEmpty()) {
+			// Stored before content-addressed storage, the file is the image's own
+			fileReclaimerService.deleteAfterCommit(Paths.get(image.getImage_path()), null);
+		}
+	}
+
+	private void releaseBlob(String hash) {
+		Optional<ImageBlob> blobOptional = imageBlobRepository.findForUpdate(hash);
+		if (!blobOptional.isPresent()) {
+			return;
+		}
+
+		ImageBlob blob = blobOptional.get();
+		blob.setRefCount(blob.getRefCount() - 1);
+		if (blob.getRefCount() > 0) {
+			return;
+		}
+
+		imageVariantService.deleteVariants(hash);
+		imageBlobRepository.delete(blob);
+		fileReclaimerService.deleteAfterCommit(resolve(blob), hash);
+	}
+
+	// From the signature at the start of the file, null when it is none of the accepted formats
+	private String contentTypeOf(Path file) throws IOException {
+		byte[] header;
+		try (InputStream in = Files.newInputStream(file)) {
+			header = in.readNBytes(12);
+		}
+		if (startsWith(header, 0, 0xFF, 0xD8, 0xFF)) {
+			return "image/jpeg";
+		}
+		if (startsWith(header, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+			return "image/png";
+		}
+		if (startsWith(header, 0, 'G', 'I', 'F', '8')) {
+			return "image/gif";
+		}
+		if (startsWith(header, 0, 'R', 'I', 'F', 'F') && startsWith(header, 8, 'W', 'E', 'B', 'P')) {
+			return "image/webp";
+		}
+		return null;
+	}
+
+	private boolean startsWith(byte[] header, int offset, int... signature) {
+		if (header.length < offset + signature.length) {
+			return false;
+		}
+		for (int i = 0; i < signature.length; i++) {
+			if ((header[offset + i] & 0xFF) != signature[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public Path resolve(ImageBlob blob) {
+		return root().resolve(blob.getPath());
+	}
+
+	private Path root() {
+		return Paths.get(System.getProperty("user.dir"), uploadDir);
+	}
+
+	private MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,259 @@
+package com.marketplace.demo.services;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.marketplace.demo.models.ImageBlob;
+import com.marketplace.demo.models.ImageVariant;
+import com.marketplace.demo.models.ImageVariantSize;
+import com.marketplace.demo.repositories.ImageVariantRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Generates the resized JPEG variants of uploaded images on a small worker pool (images.variants.*).
+//	- queued once the upload has committed, the upload request doesn't wait for it
+//	- the original is decoded once (subsampled when much larger than the biggest variant)
+//	  and every variant is scaled from it in halving steps
+//	- files go to images.upload-dir/variants/<size>/<aa>/<bb>/<hash>.jpg
+// Until its variants exist an image is served from the original.
+@Service
+public class ImageVariantService {
+
+	private static final Logger log = LoggerFactory.getLogger(ImageVariantService.class);
+
+	private static final String VARIANT_DIR = "variants";
+	private static final String VARIANT_CONTENT_TYPE = "image/jpeg";
+
+	@Autowired
+	ImageVariantRepository imageVariantRepository;
+	// Not a bean: an Executor bean would replace Boot's applicationTaskExecutor (async MVC, @Async)
+	private ThreadPoolTaskExecutor imageVariantExecutor;
+	@Autowired
+	FileReclaimerService fileReclaimerService;
+
+	@Value("${images.upload-dir}")
+	private String uploadDir;
+	@Value("${images.variants.jpeg-quality:0.8}")
+	private float jpegQuality;
+	@Value("${images.variants.workers:2}")
+	private int workers;
+	@Value("${images.variants.queue-size:100}")
+	private int queueSize;
+
+	// Bounded in threads and queue: when it is full new uploads get no variants
+	// and are served from the original
+	@PostConstruct
+	public void startWorkers() {
+		imageVariantExecutor = new ThreadPoolTaskExecutor();
+		imageVariantExecutor.setCorePoolSize(workers);
+		imageVariantExecutor.setMaxPoolSize(workers);
+		imageVariantExecutor.setQueueCapacity(queueSize);
+		imageVariantExecutor.setThreadNamePrefix("image-variants-");
+		imageVariantExecutor.setRejectedExecutionHandler((task, pool) -> log.warn("Image variant queue is full, skipping variants of an upload"));
+		imageVariantExecutor.initialize();
+	}
+
+	@PreDestroy
+	public void stopWorkers() {
+		imageVariantExecutor.shutdown();
+	}
+
+	public void generateAfterCommit(ImageBlob blob, Path original) {
+		String hash = blob.getHash();
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			imageVariantExecutor.execute(() -> generate(hash, original));
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				imageVariantExecutor.execute(() -> generate(hash, original));
+			}
+		});
+	}
+
+	public ImageVariant getVariant(String blobHash, ImageVariantSize size) {
+		return imageVariantRepository.findById(ImageVariant.idOf(blobHash, size)).orElse(null);
+	}
+
+	public Path resolve(ImageVariant variant) {
+		return root().resolve(variant.getPath());
+	}
+
+	// Called when the last reference to a blob is released
+	public void deleteVariants(String blobHash) {
+		List<ImageVariant> variants = imageVariantRepository.findByBlobHash(blobHash);
+		imageVariantRepository.deleteAll(variants);
+		for (ImageVariant variant : variants) {
+			fileReclaimerService.deleteAfterCommit(resolve(variant), blobHash);
+		}
+	}
+
+	private void generate(String hash, Path original) {
+		// A duplicate upload of a blob that already has its variants
+		if (imageVariantRepository.existsById(ImageVariant.idOf(hash, ImageVariantSize.THUMBNAIL))) {
+			return;
+		}
+
+		try {
+			BufferedImage source = read(original, ImageVariantSize.FULL.getMaxDimension());
+			if (source == null) {
+				// Not a format ImageIO can decode, the original is served for every size
+				return;
+			}
+			source = toRgb(source);
+
+			// Largest first, so every variant is scaled from the previous one
+			ImageVariantSize[] sizes = ImageVariantSize.values();
+			BufferedImage previous = source;
+			for (int i = sizes.length - 1; i >= 0; i--) {
+				ImageVariantSize size = sizes[i];
+				BufferedImage scaled = scaleDown(previous, size.getMaxDimension());
+				save(hash, size, scaled);
+				previous = scaled;
+			}
+		} catch (DataIntegrityViolationException e) {
+			// Generated concurrently for another upload of the same bytes
+		} catch (IOException | RuntimeException e) {
+			log.warn("Failed to generate variants of image {}", hash, e);
+		}
+	}
+
+	// Decodes the original, skipping rows/columns of pixels when it is
+	// at least twice as large as needed, which keeps decoding cheap for phone photos
+	private BufferedImage read(Path original, int maxDimension) throws IOException {
+		try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+			if (in == null) {
+				return null;
+			}
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+			if (!readers.hasNext()) {
+				return null;
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(in, true, true);
+				int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+				int subsampling = Math.max(1, longest / (maxDimension * 2));
+				ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	// JPEG has no alpha channel, transparent pixels become white
+	private BufferedImage toRgb(BufferedImage image) {
+		if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+			return image;
+		}
+		BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = rgb.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, image.getWidth(), image.getHeight());
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		return rgb;
+	}
+
+	// Halves the image until the next step reaches the target, then scales to it.
+	// Single bilinear steps over large factors lose most of the detail.
+	private BufferedImage scaleDown(BufferedImage image, int maxDimension) {
+		int longest = Math.max(image.getWidth(), image.getHeight());
+		if (longest <= maxDimension) {
+			return image;
+		}
+		double ratio = (double) maxDimension / longest;
+		int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+		int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+		BufferedImage current = image;
+		int width = image.getWidth();
+		int height = image.getHeight();
+		do {
+			width = Math.max(targetWidth, width / 2);
+			height = Math.max(targetHeight, height / 2);
+			current = resize(current, width, height);
+		} while (width != targetWidth || height != targetHeight);
+		return current;
+	}
+
+	private BufferedImage resize(BufferedImage image, int width, int height) {
+		BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = resized.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+		g.drawImage(image, 0, 0, width, height, null);
+		g.dispose();
+		return resized;
+	}
+
+	private void save(String hash, ImageVariantSize size, BufferedImage image) throws IOException {
+		String relativePath = VARIANT_DIR + "/" + size.getName() + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + ".jpg";
+		Path target = root().resolve(relativePath);
+		Files.createDirectories(target.getParent());
+
+		Path temp = Files.createTempFile(target.getParent(), hash, ".part");
+		try {
+			writeJpeg(image, temp);
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+
+		imageVariantRepository.save(new ImageVariant(hash, size, relativePath, VARIANT_CONTENT_TYPE,
+				Files.size(target), image.getWidth(), image.getHeight()));
+	}
+
+	private void writeJpeg(BufferedImage image, Path target) throws IOException {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		try (OutputStream out = Files.newOutputStream(target);
+				ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+			writer.setOutput(ios);
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionQuality(jpegQuality);
+			param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	private Path root() {
+		return Paths.get(System.getProperty("user.dir"), uploadDir);
+	}
+
+}
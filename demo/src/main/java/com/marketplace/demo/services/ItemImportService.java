@@ -0,0 +1,230 @@
+package com.marketplace.demo.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.models.dto.ItemImportError;
+import com.marketplace.demo.models.dto.ItemImportResult;
+import com.marketplace.demo.models.dto.ItemInputDTO;
+import com.marketplace.demo.repositories.CategoryRepository;
+import com.marketplace.demo.repositories.UserRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Bulk item import for sellers moving whole catalogues.
+// The body (a JSON array of ItemInputDTO, or CSV with a header row naming the same fields) is
+// read one row at a time and inserted in batches of items.import.batch-size, each in its own
+// transaction:
+//	- the category and seller ids of a batch are checked with one query each,
+//	  ids already seen by the import are not looked up again
+//	- items are persisted with references instead of loaded entities and written with
+//	  JDBC batching (hibernate.jdbc.batch_size, ordered inserts). Item ids are generated
+//	  in memory (UUID), so nothing forces Hibernate to run the inserts one by one
+//	- the persistence context is cleared after every batch and the imported items skip
+//	  the entity cache, so memory use doesn't grow with the size of the import
+// Invalid rows are skipped and reported, a body that can't be parsed any further stops the
+// import after the rows before it. Batches already committed stay imported.
+@Service
+public class ItemImportService {
+
+	@Autowired
+	CategoryRepository categoryRepository;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	ItemTextIndexService itemTextIndexService;
+	@Autowired
+	SavedSearchService savedSearchService;
+	@Autowired
+	OutboxService outboxService;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	EntityManager entityManager;
+
+	@Value("${items.import.batch-size:1000}")
+	private int batchSize;
+
+	@Value("${items.import.max-errors:1000}")
+	private int maxErrors;
+
+	private final CsvMapper csvMapper = CsvMapper.builder()
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+			.build();
+
+	public ItemImportResult importJson(InputStream body) {
+		try {
+			return importRows(objectMapper.readerFor(ItemInputDTO.class).readValues(body));
+		} catch (IOException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read the JSON body: " + e.getMessage());
+		}
+	}
+
+	public ItemImportResult importCsv(InputStream body) {
+		try {
+			return importRows(csvMapper.readerFor(ItemInputDTO.class).with(CsvSchema.emptySchema().withHeader()).readValues(body));
+		} catch (IOException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read the CSV body: " + e.getMessage());
+		}
+	}
+
+	private ItemImportResult importRows(MappingIterator<ItemInputDTO> rows) {
+		ItemImportResult result = new ItemImportResult();
+		Set<String> knownCategories = new HashSet<String>();
+		Set<String> knownSellers = new HashSet<String>();
+
+		List<ItemInputDTO> batch = new ArrayList<ItemInputDTO>(batchSize);
+		List<Long> batchRows = new ArrayList<Long>(batchSize);
+		long row = 1;
+		try {
+			for (; rows.hasNextValue(); row++) {
+				try {
+					batch.add(rows.nextValue());
+					batchRows.add(row);
+				} catch (DatabindException e) {
+					// Wrong value type in this row, the iterator skips to the next one
+					addError(result, row, e.getOriginalMessage());
+				}
+				if (batch.size() == batchSize) {
+					insertBatch(batch, batchRows, knownCategories, knownSellers, result);
+					batch.clear();
+					batchRows.clear();
+				}
+			}
+		} catch (IOException e) {
+			addError(result, row, "Malformed input, import stopped: " + e.getMessage());
+		}
+		insertBatch(batch, batchRows, knownCategories, knownSellers, result);
+
+		// Parse errors are reported as they happen, the rest when their batch is inserted
+		result.getErrors().sort(Comparator.comparingLong(ItemImportError::getRow));
+		return result;
+	}
+
+	private void insertBatch(List<ItemInputDTO> batch, List<Long> batchRows, Set<String> knownCategories, Set<String> knownSellers, ItemImportResult result) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		resolveIds(batch, knownCategories, knownSellers);
+
+		List<ItemInputDTO> valid = new ArrayList<ItemInputDTO>();
+		List<Long> validRows = new ArrayList<Long>();
+		for (int i = 0; i < batch.size(); i++) {
+			String error = validate(batch.get(i), knownCategories, knownSellers);
+			if (error != null) {
+				addError(result, batchRows.get(i), error);
+			} else {
+				valid.add(batch.get(i));
+				validRows.add(batchRows.get(i));
+			}
+		}
+		if (valid.isEmpty()) {
+			return;
+		}
+
+		List<Item> items = new ArrayList<Item>(valid.size());
+		try {
+			new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+				entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+				for (ItemInputDTO input : valid) {
+					Item item = new Item(input.getTitle(),
+							entityManager.getReference(Category.class, input.getCategory_id()),
+							entityManager.getReference(User.class, input.getSeller_id()),
+							input.getPrice(), input.getDescription(), input.getItemCondition(),
+							input.isSold() != null && input.isSold());
+					entityManager.persist(item);
+					items.add(item);
+				}
+				entityManager.flush();
+				entityManager.clear();
+				outboxService.itemsCreated(items);
+			});
+		} catch (DataAccessException e) {
+			for (Long validRow : validRows) {
+				addError(result, validRow, "Batch failed: " + e.getMostSpecificCause().getMessage());
+			}
+			return;
+		}
+
+		result.setImported(result.getImported() + items.size());
+		itemTextIndexService.indexItems(items);
+		savedSearchService.itemsCreated(items);
+	}
+
+	// Looks up the category and seller ids of the batch that the import hasn't seen yet
+	private void resolveIds(List<ItemInputDTO> batch, Set<String> knownCategories, Set<String> knownSellers) {
+		Set<String> categoryIds = new HashSet<String>();
+		Set<String> sellerIds = new HashSet<String>();
+		for (ItemInputDTO input : batch) {
+			if (input.getCategory_id() != null && !knownCategories.contains(input.getCategory_id())) {
+				categoryIds.add(input.getCategory_id());
+			}
+			if (input.getSeller_id() != null && !knownSellers.contains(input.getSeller_id())) {
+				sellerIds.add(input.getSeller_id());
+			}
+		}
+		if (!categoryIds.isEmpty()) {
+			categoryRepository.findAllById(categoryIds).forEach(category -> knownCategories.add(category.getId()));
+		}
+		if (!sellerIds.isEmpty()) {
+			userRepository.findAllById(sellerIds).forEach(seller -> knownSellers.add(seller.getId()));
+		}
+	}
+
+	// Same rules as ItemService.createItem, returns null for a valid row
+	private String validate(ItemInputDTO input, Set<String> knownCategories, Set<String> knownSellers) {
+		if (input.getCategory_id() == null || input.getCategory_id().isEmpty()) {
+			return "Category id is required for an item";
+		}
+		if (!knownCategories.contains(input.getCategory_id())) {
+			return "Category not Found";
+		}
+		if (input.getSeller_id() == null || input.getSeller_id().isEmpty()) {
+			return "Seller id is required for an item";
+		}
+		if (!knownSellers.contains(input.getSeller_id())) {
+			return "Seller not Found";
+		}
+		if (input.getPrice() == null) {
+			return "Price is required for an item";
+		}
+		return null;
+	}
+
+	private void addError(ItemImportResult result, long row, String message) {
+		result.setFailed(result.getFailed() + 1);
+		if (result.getErrors().size() < maxErrors) {
+			result.getErrors().add(new ItemImportError(row, message));
+		}
+	}
+
+}
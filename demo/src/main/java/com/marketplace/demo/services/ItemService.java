@@ -1,30 +1,34 @@
 package com.marketplace.demo.services;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.marketplace.demo.alerts.SavedSearchMatcher;
+import com.marketplace.demo.config.ReadOnlyTransactional;
 import com.marketplace.demo.models.Category;
 import com.marketplace.demo.models.Image;
+import com.marketplace.demo.models.ImageBlob;
 import com.marketplace.demo.models.Item;
 import com.marketplace.demo.models.User;
+import com.marketplace.demo.models.dto.CursorPage;
+import com.marketplace.demo.models.dto.FacetCount;
 import com.marketplace.demo.models.dto.ItemInputDTO;
+import com.marketplace.demo.models.dto.ItemSearchDTO;
+import com.marketplace.demo.models.ids.BinaryUuids;
 import com.marketplace.demo.repositories.CategoryRepository;
 import com.marketplace.demo.repositories.ImageRepository;
 import com.marketplace.demo.repositories.ItemRepository;
 import com.marketplace.demo.repositories.UserRepository;
 
+import jakarta.transaction.Transactional;
+
 @Service
 public class ItemService {
 	
@@ -36,14 +40,68 @@ public class ItemService {
 	UserRepository userRepository;
 	@Autowired
 	ImageRepository imageRepository;
-	
-	@Value("${images.upload-dir}")
-    private String uploadDir;
+	@Autowired
+	PaginationService paginationService;
+	@Autowired
+	ItemTextIndexService itemTextIndexService;
+	@Autowired
+	ImageStorageService imageStorageService;
+	@Autowired
+	ImageVariantService imageVariantService;
+	@Autowired
+	TrendingService trendingService;
+	@Autowired
+	SavedSearchService savedSearchService;
+	@Autowired
+	OutboxService outboxService;
 
-	public List<Item> getAllItems() {
-		return itemRepository.findAll();
+	@ReadOnlyTransactional
+	public CursorPage<Item> getItemsPage(String cursor, Integer size) {
+		int pageSize = paginationService.resolveSize(size);
+		String afterId = paginationService.decodeCursor(cursor);
+		
+		List<Item> rows;
+		if (afterId == null) {
+			rows = itemRepository.findAllByOrderByIdAsc(paginationService.probeLimit(pageSize));
+		} else {
+			rows = itemRepository.findByIdGreaterThanOrderByIdAsc(afterId, paginationService.probeLimit(pageSize));
+		}
+		return paginationService.toPage(rows, pageSize, Item::getId);
+	}
+	
+	@ReadOnlyTransactional
+	public CursorPage<Item> searchItems(ItemSearchDTO search, String cursor, Integer size) {
+		validateSearch(search);
+		int pageSize = paginationService.resolveSize(size);
+		String afterId = paginationService.decodeCursor(cursor);
+		
+		List<Item> rows = itemRepository.search(search, afterId, paginationService.probeLimit(pageSize));
+		return paginationService.toPage(rows, pageSize, Item::getId);
+	}
+	
+	@ReadOnlyTransactional
+	public List<FacetCount> getCategoryFacets(ItemSearchDTO search) {
+		return itemRepository.countByCategory(search);
+	}
+	
+	@ReadOnlyTransactional
+	public List<FacetCount> getConditionFacets(ItemSearchDTO search) {
+		return itemRepository.countByCondition(search);
+	}
+	
+	public List<Item> searchItemsByText(String q, Integer page, Integer size) {
+		int pageSize = paginationService.resolveSize(size);
+		int pageNumber = page == null ? 0 : page;
+		return itemTextIndexService.search(q, pageNumber, pageSize);
+	}
+	
+	private void validateSearch(ItemSearchDTO search) {
+		if (search.getMin_price() != null && search.getMax_price() != null && search.getMin_price() > search.getMax_price()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "min_price cannot be greater than max_price");
+		}
 	}
 
+	@ReadOnlyTransactional
 	public Item getItem(String item_id) {
 		Optional<Item> itemOptional = itemRepository.findById(item_id);
 		
@@ -54,20 +112,33 @@ public class ItemService {
 		}
 	}
 
+	@ReadOnlyTransactional
 	public List<Item> getItemsOfUser(User u) {
 		return itemRepository.findBySeller(u);
 	}
 
+	@Transactional
 	public void removeItem(String item_id) {
 		Optional<Item> itemOptional = itemRepository.findById(item_id);
 		
 		if (itemOptional.isPresent()) {
+			List<Image> images = itemOptional.get().getImages();
+			userRepository.removeFavoritesOfItem(BinaryUuids.toBytes(item_id));
 			itemRepository.deleteById(item_id);
+			// Image rows go with the item by cascade, their files are released after them
+			for (Image image : images) {
+				imageStorageService.release(image);
+			}
+			itemTextIndexService.removeItem(item_id);
+			trendingService.itemRemoved(item_id);
+			outboxService.itemRemoved(item_id);
 		} else {			
 			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Item not Found");
 		}
 	}
 
+	// One transaction for the item and its ITEM_CREATED event
+	@Transactional
 	public Item createItem(ItemInputDTO itemInput) {
 		// First find and set category
 		String category_id = itemInput.getCategory_id();
@@ -104,14 +175,21 @@ public class ItemService {
 		Item newItem = new Item(itemInput.getTitle(), category, seller, itemInput.getPrice(), itemInput.getDescription(), itemInput.getItemCondition(), itemInput.isSold());
 		
 		itemRepository.save(newItem);
+		itemTextIndexService.indexItem(newItem);
+		savedSearchService.itemCreated(newItem);
+		outboxService.itemCreated(newItem);
 		
 		return newItem;
 	}
 
+	@Transactional
 	public Item updateItem(String item_id, ItemInputDTO itemInput) {
 		Optional<Item> itemOptional = itemRepository.findById(item_id);
 		if (itemOptional.isPresent()) {
 			Item item = itemOptional.get();
+			// As saved searches saw it, they are only alerted when the change makes them match
+			SavedSearchMatcher.Listing before = savedSearchService.listingOf(item);
+			boolean wasSold = item.isSold();
 			// Don't allow user to update the id of a record
 			if (itemInput.getId() != null && !item.getId().equals(itemInput.getId())) {
 				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The 'id' in the request body does not match the resource ID in the URL. The 'id' field cannot be modified.");
@@ -127,6 +205,9 @@ public class ItemService {
 				if (!categoryOptional.isPresent()) {
 					throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not Found");
 				}
+				if (item.getCategory() == null || !categoryOptional.get().getId().equals(item.getCategory().getId())) {
+					trendingService.itemMoved(item.getId(), categoryOptional.get().getId());
+				}
 				item.setCategory(categoryOptional.get());
 			}
 			
@@ -139,6 +220,9 @@ public class ItemService {
 			if (itemInput.isSold() != null) item.setSold(itemInput.isSold());
 			
 			itemRepository.save(item);
+			itemTextIndexService.indexItem(item);
+			savedSearchService.itemUpdated(before, item);
+			outboxService.itemUpdated(item, !wasSold && item.isSold());
 			
 			return item;
 		} else {			
@@ -148,6 +232,8 @@ public class ItemService {
 
 
 
+	// One transaction for the blob reference and the image row
+	@Transactional
 	public Item uploadImageToItem(String item_id, MultipartFile image_file) {
 	    Optional<Item> itemOptional = itemRepository.findById(item_id);
 	    if (!itemOptional.isPresent()) {
@@ -157,35 +243,12 @@ public class ItemService {
 	    Item item = itemOptional.get();
 
 	    try {
-	        // Resolve the path relative to the project root
-	        String absolutePath = Paths.get(System.getProperty("user.dir"), uploadDir).toString();
-	        System.out.println("Resolved upload directory: " + absolutePath);
-
-	        // Create directory if it doesn't exist
-	        File dir = new File(absolutePath);
-	        if (!dir.exists()) {
-	            dir.mkdirs();
-	        }
-
-	        // Create image object and record
-	        Image image = new Image(item);
-	        
-	        // Save image record to get the id
-	        imageRepository.save(image);
-
-	        // Create a unique filename
-	        String filename = image.getId() + "_" + image_file.getOriginalFilename();
+	        ImageBlob blob = imageStorageService.store(image_file);
 
-	        // Full path to save the file
-	        Path filePath = Paths.get(absolutePath, filename);
-	        // Save file
-	        image_file.transferTo(filePath.toFile());
-
-	        image.setImage_path(filePath.toString());
-	        item.addImageToItem(image);
-	        
+	        Image image = new Image(item, blob, imageStorageService.resolve(blob).toString());
 	        imageRepository.save(image);
-	        itemRepository.save(item);
+	        item.addImageToItem(image);
+	        imageVariantService.generateAfterCommit(blob, imageStorageService.resolve(blob));
 	        return item;
 
 	    } catch (IOException e) {
@@ -195,6 +258,7 @@ public class ItemService {
 	    }
 	}
 
+	@Transactional
 	public Item removeImageFromItem(String item_id, String image_id) {
 		Optional<Item> itemOptional = itemRepository.findById(item_id);
 	    if (!itemOptional.isPresent()) {
@@ -209,21 +273,8 @@ public class ItemService {
 	    Image image = imageOptional.get();
 	    
 	    item.removeImageFromItem(image);
-	    
-	    // Delete image file from the file system
-	    String imagePath = image.getImage_path();
-	    if (imagePath != null && !imagePath.isEmpty()) {
-	        try {
-	            Path path = Paths.get(imagePath);
-	            Files.deleteIfExists(path); // Safely attempts to delete the file
-	        } catch (Exception e) {
-	            // Log the error but don't necessarily stop the process
-	            System.err.println("Failed to delete image file: " + e.getMessage());
-	        }
-	    }
-	    
 	    imageRepository.delete(image);
-	    itemRepository.save(item);
+	    imageStorageService.release(image);
 	    
 		return item;
 	}
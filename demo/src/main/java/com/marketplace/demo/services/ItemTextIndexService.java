@@ -0,0 +1,318 @@
+package com.marketplace.demo.services;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.QueryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.repositories.ItemRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Full-text index over item titles and descriptions, kept on local disk with Lucene.
+//	- ItemService keeps it up to date on create/update/remove, the writes run once the transaction commits:
+//	  a rolled back change leaves the index as it was, and no search finds an item other readers can't load yet
+//	- on startup it is rebuilt from the database in a background thread,
+//	  searches are served (with partial results) while the rebuild runs
+@Service
+public class ItemTextIndexService {
+
+	private static final Logger log = LoggerFactory.getLogger(ItemTextIndexService.class);
+
+	private static final String FIELD_ID = "id";
+	private static final String FIELD_TITLE = "title";
+	private static final String FIELD_DESCRIPTION = "description";
+	private static final float TITLE_BOOST = 2.0f;
+	private static final int REBUILD_BATCH_SIZE = 500;
+
+	@Autowired
+	ItemRepository itemRepository;
+
+	@Value("${search.index-dir:search-index/}")
+	private String indexDir;
+	// Deepest hit served: collecting (page + 1) * size hits costs memory and time in proportion
+	@Value("${search.max-results:1000}")
+	private int maxResults;
+
+	private final Analyzer analyzer = new StandardAnalyzer();
+	private final ExecutorService indexWriteExecutor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "item-text-index-writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private IndexWriter writer;
+	private SearcherManager searcherManager;
+
+	private volatile boolean rebuilding = false;
+	// Ids changed through ItemService while the rebuild runs, the rebuild must not overwrite them
+	private final Set<String> touchedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+	@PostConstruct
+	public void open() throws IOException {
+		Path path = Paths.get(System.getProperty("user.dir"), indexDir);
+		IndexWriterConfig config = new IndexWriterConfig(analyzer);
+		// The database is the source of truth, the index is always rebuilt from it on startup
+		config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+		writer = new IndexWriter(FSDirectory.open(path), config);
+		searcherManager = new SearcherManager(writer, null);
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		indexWriteExecutor.shutdown();
+		searcherManager.close();
+		writer.close();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void startRebuild() {
+		rebuilding = true;
+		Thread rebuildThread = new Thread(this::rebuild, "item-text-index-rebuild");
+		rebuildThread.setDaemon(true);
+		rebuildThread.start();
+	}
+
+	private void rebuild() {
+		try {
+			List<Item> batch = itemRepository.findAllByOrderByIdAsc(Limit.of(REBUILD_BATCH_SIZE));
+			while (!batch.isEmpty()) {
+				for (Item item : batch) {
+					if (!touchedDuringRebuild.contains(item.getId())) {
+						writer.updateDocument(new Term(FIELD_ID, item.getId()), toDocument(item));
+					}
+				}
+				searcherManager.maybeRefresh();
+				String lastId = batch.get(batch.size() - 1).getId();
+				batch = itemRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(REBUILD_BATCH_SIZE));
+			}
+			writer.commit();
+			log.info("Item text index rebuilt");
+		} catch (IOException e) {
+			log.error("Failed to rebuild item text index", e);
+		} finally {
+			rebuilding = false;
+			touchedDuringRebuild.clear();
+		}
+	}
+
+	public boolean isRebuilding() {
+		return rebuilding;
+	}
+
+	public void indexItem(Item item) {
+		Document doc = toDocument(item);
+		afterCommit(List.of(item.getId()), () -> {
+			try {
+				writer.updateDocument(new Term(FIELD_ID, item.getId()), doc);
+				searcherManager.maybeRefresh();
+			} catch (IOException e) {
+				log.error("Failed to index item {}", item.getId(), e);
+			}
+		});
+	}
+
+	// Bulk import: one refresh for the whole batch instead of one per item
+	public void indexItems(List<Item> items) {
+		List<String> item_ids = new ArrayList<String>(items.size());
+		List<Document> docs = new ArrayList<Document>(items.size());
+		for (Item item : items) {
+			item_ids.add(item.getId());
+			docs.add(toDocument(item));
+		}
+		afterCommit(item_ids, () -> {
+			try {
+				for (int i = 0; i < items.size(); i++) {
+					writer.updateDocument(new Term(FIELD_ID, item_ids.get(i)), docs.get(i));
+				}
+				searcherManager.maybeRefresh();
+			} catch (IOException e) {
+				log.error("Failed to index {} imported items", items.size(), e);
+			}
+		});
+	}
+
+	public void removeItem(String item_id) {
+		afterCommit(List.of(item_id), () -> {
+			try {
+				writer.deleteDocuments(new Term(FIELD_ID, item_id));
+				searcherManager.maybeRefresh();
+			} catch (IOException e) {
+				log.error("Failed to remove item {} from the index", item_id, e);
+			}
+		});
+	}
+
+	// The items of a removed user, deleted with it
+	public void removeItems(List<String> item_ids) {
+		if (item_ids.isEmpty()) {
+			return;
+		}
+		Term[] terms = new Term[item_ids.size()];
+		for (int i = 0; i < terms.length; i++) {
+			terms[i] = new Term(FIELD_ID, item_ids.get(i));
+		}
+		afterCommit(item_ids, () -> {
+			try {
+				writer.deleteDocuments(terms);
+				searcherManager.maybeRefresh();
+			} catch (IOException e) {
+				log.error("Failed to remove {} items from the index", terms.length, e);
+			}
+		});
+	}
+
+	// The ids are kept from the rebuild right away: it may read the rows before the commit and write them after this change.
+	// A rollback gives them back to it, unless it has already gone past them
+	private void afterCommit(List<String> item_ids, Runnable write) {
+		if (rebuilding) {
+			touchedDuringRebuild.addAll(item_ids);
+		}
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			writeOffVirtualThread(write);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				writeOffVirtualThread(write);
+			}
+
+			@Override
+			public void afterCompletion(int status) {
+				if (status != STATUS_COMMITTED) {
+					touchedDuringRebuild.removeAll(item_ids);
+				}
+			}
+		});
+	}
+
+	// IndexWriter flushes segments to disk inside synchronized blocks, which would pin the carrier
+	// of a virtual thread for the whole write. Virtual threads hand the write to a platform thread
+	// and wait for it, unmounting while they do.
+	private void writeOffVirtualThread(Runnable write) {
+		if (!Thread.currentThread().isVirtual()) {
+			write.run();
+			return;
+		}
+		try {
+			indexWriteExecutor.submit(write).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			log.error("Failed to update item text index", e.getCause());
+		}
+	}
+
+	// Returns the items matching the query, best match first
+	public List<Item> search(String q, int page, int size) {
+		if (q == null || q.trim().isEmpty()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query 'q' is required");
+		}
+		if (page < 0) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page must not be negative");
+		}
+		if (((long) page + 1) * size > maxResults) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only the first " + maxResults + " results can be paged through, refine the query");
+		}
+
+		Query query = buildQuery(q);
+		if (query == null) {
+			// Only stop words or punctuation in the query
+			return new ArrayList<Item>();
+		}
+
+		List<String> ids = new ArrayList<String>();
+		try {
+			IndexSearcher searcher = searcherManager.acquire();
+			try {
+				TopDocs topDocs = searcher.search(query, (page + 1) * size);
+				ScoreDoc[] hits = topDocs.scoreDocs;
+				for (int i = page * size; i < hits.length; i++) {
+					ids.add(searcher.storedFields().document(hits[i].doc).get(FIELD_ID));
+				}
+			} finally {
+				searcherManager.release(searcher);
+			}
+		} catch (IOException e) {
+			log.error("Failed to search items for '{}'", q, e);
+			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "There was an error while searching items");
+		}
+
+		// Load the hits by primary key and put them back in rank order
+		Map<String, Item> itemsById = itemRepository.findAllById(ids).stream()
+				.collect(Collectors.toMap(Item::getId, Function.identity()));
+		return ids.stream()
+				.filter(itemsById::containsKey)
+				.map(itemsById::get)
+				.collect(Collectors.toList());
+	}
+
+	private Query buildQuery(String q) {
+		QueryBuilder queryBuilder = new QueryBuilder(analyzer);
+		Query titleQuery = queryBuilder.createBooleanQuery(FIELD_TITLE, q);
+		Query descriptionQuery = queryBuilder.createBooleanQuery(FIELD_DESCRIPTION, q);
+		if (titleQuery == null || descriptionQuery == null) {
+			return null;
+		}
+		return new BooleanQuery.Builder()
+				.add(new BoostQuery(titleQuery, TITLE_BOOST), BooleanClause.Occur.SHOULD)
+				.add(descriptionQuery, BooleanClause.Occur.SHOULD)
+				.build();
+	}
+
+	private Document toDocument(Item item) {
+		Document doc = new Document();
+		doc.add(new StringField(FIELD_ID, item.getId(), Field.Store.YES));
+		if (item.getTitle() != null) {
+			doc.add(new TextField(FIELD_TITLE, item.getTitle(), Field.Store.NO));
+		}
+		if (item.getDescription() != null) {
+			doc.add(new TextField(FIELD_DESCRIPTION, item.getDescription(), Field.Store.NO));
+		}
+		return doc;
+	}
+
+}
@@ -0,0 +1,183 @@
+package com.marketplace.demo.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplace.demo.config.ReadOnlyTransactional;
+import com.marketplace.demo.models.Image;
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.Review;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.repositories.ItemRepository;
+import com.marketplace.demo.repositories.ReviewRepository;
+import com.marketplace.demo.repositories.UserRepository;
+
+import jakarta.persistence.EntityManager;
+// The deprecated full list endpoints (/items/, /users/, /reviews/) and the items of a user with ?stream=true.
+// Writes the same JSON as a List<ItemStripped> / List<UserStripped> / List<ReviewStripped>, but straight from a database cursor
+// to the response with a JsonGenerator: no list of entities, no list of DTOs, no Image entities in the output.
+// Rows are taken WINDOW at a time, the images of a window are loaded with one query (Item.images @BatchSize)
+// and the persistence context is cleared after each, so memory stays flat whatever the number of rows.
+// The rows are read through the second-level cache but not put in it, a full listing would only evict hot entries.
+// Read-only transactions, a listing may be read from a replica (ReplicaRoutingDataSource).
+// Once the first window is written the status is sent, an error after that can only cut the response short.
+@Service
+public class ListStreamingService {
+
+	// Same as the @BatchSize of Item.images and the fetch size of the cursors
+	private static final int WINDOW = 100;
+
+	@Autowired
+	ItemRepository itemRepository;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	ReviewRepository reviewRepository;
+	@Autowired
+	EntityManager entityManager;
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@ReadOnlyTransactional
+	public void writeAllItems(OutputStream out) throws IOException {
+		entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+		try (Stream<Item> items = itemRepository.streamAll()) {
+			writeItems(items.iterator(), out);
+		}
+	}
+
+	@ReadOnlyTransactional
+	public void writeItemsOfUser(String user_id, OutputStream out) throws IOException {
+		entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+		try (Stream<Item> items = itemRepository.streamBySellerId(user_id)) {
+			writeItems(items.iterator(), out);
+		}
+	}
+
+	@ReadOnlyTransactional
+	public void writeAllUsers(OutputStream out) throws IOException {
+		entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+		try (Stream<User> users = userRepository.streamAll(); JsonGenerator json = generator(out)) {
+			json.writeStartArray();
+			Iterator<User> iterator = users.iterator();
+			int written = 0;
+			while (iterator.hasNext()) {
+				writeUser(json, iterator.next());
+				if (++written % WINDOW == 0) {
+					entityManager.clear();
+				}
+			}
+			json.writeEndArray();
+		}
+	}
+
+	@ReadOnlyTransactional
+	public void writeAllReviews(OutputStream out) throws IOException {
+		entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+		try (Stream<Review> reviews = reviewRepository.streamAll(); JsonGenerator json = generator(out)) {
+			json.writeStartArray();
+			Iterator<Review> iterator = reviews.iterator();
+			int written = 0;
+			while (iterator.hasNext()) {
+				writeReview(json, iterator.next());
+				if (++written % WINDOW == 0) {
+					entityManager.clear();
+				}
+			}
+			json.writeEndArray();
+		}
+	}
+
+	private void writeItems(Iterator<Item> items, OutputStream out) throws IOException {
+		try (JsonGenerator json = generator(out)) {
+			json.writeStartArray();
+			List<Item> window = new ArrayList<Item>(WINDOW);
+			while (items.hasNext()) {
+				window.add(items.next());
+				if (window.size() == WINDOW) {
+					writeWindow(json, window);
+				}
+			}
+			writeWindow(json, window);
+			json.writeEndArray();
+		}
+	}
+
+	private void writeWindow(JsonGenerator json, List<Item> window) throws IOException {
+		for (Item item : window) {
+			writeItem(json, item);
+		}
+		window.clear();
+		entityManager.clear();
+	}
+
+	// Field for field what Jackson writes for an ItemStripped, images only carry their id
+	private void writeItem(JsonGenerator json, Item item) throws IOException {
+		json.writeStartObject();
+		json.writeStringField("id", item.getId());
+		json.writeStringField("title", item.getTitle());
+		json.writeStringField("category_id", item.getCategory().getId());
+		json.writeStringField("seller_id", item.getSeller().getId());
+		json.writeNumberField("price", item.getPrice());
+		json.writeStringField("description", item.getDescription());
+		json.writeStringField("itemCondition", item.getItemCondition());
+		json.writeBooleanField("sold", item.isSold());
+		json.writeArrayFieldStart("images");
+		for (Image image : item.getImages()) {
+			json.writeStartObject();
+			json.writeStringField("id", image.getId());
+			json.writeEndObject();
+		}
+		json.writeEndArray();
+		json.writeNumberField("favoriteCount", item.getFavoriteCount());
+		json.writeEndObject();
+	}
+
+	// What Jackson writes for a UserStripped
+	private void writeUser(JsonGenerator json, User user) throws IOException {
+		json.writeStartObject();
+		json.writeStringField("id", user.getId());
+		json.writeStringField("username", user.getUsername());
+		json.writeStringField("full_name", user.getFull_name());
+		json.writeStringField("email", user.getEmail());
+		json.writeStringField("bio", user.getBio());
+		json.writeStringField("country", user.getCountry());
+		json.writeStringField("city", user.getCity());
+		json.writeStringField("phone_number", user.getPhone_number());
+		json.writeEndObject();
+	}
+
+	// What Jackson writes for a ReviewStripped, the date through the ObjectMapper like there
+	private void writeReview(JsonGenerator json, Review review) throws IOException {
+		json.writeStartObject();
+		json.writeStringField("id", review.getId());
+		json.writeStringField("reviewer_id", review.getReviewer().getId());
+		json.writeStringField("reviewee_id", review.getReviewee().getId());
+		json.writeObjectField("rating", review.getRating());
+		json.writeStringField("comment", review.getComment());
+		json.writeObjectField("date", review.getDate());
+		json.writeEndObject();
+	}
+
+	// The response stream is closed by the container, not by the generator.
+	// A failure half way must leave the JSON unterminated, not close its arrays into a complete looking list
+	private JsonGenerator generator(OutputStream out) throws IOException {
+		JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+		json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		json.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+		return json;
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.marketplace.demo.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplace.demo.events.DomainEventType;
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.Review;
+import com.marketplace.demo.models.ids.BinaryUuids;
+
+import jakarta.transaction.Transactional;
+
+// Writes domain events to OUTBOX_EVENTS in the caller's transaction, so an event exists if and only if
+// its change committed. Only ever called inside a transaction (MANDATORY), EventRelayService publishes them.
+// Payloads carry ids and the fields subscribers key on, not whole entities:
+//	- ITEM_CREATED, ITEM_UPDATED: category_id, seller_id, price, item_condition, sold (after the change)
+//	- ITEM_SOLD: seller_id. ITEM_REMOVED: nothing
+//	- FAVORITE_ADDED, FAVORITE_REMOVED (about the item): user_id
+//	- REVIEW_CREATED, REVIEW_UPDATED: reviewer_id, reviewee_id, rating. REVIEW_REMOVED: reviewee_id
+//	- USER_CREATED, USER_UPDATED, USER_REMOVED: nothing. USER_REMOVED also stands for the user's reviews
+//	  and favorites, deleted with it without events of their own. Its items get an ITEM_REMOVED each
+@Service
+@Transactional(Transactional.TxType.MANDATORY)
+public class OutboxService {
+
+	private static final String INSERT_SQL = "INSERT INTO outbox_events (event_type, aggregate_id, payload, created_at) VALUES (?, ?, ?, ?)";
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	ObjectMapper objectMapper;
+
+	public void itemCreated(Item item) {
+		record(DomainEventType.ITEM_CREATED, item.getId(), itemPayload(item));
+	}
+
+	// Bulk import: one JDBC batch for all of them
+	public void itemsCreated(List<Item> items) {
+		long now = System.currentTimeMillis();
+		List<Object[]> rows = new ArrayList<Object[]>(items.size());
+		for (Item item : items) {
+			rows.add(row(DomainEventType.ITEM_CREATED, item.getId(), itemPayload(item), now));
+		}
+		jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+	}
+
+	public void itemUpdated(Item item, boolean becameSold) {
+		record(DomainEventType.ITEM_UPDATED, item.getId(), itemPayload(item));
+		if (becameSold) {
+			Map<String, Object> payload = new LinkedHashMap<String, Object>();
+			payload.put("seller_id", item.getSeller() == null ? null : item.getSeller().getId());
+			record(DomainEventType.ITEM_SOLD, item.getId(), payload);
+		}
+	}
+
+	public void itemRemoved(String item_id) {
+		record(DomainEventType.ITEM_REMOVED, item_id, new LinkedHashMap<String, Object>());
+	}
+
+	public void favoriteAdded(String user_id, String item_id) {
+		record(DomainEventType.FAVORITE_ADDED, item_id, Map.of("user_id", user_id));
+	}
+
+	public void favoriteRemoved(String user_id, String item_id) {
+		record(DomainEventType.FAVORITE_REMOVED, item_id, Map.of("user_id", user_id));
+	}
+
+	public void reviewCreated(Review review) {
+		record(DomainEventType.REVIEW_CREATED, review.getId(), reviewPayload(review));
+	}
+
+	public void reviewUpdated(Review review) {
+		record(DomainEventType.REVIEW_UPDATED, review.getId(), reviewPayload(review));
+	}
+
+	public void reviewRemoved(Review review) {
+		record(DomainEventType.REVIEW_REMOVED, review.getId(), Map.of("reviewee_id", review.getReviewee().getId()));
+	}
+
+	public void userCreated(String user_id) {
+		record(DomainEventType.USER_CREATED, user_id, new LinkedHashMap<String, Object>());
+	}
+
+	public void userUpdated(String user_id) {
+		record(DomainEventType.USER_UPDATED, user_id, new LinkedHashMap<String, Object>());
+	}
+
+	public void userRemoved(String user_id) {
+		record(DomainEventType.USER_REMOVED, user_id, new LinkedHashMap<String, Object>());
+	}
+
+	private void record(DomainEventType type, String aggregate_id, Map<String, Object> payload) {
+		jdbcTemplate.update(INSERT_SQL, row(type, aggregate_id, payload, System.currentTimeMillis()));
+	}
+
+	private Object[] row(DomainEventType type, String aggregate_id, Map<String, Object> payload, long now) {
+		try {
+			return new Object[] { type.name(), BinaryUuids.toBytes(aggregate_id), objectMapper.writeValueAsString(payload), now };
+		} catch (JsonProcessingException e) {
+			// Maps of ids, numbers and strings always serialize
+			throw new IllegalStateException("Could not serialize the payload of a " + type + " event", e);
+		}
+	}
+
+	private Map<String, Object> itemPayload(Item item) {
+		Map<String, Object> payload = new LinkedHashMap<String, Object>();
+		payload.put("category_id", item.getCategory() == null ? null : item.getCategory().getId());
+		payload.put("seller_id", item.getSeller() == null ? null : item.getSeller().getId());
+		payload.put("price", item.getPrice());
+		payload.put("item_condition", item.getItemCondition());
+		payload.put("sold", item.isSold());
+		return payload;
+	}
+
+	private Map<String, Object> reviewPayload(Review review) {
+		Map<String, Object> payload = new LinkedHashMap<String, Object>();
+		payload.put("reviewer_id", review.getReviewer().getId());
+		payload.put("reviewee_id", review.getReviewee().getId());
+		payload.put("rating", review.getRating());
+		return payload;
+	}
+
+}
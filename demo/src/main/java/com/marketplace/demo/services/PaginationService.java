@@ -0,0 +1,78 @@
+package com.marketplace.demo.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.marketplace.demo.models.dto.CursorPage;
+import com.marketplace.demo.models.ids.BinaryUuids;
+
+// Helpers for keyset (cursor) pagination.
+// Results are ordered by id, and the cursor is the id of the last row of the previous page,
+// so every page is a single index range scan no matter how deep the client has paged.
+@Service
+public class PaginationService {
+	
+	private static final String CURSOR_PREFIX = "id:";
+	
+	@Value("${pagination.default-size:20}")
+	private int defaultSize;
+	@Value("${pagination.max-size:100}")
+	private int maxSize;
+
+	public int resolveSize(Integer size) {
+		if (size == null) {
+			return defaultSize;
+		}
+		if (size < 1) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page size must be at least 1");
+		}
+		return Math.min(size, maxSize);
+	}
+	
+	// Limit to request from the repository: one extra row tells us if there is a next page
+	public Limit probeLimit(int size) {
+		return Limit.of(size + 1);
+	}
+
+	public String encodeCursor(String lastId) {
+		byte[] raw = (CURSOR_PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+	}
+
+	// Returns the id after which the page starts, or null for the first page
+	public String decodeCursor(String cursor) {
+		if (cursor == null || cursor.isEmpty()) {
+			return null;
+		}
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String id = decoded.startsWith(CURSOR_PREFIX) ? decoded.substring(CURSOR_PREFIX.length()) : null;
+			// An id that isn't a UUID would match no row, and pass for the end of the list
+			if (BinaryUuids.toBytes(id) == null) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+			}
+			return id;
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+		}
+	}
+
+	// Builds a page out of at most size + 1 rows fetched with probeLimit(size)
+	public <T> CursorPage<T> toPage(List<T> rows, int size, Function<T, String> idOf) {
+		if (rows.size() <= size) {
+			return new CursorPage<T>(rows, null);
+		}
+		List<T> page = rows.subList(0, size);
+		String nextCursor = encodeCursor(idOf.apply(page.get(size - 1)));
+		return new CursorPage<T>(page, nextCursor);
+	}
+	
+}
@@ -0,0 +1,94 @@
+package com.marketplace.demo.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+// Salted, adaptive password hashes (bcrypt).
+// With auth.bcrypt-strength=0 the cost is calibrated on startup: the highest one whose hash fits in
+// auth.password-hash-budget-ms on this machine, never below MIN_STRENGTH.
+// Passwords stored before hashing (plain text) still match, AuthService rehashes them on login.
+@Service
+public class PasswordService {
+
+	private static final Logger log = LoggerFactory.getLogger(PasswordService.class);
+
+	private static final int MIN_STRENGTH = 10;
+	private static final int MAX_STRENGTH = 16;
+	private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$[./A-Za-z0-9]{53}$");
+
+	@Value("${auth.bcrypt-strength:0}")
+	private int configuredStrength;
+	@Value("${auth.password-hash-budget-ms:250}")
+	private long budgetMs;
+
+	private int strength;
+	private BCryptPasswordEncoder encoder;
+	// Checked against when the user doesn't exist, so that costs as much as a wrong password
+	private String dummyHash;
+
+	@PostConstruct
+	public void calibrate() {
+		strength = configuredStrength > 0 ? configuredStrength : calibratedStrength();
+		encoder = new BCryptPasswordEncoder(strength);
+		dummyHash = encoder.encode("dummy password");
+		log.info("Password hashing: bcrypt strength {}", strength);
+	}
+
+	public String hash(String password) {
+		return encoder.encode(password);
+	}
+
+	public boolean matches(String password, String stored) {
+		if (stored == null) {
+			return false;
+		}
+		if (!isHash(stored)) {
+			// Legacy plain text password, compared in constant time
+			return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+		}
+		return encoder.matches(password, stored);
+	}
+
+	// Same cost as matches() against a real hash, always false
+	public boolean matchesNothing(String password) {
+		encoder.matches(password, dummyHash);
+		return false;
+	}
+
+	// Plain text, or hashed with a lower strength than the current one
+	public boolean needsRehash(String stored) {
+		Matcher matcher = BCRYPT_HASH.matcher(stored);
+		return !matcher.matches() || Integer.parseInt(matcher.group(1)) < strength;
+	}
+
+	private boolean isHash(String stored) {
+		return BCRYPT_HASH.matcher(stored).matches();
+	}
+
+	// Every strength step doubles the cost, so one timed hash at MIN_STRENGTH is enough
+	private int calibratedStrength() {
+		BCryptPasswordEncoder probe = new BCryptPasswordEncoder(MIN_STRENGTH);
+		probe.encode("warm up");
+		long start = System.nanoTime();
+		probe.encode("calibration");
+		double millis = Math.max((System.nanoTime() - start) / 1e6, 0.1);
+
+		int calibrated = MIN_STRENGTH;
+		while (calibrated < MAX_STRENGTH && millis * 2 <= budgetMs) {
+			millis *= 2;
+			calibrated++;
+		}
+		return calibrated;
+	}
+
+}
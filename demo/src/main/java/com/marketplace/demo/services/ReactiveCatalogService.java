@@ -0,0 +1,61 @@
+package com.marketplace.demo.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.marketplace.demo.models.CategoryRow;
+import com.marketplace.demo.models.dto.ItemStripped;
+import com.marketplace.demo.models.ids.BinaryUuids;
+import com.marketplace.demo.repositories.CategoryRowRepository;
+import com.marketplace.demo.repositories.ItemRowRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Non-blocking reads of the catalogue over R2DBC, next to the JPA services.
+// No thread waits on the database: rows are pulled from the driver as the client
+// consumes the response, so a slow client slows down its own query and nothing else.
+// Writes keep going through ItemService / CategoryService.
+@Service
+public class ReactiveCatalogService {
+
+	@Autowired
+	ItemRowRepository itemRowRepository;
+	@Autowired
+	CategoryRowRepository categoryRowRepository;
+
+	public Flux<ItemStripped> getAllItems() {
+		return itemRowRepository.findAllRows().map(ItemStripped::new);
+	}
+
+	public Mono<ItemStripped> getItem(String item_id) {
+		byte[] id = BinaryUuids.toBytes(item_id);
+		if (id == null) {
+			return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Item not Found"));
+		}
+		return itemRowRepository.findRowById(id)
+				.map(ItemStripped::new)
+				.switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Item not Found")));
+	}
+
+	public Flux<ItemStripped> getItemsOfUser(String user_id) {
+		byte[] id = BinaryUuids.toBytes(user_id);
+		if (id == null) {
+			return Flux.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "User not Found"));
+		}
+		return itemRowRepository.countUsersById(id)
+				.flatMapMany(count -> {
+					if (count == 0) {
+						return Flux.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "User not Found"));
+					}
+					return itemRowRepository.findRowsBySellerId(id).map(ItemStripped::new);
+				});
+	}
+
+	public Flux<CategoryRow> getAllCategories() {
+		return categoryRowRepository.findAllRows();
+	}
+
+}
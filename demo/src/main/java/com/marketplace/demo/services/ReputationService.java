@@ -0,0 +1,143 @@
+package com.marketplace.demo.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.marketplace.demo.models.ReputationBucket;
+import com.marketplace.demo.models.Review;
+import com.marketplace.demo.models.UserReputation;
+import com.marketplace.demo.models.dto.ReputationDTO;
+import com.marketplace.demo.models.ids.BinaryUuids;
+import com.marketplace.demo.repositories.ReputationBucketRepository;
+import com.marketplace.demo.repositories.UserRepository;
+import com.marketplace.demo.repositories.UserReputationRepository;
+
+import jakarta.transaction.Transactional;
+
+// Maintains the review aggregates of every user incrementally.
+// ReviewService calls it on every review change, and reads are served from
+// USER_REPUTATIONS and REPUTATION_BUCKETS only.
+@Service
+public class ReputationService {
+
+	@Autowired
+	UserReputationRepository userReputationRepository;
+	@Autowired
+	ReputationBucketRepository reputationBucketRepository;
+	@Autowired
+	UserRepository userRepository;
+
+	@Value("${reputation.recent-months:3}")
+	private int recentMonths;
+
+	@Transactional
+	public void reviewAdded(Review review) {
+		applyRating(review.getReviewee().getId(), review.getRating(), review.getDate(), true);
+	}
+
+	@Transactional
+	public void reviewRemoved(Review review) {
+		applyRating(review.getReviewee().getId(), review.getRating(), review.getDate(), false);
+	}
+
+	@Transactional
+	public void reviewChanged(String reviewee_id, Integer oldRating, LocalDate oldDate, Integer newRating, LocalDate newDate) {
+		applyRating(reviewee_id, oldRating, oldDate, false);
+		applyRating(reviewee_id, newRating, newDate, true);
+	}
+
+	@Transactional
+	public void createReputation(String user_id) {
+		userReputationRepository.save(new UserReputation(user_id));
+	}
+
+	@Transactional
+	public void removeReputation(String user_id) {
+		userReputationRepository.deleteById(user_id);
+		reputationBucketRepository.deleteByUserId(user_id);
+	}
+
+	public ReputationDTO getReputation(String user_id) {
+		Optional<UserReputation> reputationOptional = userReputationRepository.findById(user_id);
+
+		UserReputation reputation;
+		if (reputationOptional.isPresent()) {
+			reputation = reputationOptional.get();
+		} else if (userRepository.existsById(user_id)) {
+			// User without any reviews yet
+			reputation = new UserReputation(user_id);
+		} else {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not Found");
+		}
+
+		long recentCount = 0;
+		long recentSum = 0;
+		List<ReputationBucket> buckets = reputationBucketRepository.findByUserIdAndMonthStartGreaterThanEqual(user_id, recentWindowStart());
+		for (ReputationBucket bucket : buckets) {
+			recentCount += bucket.getReviewCount();
+			recentSum += bucket.getRatingSum();
+		}
+
+		List<Long> histogram = new ArrayList<Long>();
+		for (long count : reputation.getHistogram()) {
+			histogram.add(count);
+		}
+
+		return new ReputationDTO(user_id, reputation.getReviewCount(), average(reputation.getRatingSum(), reputation.getReviewCount()),
+				histogram, recentMonths, recentCount, average(recentSum, recentCount));
+	}
+
+	// Reviews without a rating don't count towards the reputation,
+	// reviews without a date don't count towards the recent average.
+	// Missing rows are inserted with an upsert rather than save(): with a check then an insert, two first
+	// reviews of a user (or of a month) would both insert and one would fail on the key
+	private void applyRating(String user_id, Integer rating, LocalDate date, boolean add) {
+		if (rating == null) {
+			return;
+		}
+
+		UserReputation reputation = userReputationRepository.findForUpdate(user_id).orElseGet(() -> {
+			userReputationRepository.insertIfMissing(BinaryUuids.toBytes(user_id));
+			return userReputationRepository.findForUpdate(user_id).get();
+		});
+		if (add) {
+			reputation.addRating(rating);
+		} else {
+			reputation.removeRating(rating);
+		}
+
+		if (date == null) {
+			return;
+		}
+		LocalDate monthStart = date.withDayOfMonth(1);
+		ReputationBucket bucket = reputationBucketRepository.findByUserIdAndMonthStart(user_id, monthStart).orElseGet(() -> {
+			reputationBucketRepository.insertIfMissing(BinaryUuids.toBytes(BinaryUuids.next()), BinaryUuids.toBytes(user_id), monthStart);
+			return reputationBucketRepository.findByUserIdAndMonthStart(user_id, monthStart).get();
+		});
+		if (add) {
+			bucket.addRating(rating);
+		} else {
+			bucket.removeRating(rating);
+		}
+	}
+
+	private LocalDate recentWindowStart() {
+		return LocalDate.now().withDayOfMonth(1).minusMonths(recentMonths - 1);
+	}
+
+	private Double average(long sum, long count) {
+		if (count == 0) {
+			return null;
+		}
+		return (double) sum / count;
+	}
+
+}
@@ -1,5 +1,6 @@
 package com.marketplace.demo.services;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -8,8 +9,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.marketplace.demo.config.ReadOnlyTransactional;
 import com.marketplace.demo.models.Review;
 import com.marketplace.demo.models.User;
+import com.marketplace.demo.models.dto.CursorPage;
 import com.marketplace.demo.models.dto.ReviewInputDTO;
 import com.marketplace.demo.repositories.ReviewRepository;
 import com.marketplace.demo.repositories.UserRepository;
@@ -23,11 +26,28 @@ public class ReviewService {
 	ReviewRepository reviewRepository;
 	@Autowired
 	UserRepository userRepository;
+	@Autowired
+	PaginationService paginationService;
+	@Autowired
+	ReputationService reputationService;
+	@Autowired
+	OutboxService outboxService;
 
-	public List<Review> getAllReviews() {
-		return reviewRepository.findAll();
+	@ReadOnlyTransactional
+	public CursorPage<Review> getReviewsPage(String cursor, Integer size) {
+		int pageSize = paginationService.resolveSize(size);
+		String afterId = paginationService.decodeCursor(cursor);
+		
+		List<Review> rows;
+		if (afterId == null) {
+			rows = reviewRepository.findAllByOrderByIdAsc(paginationService.probeLimit(pageSize));
+		} else {
+			rows = reviewRepository.findByIdGreaterThanOrderByIdAsc(afterId, paginationService.probeLimit(pageSize));
+		}
+		return paginationService.toPage(rows, pageSize, Review::getId);
 	}
 
+	@ReadOnlyTransactional
 	public Review getReview(String review_id) {
 		Optional<Review> reviewOptional = reviewRepository.findById(review_id);
 		
@@ -39,11 +59,14 @@ public class ReviewService {
 		
 	}
 
+	@Transactional
 	public void removeReview(String review_id) {
 		Optional<Review> reviewOptional = reviewRepository.findById(review_id);
 		
 		if (reviewOptional.isPresent()) {
-			reviewRepository.deleteById(review_id);;
+			reputationService.reviewRemoved(reviewOptional.get());
+			outboxService.reviewRemoved(reviewOptional.get());
+			reviewRepository.deleteById(review_id);
 		} else {			
 			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Review not Found");
 		}
@@ -56,6 +79,7 @@ public class ReviewService {
 		if (reviewInput.getReviewee_id()==null || reviewInput.getReviewer_id()==null) {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Reviewee id or Reviewer id should not be null!");
 		}
+		validateRating(reviewInput.getRating());
 		
 		Optional<User> reviewerOptional = userRepository.findById(reviewInput.getReviewer_id());
 		if (!reviewerOptional.isPresent()) {
@@ -74,6 +98,10 @@ public class ReviewService {
 		
 		reviewer.addReviewToWrittenReviews(review);
 		reviewee.addReviewToReceivedReviews(review);
+		reputationService.reviewAdded(review);
+		// Persisted now rather than by cascade at flush, the event needs its id
+		reviewRepository.save(review);
+		outboxService.reviewCreated(review);
 		
 		return review;
 	}
@@ -96,21 +124,35 @@ public class ReviewService {
 		if (reviewInput.getReviewer_id()!=null && !reviewInput.getReviewer_id().equals(review.getReviewer().getId())) {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot change the reviewer of the review!");
 		}
+		validateRating(reviewInput.getRating());
 		
+		Integer oldRating = review.getRating();
+		LocalDate oldDate = review.getDate();
 		
 		if (reviewInput.getRating() != null) review.setRating(reviewInput.getRating());
 		if (reviewInput.getComment() != null) review.setComment(reviewInput.getComment());
 		if (reviewInput.getDate() != null) review.setDate(reviewInput.getDate());
 		
+		reputationService.reviewChanged(review.getReviewee().getId(), oldRating, oldDate, review.getRating(), review.getDate());
+		outboxService.reviewUpdated(review);
+		
 		return review;
 	}
+	
+	private void validateRating(Integer rating) {
+		if (rating != null && (rating < 1 || rating > 5)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Rating must be between 1 and 5");
+		}
+	}
 
+	@ReadOnlyTransactional
 	public List<Review> getWrittenReviewsOfUser(User u) {
-		return u.getWrittenReviews();
+		return reviewRepository.findByReviewer(u);
 	}
 
+	@ReadOnlyTransactional
 	public List<Review> getReceivedReviewsOfUser(User u) {
-		return u.getReceivedReviews();
+		return reviewRepository.findByReviewee(u);
 	}
 	
 }
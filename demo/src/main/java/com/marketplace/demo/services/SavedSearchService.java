@@ -0,0 +1,258 @@
+package com.marketplace.demo.services;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.marketplace.demo.alerts.AlertSink;
+import com.marketplace.demo.alerts.SavedSearchMatcher;
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.SavedSearch;
+import com.marketplace.demo.models.dto.SavedSearchAlert;
+import com.marketplace.demo.models.dto.SavedSearchInputDTO;
+import com.marketplace.demo.models.ids.BinaryUuids;
+import com.marketplace.demo.repositories.CategoryRepository;
+import com.marketplace.demo.repositories.SavedSearchRepository;
+import com.marketplace.demo.repositories.UserRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.Transactional;
+
+// Saved searches and their alerts.
+//	- every saved search is kept in memory in a SavedSearchMatcher, loaded from SAVED_SEARCHES on startup
+//	  and kept up to date after each commit
+//	- ItemService and ItemImportService hand over every new and changed item. Once committed it is matched
+//	  on an alert worker (saved-searches.alert-workers threads, saved-searches.alert-queue-size waiting,
+//	  beyond that alerts are dropped), so listing an item never waits for the matching or the delivery
+//	- a changed item only alerts the searches it didn't match before, sold items and the seller's own
+//	  searches never do
+//	- alerts go to every AlertSink bean
+@Service
+public class SavedSearchService {
+
+	private static final Logger log = LoggerFactory.getLogger(SavedSearchService.class);
+
+	@Autowired
+	SavedSearchRepository savedSearchRepository;
+	@Autowired
+	CategoryRepository categoryRepository;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	List<AlertSink> alertSinks;
+
+	@Value("${saved-searches.max-per-user:50}")
+	private int maxPerUser;
+	@Value("${saved-searches.max-keywords:10}")
+	private int maxKeywords;
+	@Value("${saved-searches.alert-workers:1}")
+	private int workers;
+	@Value("${saved-searches.alert-queue-size:10000}")
+	private int queueSize;
+
+	private SavedSearchMatcher matcher;
+	// Not a bean, see ImageVariantService
+	private ThreadPoolTaskExecutor alertExecutor;
+
+	@PostConstruct
+	public void load() {
+		alertExecutor = new ThreadPoolTaskExecutor();
+		alertExecutor.setCorePoolSize(workers);
+		alertExecutor.setMaxPoolSize(workers);
+		alertExecutor.setQueueCapacity(queueSize);
+		alertExecutor.setThreadNamePrefix("saved-search-alerts-");
+		alertExecutor.setRejectedExecutionHandler((task, pool) -> log.warn("Saved search alert queue is full, dropping the alerts of an item"));
+		alertExecutor.initialize();
+
+		matcher = new SavedSearchMatcher();
+		long start = System.nanoTime();
+		jdbcTemplate.query(connection -> {
+			PreparedStatement statement = connection.prepareStatement(
+					"SELECT id, user_id, category_id, max_price, item_condition, keywords FROM saved_searches");
+			statement.setFetchSize(1000);
+			return statement;
+		}, rs -> {
+			double maxPrice = rs.getDouble(4);
+			matcher.add(BinaryUuids.fromBytes(rs.getBytes(1)), BinaryUuids.fromBytes(rs.getBytes(2)), BinaryUuids.fromBytes(rs.getBytes(3)),
+					rs.wasNull() ? null : maxPrice, rs.getString(5), rs.getString(6));
+		});
+		log.info("Saved searches: loaded {} in {} ms", matcher.size(), (System.nanoTime() - start) / 1000000);
+	}
+
+	@PreDestroy
+	public void stop() {
+		alertExecutor.shutdown();
+	}
+
+	public List<SavedSearch> getSavedSearches(String user_id) {
+		return savedSearchRepository.findByUserIdOrderByIdAsc(user_id);
+	}
+
+	@Transactional
+	public SavedSearch createSavedSearch(String user_id, SavedSearchInputDTO input) {
+		String category_id = blankToNull(input.getCategory_id());
+		String condition = blankToNull(input.getItemCondition());
+		String keywords = blankToNull(input.getKeywords());
+
+		if (category_id == null && input.getMax_price() == null && condition == null && keywords == null) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A saved search needs a category, a maximum price, a condition or keywords");
+		}
+		if (input.getMax_price() != null && !(input.getMax_price() >= 0)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "max_price cannot be negative");
+		}
+		if (keywords != null && (keywords.length() > 255 || matcher.analyze(keywords).size() > maxKeywords)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A saved search can have at most " + maxKeywords + " keywords");
+		}
+		if (category_id != null && !categoryRepository.existsById(category_id)) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not Found");
+		}
+		// The caller may hold the token of a user removed through another instance, see UserService.addItemToUserFavorites
+		if (!userRepository.existsById(user_id)) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not Found");
+		}
+		if (savedSearchRepository.countByUserId(user_id) >= maxPerUser) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A user can save at most " + maxPerUser + " searches");
+		}
+
+		SavedSearch search = savedSearchRepository.save(new SavedSearch(user_id, category_id, input.getMax_price(), condition, keywords));
+		afterCommit(() -> matcher.add(search.getId(), search.getUserId(), search.getCategoryId(), search.getMaxPrice(),
+				search.getItemCondition(), search.getKeywords()));
+		return search;
+	}
+
+	@Transactional
+	public void removeSavedSearch(String user_id, String search_id) {
+		Optional<SavedSearch> searchOptional = savedSearchRepository.findById(search_id);
+		if (!searchOptional.isPresent() || !searchOptional.get().getUserId().equals(user_id)) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Saved search not Found");
+		}
+		savedSearchRepository.delete(searchOptional.get());
+		afterCommit(() -> matcher.remove(search_id));
+	}
+
+	// Called by UserService in the transaction removing the user, before the user row goes
+	public void userRemoved(String user_id) {
+		List<SavedSearch> searches = savedSearchRepository.findByUserIdOrderByIdAsc(user_id);
+		if (searches.isEmpty()) {
+			return;
+		}
+		savedSearchRepository.deleteAll(searches);
+		afterCommit(() -> {
+			for (SavedSearch search : searches) {
+				matcher.remove(search.getId());
+			}
+		});
+	}
+
+	// The item as it is matched now, null for a sold item (matches nothing).
+	// ItemService takes it before changing an item, to only alert the searches the change adds
+	public SavedSearchMatcher.Listing listingOf(Item item) {
+		if (item.isSold()) {
+			return null;
+		}
+		String category_id = item.getCategory() == null ? null : item.getCategory().getId();
+		return matcher.listing(category_id, item.getPrice(), item.getItemCondition(), item.getTitle(), item.getDescription());
+	}
+
+	public void itemCreated(Item item) {
+		itemUpdated(null, item);
+	}
+
+	public void itemUpdated(SavedSearchMatcher.Listing before, Item item) {
+		SavedSearchMatcher.Listing after = listingOf(item);
+		if (after == null) {
+			return;
+		}
+		String item_id = item.getId();
+		String seller_id = item.getSeller() == null ? null : item.getSeller().getId();
+		afterCommit(() -> alertExecutor.execute(() -> alert(item_id, seller_id, before, after)));
+	}
+
+	// Bulk import: one task for the whole batch
+	public void itemsCreated(List<Item> items) {
+		List<String> itemIds = new ArrayList<String>(items.size());
+		List<String> sellerIds = new ArrayList<String>(items.size());
+		List<SavedSearchMatcher.Listing> listings = new ArrayList<SavedSearchMatcher.Listing>(items.size());
+		for (Item item : items) {
+			SavedSearchMatcher.Listing listing = listingOf(item);
+			if (listing != null) {
+				itemIds.add(item.getId());
+				sellerIds.add(item.getSeller() == null ? null : item.getSeller().getId());
+				listings.add(listing);
+			}
+		}
+		if (listings.isEmpty()) {
+			return;
+		}
+		afterCommit(() -> alertExecutor.execute(() -> {
+			for (int i = 0; i < listings.size(); i++) {
+				alert(itemIds.get(i), sellerIds.get(i), null, listings.get(i));
+			}
+		}));
+	}
+
+	private void alert(String item_id, String seller_id, SavedSearchMatcher.Listing before, SavedSearchMatcher.Listing after) {
+		List<SavedSearchMatcher.Match> matches = matcher.match(after);
+		if (matches.isEmpty()) {
+			return;
+		}
+		Set<String> matchedBefore = new HashSet<String>();
+		if (before != null) {
+			for (SavedSearchMatcher.Match match : matcher.match(before)) {
+				matchedBefore.add(match.getSearchId());
+			}
+		}
+		List<SavedSearchAlert> alerts = new ArrayList<SavedSearchAlert>();
+		for (SavedSearchMatcher.Match match : matches) {
+			if (!matchedBefore.contains(match.getSearchId()) && !match.getUserId().equals(seller_id)) {
+				alerts.add(new SavedSearchAlert(match.getSearchId(), match.getUserId(), item_id));
+			}
+		}
+		if (alerts.isEmpty()) {
+			return;
+		}
+		for (AlertSink sink : alertSinks) {
+			try {
+				sink.deliver(alerts);
+			} catch (RuntimeException e) {
+				log.warn("Failed to deliver {} saved search alerts of item {}", alerts.size(), item_id, e);
+			}
+		}
+	}
+
+	private String blankToNull(String value) {
+		return value == null || value.trim().isEmpty() ? null : value.trim();
+	}
+
+	private void afterCommit(Runnable change) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			change.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				change.run();
+			}
+		});
+	}
+
+}
@@ -0,0 +1,118 @@
+package com.marketplace.demo.services;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.marketplace.demo.events.DomainEvent;
+import com.marketplace.demo.events.DomainEventSubscriber;
+import com.marketplace.demo.events.DomainEventType;
+import com.marketplace.demo.models.dto.SimilarItem;
+import com.marketplace.demo.models.ids.BinaryUuids;
+import com.marketplace.demo.recommendations.CoFavoriteMatrix;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// "Similar items" from co-favorites, served from memory (CoFavoriteMatrix).
+//	- loaded from FAVORITES once on startup, then kept up to date from the domain events (EventRelayService):
+//	  favorites added and removed, items and users removed. A user's items come with ITEM_REMOVED events
+//	- the matrix is per instance, so is the cursor: a name of its own, starting at the events recorded up to
+//	  outbox.gap-timeout-ms before the load. Those may be in the favorites read already, applying a favorite
+//	  change twice changes nothing. The cursor row goes when the instance stops
+//	- the top similar.top-k neighbours of changed items are recomputed every similar.refresh-interval-ms,
+//	  until then an item shows its previous list
+//	- users with more than similar.max-user-favorites favorites don't count
+// Favorites written to the database without an event show up after a restart.
+@Service
+public class SimilarItemsService implements DomainEventSubscriber {
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Value("${similar.top-k:20}")
+	private int topK;
+	@Value("${similar.max-user-favorites:500}")
+	private int maxUserFavorites;
+	@Value("${outbox.gap-timeout-ms:600000}")
+	private long gapTimeoutMs;
+
+	private final String name = "similar-items-" + UUID.randomUUID();
+	private CoFavoriteMatrix matrix;
+
+	@PostConstruct
+	public void load() {
+		matrix = new CoFavoriteMatrix(topK, maxUserFavorites);
+		// Before the favorites are read, an event recorded after it may be in them or not
+		long now = System.currentTimeMillis();
+		Long startAfter = jdbcTemplate.queryForObject("SELECT MAX(id) FROM outbox_events WHERE created_at < ?", Long.class, now - gapTimeoutMs);
+		jdbcTemplate.update("INSERT INTO outbox_cursors (subscriber, last_event_id, updated_at) VALUES (?, ?, ?)",
+				name, startAfter == null ? 0 : startAfter, now);
+		jdbcTemplate.query(connection -> {
+			PreparedStatement statement = connection.prepareStatement("SELECT user_id, item_id FROM favorites");
+			statement.setFetchSize(1000);
+			return statement;
+		}, rs -> {
+			matrix.add(BinaryUuids.fromBytes(rs.getBytes(1)), BinaryUuids.fromBytes(rs.getBytes(2)));
+		});
+		matrix.refresh();
+	}
+
+	@PreDestroy
+	public void removeCursor() {
+		jdbcTemplate.update("DELETE FROM outbox_cursors WHERE subscriber = ?", name);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public Set<DomainEventType> getEventTypes() {
+		return EnumSet.of(DomainEventType.FAVORITE_ADDED, DomainEventType.FAVORITE_REMOVED, DomainEventType.ITEM_REMOVED, DomainEventType.USER_REMOVED);
+	}
+
+	@Override
+	public void onEvents(List<DomainEvent> events) {
+		for (DomainEvent event : events) {
+			switch (event.getType()) {
+				case FAVORITE_ADDED -> matrix.add(event.getPayload().path("user_id").asText(), event.getAggregateId());
+				case FAVORITE_REMOVED -> matrix.remove(event.getPayload().path("user_id").asText(), event.getAggregateId());
+				case ITEM_REMOVED -> matrix.removeItem(event.getAggregateId());
+				case USER_REMOVED -> matrix.removeUser(event.getAggregateId());
+				default -> {
+				}
+			}
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${similar.refresh-interval-ms:1000}")
+	public void refresh() {
+		matrix.refresh();
+	}
+
+	// Best first, empty for an item nobody favorited
+	public List<SimilarItem> getSimilarItems(String item_id, Integer size) {
+		CoFavoriteMatrix.Neighbors neighbors = matrix.neighbors(item_id);
+		if (neighbors == null) {
+			return new ArrayList<SimilarItem>();
+		}
+		int count = size == null ? neighbors.size() : Math.max(0, Math.min(size, neighbors.size()));
+		List<SimilarItem> similar = new ArrayList<SimilarItem>(count);
+		for (int i = 0; i < count; i++) {
+			similar.add(new SimilarItem(neighbors.idAt(i), neighbors.scoreAt(i), neighbors.coFavoritesAt(i)));
+		}
+		return similar;
+	}
+
+}
@@ -0,0 +1,151 @@
+package com.marketplace.demo.services;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.models.dto.AuthenticatedUser;
+
+import jakarta.annotation.PostConstruct;
+
+// Signed, stateless access tokens (JWT, HS256): header.claims.signature, base64url.
+// The claims carry the user's id and username, so a request is authenticated from memory,
+// without a session store or a database round trip.
+//	- auth.token-secret: base64 key of at least 32 bytes, the same on every instance.
+//	  Left empty a random key is generated, tokens then die with the process
+//	- auth.token-ttl-seconds: lifetime of a token, there is no refresh, the client logs in again
+//	- a password change or removal of a user revokes its earlier tokens on this instance (revoke()),
+//	  other instances only stop accepting them when they expire. Writes for a removed user check its row and get a 404
+@Service
+public class TokenService {
+
+	private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+
+	private static final String ALGORITHM = "HmacSHA256";
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+	private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+	private static final String HEADER = ENCODER.encodeToString("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${auth.token-secret:}")
+	private String secret;
+	@Value("${auth.token-ttl-seconds:900}")
+	private long ttlSeconds;
+
+	private SecretKeySpec key;
+	// user id -> epoch millis before which its tokens are no longer accepted, kept as long as such a token could live
+	private Cache<String, Long> revokedBefore;
+
+	@PostConstruct
+	public void init() {
+		byte[] keyBytes;
+		if (secret == null || secret.isBlank()) {
+			keyBytes = new byte[32];
+			new SecureRandom().nextBytes(keyBytes);
+			log.warn("auth.token-secret is not set, using a random key: tokens won't survive a restart or work across instances");
+		} else {
+			keyBytes = Base64.getDecoder().decode(secret.trim());
+			if (keyBytes.length < 32) {
+				throw new IllegalStateException("auth.token-secret must be at least 32 bytes (base64 encoded)");
+			}
+		}
+		key = new SecretKeySpec(keyBytes, ALGORITHM);
+		revokedBefore = Caffeine.newBuilder()
+				.expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+				.build();
+	}
+
+	// now: epoch millis of the issue, see expiresAt()
+	public String issue(User user, long now) {
+		Map<String, Object> claims = new LinkedHashMap<String, Object>();
+		claims.put("sub", user.getId());
+		claims.put("name", user.getUsername());
+		// NumericDate allows fractions, millisecond precision keeps a token issued right after a revocation valid
+		claims.put("iat", now / 1000.0);
+		claims.put("exp", expiresAt(now));
+
+		String payload;
+		try {
+			payload = ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not write token claims", e);
+		}
+		String unsigned = HEADER + "." + payload;
+		return unsigned + "." + ENCODER.encodeToString(sign(unsigned));
+	}
+
+	// Epoch seconds at which a token issued at now (epoch millis) expires
+	public long expiresAt(long now) {
+		return now / 1000 + ttlSeconds;
+	}
+
+	// null when the token is malformed, forged, expired or revoked
+	public AuthenticatedUser verify(String token) {
+		int first = token.indexOf('.');
+		int last = token.lastIndexOf('.');
+		if (first < 0 || first == last || !HEADER.equals(token.substring(0, first))) {
+			return null;
+		}
+
+		JsonNode claims;
+		try {
+			byte[] signature = DECODER.decode(token.substring(last + 1));
+			if (!MessageDigest.isEqual(signature, sign(token.substring(0, last)))) {
+				return null;
+			}
+			claims = objectMapper.readTree(DECODER.decode(token.substring(first + 1, last)));
+		} catch (IllegalArgumentException | IOException e) {
+			return null;
+		}
+
+		String userId = claims.path("sub").asText(null);
+		long expiresAt = claims.path("exp").asLong(0);
+		if (userId == null || expiresAt * 1000 <= System.currentTimeMillis()) {
+			return null;
+		}
+		Long revoked = revokedBefore.getIfPresent(userId);
+		if (revoked != null && claims.path("iat").asDouble(0) * 1000 <= revoked) {
+			return null;
+		}
+		return new AuthenticatedUser(userId, claims.path("name").asText(null), expiresAt);
+	}
+
+	// Tokens of the user issued until now stop being accepted
+	public void revoke(String user_id) {
+		revokedBefore.put(user_id, System.currentTimeMillis());
+	}
+
+	private byte[] sign(String unsigned) {
+		try {
+			Mac mac = Mac.getInstance(ALGORITHM);
+			mac.init(key);
+			return mac.doFinal(unsigned.getBytes(StandardCharsets.US_ASCII));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Could not sign token", e);
+		}
+	}
+
+}
@@ -0,0 +1,164 @@
+package com.marketplace.demo.services;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.dto.TrendingItem;
+import com.marketplace.demo.models.ids.BinaryUuids;
+import com.marketplace.demo.recommendations.TrendingScores;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// "Trending now" per category (TrendingScores), fed by the favorite paths of UserService after commit.
+//	- scores halve every trending.half-life-hours, items under trending.min-score are dropped,
+//	  a category keeps its best trending.max-items-per-category
+//	- the items changed since the last snapshot are written to TRENDING_SCORES every
+//	  trending.snapshot-interval-ms (and on shutdown), and read back on startup.
+//	  A crash loses at most the events of one interval
+//	- pages are read from memory only
+@Service
+public class TrendingService {
+
+	private static final Logger log = LoggerFactory.getLogger(TrendingService.class);
+
+	private static final String UPSERT_SQL = "INSERT INTO trending_scores (item_id, category_id, log_score) VALUES (?, ?, ?) "
+			+ "ON DUPLICATE KEY UPDATE category_id = VALUES(category_id), log_score = VALUES(log_score)";
+	private static final String DELETE_SQL = "DELETE FROM trending_scores WHERE item_id = ?";
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	PaginationService paginationService;
+
+	@Value("${trending.half-life-hours:24}")
+	private double halfLifeHours;
+	@Value("${trending.max-items-per-category:1000}")
+	private int maxItemsPerCategory;
+	@Value("${trending.min-score:0.01}")
+	private double minScore;
+
+	private TrendingScores scores;
+
+	@PostConstruct
+	public void load() {
+		scores = new TrendingScores(halfLifeHours * 3600 * 1000, maxItemsPerCategory);
+		jdbcTemplate.query(connection -> {
+			PreparedStatement statement = connection.prepareStatement("SELECT item_id, category_id, log_score FROM trending_scores");
+			statement.setFetchSize(1000);
+			return statement;
+		}, rs -> {
+			scores.restore(BinaryUuids.fromBytes(rs.getBytes(2)), BinaryUuids.fromBytes(rs.getBytes(1)), rs.getDouble(3));
+		});
+		scores.prune(minScore, System.currentTimeMillis());
+	}
+
+	@PreDestroy
+	public void close() {
+		snapshot();
+	}
+
+	public void favoriteAdded(Item item, long favoritedAt) {
+		record(item, 1, favoritedAt);
+	}
+
+	// Takes back the weight the favorite added, as of when it was added. null: from before the
+	// favorite times were kept, it never counted
+	public void favoriteRemoved(Item item, Long favoritedAt) {
+		if (favoritedAt != null) {
+			record(item, -1, favoritedAt);
+		}
+	}
+
+	public void itemMoved(String item_id, String category_id) {
+		afterCommit(() -> scores.moved(item_id, category_id));
+	}
+
+	public void itemRemoved(String item_id) {
+		afterCommit(() -> scores.removed(item_id));
+	}
+
+	public List<TrendingItem> getTrending(String category_id, Integer page, Integer size) {
+		int pageSize = paginationService.resolveSize(size);
+		int pageNumber = page == null ? 0 : page;
+		if (pageNumber < 0) {
+			pageNumber = 0;
+		}
+		List<TrendingItem> trending = new ArrayList<TrendingItem>(pageSize);
+		// A category never holds more than maxItemsPerCategory, and a large page would overflow an int
+		long offset = (long) pageNumber * pageSize;
+		if (offset >= maxItemsPerCategory) {
+			return trending;
+		}
+		for (TrendingScores.Scored scored : scores.top(category_id, (int) offset, pageSize, System.currentTimeMillis())) {
+			trending.add(new TrendingItem(scored.getItemId(), scored.getScore()));
+		}
+		return trending;
+	}
+
+	@Scheduled(fixedDelayString = "${trending.snapshot-interval-ms:60000}")
+	public void snapshot() {
+		scores.prune(minScore, System.currentTimeMillis());
+		List<String> changed = scores.drainChanged();
+		if (changed.isEmpty()) {
+			return;
+		}
+		List<Object[]> upserts = new ArrayList<>();
+		List<Object[]> deletes = new ArrayList<>();
+		for (String item_id : changed) {
+			String category_id = scores.categoryOf(item_id);
+			double logScore = scores.logScoreOf(item_id);
+			if (category_id == null || Double.isNaN(logScore)) {
+				deletes.add(new Object[] { BinaryUuids.toBytes(item_id) });
+			} else {
+				upserts.add(new Object[] { BinaryUuids.toBytes(item_id), BinaryUuids.toBytes(category_id), logScore });
+			}
+		}
+		try {
+			if (!upserts.isEmpty()) {
+				jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+			}
+			if (!deletes.isEmpty()) {
+				jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+			}
+		} catch (RuntimeException e) {
+			scores.markChanged(changed);
+			log.warn("Failed to snapshot trending scores, retrying next run", e);
+		}
+	}
+
+	private void record(Item item, int weight, long atMillis) {
+		if (item.getCategory() == null) {
+			return;
+		}
+		String category_id = item.getCategory().getId();
+		String item_id = item.getId();
+		afterCommit(() -> scores.record(category_id, item_id, weight, atMillis));
+	}
+
+	private void afterCommit(Runnable change) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			change.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				change.run();
+			}
+		});
+	}
+
+}
@@ -8,9 +8,16 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.marketplace.demo.config.ReadOnlyTransactional;
+import com.marketplace.demo.models.Image;
 import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.Review;
 import com.marketplace.demo.models.User;
+import com.marketplace.demo.models.dto.CursorPage;
 import com.marketplace.demo.models.dto.UserInputDTO;
+import com.marketplace.demo.models.ids.BinaryUuids;
+import com.marketplace.demo.repositories.ImageRepository;
+import com.marketplace.demo.repositories.ItemRepository;
 import com.marketplace.demo.repositories.UserRepository;
 
 import jakarta.transaction.Transactional;
@@ -20,11 +27,48 @@ public class UserService {
 	
 	@Autowired
 	UserRepository userRepository;
+	@Autowired
+	ItemRepository itemRepository;
+	@Autowired
+	PaginationService paginationService;
+	@Autowired
+	ReputationService reputationService;
+	@Autowired
+	FavoriteCounterService favoriteCounterService;
+	@Autowired
+	ImageRepository imageRepository;
+	@Autowired
+	ImageStorageService imageStorageService;
+	@Autowired
+	PasswordService passwordService;
+	@Autowired
+	AuthService authService;
+	@Autowired
+	TokenService tokenService;
+	@Autowired
+	TrendingService trendingService;
+	@Autowired
+	ItemTextIndexService itemTextIndexService;
+	@Autowired
+	SavedSearchService savedSearchService;
+	@Autowired
+	OutboxService outboxService;
 
-	public List<User> getAllUsers() {
-		return userRepository.findAll();
+	@ReadOnlyTransactional
+	public CursorPage<User> getUsersPage(String cursor, Integer size) {
+		int pageSize = paginationService.resolveSize(size);
+		String afterId = paginationService.decodeCursor(cursor);
+		
+		List<User> rows;
+		if (afterId == null) {
+			rows = userRepository.findAllByOrderByIdAsc(paginationService.probeLimit(pageSize));
+		} else {
+			rows = userRepository.findByIdGreaterThanOrderByIdAsc(afterId, paginationService.probeLimit(pageSize));
+		}
+		return paginationService.toPage(rows, pageSize, User::getId);
 	}
 
+	@ReadOnlyTransactional
 	public User getUser(String user_id) {
 		Optional<User> userOptional = userRepository.findById(user_id);
 		
@@ -37,23 +81,55 @@ public class UserService {
 		
 	}
 
+	@Transactional
 	public void removeUser(String user_id) {
 		Optional<User> userOptional = userRepository.findById(user_id);
 		
 		if (userOptional.isPresent()) {
+			// Reviews written by the user are deleted with it, take them out of the reviewees' reputations
+			for (Review review : userOptional.get().getWrittenReviews()) {
+				reputationService.reviewRemoved(review);
+			}
+			reputationService.removeReputation(user_id);
+			List<Image> images = imageRepository.findByItemSeller(userOptional.get());
+			List<String> item_ids = userOptional.get().getItems().stream().map(Item::getId).toList();
+			savedSearchService.userRemoved(user_id);
+			userRepository.removeFavoritesOfItemsOf(BinaryUuids.toBytes(user_id));
 			userRepository.deleteById(user_id);
+			authService.credentialsChanged(userOptional.get().getUsername());
+			tokenService.revoke(user_id);
+			outboxService.userRemoved(user_id);
+			// The user's items are deleted by cascade, with the other users' favorites of them
+			for (String item_id : item_ids) {
+				trendingService.itemRemoved(item_id);
+				outboxService.itemRemoved(item_id);
+			}
+			itemTextIndexService.removeItems(item_ids);
+			// Images of the user's items are deleted by cascade, release their files after them
+			for (Image image : images) {
+				imageStorageService.release(image);
+			}
 		} else {			
 			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not Found");
 		}
 		
 	}
 
+	// One transaction for the user, its reputation row and its USER_CREATED event
+	@Transactional
 	public User createUser(UserInputDTO userInput) {
 		if (userInput.getId() != null) {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The 'id' field must not be provided when creating a new resource.");
 		}
+		checkUsernameAvailable(userInput.getUsername(), null);
 		User u = new User(userInput);
+		if (u.getPassword() != null) {
+			u.setPassword(passwordService.hash(u.getPassword()));
+		}
 		userRepository.save(u);
+		authService.credentialsChanged(u.getUsername());
+		reputationService.createReputation(u.getId());
+		outboxService.userCreated(u.getId());
 		return u;
 	}
 
@@ -68,14 +144,24 @@ public class UserService {
 				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The 'id' in the request body does not match the resource ID in the URL. The 'id' field cannot be modified.");
 			}
 			
-			if (userUpdatesInput.getUsername() != null) user.setUsername(userUpdatesInput.getUsername());
+			if (userUpdatesInput.getUsername() != null) {
+				checkUsernameAvailable(userUpdatesInput.getUsername(), user.getId());
+				authService.credentialsChanged(user.getUsername());
+				user.setUsername(userUpdatesInput.getUsername());
+				authService.credentialsChanged(user.getUsername());
+			}
 			if (userUpdatesInput.getFull_name() != null) user.setFull_name(userUpdatesInput.getFull_name());
 			if (userUpdatesInput.getEmail() != null) user.setEmail(userUpdatesInput.getEmail());
-			if (userUpdatesInput.getPassword() != null) user.setPassword(userUpdatesInput.getPassword());
+			if (userUpdatesInput.getPassword() != null) {
+				user.setPassword(passwordService.hash(userUpdatesInput.getPassword()));
+				authService.credentialsChanged(user.getUsername());
+				tokenService.revoke(user.getId());
+			}
 			if (userUpdatesInput.getBio() != null) user.setBio(userUpdatesInput.getBio());
 			if (userUpdatesInput.getCountry() != null) user.setCountry(userUpdatesInput.getCountry());
 			if (userUpdatesInput.getCity() != null) user.setCity(userUpdatesInput.getCity());
 			if (userUpdatesInput.getPhone_number() != null) user.setPhone_number(userUpdatesInput.getPhone_number());
+			outboxService.userUpdated(user.getId());
 			
 			return user;
 		} else {			
@@ -83,31 +169,51 @@ public class UserService {
 		}
 		
 	}
+	// By id, for a caller authenticated by token: the user isn't loaded
 	@Transactional
-	public void addItemToUserFavorites(User u, Item i) {
-		if (!u.isItemInUserItems(i)) {			 // checks if item is not in user's items 
-			if (!u.isItemInFavorites(i) ) {		// checks if item is not already in user's favorites to eliminate duplicates
-				u.addFavoriteItem(i);
-				i.incrementFavoriteCount();
-			}
-		} else {
+	public void addItemToUserFavorites(String user_id, Item i) {
+		// A token outlives its user on the instances that didn't remove it (TokenService), the insert would fail on the foreign key
+		if (!userRepository.existsById(user_id)) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not Found");
+		}
+		if (itemRepository.existsByIdAndSeller_Id(i.getId(), user_id)) {	// checks if item is one of the user's items
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot set item of user as his favorite");
 		}
+		// Adding an item that is already a favorite changes nothing
+		long now = System.currentTimeMillis();
+		if (userRepository.addFavorite(BinaryUuids.toBytes(user_id), BinaryUuids.toBytes(i.getId()), now) == 1) {
+			favoriteCounterService.favoriteAdded(i.getId());
+			trendingService.favoriteAdded(i, now);
+			outboxService.favoriteAdded(user_id, i.getId());
+		}
 	}
 
 	@Transactional
-	public void removeItemFromUserFavorites(User u, Item i) {
-		if (u.isItemInFavorites(i)) {			
-			u.removeFavoriteItem(i);
-			i.decrementFavoriteCount();
+	public void removeItemFromUserFavorites(String user_id, Item i) {
+		Long favoritedAt = userRepository.findFavoriteCreatedAt(BinaryUuids.toBytes(user_id), BinaryUuids.toBytes(i.getId()));
+		if (userRepository.removeFavorite(BinaryUuids.toBytes(user_id), BinaryUuids.toBytes(i.getId())) == 1) {
+			favoriteCounterService.favoriteRemoved(i.getId());
+			trendingService.favoriteRemoved(i, favoritedAt);
+			outboxService.favoriteRemoved(user_id, i.getId());
 		} else {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Item is not in User's favorite items");
 		}
 	}
 
-	@Transactional
-	public List<Item> getUserFavorites(User u) {
-		return u.getFavoriteItems();
+	@ReadOnlyTransactional
+	public List<Item> getUserFavorites(String user_id) {
+		return itemRepository.findFavoritesOfUserId(user_id);
+	}
+	
+	// USERS.username has a unique index (uk_users_username), report a clash before the insert fails on it
+	private void checkUsernameAvailable(String username, String user_id) {
+		if (username == null) {
+			return;
+		}
+		Optional<User> existing = userRepository.findByUsername(username);
+		if (existing.isPresent() && !existing.get().getId().equals(user_id)) {
+			throw new ResponseStatusException(HttpStatus.CONFLICT, "Username already taken");
+		}
 	}
 
 }
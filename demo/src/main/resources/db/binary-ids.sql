@@ -0,0 +1,42 @@
+-- Converts a MySQL 8 database created while ids were random UUID strings in VARCHAR(255)
+-- to the BINARY(16) id columns of BinaryUuidType. Run it once, with the application stopped.
+-- Existing rows keep their id: UUID_TO_BIN stores the same UUID in 16 bytes, and the
+-- application still returns it in the same string form. Only new rows get time-ordered ids.
+
+SET FOREIGN_KEY_CHECKS = 0;
+
+-- 1. Switch to a binary type that can still hold the text form, so the foreign keys
+--    and their referenced columns keep matching byte for byte
+ALTER TABLE users MODIFY id VARBINARY(36) NOT NULL;
+ALTER TABLE categories MODIFY id VARBINARY(36) NOT NULL;
+ALTER TABLE items MODIFY id VARBINARY(36) NOT NULL, MODIFY category_id VARBINARY(36), MODIFY seller_id VARBINARY(36);
+ALTER TABLE images MODIFY id VARBINARY(36) NOT NULL, MODIFY item_id VARBINARY(36);
+ALTER TABLE reviews MODIFY id VARBINARY(36) NOT NULL, MODIFY reviewer_id VARBINARY(36), MODIFY reviewee_id VARBINARY(36);
+ALTER TABLE favorites MODIFY user_id VARBINARY(36) NOT NULL, MODIFY item_id VARBINARY(36) NOT NULL;
+ALTER TABLE user_reputations MODIFY user_id VARBINARY(36) NOT NULL;
+ALTER TABLE reputation_buckets MODIFY id VARBINARY(36) NOT NULL, MODIFY user_id VARBINARY(36);
+
+-- 2. Text form to the 16 byte form (UUID_TO_BIN(NULL) is NULL)
+UPDATE users SET id = UUID_TO_BIN(CAST(id AS CHAR));
+UPDATE categories SET id = UUID_TO_BIN(CAST(id AS CHAR));
+UPDATE items SET id = UUID_TO_BIN(CAST(id AS CHAR)), category_id = UUID_TO_BIN(CAST(category_id AS CHAR)), seller_id = UUID_TO_BIN(CAST(seller_id AS CHAR));
+UPDATE images SET id = UUID_TO_BIN(CAST(id AS CHAR)), item_id = UUID_TO_BIN(CAST(item_id AS CHAR));
+UPDATE reviews SET id = UUID_TO_BIN(CAST(id AS CHAR)), reviewer_id = UUID_TO_BIN(CAST(reviewer_id AS CHAR)), reviewee_id = UUID_TO_BIN(CAST(reviewee_id AS CHAR));
+UPDATE favorites SET user_id = UUID_TO_BIN(CAST(user_id AS CHAR)), item_id = UUID_TO_BIN(CAST(item_id AS CHAR));
+UPDATE user_reputations SET user_id = UUID_TO_BIN(CAST(user_id AS CHAR));
+UPDATE reputation_buckets SET id = UUID_TO_BIN(CAST(id AS CHAR)), user_id = UUID_TO_BIN(CAST(user_id AS CHAR));
+
+-- 3. Fixed length columns, the types the Flyway migrations give them (db/migration/V1__initial_schema.sql)
+ALTER TABLE users MODIFY id BINARY(16) NOT NULL;
+ALTER TABLE categories MODIFY id BINARY(16) NOT NULL;
+ALTER TABLE items MODIFY id BINARY(16) NOT NULL, MODIFY category_id BINARY(16), MODIFY seller_id BINARY(16);
+ALTER TABLE images MODIFY id BINARY(16) NOT NULL, MODIFY item_id BINARY(16);
+ALTER TABLE reviews MODIFY id BINARY(16) NOT NULL, MODIFY reviewer_id BINARY(16), MODIFY reviewee_id BINARY(16);
+ALTER TABLE favorites MODIFY user_id BINARY(16) NOT NULL, MODIFY item_id BINARY(16) NOT NULL;
+ALTER TABLE user_reputations MODIFY user_id BINARY(16) NOT NULL;
+ALTER TABLE reputation_buckets MODIFY id BINARY(16) NOT NULL, MODIFY user_id BINARY(16);
+
+SET FOREIGN_KEY_CHECKS = 1;
+
+-- Rebuild the tables so the primary key and secondary indexes are packed again
+OPTIMIZE TABLE users, categories, items, images, reviews, favorites, user_reputations, reputation_buckets;
@@ -0,0 +1,116 @@
+-- Tables of the JPA entities (Hibernate only validates them, spring.jpa.hibernate.ddl-auto=validate).
+-- Ids are time-ordered UUIDs stored as BINARY(16), see BinaryUuids.
+-- Indexes for the query paths are in V2.
+
+CREATE TABLE users (
+	id BINARY(16) NOT NULL,
+	username VARCHAR(255),
+	full_name VARCHAR(255),
+	email VARCHAR(255),
+	password VARCHAR(255),
+	bio VARCHAR(1000),
+	country VARCHAR(255),
+	city VARCHAR(255),
+	phone_number VARCHAR(255),
+	PRIMARY KEY (id)
+);
+
+CREATE TABLE categories (
+	id BINARY(16) NOT NULL,
+	name VARCHAR(255),
+	PRIMARY KEY (id)
+);
+
+CREATE TABLE items (
+	id BINARY(16) NOT NULL,
+	title VARCHAR(255),
+	category_id BINARY(16),
+	seller_id BINARY(16),
+	price DOUBLE NOT NULL,
+	description VARCHAR(2000),
+	item_condition VARCHAR(255),
+	sold BIT NOT NULL,
+	-- Only changed with atomic increments by FavoriteCounterService
+	favorite_count INT NOT NULL DEFAULT 0,
+	PRIMARY KEY (id),
+	CONSTRAINT fk_items_category FOREIGN KEY (category_id) REFERENCES categories (id),
+	CONSTRAINT fk_items_seller FOREIGN KEY (seller_id) REFERENCES users (id)
+);
+
+-- Primary key in the order of the hot lookup (a user's favorites), V2 adds the reverse
+CREATE TABLE favorites (
+	user_id BINARY(16) NOT NULL,
+	item_id BINARY(16) NOT NULL,
+	PRIMARY KEY (user_id, item_id),
+	CONSTRAINT fk_favorites_user FOREIGN KEY (user_id) REFERENCES users (id),
+	CONSTRAINT fk_favorites_item FOREIGN KEY (item_id) REFERENCES items (id)
+);
+
+-- Content addressed image files, hash is the hex SHA-256 of the file
+CREATE TABLE image_blobs (
+	hash VARCHAR(64) NOT NULL,
+	path VARCHAR(255),
+	size BIGINT NOT NULL,
+	content_type VARCHAR(255),
+	ref_count BIGINT NOT NULL,
+	PRIMARY KEY (hash)
+);
+
+CREATE TABLE images (
+	id BINARY(16) NOT NULL,
+	item_id BINARY(16),
+	blob_hash VARCHAR(64),
+	image_path VARCHAR(255),
+	content_type VARCHAR(255),
+	size BIGINT,
+	PRIMARY KEY (id),
+	CONSTRAINT fk_images_item FOREIGN KEY (item_id) REFERENCES items (id),
+	CONSTRAINT fk_images_blob FOREIGN KEY (blob_hash) REFERENCES image_blobs (hash)
+);
+
+-- id is <blob hash>_<size name>
+CREATE TABLE image_variants (
+	id VARCHAR(80) NOT NULL,
+	blob_hash VARCHAR(64),
+	variant VARCHAR(20),
+	path VARCHAR(255),
+	content_type VARCHAR(255),
+	size BIGINT NOT NULL,
+	width INT NOT NULL,
+	height INT NOT NULL,
+	PRIMARY KEY (id)
+);
+
+CREATE TABLE reviews (
+	id BINARY(16) NOT NULL,
+	reviewer_id BINARY(16),
+	reviewee_id BINARY(16),
+	rating INT,
+	comment VARCHAR(1000),
+	date DATE,
+	PRIMARY KEY (id),
+	CONSTRAINT fk_reviews_reviewer FOREIGN KEY (reviewer_id) REFERENCES users (id),
+	CONSTRAINT fk_reviews_reviewee FOREIGN KEY (reviewee_id) REFERENCES users (id)
+);
+
+CREATE TABLE user_reputations (
+	user_id BINARY(16) NOT NULL,
+	review_count BIGINT NOT NULL,
+	rating_sum BIGINT NOT NULL,
+	one_star_count BIGINT NOT NULL,
+	two_star_count BIGINT NOT NULL,
+	three_star_count BIGINT NOT NULL,
+	four_star_count BIGINT NOT NULL,
+	five_star_count BIGINT NOT NULL,
+	PRIMARY KEY (user_id)
+);
+
+CREATE TABLE reputation_buckets (
+	id BINARY(16) NOT NULL,
+	user_id BINARY(16),
+	month_start DATE,
+	review_count BIGINT NOT NULL,
+	rating_sum BIGINT NOT NULL,
+	PRIMARY KEY (id),
+	CONSTRAINT uk_reputation_buckets_user_month UNIQUE (user_id, month_start)
+);
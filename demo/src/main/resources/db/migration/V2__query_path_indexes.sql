@@ -0,0 +1,28 @@
+-- Indexes behind the hot query paths. SchemaIndexValidator refuses to start without them,
+-- keep its list in sync when adding or dropping one here.
+-- InnoDB secondary indexes end with the primary key, so (seller_id) also serves
+-- "items of a seller ordered by id" and (reviewee_id) "reviews of a user ordered by id".
+
+-- Items of a seller, and the "is this my own item" check when favoriting
+CREATE INDEX idx_items_seller ON items (seller_id);
+-- Faceted search filters and facet counts
+CREATE INDEX idx_items_category_price ON items (category_id, price);
+CREATE INDEX idx_items_condition_price ON items (item_condition, price);
+CREATE INDEX idx_items_sold_category_price ON items (sold, category_id, price);
+
+-- Login, and the one-user-per-username rule
+CREATE UNIQUE INDEX uk_users_username ON users (username);
+-- Faceted search by seller location
+CREATE INDEX idx_users_country_city ON users (country, city);
+
+-- Received and written reviews of a user
+CREATE INDEX idx_reviews_reviewee ON reviews (reviewee_id);
+CREATE INDEX idx_reviews_reviewer ON reviews (reviewer_id);
+
+-- Users who favorited an item (item removal, favorite counts); user -> items is the primary key
+CREATE INDEX idx_favorites_item_user ON favorites (item_id, user_id);
+
+-- Images of an item, and images sharing a blob
+CREATE INDEX idx_images_item ON images (item_id);
+CREATE INDEX idx_images_blob ON images (blob_hash);
+CREATE INDEX idx_image_variants_blob ON image_variants (blob_hash);
@@ -0,0 +1,10 @@
+-- Snapshot of the in-memory trending ranking (TrendingService), read back on startup.
+-- log_score is log2 of the item's decayed favorite score scaled to the epoch, see TrendingScores:
+-- it only changes on favorite events, so only the items that had one are written.
+-- No foreign keys: a removed item or category is dropped from here by the next snapshot.
+CREATE TABLE trending_scores (
+	item_id BINARY(16) NOT NULL,
+	category_id BINARY(16) NOT NULL,
+	log_score DOUBLE NOT NULL,
+	PRIMARY KEY (item_id)
+);
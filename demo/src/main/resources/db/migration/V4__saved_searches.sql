@@ -0,0 +1,16 @@
+-- Saved searches (SavedSearch), matched against every new or changed item by SavedSearchService.
+-- Every criterion is nullable, null meaning any. Deleted before their user.
+CREATE TABLE saved_searches (
+	id BINARY(16) NOT NULL,
+	user_id BINARY(16),
+	category_id BINARY(16),
+	max_price DOUBLE,
+	item_condition VARCHAR(255),
+	keywords VARCHAR(255),
+	PRIMARY KEY (id),
+	CONSTRAINT fk_saved_searches_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+-- Saved searches of a user (listing, per-user limit, user removal).
+-- SchemaIndexValidator checks it, see V2
+CREATE INDEX idx_saved_searches_user ON saved_searches (user_id);
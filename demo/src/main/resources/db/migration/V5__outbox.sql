@@ -0,0 +1,20 @@
+-- Transactional outbox: a row per domain event, inserted in the transaction of the change it describes
+-- (OutboxService), relayed to the in-process subscribers in id order by EventRelayService.
+-- payload is a small JSON object, created_at epoch millis.
+-- Rows every cursor has passed are deleted once older than outbox.retention-hours.
+CREATE TABLE outbox_events (
+	id BIGINT NOT NULL AUTO_INCREMENT,
+	event_type VARCHAR(40) NOT NULL,
+	aggregate_id BINARY(16),
+	payload VARCHAR(2000),
+	created_at BIGINT NOT NULL,
+	PRIMARY KEY (id)
+);
+
+-- Last event handled by each subscriber, moved back to replay
+CREATE TABLE outbox_cursors (
+	subscriber VARCHAR(100) NOT NULL,
+	last_event_id BIGINT NOT NULL,
+	updated_at BIGINT NOT NULL,
+	PRIMARY KEY (subscriber)
+);
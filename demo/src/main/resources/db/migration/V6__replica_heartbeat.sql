@@ -0,0 +1,8 @@
+-- Replica lag: each application instance writes the time to its row on the primary every
+-- datasource.replicas.heartbeat-interval-ms and reads it back from the replicas (ReplicaRoutingDataSource).
+-- beat_at is epoch millis of the writing instance, a row is only ever compared with its own instance's clock.
+CREATE TABLE replica_heartbeat (
+	instance_id VARCHAR(36) NOT NULL,
+	beat_at BIGINT NOT NULL,
+	PRIMARY KEY (instance_id)
+);
@@ -0,0 +1,3 @@
+-- When each favorite was added (epoch millis), so removing it takes back exactly the weight it added
+-- to the trending score (TrendingService). NULL for favorites from before, those never counted.
+ALTER TABLE favorites ADD COLUMN created_at BIGINT;
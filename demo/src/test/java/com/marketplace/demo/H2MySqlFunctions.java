@@ -0,0 +1,13 @@
+package com.marketplace.demo;
+
+import com.marketplace.demo.models.ids.BinaryUuids;
+
+// MySQL functions used by native queries that H2 doesn't have.
+// Registered with INIT in the test datasource url.
+public class H2MySqlFunctions {
+
+	public static String binToUuid(byte[] bytes) {
+		return BinaryUuids.fromBytes(bytes);
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.marketplace.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.marketplace.demo.models.ids.BinaryUuids;
+
+// Insert throughput of the old id layout (random UUID strings in VARCHAR(36)) against the
+// current one (time-ordered UUIDs in BINARY(16)), both with a secondary index on a foreign key.
+// Run with: mvn test -Pload-test -Dtest=IdInsertBenchmarkTests
+// It uses the test datasource, to measure InnoDB point it at MySQL, e.g.
+//	-Dspring.datasource.url="jdbc:mysql://localhost:3306/test?rewriteBatchedStatements=true" -Dspring.datasource.username=root
+// The last chunk shows how inserts slow down as the table grows past the buffer pool.
+@Tag("load")
+@SpringBootTest
+class IdInsertBenchmarkTests {
+
+	private static final int ROWS = 300000;
+	private static final int WARMUP_ROWS = 20000;
+	private static final int BATCH = 1000;
+	private static final int CHUNKS = 10;
+	private static final int SELLERS = 1000;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Test
+	void timeOrderedBinaryIdsInsertFaster() {
+		// JIT and connection warm-up, so the first layout measured isn't at a disadvantage
+		measure("bench_random_ids", "VARCHAR(36)", false, WARMUP_ROWS);
+		measure("bench_ordered_ids", "BINARY(16)", true, WARMUP_ROWS);
+
+		double[] random = measure("bench_random_ids", "VARCHAR(36)", false, ROWS);
+		double[] ordered = measure("bench_ordered_ids", "BINARY(16)", true, ROWS);
+		System.out.printf("Inserts of %d rows: random VARCHAR ids %.0f rows/s (last chunk %.0f), time-ordered BINARY ids %.0f rows/s (last chunk %.0f)%n",
+				ROWS, random[0], random[1], ordered[0], ordered[1]);
+		assertThat(ordered[0]).isGreaterThan(random[0]);
+	}
+
+	// Returns the overall rows/s and the rows/s of the last tenth of the rows
+	private double[] measure(String table, String idType, boolean timeOrdered, int rows) {
+		jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+		jdbcTemplate.execute("CREATE TABLE " + table + " (id " + idType + " NOT NULL PRIMARY KEY, seller_id " + idType + " NOT NULL, "
+				+ "title VARCHAR(100), price DOUBLE)");
+		jdbcTemplate.execute("CREATE INDEX idx_" + table + "_seller ON " + table + " (seller_id)");
+
+		List<Object> sellers = new ArrayList<>(SELLERS);
+		for (int i = 0; i < SELLERS; i++) {
+			sellers.add(newId(timeOrdered));
+		}
+
+		String sql = "INSERT INTO " + table + " (id, seller_id, title, price) VALUES (?, ?, ?, ?)";
+		long start = System.nanoTime();
+		long chunkStart = start;
+		for (int inserted = 0; inserted < rows; inserted += BATCH) {
+			if (inserted == rows - rows / CHUNKS) {
+				chunkStart = System.nanoTime();
+			}
+			List<Object[]> batch = new ArrayList<>(BATCH);
+			for (int i = 0; i < BATCH; i++) {
+				batch.add(new Object[] { newId(timeOrdered), sellers.get((inserted + i) % SELLERS), "Listing " + (inserted + i), 10.0 });
+			}
+			jdbcTemplate.batchUpdate(sql, batch);
+		}
+		long end = System.nanoTime();
+
+		jdbcTemplate.execute("DROP TABLE " + table);
+		return new double[] { rows / ((end - start) / 1e9), (rows / CHUNKS) / ((end - chunkStart) / 1e9) };
+	}
+
+	private Object newId(boolean timeOrdered) {
+		return timeOrdered ? BinaryUuids.toBytes(BinaryUuids.next()) : UUID.randomUUID().toString();
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.marketplace.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.MockMvcPrint;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.marketplace.demo.models.ids.BinaryUuids;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+// GET /items/ for 10k items, materialized (List<Item> -> List<ItemStripped> -> Jackson)
+// against streamed (?stream=true, cursor -> JsonGenerator), per request:
+//	- heap allocated: MockMvc runs the request on the test thread, so the thread's allocation counter covers it.
+//	  With H2 that includes the database's own work, the same for both
+//	- peak live heap: the highest heap use right after a collection while requests run, above the idle heap
+//	- time
+// Run with: mvn test -Pload-test -Dtest=ListStreamingBenchmarkTests
+@Tag("load")
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=false")
+@AutoConfigureMockMvc(print = MockMvcPrint.NONE)
+class ListStreamingBenchmarkTests {
+
+	private static final int ROWS = 10000;
+	private static final int IMAGES_PER_ITEM = 2;
+	private static final int WARMUP = 5;
+	private static final int RUNS = 20;
+
+	@Autowired
+	MockMvc mvc;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	private final AtomicLong peakAfterGc = new AtomicLong();
+
+	@Test
+	void streamingAllocatesAndRetainsLessPerRequest() throws Exception {
+		seed();
+		NotificationListener gcListener = (notification, handback) -> {
+			if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+				GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+				long used = 0;
+				for (MemoryUsage pool : info.getGcInfo().getMemoryUsageAfterGc().values()) {
+					used += pool.getUsed();
+				}
+				peakAfterGc.accumulateAndGet(used, Math::max);
+			}
+		};
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			((NotificationEmitter) collector).addNotificationListener(gcListener, null, null);
+		}
+
+		for (int i = 0; i < WARMUP; i++) {
+			measure("/items/");
+			measure("/items/?stream=true");
+		}
+		double[] materialized = run("/items/");
+		double[] streamed = run("/items/?stream=true");
+
+		System.out.printf("GET /items/ with %d items, per request: materialized %.1f MB allocated, %.1f MB peak live, %.0f ms; "
+				+ "streamed %.1f MB allocated, %.1f MB peak live, %.0f ms%n",
+				ROWS, materialized[0], materialized[1], materialized[2], streamed[0], streamed[1], streamed[2]);
+		assertThat(streamed[0]).isLessThan(materialized[0]);
+		assertThat(streamed[1]).isLessThan(materialized[1]);
+	}
+
+	// MB allocated per request, MB peak live heap above idle, ms per request
+	private double[] run(String url) throws Exception {
+		System.gc();
+		long idle = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		peakAfterGc.set(idle);
+		long allocated = 0;
+		long nanos = 0;
+		for (int i = 0; i < RUNS; i++) {
+			long[] run = measure(url);
+			allocated += run[0];
+			nanos += run[1];
+		}
+		return new double[] { allocated / 1e6 / RUNS, Math.max(peakAfterGc.get() - idle, 0) / 1e6, nanos / 1e6 / RUNS };
+	}
+
+	// Bytes allocated by this thread and nanoseconds taken
+	private long[] measure(String url) throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().threadId();
+		long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		mvc.perform(get(url)).andExpect(status().isOk());
+		return new long[] { threads.getThreadAllocatedBytes(thread) - allocatedBefore, System.nanoTime() - start };
+	}
+
+	private void seed() {
+		byte[] category = BinaryUuids.toBytes(BinaryUuids.next());
+		byte[] seller = BinaryUuids.toBytes(BinaryUuids.next());
+		jdbcTemplate.update("INSERT INTO categories (id, name) VALUES (?, ?)", category, "Benchmark");
+		jdbcTemplate.update("INSERT INTO users (id, username, full_name, email, password) VALUES (?, ?, ?, ?, ?)",
+				seller, "bench-seller", "Bench Seller", "bench@example.com", "pw");
+
+		List<Object[]> items = new ArrayList<>(ROWS);
+		List<Object[]> images = new ArrayList<>(ROWS * IMAGES_PER_ITEM);
+		for (int i = 0; i < ROWS; i++) {
+			byte[] item = BinaryUuids.toBytes(BinaryUuids.next());
+			items.add(new Object[] { item, "Listing " + i, category, seller, 10.0 + i, "Benchmark listing number " + i, "Used", false });
+			for (int j = 0; j < IMAGES_PER_ITEM; j++) {
+				images.add(new Object[] { BinaryUuids.toBytes(BinaryUuids.next()), item, "bench_" + i + "_" + j + ".jpg" });
+			}
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO items (id, title, category_id, seller_id, price, description, item_condition, sold) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", items);
+		jdbcTemplate.batchUpdate("INSERT INTO images (id, item_id, image_path) VALUES (?, ?, ?)", images);
+	}
+
+}
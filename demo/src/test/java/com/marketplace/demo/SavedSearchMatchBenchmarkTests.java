@@ -0,0 +1,147 @@
+package com.marketplace.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.marketplace.demo.alerts.SavedSearchMatcher;
+
+// Matching new listings against 1M saved searches: the percolator (SavedSearchMatcher) against
+// checking every saved search, on the same synthetic searches and listings.
+//	- 200 categories, 90% of the searches with 1-3 keywords from a 20000 word vocabulary,
+//	  a fifth of those in any category, the others in one. Most with a price ceiling, some with a condition
+//	- listings have a 6 word title and a 20 word description from the same vocabulary, common words more likely
+// The full scan is run on fewer listings, whose matches are compared with the percolator's.
+// Run with: mvn test -Pload-test -Dtest=SavedSearchMatchBenchmarkTests
+@Tag("load")
+class SavedSearchMatchBenchmarkTests {
+
+	private static final int SEARCHES = 1000000;
+	private static final int CATEGORIES = 200;
+	private static final int VOCABULARY = 20000;
+	private static final String[] CONDITIONS = { "New", "Used", "Refurbished" };
+	private static final int LISTINGS = 20000;
+	private static final int SCANNED_LISTINGS = 200;
+
+	private static final class Search {
+		String categoryId;
+		double maxPrice;
+		String condition;
+		String[] terms;
+	}
+
+	private final Random random = new Random(42);
+
+	@Test
+	void percolatorOutrunsAFullScan() {
+		SavedSearchMatcher matcher = new SavedSearchMatcher();
+		List<Search> searches = new ArrayList<>(SEARCHES);
+		long start = System.nanoTime();
+		for (int i = 0; i < SEARCHES; i++) {
+			Search search = new Search();
+			String keywords = random.nextInt(10) < 9 ? keywords(1 + random.nextInt(3)) : null;
+			search.categoryId = keywords != null && random.nextInt(5) == 0 ? null : category();
+			Double maxPrice = random.nextInt(10) < 8 ? Math.exp(random.nextDouble() * Math.log(5000)) : null;
+			search.maxPrice = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+			search.condition = random.nextInt(10) < 3 ? CONDITIONS[random.nextInt(CONDITIONS.length)] : null;
+			search.terms = matcher.analyze(keywords).toArray(new String[0]);
+			matcher.add("s" + i, "u" + (i % 100000), search.categoryId, maxPrice, search.condition, keywords);
+			searches.add(search);
+		}
+		System.out.printf("Indexed %d saved searches in %d ms%n", SEARCHES, (System.nanoTime() - start) / 1000000);
+
+		List<SavedSearchMatcher.Listing> listings = new ArrayList<>(LISTINGS);
+		List<String[]> fields = new ArrayList<>(LISTINGS);
+		for (int i = 0; i < LISTINGS; i++) {
+			String category_id = category();
+			double price = Math.exp(random.nextDouble() * Math.log(5000));
+			String condition = CONDITIONS[random.nextInt(CONDITIONS.length)];
+			listings.add(matcher.listing(category_id, price, condition, words(6), words(20)));
+			fields.add(new String[] { category_id, String.valueOf(price), condition });
+		}
+
+		// Warm up both
+		long matched = 0;
+		for (int i = 0; i < 2000; i++) {
+			matched += matcher.match(listings.get(i)).size();
+		}
+		for (int i = 0; i < 20; i++) {
+			matched += scan(searches, listings.get(i), fields.get(i));
+		}
+
+		start = System.nanoTime();
+		long percolated = 0;
+		for (SavedSearchMatcher.Listing listing : listings) {
+			percolated += matcher.match(listing).size();
+		}
+		double percolatorRate = LISTINGS / ((System.nanoTime() - start) / 1e9);
+
+		start = System.nanoTime();
+		long scanned = 0;
+		for (int i = 0; i < SCANNED_LISTINGS; i++) {
+			scanned += scan(searches, listings.get(i), fields.get(i));
+		}
+		double scanRate = SCANNED_LISTINGS / ((System.nanoTime() - start) / 1e9);
+
+		long percolatedSample = 0;
+		for (int i = 0; i < SCANNED_LISTINGS; i++) {
+			percolatedSample += matcher.match(listings.get(i)).size();
+		}
+		System.out.printf("Listings matched against %d saved searches: percolator %.0f listings/s (%.1f matches each), full scan %.0f listings/s%n",
+				SEARCHES, percolatorRate, percolated / (double) LISTINGS, scanRate);
+		assertThat(percolatedSample).isEqualTo(scanned);
+		assertThat(matched).isPositive();
+		assertThat(percolatorRate).isGreaterThan(scanRate * 10);
+	}
+
+	private long scan(List<Search> searches, SavedSearchMatcher.Listing listing, String[] fields) {
+		double price = Double.parseDouble(fields[1]);
+		long matches = 0;
+		for (Search search : searches) {
+			if ((search.categoryId == null || search.categoryId.equals(fields[0])) && price <= search.maxPrice
+					&& (search.condition == null || search.condition.equalsIgnoreCase(fields[2]))
+					&& containsAll(listing.getTerms(), search.terms)) {
+				matches++;
+			}
+		}
+		return matches;
+	}
+
+	private boolean containsAll(Set<String> terms, String[] keywords) {
+		for (String keyword : keywords) {
+			if (!terms.contains(keyword)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String category() {
+		return "category-" + random.nextInt(CATEGORIES);
+	}
+
+	private String keywords(int count) {
+		StringBuilder words = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			words.append(" word").append(random.nextInt(VOCABULARY));
+		}
+		return words.toString();
+	}
+
+	// Word i is picked about twice as often as word 2i
+	private String words(int count) {
+		StringBuilder words = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			int word = (int) Math.exp(random.nextDouble() * Math.log(VOCABULARY));
+			words.append(" word").append(word);
+		}
+		return words.toString();
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.marketplace.demo;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+// Names the in-memory database of each test context once.
+// ${random.uuid} gives a new value on every lookup, so the JDBC and R2DBC urls
+// couldn't share it and would end up on two different databases.
+public class TestDatabaseEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+	@Override
+	public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+		environment.getPropertySources().addLast(
+				new MapPropertySource("testDatabase", Map.of("test.database-name", UUID.randomUUID().toString())));
+	}
+
+}
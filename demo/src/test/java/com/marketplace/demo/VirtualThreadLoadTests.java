@@ -0,0 +1,127 @@
+package com.marketplace.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// Throughput of platform vs virtual request threads with 5k concurrent connections.
+// Run with: mvn test -Pload-test
+// Each request holds a pooled connection for DB_LATENCY_MS, like a slow query waiting on MySQL,
+// so 200 platform threads cap the server at 200 req/s while virtual threads are only capped by the pool.
+// The pool is made large enough that the request threads, not the connections, are the limit.
+@Tag("load")
+class VirtualThreadLoadTests {
+
+	private static final int CONNECTIONS = 5000;
+	private static final int REQUESTS = 10000;
+	private static final long DB_LATENCY_MS = 1000;
+	// Well above the 200 platform request threads
+	private static final int POOL_SIZE = 1000;
+
+	@RestController
+	static class SlowQueryController {
+
+		@Autowired
+		JdbcTemplate jdbcTemplate;
+
+		@GetMapping("/load-test/slow-query")
+		public Integer slowQuery() {
+			return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+				try {
+					Thread.sleep(DB_LATENCY_MS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery("SELECT 1")) {
+					rs.next();
+					return rs.getInt(1);
+				}
+			});
+		}
+
+	}
+
+	@Test
+	void virtualThreadsServeMoreRequestsParkedOnTheDatabase() throws Exception {
+		double platform = measure(false);
+		double virtual = measure(true);
+		System.out.printf("Throughput at %d connections: platform threads %.0f req/s, virtual threads %.0f req/s (%.1fx)%n",
+				CONNECTIONS, platform, virtual, virtual / platform);
+		assertThat(virtual).isGreaterThan(platform);
+	}
+
+	private double measure(boolean virtualThreads) throws Exception {
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class, SlowQueryController.class)
+				.properties("server.port=0",
+						"spring.threads.virtual.enabled=" + virtualThreads,
+						// Filled on startup, so neither mode waits for connections to be opened
+						"spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+						"spring.datasource.hikari.minimum-idle=" + POOL_SIZE,
+						"server.tomcat.max-connections=" + (CONNECTIONS * 2),
+						"server.tomcat.accept-count=" + CONNECTIONS)
+				.run();
+		try {
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			URI uri = URI.create("http://localhost:" + port + "/load-test/slow-query");
+			HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(30)).build();
+
+			// Warm up JIT, pool and connections
+			run(client, uri, CONNECTIONS);
+
+			long start = System.nanoTime();
+			int ok = run(client, uri, REQUESTS);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			assertThat(ok).isEqualTo(REQUESTS);
+			return REQUESTS / seconds;
+		} finally {
+			context.close();
+		}
+	}
+
+	// Sends the requests keeping CONNECTIONS of them in flight, returns how many got a 200
+	private int run(HttpClient client, URI uri, int requests) throws InterruptedException {
+		Semaphore inFlight = new Semaphore(CONNECTIONS);
+		AtomicInteger ok = new AtomicInteger();
+		AtomicReference<String> firstError = new AtomicReference<>();
+		List<CompletableFuture<?>> futures = new ArrayList<>(requests);
+		HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).build();
+		for (int i = 0; i < requests; i++) {
+			inFlight.acquire();
+			futures.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+					.whenComplete((response, error) -> {
+						inFlight.release();
+						if (error == null && response.statusCode() == 200) {
+							ok.incrementAndGet();
+						} else if (firstError.compareAndSet(null, error != null ? error.toString() : "status " + response.statusCode())) {
+							System.out.println("First failed request: " + firstError.get());
+						}
+					}));
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+		return ok.get();
+	}
+
+}
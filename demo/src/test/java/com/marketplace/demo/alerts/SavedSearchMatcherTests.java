@@ -0,0 +1,54 @@
+package com.marketplace.demo.alerts;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+// Every criterion of a saved search, and the price buckets at their edges
+class SavedSearchMatcherTests {
+
+	private List<String> matched(SavedSearchMatcher matcher, String category_id, double price, String condition, String title) {
+		return matcher.match(matcher.listing(category_id, price, condition, title, null)).stream()
+				.map(SavedSearchMatcher.Match::getSearchId).sorted().collect(Collectors.toList());
+	}
+
+	@Test
+	void listingsMatchEveryCriterionOfASearch() {
+		SavedSearchMatcher matcher = new SavedSearchMatcher();
+		matcher.add("cheap-lamps", "u1", "lighting", 20.0, null, "lamp");
+		matcher.add("any-lamp", "u2", null, null, null, "LAMP!");
+		matcher.add("new-brass-lamps", "u3", "lighting", null, "New", "brass lamp");
+		matcher.add("lighting-under-1", "u4", "lighting", 0.5, null, null);
+		matcher.add("used", "u5", null, null, "Used", null);
+
+		assertThat(matched(matcher, "lighting", 20, "Used", "Old desk lamp")).containsExactly("any-lamp", "cheap-lamps", "used");
+		assertThat(matched(matcher, "lighting", 20.01, "new", "Brass lamp")).containsExactly("any-lamp", "new-brass-lamps");
+		assertThat(matched(matcher, "garden", 5, "New", "Garden lamp")).containsExactly("any-lamp");
+		assertThat(matched(matcher, "lighting", 0.5, "New", "Bulb")).containsExactly("lighting-under-1");
+		assertThat(matched(matcher, "lighting", 0, null, "")).containsExactly("lighting-under-1");
+		assertThat(matched(matcher, "lighting", 1e12, "Used", "lamp")).containsExactly("any-lamp", "used");
+
+		matcher.remove("any-lamp");
+		matcher.add("used", "u5", null, null, "Refurbished", null);
+		assertThat(matched(matcher, "lighting", 20, "Used", "Old desk lamp")).containsExactly("cheap-lamps");
+		assertThat(matcher.size()).isEqualTo(4);
+	}
+
+	@Test
+	void removalKeepsTheOtherSearchesOfABucket() {
+		SavedSearchMatcher matcher = new SavedSearchMatcher();
+		for (int i = 0; i < 100; i++) {
+			matcher.add("s" + i, "u", "books", 100.0 + i, null, null);
+		}
+		for (int i = 0; i < 100; i += 2) {
+			matcher.remove("s" + i);
+		}
+		// Ceilings 100..199 share the bucket [64, 128) and [128, 256)
+		assertThat(matched(matcher, "books", 150, null, "")).hasSize(25);
+		assertThat(matched(matcher, "books", 100, null, "")).hasSize(50);
+	}
+
+}
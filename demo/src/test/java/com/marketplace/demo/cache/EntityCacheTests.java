@@ -0,0 +1,169 @@
+package com.marketplace.demo.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.Review;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.repositories.CategoryRepository;
+import com.marketplace.demo.repositories.ItemRepository;
+import com.marketplace.demo.repositories.ReviewRepository;
+import com.marketplace.demo.repositories.UserRepository;
+import com.marketplace.demo.services.FavoriteCounterService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// The entity cache through the API: every entity is read once to put it in the cache,
+// read again to see it served from there, then changed or deleted. The next read must not be stale.
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EntityCacheTests {
+
+	@Autowired
+	MockMvc mvc;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	@Autowired
+	FavoriteCounterService favoriteCounterService;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	CategoryRepository categoryRepository;
+	@Autowired
+	ItemRepository itemRepository;
+	@Autowired
+	ReviewRepository reviewRepository;
+
+	private Statistics statistics;
+	private User seller;
+	private Category category;
+
+	@BeforeAll
+	void seed() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		seller = userRepository.save(new User("cache-seller", "Seller", "cache-seller@example.com", "pw", "", "Greece", "Rhodes", "6900000401"));
+		category = categoryRepository.save(new Category("Cached"));
+	}
+
+	@Test
+	void anUpdatedItemIsReadAgain() throws Exception {
+		Item item = itemRepository.save(new Item("Kettle", category, seller, 15, "Steel", "Used", false));
+		assertThat(readCached("/items/" + item.getId()).path("title").asText()).isEqualTo("Kettle");
+
+		send(put("/items/" + item.getId()), "{\"title\":\"Copper kettle\",\"price\":25}");
+		JsonNode updated = read("/items/" + item.getId());
+		assertThat(updated.path("title").asText()).isEqualTo("Copper kettle");
+		assertThat(updated.path("price").asDouble()).isEqualTo(25);
+	}
+
+	@Test
+	void aDeletedItemIsGone() throws Exception {
+		Item item = itemRepository.save(new Item("Toaster", category, seller, 12, "Two slots", "Used", false));
+		readCached("/items/" + item.getId());
+
+		mvc.perform(delete("/items/" + item.getId())).andExpect(status().isOk());
+		mvc.perform(get("/items/" + item.getId())).andExpect(status().isNotFound());
+	}
+
+	// The favorite count is written with plain JDBC, the flush evicts the items it changed
+	@Test
+	void aFlushedFavoriteCountIsReadAgain() throws Exception {
+		Item item = itemRepository.save(new Item("Teapot", category, seller, 18, "Porcelain", "New", false));
+		User buyer = user("cache-buyer");
+		assertThat(readCached("/items/" + item.getId()).path("favoriteCount").asLong()).isZero();
+
+		mvc.perform(post("/users/" + buyer.getId() + "/favoriteItems/").param("item_id", item.getId())).andExpect(status().isOk());
+		favoriteCounterService.flush();
+		assertThat(read("/items/" + item.getId()).path("favoriteCount").asLong()).isEqualTo(1);
+	}
+
+	@Test
+	void anUpdatedUserIsReadAgainAndADeletedOneIsGone() throws Exception {
+		User user = user("cache-mover");
+		assertThat(readCached("/users/" + user.getId()).path("city").asText()).isEqualTo("Rhodes");
+
+		send(put("/users/" + user.getId()), "{\"city\":\"Kos\"}");
+		assertThat(read("/users/" + user.getId()).path("city").asText()).isEqualTo("Kos");
+
+		readCached("/users/" + user.getId());
+		mvc.perform(delete("/users/" + user.getId())).andExpect(status().isOk());
+		mvc.perform(get("/users/" + user.getId())).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void anUpdatedReviewIsReadAgainAndADeletedOneIsGone() throws Exception {
+		Review review = reviewRepository.save(new Review(user("cache-reviewer"), seller, 4, "Fine", LocalDate.now()));
+		assertThat(readCached("/reviews/" + review.getId()).path("rating").asInt()).isEqualTo(4);
+
+		send(put("/reviews/" + review.getId()), "{\"rating\":2,\"comment\":\"Broke\"}");
+		JsonNode updated = read("/reviews/" + review.getId());
+		assertThat(updated.path("rating").asInt()).isEqualTo(2);
+		assertThat(updated.path("comment").asText()).isEqualTo("Broke");
+
+		readCached("/reviews/" + review.getId());
+		mvc.perform(delete("/reviews/" + review.getId())).andExpect(status().isOk());
+		mvc.perform(get("/reviews/" + review.getId())).andExpect(status().isNotFound());
+	}
+
+	// The category list comes from the query cache, a new category invalidates it
+	@Test
+	void theCategoryListFollowsNewCategories() throws Exception {
+		read("/categories/");
+		long hits = statistics.getQueryCacheHitCount();
+		read("/categories/");
+		assertThat(statistics.getQueryCacheHitCount()).isGreaterThan(hits);
+
+		Category added = categoryRepository.save(new Category("Cached later"));
+		JsonNode categories = read("/categories/");
+		assertThat(categories.findValuesAsText("id")).contains(added.getId());
+	}
+
+	private User user(String username) {
+		return userRepository.save(new User(username, username, username + "@example.com", "pw", "", "Greece", "Rhodes", "6900000402"));
+	}
+
+	// Reads twice, the second read must come from the entity cache
+	private JsonNode readCached(String url) throws Exception {
+		read(url);
+		long hits = statistics.getSecondLevelCacheHitCount();
+		JsonNode body = read(url);
+		assertThat(statistics.getSecondLevelCacheHitCount()).as("cache hits reading %s", url).isGreaterThan(hits);
+		return body;
+	}
+
+	private JsonNode read(String url) throws Exception {
+		return objectMapper.readTree(mvc.perform(get(url))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+	}
+
+	private void send(MockHttpServletRequestBuilder request, String json) throws Exception {
+		mvc.perform(request.contentType(MediaType.APPLICATION_JSON).content(json)).andExpect(status().isOk());
+	}
+
+}
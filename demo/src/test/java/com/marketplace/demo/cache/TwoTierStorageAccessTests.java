@@ -0,0 +1,64 @@
+package com.marketplace.demo.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.marketplace.demo.models.dto.CacheRegionStats;
+
+// One region with the local second tier, without Hibernate.
+// release() empties the first tier only, like a restart of the instance: what is read afterwards comes from the second.
+class TwoTierStorageAccessTests {
+
+	private final TwoTierStorageAccess region = new TwoTierStorageAccess("items", 100, Duration.ofMinutes(10), new LocalSecondTierCache());
+
+	@Test
+	void aFirstTierMissIsServedFromTheSecondAndPromoted() {
+		region.putIntoCache("a", "Kettle", null);
+		region.release();
+
+		assertThat(region.getFromCache("a", null)).isEqualTo("Kettle");
+		assertThat(region.getFromCache("a", null)).isEqualTo("Kettle");
+		CacheRegionStats stats = region.getStats();
+		assertThat(stats.getSecond_tier_hits()).isEqualTo(1);
+		assertThat(stats.getSize()).isEqualTo(1);
+	}
+
+	@Test
+	void anEvictedEntryIsGoneFromBothTiers() {
+		region.putIntoCache("a", "Kettle", null);
+		region.putIntoCache("b", "Toaster", null);
+
+		region.evictData("a");
+		assertThat(region.getFromCache("a", null)).isNull();
+		region.release();
+		assertThat(region.getFromCache("a", null)).isNull();
+		assertThat(region.contains("a")).isFalse();
+		assertThat(region.getFromCache("b", null)).isEqualTo("Toaster");
+	}
+
+	@Test
+	void evictingTheRegionEmptiesBothTiers() {
+		region.putIntoCache("a", "Kettle", null);
+		region.putIntoCache("b", "Toaster", null);
+
+		region.evictData();
+		assertThat(region.contains("a")).isFalse();
+		assertThat(region.contains("b")).isFalse();
+		assertThat(region.getFromCache("b", null)).isNull();
+		assertThat(region.getStats().getSecond_tier_misses()).isEqualTo(1);
+	}
+
+	// A value the second tier can't hold is still cached in the first
+	@Test
+	void unserializableValuesStayInTheFirstTier() {
+		Object value = new Object();
+		region.putIntoCache("a", value, null);
+		assertThat(region.getFromCache("a", null)).isSameAs(value);
+		region.release();
+		assertThat(region.getFromCache("a", null)).isNull();
+	}
+
+}
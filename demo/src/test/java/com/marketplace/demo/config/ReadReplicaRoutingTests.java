@@ -0,0 +1,142 @@
+package com.marketplace.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.models.ids.BinaryUuids;
+import com.marketplace.demo.repositories.UserRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.Cookie;
+
+// Two in-memory databases stand in for the primary and a replica. Nothing replicates between them:
+// the test copies a user to the replica under another username, to see which one a read came from,
+// and sets the replica's heartbeat row to make it current or behind.
+// The heartbeat job is slowed down, the tests call it once the replica row is set.
+@SpringBootTest(properties = {
+		"datasource.replicas.urls[0]=jdbc:h2:mem:${test.database-name}-replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;INIT=CREATE ALIAS IF NOT EXISTS BIN_TO_UUID FOR 'com.marketplace.demo.H2MySqlFunctions.binToUuid'",
+		"datasource.replicas.username=sa", "datasource.replicas.password=",
+		"datasource.replicas.max-lag-ms=2000", "datasource.replicas.heartbeat-interval-ms=600000" })
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReadReplicaRoutingTests {
+
+	@Autowired
+	MockMvc mvc;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	@Autowired
+	ReplicaRoutingDataSource routingDataSource;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	UserRepository userRepository;
+
+	@Value("${datasource.replicas.urls[0]}")
+	String replicaUrl;
+
+	private JdbcTemplate replica;
+	private String instanceId;
+
+	@BeforeAll
+	void setUpReplica() {
+		Flyway.configure().dataSource(replicaUrl, "sa", "").load().migrate();
+		replica = new JdbcTemplate(new DriverManagerDataSource(replicaUrl, "sa", ""));
+		routingDataSource.heartbeat();
+		instanceId = jdbcTemplate.queryForObject("SELECT instance_id FROM replica_heartbeat", String.class);
+	}
+
+	@Test
+	void readsGoToACurrentReplica() throws Exception {
+		User user = userRepository.save(new User("current", "Current", "current@example.com", null, "", "Greece", "Patra", "6900000001"));
+		copyToReplica(user.getId(), "current-on-replica");
+		replicaAt(System.currentTimeMillis());
+
+		assertThat(username(user.getId())).isEqualTo("current-on-replica");
+	}
+
+	@Test
+	void aLaggingReplicaIsSkippedAndItsRowsAreNotCached() throws Exception {
+		User user = userRepository.save(new User("lagging", "Lagging", "lagging@example.com", null, "", "Greece", "Patra", "6900000002"));
+		copyToReplica(user.getId(), "lagging-on-replica");
+		replicaAt(System.currentTimeMillis());
+		assertThat(username(user.getId())).isEqualTo("lagging-on-replica");
+
+		// Further behind than max-lag-ms. Had the replica's row been put in the entity cache, it would still be served
+		replicaAt(System.currentTimeMillis() - 10000);
+		assertThat(usernameCached(user.getId())).isEqualTo("lagging");
+	}
+
+	// Clients are told apart by the cookie their first write gets, not by address: both come from 127.0.0.1
+	@Test
+	void clientsReadTheirOwnWritesUntilTheReplicaHasThem() throws Exception {
+		long beforeWrite = System.currentTimeMillis() - 1;
+		MockHttpServletResponse response = mvc.perform(post("/users/").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"writer\",\"full_name\":\"Writer\",\"email\":\"writer@example.com\",\"password\":\"s3cret\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse();
+		String user_id = objectMapper.readTree(response.getContentAsString()).path("id").asText();
+		Cookie writer = response.getCookie(ReplicaRoutingDataSource.CLIENT_COOKIE);
+		assertThat(writer).isNotNull();
+		copyToReplica(user_id, "writer-on-replica");
+
+		// Current, but from before the write
+		replicaAt(beforeWrite);
+		assertThat(username(user_id, writer)).isEqualTo("writer");
+		assertThat(username(user_id)).isEqualTo("writer-on-replica");
+		assertThat(username(user_id, new Cookie(ReplicaRoutingDataSource.CLIENT_COOKIE, "another-client"))).isEqualTo("writer-on-replica");
+
+		Thread.sleep(5);
+		replicaAt(System.currentTimeMillis());
+		assertThat(username(user_id, writer)).isEqualTo("writer-on-replica");
+	}
+
+	// Read with an empty entity cache, saving the user put it there
+	private String username(String user_id, Cookie... cookies) throws Exception {
+		entityManagerFactory.getCache().evictAll();
+		return usernameCached(user_id, cookies);
+	}
+
+	private String usernameCached(String user_id, Cookie... cookies) throws Exception {
+		MockHttpServletRequestBuilder request = get("/users/" + user_id);
+		if (cookies.length > 0) {
+			request.cookie(cookies);
+		}
+		String body = mvc.perform(request)
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body).path("username").asText();
+	}
+
+	private void copyToReplica(String user_id, String username) {
+		replica.update("INSERT INTO users (id, username, full_name) VALUES (?, ?, ?)", BinaryUuids.toBytes(user_id), username, username);
+	}
+
+	private void replicaAt(long beat_at) {
+		replica.update("INSERT INTO replica_heartbeat (instance_id, beat_at) VALUES (?, ?) ON DUPLICATE KEY UPDATE beat_at = VALUES(beat_at)",
+				instanceId, beat_at);
+		routingDataSource.heartbeat();
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.marketplace.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// The migrated schema passes, a schema missing one of the query path indexes doesn't.
+// Own context, the test drops an index
+@SpringBootTest(properties = "schema.validate-indexes=true")
+class SchemaIndexValidatorTests {
+
+	@Autowired
+	SchemaIndexValidator schemaIndexValidator;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Test
+	void refusesSchemaWithoutQueryPathIndexes() {
+		assertThatCode(() -> schemaIndexValidator.afterSingletonsInstantiated()).doesNotThrowAnyException();
+
+		jdbcTemplate.execute("DROP INDEX idx_items_category_price");
+		try {
+			assertThatThrownBy(() -> schemaIndexValidator.afterSingletonsInstantiated())
+					.isInstanceOf(IllegalStateException.class)
+					.hasMessageContaining("items (category_id, price)");
+		} finally {
+			jdbcTemplate.execute("CREATE INDEX idx_items_category_price ON items (category_id, price)");
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.marketplace.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.repositories.UserRepository;
+import com.marketplace.demo.services.ItemTextIndexService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Login against hashed passwords, the upgrade of plain text ones, and the unknown username cache
+@SpringBootTest
+@AutoConfigureMockMvc
+class AuthLoginTests {
+
+	@Autowired
+	MockMvc mvc;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	@Autowired
+	ItemTextIndexService itemTextIndexService;
+
+	private ResultActions login(String username, String password) throws Exception {
+		return mvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"));
+	}
+
+	@Test
+	void passwordsAreStoredHashed() throws Exception {
+		mvc.perform(post("/users/").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"login-hashed\",\"full_name\":\"Hashed\",\"email\":\"login-hashed@example.com\",\"password\":\"s3cret\"}"))
+				.andExpect(status().isOk());
+
+		assertThat(userRepository.findByUsername("login-hashed").get().getPassword()).startsWith("$2").doesNotContain("s3cret");
+		login("login-hashed", "s3cret").andExpect(status().isOk()).andExpect(jsonPath("$.user.username").value("login-hashed"));
+		login("login-hashed", "wrong").andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void plainTextPasswordIsRehashedOnLogin() throws Exception {
+		userRepository.save(new User("login-legacy", "Legacy", "login-legacy@example.com", "old-plain", "", "Greece", "Patra", "6977777777"));
+
+		login("login-legacy", "old-plain").andExpect(status().isOk());
+
+		assertThat(userRepository.findByUsername("login-legacy").get().getPassword()).startsWith("$2");
+		login("login-legacy", "old-plain").andExpect(status().isOk());
+	}
+
+	@Test
+	void unknownUsernamesAreLookedUpOnce() throws Exception {
+		awaitIndexRebuild();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		login("login-nobody", "guess1").andExpect(status().isBadRequest());
+		statistics.clear();
+		for (int i = 0; i < 20; i++) {
+			login("login-nobody", "guess" + i).andExpect(status().isBadRequest());
+		}
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+	}
+
+	// The index rebuild pages through the items in the background after startup
+	private void awaitIndexRebuild() throws InterruptedException {
+		while (itemTextIndexService.isRebuilding()) {
+			Thread.sleep(10);
+		}
+	}
+
+}
@@ -0,0 +1,394 @@
+package com.marketplace.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.Image;
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.repositories.CategoryRepository;
+import com.marketplace.demo.repositories.ImageRepository;
+import com.marketplace.demo.repositories.ItemRepository;
+import com.marketplace.demo.repositories.UserRepository;
+import com.marketplace.demo.services.FileReclaimerService;
+import com.marketplace.demo.services.ImageStorageService;
+
+// Image uploads and downloads through the API: content-addressed blobs and their references,
+// conditional and range requests, resized variants.
+// Every test uploads pixels of its own (random), so the blobs of other tests and earlier runs don't count.
+// Released files are deleted by calling the reclaimer instead of waiting for its schedule.
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ImageTests {
+
+	@Autowired
+	MockMvc mvc;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	FileReclaimerService fileReclaimerService;
+	@Autowired
+	ImageStorageService imageStorageService;
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	CategoryRepository categoryRepository;
+	@Autowired
+	ItemRepository itemRepository;
+	@Autowired
+	ImageRepository imageRepository;
+
+	@Value("${images.upload-dir}")
+	String uploadDir;
+
+	private final Random random = new Random();
+	private Item lamp;
+	private Item chair;
+
+	@BeforeAll
+	void seed() {
+		User seller = userRepository.save(new User("image-seller", "Seller", "image-seller@example.com", "pw", "", "Greece", "Chania", "6900000301"));
+		Category category = categoryRepository.save(new Category("Images"));
+		lamp = itemRepository.save(new Item("Lamp", category, seller, 20, "Desk lamp", "Used", false));
+		chair = itemRepository.save(new Item("Chair", category, seller, 40, "Office chair", "Used", false));
+	}
+
+	@Test
+	void sameBytesAreStoredOnceAndDeletedWithTheLastReference() throws Exception {
+		byte[] png = png(4, 4);
+		String hash = sha256(png);
+		Path file = blobFile(hash);
+
+		String onLamp = upload(lamp, png, "image/png");
+		String onChair = upload(chair, png, "image/png");
+		assertThat(onChair).isNotEqualTo(onLamp);
+		assertThat(refCount(hash)).isEqualTo(2);
+		assertThat(file).exists();
+
+		removeImage(lamp, onLamp);
+		fileReclaimerService.reclaim();
+		assertThat(refCount(hash)).isEqualTo(1);
+		assertThat(file).exists();
+		assertThat(content(onChair)).isEqualTo(png);
+
+		removeImage(chair, onChair);
+		fileReclaimerService.reclaim();
+		assertThat(refCount(hash)).isNull();
+		assertThat(file).doesNotExist();
+	}
+
+	// The last reference is released, and the same bytes uploaded before the file is deleted:
+	// the queued delete must leave the file of the new blob row alone
+	@Test
+	void aReuploadBeforeTheReclaimKeepsTheFile() throws Exception {
+		byte[] png = png(4, 4);
+		String hash = sha256(png);
+
+		removeImage(lamp, upload(lamp, png, "image/png"));
+		String again = upload(chair, png, "image/png");
+		fileReclaimerService.reclaim();
+
+		assertThat(refCount(hash)).isEqualTo(1);
+		assertThat(blobFile(hash)).exists();
+		assertThat(content(again)).isEqualTo(png);
+	}
+
+	// Same, but the reclaim runs while the upload is still in its transaction: the reclaimer waits for it to commit
+	// instead of deleting the file under a blob row it can't see yet
+	@Test
+	void aReuploadInFlightKeepsTheFile() throws Exception {
+		byte[] png = png(4, 4);
+		String hash = sha256(png);
+		removeImage(lamp, upload(lamp, png, "image/png"));
+
+		CountDownLatch stored = new CountDownLatch(1);
+		CountDownLatch commit = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> reupload = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+				try {
+					imageStorageService.store(new MockMultipartFile("image_file", "upload", "image/png", png));
+					stored.countDown();
+					commit.await();
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}));
+			assertThat(stored.await(10, TimeUnit.SECONDS)).isTrue();
+
+			Future<?> reclaim = executor.submit(() -> fileReclaimerService.reclaim());
+			Thread.sleep(200);
+			assertThat(reclaim.isDone()).isFalse();
+
+			commit.countDown();
+			reupload.get(10, TimeUnit.SECONDS);
+			reclaim.get(10, TimeUnit.SECONDS);
+		} finally {
+			commit.countDown();
+			executor.shutdown();
+		}
+
+		assertThat(refCount(hash)).isEqualTo(1);
+		assertThat(blobFile(hash)).exists();
+	}
+
+	// The type sent by the client is ignored, the bytes decide
+	@Test
+	void theContentTypeComesFromTheBytes() throws Exception {
+		byte[] png = png(4, 4);
+		String image = upload(lamp, png, "text/html");
+		assertThat(jdbcTemplate.queryForObject("SELECT content_type FROM image_blobs WHERE hash = ?", String.class, sha256(png)))
+				.isEqualTo("image/png");
+		mvc.perform(get("/images/" + image))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "image/png"));
+
+		byte[] html = "<html><script>alert(1)</script></html>".getBytes(StandardCharsets.UTF_8);
+		uploadRequest(lamp, html, "image/png").andExpect(status().isUnsupportedMediaType());
+		assertThat(refCount(sha256(html))).isNull();
+	}
+
+	@Test
+	void conditionalRequestsUseTheContentHash() throws Exception {
+		byte[] png = png(4, 4);
+		String image = upload(lamp, png, "image/png");
+		String etag = "\"" + sha256(png) + "\"";
+
+		mvc.perform(get("/images/" + image))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", etag))
+				.andExpect(header().exists("Last-Modified"));
+		assertThat(mvc.perform(get("/images/" + image).header("If-None-Match", etag))
+				.andExpect(status().isNotModified())
+				.andReturn().getResponse().getContentAsByteArray()).isEmpty();
+		mvc.perform(get("/images/" + image).header("If-None-Match", "\"something-else\""))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void singleByteRangesArePartial() throws Exception {
+		byte[] png = png(8, 8);
+		String image = upload(lamp, png, "image/png");
+		String etag = "\"" + sha256(png) + "\"";
+		int size = png.length;
+
+		assertThat(range(image, "bytes=0-3", null)
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string("Content-Range", "bytes 0-3/" + size))
+				.andReturn().getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(png, 0, 4));
+		assertThat(range(image, "bytes=-5", null)
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string("Content-Range", "bytes " + (size - 5) + "-" + (size - 1) + "/" + size))
+				.andReturn().getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(png, size - 5, size));
+		// Past the end
+		range(image, "bytes=" + size + "-", null)
+				.andExpect(status().isRequestedRangeNotSatisfiable())
+				.andExpect(header().string("Content-Range", "bytes */" + size));
+
+		// If-Range: the range only while the client's copy is current, the whole file otherwise
+		range(image, "bytes=0-3", etag).andExpect(status().isPartialContent());
+		assertThat(range(image, "bytes=0-3", "\"stale\"")
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsByteArray()).isEqualTo(png);
+		// Several ranges, or one that doesn't parse, get the whole file too
+		range(image, "bytes=0-1,4-5", null).andExpect(status().isOk());
+		range(image, "bytes=oops", null).andExpect(status().isOk());
+	}
+
+	// No blob and no hash, the ETag is made from the image's own file
+	@Test
+	void imagesStoredBeforeHashingHaveAnETag() throws Exception {
+		byte[] png = png(4, 4);
+		Path file = Paths.get(System.getProperty("user.dir"), uploadDir, "legacy", UUID.randomUUID() + ".png");
+		Files.createDirectories(file.getParent());
+		Files.write(file, png);
+		String image = imageRepository.save(new Image(lamp, file.toString())).getId();
+
+		String etag = mvc.perform(get("/images/" + image))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "image/png"))
+				.andReturn().getResponse().getHeader("ETag");
+		assertThat(etag).startsWith("\"" + image);
+		mvc.perform(get("/images/" + image).header("If-None-Match", etag)).andExpect(status().isNotModified());
+		range(image, "bytes=0-3", etag).andExpect(status().isPartialContent());
+		assertThat(mvc.perform(get("/images/" + image)).andReturn().getResponse().getHeader("ETag")).isEqualTo(etag);
+	}
+
+	// Generated in the background after the upload commits, the test waits for their rows
+	@Test
+	void variantsAreGeneratedServedAndDeletedWithTheBlob() throws Exception {
+		byte[] wide = png(2000, 1000);
+		String hash = sha256(wide);
+		String image = upload(lamp, wide, "image/png");
+		awaitVariants(hash, 3);
+
+		assertThat(variant(image, "thumbnail", hash)).isEqualTo(new int[] { 160, 80 });
+		assertThat(variant(image, "card", hash)).isEqualTo(new int[] { 480, 240 });
+		assertThat(variant(image, "full", hash)).isEqualTo(new int[] { 1600, 800 });
+		mvc.perform(get("/images/" + image).param("size", "huge")).andExpect(status().isBadRequest());
+
+		List<String> files = jdbcTemplate.queryForList("SELECT path FROM image_variants WHERE blob_hash = ?", String.class, hash);
+		removeImage(lamp, image);
+		fileReclaimerService.reclaim();
+		assertThat(variantCount(hash)).isZero();
+		for (String file : files) {
+			assertThat(Paths.get(System.getProperty("user.dir"), uploadDir, file)).doesNotExist();
+		}
+	}
+
+	// Smaller than a variant: kept at its own size, not scaled up
+	@Test
+	void smallImagesAreNotScaledUp() throws Exception {
+		byte[] small = png(100, 60);
+		String hash = sha256(small);
+		String image = upload(chair, small, "image/png");
+		awaitVariants(hash, 3);
+
+		assertThat(variant(image, "thumbnail", hash)).isEqualTo(new int[] { 100, 60 });
+		assertThat(variant(image, "full", hash)).isEqualTo(new int[] { 100, 60 });
+	}
+
+	// Returns the id of the new image
+	private String upload(Item item, byte[] bytes, String contentType) throws Exception {
+		Set<String> before = imageIds(item);
+		uploadRequest(item, bytes, contentType).andExpect(status().isOk());
+		Set<String> after = imageIds(item);
+		after.removeAll(before);
+		assertThat(after).hasSize(1);
+		return after.iterator().next();
+	}
+
+	private ResultActions uploadRequest(Item item, byte[] bytes, String contentType) throws Exception {
+		return mvc.perform(multipart("/items/" + item.getId() + "/images")
+				.file(new MockMultipartFile("image_file", "upload", contentType, bytes)));
+	}
+
+	private Set<String> imageIds(Item item) throws Exception {
+		String body = mvc.perform(get("/items/" + item.getId()))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		Set<String> ids = new HashSet<String>();
+		objectMapper.readTree(body).path("images").forEach(image -> ids.add(image.path("id").asText()));
+		return ids;
+	}
+
+	private void removeImage(Item item, String image_id) throws Exception {
+		mvc.perform(delete("/items/" + item.getId() + "/images/" + image_id)).andExpect(status().isOk());
+	}
+
+	private ResultActions range(String image_id, String range, String ifRange) throws Exception {
+		MockHttpServletRequestBuilder request = get("/images/" + image_id).header("Range", range);
+		if (ifRange != null) {
+			request.header("If-Range", ifRange);
+		}
+		return mvc.perform(request);
+	}
+
+	// Width and height of the served variant
+	private int[] variant(String image_id, String size, String hash) throws Exception {
+		MockHttpServletResponse response = mvc.perform(get("/images/" + image_id).param("size", size))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "image/jpeg"))
+				.andExpect(header().string("ETag", "\"" + hash + "_" + size + "\""))
+				.andReturn().getResponse();
+		assertThat(response.getHeader("Cache-Control")).contains("immutable");
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(response.getContentAsByteArray()));
+		return new int[] { image.getWidth(), image.getHeight() };
+	}
+
+	private void awaitVariants(String hash, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 30000;
+		while (variantCount(hash) < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertThat(variantCount(hash)).isEqualTo(count);
+	}
+
+	private int variantCount(String hash) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM image_variants WHERE blob_hash = ?", Integer.class, hash);
+	}
+
+	private byte[] content(String image_id) throws Exception {
+		return mvc.perform(get("/images/" + image_id))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsByteArray();
+	}
+
+	private Long refCount(String hash) {
+		List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT ref_count FROM image_blobs WHERE hash = ?", hash);
+		return rows.isEmpty() ? null : ((Number) rows.get(0).get("ref_count")).longValue();
+	}
+
+	private Path blobFile(String hash) {
+		return Paths.get(System.getProperty("user.dir"), uploadDir, hash.substring(0, 2), hash.substring(2, 4), hash);
+	}
+
+	// Random pixels, so no other upload has the same bytes
+	private byte[] png(int width, int height) throws Exception {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				image.setRGB(x, y, random.nextInt(0x1000000));
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+
+	private String sha256(byte[] bytes) throws Exception {
+		return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.marketplace.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.repositories.CategoryRepository;
+import com.marketplace.demo.repositories.ItemRepository;
+import com.marketplace.demo.repositories.UserRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Bulk import through /items/import: per-row errors, and batched inserts
+// instead of a round trip (and lookups) per item.
+// The database is shared with the other tests, counts are taken against the ones before the import
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ItemImportTests {
+
+	private static final int ROWS = 2500;
+
+	@Autowired
+	MockMvc mvc;
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	CategoryRepository categoryRepository;
+	@Autowired
+	ItemRepository itemRepository;
+
+	private Statistics statistics;
+	private Category category;
+	private User seller;
+
+	@BeforeAll
+	void seed() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		category = categoryRepository.save(new Category("Imported"));
+		seller = userRepository.save(new User("importer", "Importer", "importer@example.com", "pw", "", "Greece", "Patra", "6955555555"));
+	}
+
+	@Test
+	void csvImportBatchesInsertsAndReportsBadRows() throws Exception {
+		StringBuilder csv = new StringBuilder("title,category_id,seller_id,price,description,itemCondition,sold\n");
+		for (int i = 1; i <= ROWS; i++) {
+			String category_id = i == 7 ? "missing" : category.getId();
+			String price = i == 8 ? "not a number" : String.valueOf(i);
+			csv.append("\"Consignment lot, number ").append(i).append("\",").append(category_id).append(',').append(seller.getId())
+					.append(',').append(price).append(",Imported consignment,Used,false\n");
+		}
+		long itemsBefore = itemRepository.count();
+
+		statistics.clear();
+		mvc.perform(post("/items/import").contentType("text/csv").content(csv.toString()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.imported").value(ROWS - 2))
+				.andExpect(jsonPath("$.failed").value(2))
+				.andExpect(jsonPath("$.errors[0].row").value(7))
+				.andExpect(jsonPath("$.errors[0].message").value("Category not Found"))
+				.andExpect(jsonPath("$.errors[1].row").value(8));
+
+		// A batch of lookups for unseen ids and JDBC batches of inserts per items.import.batch-size rows
+		assertThat(statistics.getPrepareStatementCount()).isLessThan(ROWS / 20);
+		assertThat(itemRepository.count()).isEqualTo(itemsBefore + ROWS - 2);
+	}
+
+	@Test
+	void jsonImportReportsMissingFieldsAndStopsOnMalformedInput() throws Exception {
+		String json = "["
+				+ "{\"title\":\"first\",\"category_id\":\"" + category.getId() + "\",\"seller_id\":\"" + seller.getId() + "\",\"price\":5},"
+				+ "{\"title\":\"no seller\",\"category_id\":\"" + category.getId() + "\",\"price\":5},"
+				+ "{\"title\":\"no price\",\"category_id\":\"" + category.getId() + "\",\"seller_id\":\"" + seller.getId() + "\"},"
+				+ "{\"title\":\"broken\", ";
+
+		mvc.perform(post("/items/import").contentType(MediaType.APPLICATION_JSON).content(json))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.imported").value(1))
+				.andExpect(jsonPath("$.failed").value(3))
+				.andExpect(jsonPath("$.errors[0].message").value("Seller id is required for an item"))
+				.andExpect(jsonPath("$.errors[1].message").value("Price is required for an item"))
+				.andExpect(jsonPath("$.errors[2].row").value(4));
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.marketplace.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.repositories.CategoryRepository;
+import com.marketplace.demo.repositories.ItemRepository;
+import com.marketplace.demo.repositories.UserRepository;
+
+// /items/browse filter combinations and their facets. Every item of the test is in its own country,
+// every request filters on it, so items of other tests sharing the database don't count.
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ItemSearchTests {
+
+	private static final String COUNTRY = "Searchland";
+
+	@Autowired
+	MockMvc mvc;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	CategoryRepository categoryRepository;
+	@Autowired
+	ItemRepository itemRepository;
+
+	private Category bikes;
+	private Category tools;
+	private Item cheapBike;
+	private Item usedBike;
+	private Item soldTool;
+	private Item newTool;
+	private Item dearBike;
+
+	@BeforeAll
+	void seed() {
+		User alpha = userRepository.save(new User("search-seller-alpha", "Alpha", "alpha@example.com", "pw", "", COUNTRY, "Alpha", "6900000101"));
+		User beta = userRepository.save(new User("search-seller-beta", "Beta", "beta@example.com", "pw", "", COUNTRY, "Beta", "6900000102"));
+		bikes = categoryRepository.save(new Category("Search bikes"));
+		tools = categoryRepository.save(new Category("Search tools"));
+		cheapBike = itemRepository.save(new Item("Kids bike", bikes, alpha, 10, "Small", "New", false));
+		usedBike = itemRepository.save(new Item("City bike", bikes, beta, 50, "Some rust", "Used", false));
+		soldTool = itemRepository.save(new Item("Drill", tools, alpha, 30, "Cordless", "Used", true));
+		newTool = itemRepository.save(new Item("Saw", tools, beta, 80, "Boxed", "New", false));
+		dearBike = itemRepository.save(new Item("Road bike", bikes, alpha, 120, "Carbon", "Used", false));
+	}
+
+	@Test
+	void noFilterButTheCountry() throws Exception {
+		JsonNode result = browse("");
+		assertThat(ids(result)).containsExactly(cheapBike.getId(), usedBike.getId(), soldTool.getId(), newTool.getId(), dearBike.getId());
+		assertThat(facets(result, "category_facets")).isEqualTo(Map.of(bikes.getId(), 3L, tools.getId(), 2L));
+		assertThat(facets(result, "condition_facets")).isEqualTo(Map.of("New", 2L, "Used", 3L));
+	}
+
+	// A facet leaves out the filter on its own dimension, and keeps the others
+	@Test
+	void categoryAndMaxPrice() throws Exception {
+		JsonNode result = browse("&category_id=" + bikes.getId() + "&max_price=60");
+		assertThat(ids(result)).containsExactly(cheapBike.getId(), usedBike.getId());
+		assertThat(facets(result, "category_facets")).isEqualTo(Map.of(bikes.getId(), 2L, tools.getId(), 1L));
+		assertThat(facets(result, "condition_facets")).isEqualTo(Map.of("New", 1L, "Used", 1L));
+	}
+
+	@Test
+	void priceRangeConditionAndSold() throws Exception {
+		JsonNode result = browse("&min_price=20&max_price=100&itemCondition=Used&sold=false");
+		assertThat(ids(result)).containsExactly(usedBike.getId());
+		assertThat(facets(result, "category_facets")).isEqualTo(Map.of(bikes.getId(), 1L));
+		assertThat(facets(result, "condition_facets")).isEqualTo(Map.of("New", 1L, "Used", 1L));
+	}
+
+	@Test
+	void sellerCity() throws Exception {
+		JsonNode result = browse("&city=Alpha&sold=false");
+		assertThat(ids(result)).containsExactly(cheapBike.getId(), dearBike.getId());
+		assertThat(facets(result, "category_facets")).isEqualTo(Map.of(bikes.getId(), 2L));
+
+		assertThat(ids(browse("&city=Nowhere"))).isEmpty();
+		assertThat(facets(browse("&city=Nowhere"), "condition_facets")).isEmpty();
+	}
+
+	@Test
+	void pagesFollowTheCursor() throws Exception {
+		List<String> seen = new ArrayList<String>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			JsonNode page = browse("&size=2" + (cursor == null ? "" : "&cursor=" + cursor));
+			assertThat(page.path("items").size()).isLessThanOrEqualTo(2);
+			seen.addAll(ids(page));
+			cursor = page.path("next_cursor").isNull() ? null : page.path("next_cursor").asText();
+			pages++;
+		} while (cursor != null);
+		assertThat(pages).isEqualTo(3);
+		assertThat(seen).containsExactly(cheapBike.getId(), usedBike.getId(), soldTool.getId(), newTool.getId(), dearBike.getId());
+	}
+
+	@Test
+	void minPriceAboveMaxPriceIsRejected() throws Exception {
+		mvc.perform(get("/items/browse?country=" + COUNTRY + "&min_price=100&max_price=10"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private JsonNode browse(String filters) throws Exception {
+		String body = mvc.perform(get("/items/browse?country=" + COUNTRY + filters))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body);
+	}
+
+	private List<String> ids(JsonNode result) {
+		List<String> ids = new ArrayList<String>();
+		result.path("items").forEach(item -> ids.add(item.path("id").asText()));
+		return ids;
+	}
+
+	private Map<String, Long> facets(JsonNode result, String name) {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		result.path(name).forEach(facet -> counts.put(facet.path("value").asText(), facet.path("count").asLong()));
+		return counts;
+	}
+
+}
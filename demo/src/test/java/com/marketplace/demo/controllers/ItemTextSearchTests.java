@@ -0,0 +1,160 @@
+package com.marketplace.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.models.dto.ItemInputDTO;
+import com.marketplace.demo.repositories.CategoryRepository;
+import com.marketplace.demo.repositories.UserRepository;
+import com.marketplace.demo.services.ItemService;
+import com.marketplace.demo.services.ItemTextIndexService;
+
+// /items/search: ranking, paging and its bounds, and the index following removed items.
+// Items are created through the API, which indexes them, with words no other test uses.
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ItemTextSearchTests {
+
+	@Autowired
+	MockMvc mvc;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	CategoryRepository categoryRepository;
+	@Autowired
+	ItemTextIndexService itemTextIndexService;
+	@Autowired
+	ItemService itemService;
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	private Category category;
+
+	@BeforeAll
+	void awaitIndexRebuild() throws InterruptedException {
+		while (itemTextIndexService.isRebuilding()) {
+			Thread.sleep(10);
+		}
+		category = categoryRepository.save(new Category("Text search"));
+	}
+
+	@Test
+	void titleMatchesRankFirst() throws Exception {
+		User seller = user("text-seller-rank");
+		String inDescription = createItem(seller, "Old chest", "With a wombat carved on the lid");
+		String inTitle = createItem(seller, "Wombat figurine", "Hand painted");
+
+		assertThat(search("q=wombat")).containsExactly(inTitle, inDescription);
+	}
+
+	@Test
+	void pagesAreBounded() throws Exception {
+		User seller = user("text-seller-pages");
+		List<String> quokkas = new ArrayList<String>();
+		for (int i = 0; i < 3; i++) {
+			quokkas.add(createItem(seller, "Quokka lamp", "Quokka shaped"));
+		}
+
+		List<String> pages = new ArrayList<String>();
+		pages.addAll(search("q=quokka&size=2&page=0"));
+		pages.addAll(search("q=quokka&size=2&page=1"));
+		assertThat(pages).containsExactlyInAnyOrderElementsOf(quokkas);
+		assertThat(search("q=quokka&size=2&page=2")).isEmpty();
+		// The last page within search.max-results (1000)
+		assertThat(search("q=quokka&size=100&page=9")).isEmpty();
+
+		mvc.perform(get("/items/search?q=quokka&page=-1")).andExpect(status().isBadRequest());
+		mvc.perform(get("/items/search?q=quokka&size=100&page=10")).andExpect(status().isBadRequest());
+		// (page + 1) * size would overflow an int
+		mvc.perform(get("/items/search?q=quokka&size=100&page=" + Integer.MAX_VALUE)).andExpect(status().isBadRequest());
+		mvc.perform(get("/items/search?q=quokka&size=0")).andExpect(status().isBadRequest());
+	}
+
+	// Left in the index, the removed user's items would take the first hits (same score, indexed first)
+	// and be dropped after the lookup, leaving the page empty
+	@Test
+	void itemsOfARemovedUserLeaveTheIndex() throws Exception {
+		User removed = user("text-seller-removed");
+		User kept = user("text-seller-kept");
+		createItem(removed, "Zephyr lantern", "Brass");
+		createItem(removed, "Zephyr lantern", "Brass");
+		String first = createItem(kept, "Zephyr lantern", "Brass");
+		String second = createItem(kept, "Zephyr lantern", "Brass");
+
+		mvc.perform(delete("/users/" + removed.getId())).andExpect(status().isOk());
+		assertThat(search("q=zephyr&size=2")).containsExactlyInAnyOrder(first, second);
+	}
+
+	// The index only follows changes that commit
+	@Test
+	void rolledBackChangesLeaveTheIndexAlone() throws Exception {
+		User seller = user("text-seller-rollback");
+		String kept = createItem(seller, "Ocelot vase", "Glazed");
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			itemService.removeItem(kept);
+			itemService.createItem(itemInput(seller, "Ocelot mug"));
+			status.setRollbackOnly();
+		});
+		assertThat(search("q=ocelot")).containsExactly(kept);
+	}
+
+	private ItemInputDTO itemInput(User seller, String title) {
+		ItemInputDTO input = new ItemInputDTO();
+		input.setTitle(title);
+		input.setCategory_id(category.getId());
+		input.setSeller_id(seller.getId());
+		input.setPrice(10.0);
+		input.setSold(false);
+		return input;
+	}
+
+	private User user(String username) {
+		return userRepository.save(new User(username, username, username + "@example.com", "pw", "", "Greece", "Kos", "6900000201"));
+	}
+
+	private String createItem(User seller, String title, String description) throws Exception {
+		String body = mvc.perform(post("/items/").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"title\":\"" + title + "\",\"description\":\"" + description + "\",\"category_id\":\"" + category.getId()
+						+ "\",\"seller_id\":\"" + seller.getId() + "\",\"price\":10,\"sold\":false}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body).path("id").asText();
+	}
+
+	private List<String> search(String query) throws Exception {
+		String body = mvc.perform(get("/items/search?" + query))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		List<String> ids = new ArrayList<String>();
+		for (JsonNode item : objectMapper.readTree(body)) {
+			ids.add(item.path("id").asText());
+		}
+		return ids;
+	}
+
+}
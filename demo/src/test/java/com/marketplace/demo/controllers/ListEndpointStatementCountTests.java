@@ -0,0 +1,190 @@
+package com.marketplace.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.Image;
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.Review;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.repositories.CategoryRepository;
+import com.marketplace.demo.repositories.ImageRepository;
+import com.marketplace.demo.repositories.ItemRepository;
+import com.marketplace.demo.repositories.ReviewRepository;
+import com.marketplace.demo.repositories.UserRepository;
+import com.marketplace.demo.services.ItemTextIndexService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Guards the list endpoints against N+1 queries.
+// The data set has many more rows than any budget below, so a per-row query
+// anywhere in the mapping to DTOs makes these tests fail.
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ListEndpointStatementCountTests {
+
+	private static final int ROWS = 30;
+
+	@Autowired
+	MockMvc mvc;
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	ItemRepository itemRepository;
+	@Autowired
+	CategoryRepository categoryRepository;
+	@Autowired
+	ImageRepository imageRepository;
+	@Autowired
+	ReviewRepository reviewRepository;
+	@Autowired
+	ItemTextIndexService itemTextIndexService;
+	@Autowired
+	ObjectMapper objectMapper;
+
+	private Statistics statistics;
+	private User buyer;
+	private User seller;
+
+	@BeforeAll
+	void seed() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		buyer = userRepository.save(new User("buyer", "Buyer", "buyer@example.com", "pw", "", "Greece", "Patra", "6933333333"));
+		seller = userRepository.save(new User("seller", "Seller", "seller@example.com", "pw", "", "Greece", "Volos", "6944444444"));
+
+		for (int i = 0; i < ROWS; i++) {
+			// A different category and a different seller for every item, the worst case for N+1
+			Category category = categoryRepository.save(new Category("Category " + i));
+			User itemSeller = i % 2 == 0 ? seller
+					: userRepository.save(new User("seller" + i, "Seller " + i, "s" + i + "@example.com", "pw", "", "Greece", "Larissa", "69000000" + i));
+			Item item = itemRepository.save(new Item("listing " + i, category, itemSeller, 10.0 + i, "Listing number " + i, "Used", false));
+
+			Image first = imageRepository.save(new Image(item, "first_" + i + ".jpg"));
+			Image second = imageRepository.save(new Image(item, "second_" + i + ".jpg"));
+			item.addImageToItem(first);
+			item.addImageToItem(second);
+			itemTextIndexService.indexItem(item);
+
+			buyer.addFavoriteItem(item);
+			reviewRepository.save(new Review(itemSeller, buyer, 4, "Review " + i, LocalDate.now()));
+			reviewRepository.save(new Review(buyer, itemSeller, 5, "Review back " + i, LocalDate.now()));
+		}
+		userRepository.save(buyer);
+	}
+
+	private long statementsFor(String url) throws Exception {
+		statistics.clear();
+		mvc.perform(get(url)).andExpect(status().isOk());
+		return statistics.getPrepareStatementCount();
+	}
+
+	@Test
+	void itemListsRunConstantStatements() throws Exception {
+		// The cursor, and the images of every window of 100 items: the other tests' items are in the database too
+		long windows = (itemRepository.count() + 99) / 100;
+		assertThat(statementsFor("/items/")).isLessThanOrEqualTo(1 + windows);
+		assertThat(statementsFor("/items/page?size=100")).isLessThanOrEqualTo(2);
+		assertThat(statementsFor("/items/browse?size=100")).isLessThanOrEqualTo(4);
+		assertThat(statementsFor("/items/search?q=listing&size=100")).isLessThanOrEqualTo(2);
+		assertThat(statementsFor("/items/?stream=true")).isLessThanOrEqualTo(1 + windows);
+	}
+
+	@Test
+	void userListsRunConstantStatements() throws Exception {
+		assertThat(statementsFor("/users/")).isLessThanOrEqualTo(1);
+		assertThat(statementsFor("/users/page?size=100")).isLessThanOrEqualTo(1);
+		assertThat(statementsFor("/users/" + seller.getId() + "/items/")).isLessThanOrEqualTo(3);
+		assertThat(statementsFor("/users/" + buyer.getId() + "/favoriteItems/")).isLessThanOrEqualTo(3);
+		assertThat(statementsFor("/users/?stream=true")).isLessThanOrEqualTo(1);
+		assertThat(statementsFor("/users/" + seller.getId() + "/items/?stream=true")).isLessThanOrEqualTo(3);
+	}
+
+	// The streaming writer builds its JSON by hand, it must stay what Jackson writes for the DTOs
+	@Test
+	void streamedListsMatchTheMaterializedOnes() throws Exception {
+		String url = "/users/" + seller.getId() + "/items/";
+		JsonNode materialized = objectMapper.readTree(mvc.perform(get(url)).andReturn().getResponse().getContentAsString());
+		JsonNode streamed = streamed(url + "?stream=true");
+		assertThat(streamed.size()).isGreaterThan(0);
+		assertThat(sortedById(streamed)).isEqualTo(sortedById(materialized));
+	}
+
+	// The full lists are streamed, and hold what paging through /page gives
+	@Test
+	void deprecatedFullListsMatchTheirPages() throws Exception {
+		for (String list : new String[] { "/items/", "/users/", "/reviews/" }) {
+			MockHttpServletResponse response = mvc.perform(get(list)).andExpect(status().isOk()).andReturn().getResponse();
+			assertThat(response.getHeader("Deprecation")).isEqualTo("true");
+			assertThat(response.getHeader("Link")).isEqualTo("<" + list + "page>; rel=\"successor-version\"");
+
+			JsonNode streamed = streamed(list);
+			assertThat(streamed.size()).isGreaterThan(0);
+			assertThat(sortedById(streamed)).isEqualTo(allPages(list + "page?size=100"));
+			// The old streaming switch is still accepted
+			assertThat(sortedById(streamed(list + "?stream=true"))).isEqualTo(sortedById(streamed));
+		}
+	}
+
+	private JsonNode streamed(String url) throws Exception {
+		return objectMapper.readTree(mvc.perform(get(url))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse().getContentAsString());
+	}
+
+	private List<JsonNode> allPages(String url) throws Exception {
+		List<JsonNode> rows = new ArrayList<JsonNode>();
+		String cursor = null;
+		do {
+			JsonNode page = objectMapper.readTree(mvc.perform(get(url + (cursor == null ? "" : "&cursor=" + cursor)))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString());
+			page.path("items").forEach(rows::add);
+			cursor = page.path("next_cursor").isNull() ? null : page.path("next_cursor").asText();
+		} while (cursor != null);
+		rows.sort(Comparator.comparing(row -> row.get("id").asText()));
+		return rows;
+	}
+
+	private List<JsonNode> sortedById(JsonNode list) {
+		List<JsonNode> rows = new ArrayList<JsonNode>();
+		list.forEach(rows::add);
+		rows.sort(Comparator.comparing(row -> row.get("id").asText()));
+		return rows;
+	}
+
+	@Test
+	void reviewListsRunConstantStatements() throws Exception {
+		assertThat(statementsFor("/reviews/")).isLessThanOrEqualTo(1);
+		assertThat(statementsFor("/reviews/page?size=100")).isLessThanOrEqualTo(1);
+		assertThat(statementsFor("/users/" + buyer.getId() + "/writtenReviews/")).isLessThanOrEqualTo(2);
+		assertThat(statementsFor("/users/" + buyer.getId() + "/receivedReviews/")).isLessThanOrEqualTo(2);
+	}
+
+}
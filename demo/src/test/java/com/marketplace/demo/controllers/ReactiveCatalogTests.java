@@ -0,0 +1,172 @@
+package com.marketplace.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.Image;
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.models.ids.BinaryUuids;
+import com.marketplace.demo.repositories.CategoryRepository;
+import com.marketplace.demo.repositories.ImageRepository;
+import com.marketplace.demo.repositories.ItemRepository;
+import com.marketplace.demo.repositories.UserRepository;
+
+// /reactive reads over R2DBC, against what the JPA endpoints return for the same rows.
+// Over a real port: the lists are streamed as NDJSON or server-sent events.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReactiveCatalogTests {
+
+	@Autowired
+	TestRestTemplate restTemplate;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	CategoryRepository categoryRepository;
+	@Autowired
+	ItemRepository itemRepository;
+	@Autowired
+	ImageRepository imageRepository;
+
+	private User seller;
+	private User sellerWithoutItems;
+	private Category category;
+	private Item withImages;
+	private Item plain;
+
+	@BeforeAll
+	void seed() {
+		seller = userRepository.save(new User("reactive-seller", "Seller", "reactive@example.com", "pw", "", "Greece", "Corfu", "6900000501"));
+		sellerWithoutItems = userRepository.save(new User("reactive-idle", "Idle", "idle@example.com", "pw", "", "Greece", "Corfu", "6900000502"));
+		category = categoryRepository.save(new Category("Reactive"));
+		withImages = itemRepository.save(new Item("Radio", category, seller, 35, "Valve radio", "Used", false));
+		imageRepository.save(new Image(withImages, "radio_front.jpg"));
+		imageRepository.save(new Image(withImages, "radio_back.jpg"));
+		plain = itemRepository.save(new Item("Gramophone", category, seller, 120, "Wind up", "Used", true));
+	}
+
+	@Test
+	void anItemIsWhatTheJpaEndpointReturns() throws Exception {
+		for (Item item : new Item[] { withImages, plain }) {
+			JsonNode reactive = json(exchange("/reactive/items/" + item.getId(), MediaType.APPLICATION_JSON, HttpStatus.OK));
+			JsonNode jpa = json(exchange("/items/" + item.getId(), MediaType.APPLICATION_JSON, HttpStatus.OK));
+			assertThat(withSortedImages(reactive)).isEqualTo(withSortedImages(jpa));
+		}
+		assertThat(json(exchange("/reactive/items/" + withImages.getId(), MediaType.APPLICATION_JSON, HttpStatus.OK)).path("images").size()).isEqualTo(2);
+	}
+
+	@Test
+	void unknownItemsAndUsersAreNotFound() {
+		exchange("/reactive/items/" + BinaryUuids.next(), MediaType.APPLICATION_JSON, HttpStatus.NOT_FOUND);
+		exchange("/reactive/items/not-an-id", MediaType.APPLICATION_JSON, HttpStatus.NOT_FOUND);
+		exchange("/reactive/users/" + BinaryUuids.next() + "/items/", MediaType.APPLICATION_NDJSON, HttpStatus.NOT_FOUND);
+		exchange("/reactive/users/not-an-id/items/", MediaType.APPLICATION_NDJSON, HttpStatus.NOT_FOUND);
+	}
+
+	// One JSON object per line, in id order
+	@Test
+	void itemsOfAUserAsNdjson() throws Exception {
+		List<JsonNode> lines = ndjson(exchange("/reactive/users/" + seller.getId() + "/items/", MediaType.APPLICATION_NDJSON, HttpStatus.OK));
+		assertThat(ids(lines)).containsExactly(withImages.getId(), plain.getId());
+
+		List<JsonNode> jpa = new ArrayList<JsonNode>();
+		json(exchange("/users/" + seller.getId() + "/items/", MediaType.APPLICATION_JSON, HttpStatus.OK)).forEach(jpa::add);
+		jpa.sort(Comparator.comparing(item -> item.path("id").asText()));
+		for (int i = 0; i < lines.size(); i++) {
+			assertThat(withSortedImages(lines.get(i))).isEqualTo(withSortedImages(jpa.get(i)));
+		}
+
+		String empty = exchange("/reactive/users/" + sellerWithoutItems.getId() + "/items/", MediaType.APPLICATION_NDJSON, HttpStatus.OK);
+		assertThat(empty == null ? "" : empty.trim()).isEmpty();
+	}
+
+	@Test
+	void allItemsAndCategoriesAsNdjson() throws Exception {
+		assertThat(ids(ndjson(exchange("/reactive/items/", MediaType.APPLICATION_NDJSON, HttpStatus.OK))))
+				.contains(withImages.getId(), plain.getId())
+				.isSorted();
+		List<JsonNode> categories = ndjson(exchange("/reactive/categories/", MediaType.APPLICATION_NDJSON, HttpStatus.OK));
+		assertThat(categories).anySatisfy(row -> {
+			assertThat(row.path("id").asText()).isEqualTo(category.getId());
+			assertThat(row.path("name").asText()).isEqualTo("Reactive");
+		});
+	}
+
+	// Every element is one "data:" event
+	@Test
+	void itemsOfAUserAsServerSentEvents() throws Exception {
+		String body = exchange("/reactive/users/" + seller.getId() + "/items/", MediaType.TEXT_EVENT_STREAM, HttpStatus.OK);
+		List<String> ids = new ArrayList<String>();
+		for (String line : body.split("\n")) {
+			if (line.startsWith("data:")) {
+				ids.add(objectMapper.readTree(line.substring("data:".length())).path("id").asText());
+			}
+		}
+		assertThat(ids).containsExactly(withImages.getId(), plain.getId());
+	}
+
+	private String exchange(String url, MediaType accept, HttpStatus expected) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setAccept(List.of(accept));
+		ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<Void>(headers), String.class);
+		assertThat(response.getStatusCode()).as("GET %s: %s", url, response.getBody()).isEqualTo(expected);
+		if (expected == HttpStatus.OK) {
+			assertThat(response.getHeaders().getContentType().isCompatibleWith(accept)).isTrue();
+		}
+		return response.getBody();
+	}
+
+	private JsonNode json(String body) throws Exception {
+		return objectMapper.readTree(body);
+	}
+
+	private List<JsonNode> ndjson(String body) throws Exception {
+		List<JsonNode> lines = new ArrayList<JsonNode>();
+		for (String line : body.split("\n")) {
+			if (!line.isBlank()) {
+				lines.add(objectMapper.readTree(line));
+			}
+		}
+		return lines;
+	}
+
+	private List<String> ids(List<JsonNode> rows) {
+		List<String> ids = new ArrayList<String>();
+		rows.forEach(row -> ids.add(row.path("id").asText()));
+		return ids;
+	}
+
+	// GROUP_CONCAT and the JPA collection don't list the images in the same order
+	private JsonNode withSortedImages(JsonNode item) {
+		List<JsonNode> images = new ArrayList<JsonNode>();
+		item.path("images").forEach(images::add);
+		images.sort(Comparator.comparing(image -> image.path("id").asText()));
+		ObjectNode copy = item.deepCopy();
+		copy.putArray("images").addAll(images);
+		return copy;
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.marketplace.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplace.demo.alerts.AlertSink;
+import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.models.dto.SavedSearchAlert;
+import com.marketplace.demo.models.ids.BinaryUuids;
+import com.marketplace.demo.repositories.CategoryRepository;
+import com.marketplace.demo.repositories.UserRepository;
+import com.marketplace.demo.services.PasswordService;
+
+// Saved searches through /users/{id}/savedSearches/, and the alerts of the items listed after them.
+// Own context, alerts collected by an extra AlertSink
+@SpringBootTest(properties = "saved-searches.log-alerts=false")
+@AutoConfigureMockMvc
+class SavedSearchTests {
+
+	@TestConfiguration
+	static class RecordingSinkConfig {
+		@Bean
+		RecordingSink recordingSink() {
+			return new RecordingSink();
+		}
+	}
+
+	static class RecordingSink implements AlertSink {
+		final List<SavedSearchAlert> alerts = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void deliver(List<SavedSearchAlert> delivered) {
+			alerts.addAll(delivered);
+		}
+	}
+
+	@Autowired
+	MockMvc mvc;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	RecordingSink sink;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	CategoryRepository categoryRepository;
+	@Autowired
+	PasswordService passwordService;
+
+	@Test
+	void matchingItemsAlertTheirSearchesOnce() throws Exception {
+		User buyer = user("search-buyer", "6900000301");
+		User seller = user("search-seller", "6900000302");
+		String buyerToken = login(buyer);
+		String sellerToken = login(seller);
+		Category lighting = categoryRepository.save(new Category("Lighting"));
+
+		String search_id = saveSearch(buyer, buyerToken, "{\"category_id\":\"" + lighting.getId() + "\",\"max_price\":30,\"keywords\":\"brass lamp\"}");
+		// The seller's own search never alerts about the seller's items
+		saveSearch(seller, sellerToken, "{\"keywords\":\"lamp\"}");
+		mvc.perform(get("/users/" + buyer.getId() + "/savedSearches/").header(HttpHeaders.AUTHORIZATION, "Bearer " + buyerToken))
+				.andExpect(jsonPath("$[0].id").value(search_id))
+				.andExpect(jsonPath("$[0].max_price").value(30.0));
+		mvc.perform(post("/users/" + buyer.getId() + "/savedSearches/").contentType(MediaType.APPLICATION_JSON).content("{}")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + buyerToken))
+				.andExpect(status().isBadRequest());
+
+		String expensive = createItem(seller, lighting, "Brass desk lamp", 45);
+		String other = createItem(seller, lighting, "Steel desk lamp", 10);
+		String cheap = createItem(seller, lighting, "Small brass lamp", 25);
+		awaitAlerts(1);
+		assertThat(sink.alerts).extracting(SavedSearchAlert::getItem_id).containsExactly(cheap);
+		assertThat(sink.alerts.get(0).getSearch_id()).isEqualTo(search_id);
+		assertThat(sink.alerts.get(0).getUser_id()).isEqualTo(buyer.getId());
+
+		// A price drop into the search alerts, a change that keeps it matching doesn't
+		mvc.perform(put("/items/" + expensive).contentType(MediaType.APPLICATION_JSON).content("{\"price\":29}")).andExpect(status().isOk());
+		mvc.perform(put("/items/" + cheap).contentType(MediaType.APPLICATION_JSON).content("{\"price\":20}")).andExpect(status().isOk());
+		mvc.perform(put("/items/" + other).contentType(MediaType.APPLICATION_JSON).content("{\"price\":9}")).andExpect(status().isOk());
+		awaitAlerts(2);
+		Thread.sleep(200);
+		assertThat(sink.alerts).extracting(SavedSearchAlert::getItem_id).containsExactly(cheap, expensive);
+
+		mvc.perform(delete("/users/" + buyer.getId() + "/savedSearches/" + search_id).header(HttpHeaders.AUTHORIZATION, "Bearer " + buyerToken))
+				.andExpect(status().isOk());
+		createItem(seller, lighting, "Brass lamp", 5);
+		Thread.sleep(200);
+		assertThat(sink.alerts).hasSize(2);
+
+		// The user's searches go with it
+		mvc.perform(delete("/users/" + seller.getId())).andExpect(status().isOk());
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM saved_searches WHERE user_id = ?", Integer.class,
+				BinaryUuids.toBytes(seller.getId()))).isZero();
+	}
+
+	// Only the owner, with a token, sees or changes its searches
+	@Test
+	void searchesArePrivate() throws Exception {
+		User owner = user("search-owner", "6900000303");
+		User stranger = user("search-stranger", "6900000304");
+		String search_id = saveSearch(owner, login(owner), "{\"keywords\":\"teapot\"}");
+		String strangerToken = login(stranger);
+		String searches = "/users/" + owner.getId() + "/savedSearches/";
+
+		mvc.perform(get(searches)).andExpect(status().isUnauthorized());
+		mvc.perform(post(searches).contentType(MediaType.APPLICATION_JSON).content("{\"keywords\":\"kettle\"}"))
+				.andExpect(status().isUnauthorized());
+		mvc.perform(delete(searches + search_id)).andExpect(status().isUnauthorized());
+
+		mvc.perform(get(searches).header(HttpHeaders.AUTHORIZATION, "Bearer " + strangerToken)).andExpect(status().isForbidden());
+		mvc.perform(post(searches).contentType(MediaType.APPLICATION_JSON).content("{\"keywords\":\"kettle\"}")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + strangerToken))
+				.andExpect(status().isForbidden());
+		mvc.perform(delete(searches + search_id).header(HttpHeaders.AUTHORIZATION, "Bearer " + strangerToken)).andExpect(status().isForbidden());
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM saved_searches WHERE user_id = ?", Integer.class,
+				BinaryUuids.toBytes(owner.getId()))).isEqualTo(1);
+	}
+
+	private User user(String username, String phone) {
+		return userRepository.save(new User(username, username, username + "@example.com", passwordService.hash("pw"), "", "Greece", "Patra", phone));
+	}
+
+	private String login(User user) throws Exception {
+		String body = mvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"" + user.getUsername() + "\",\"password\":\"pw\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body).path("token").asText();
+	}
+
+	private String saveSearch(User user, String token, String json) throws Exception {
+		String response = mvc.perform(post("/users/" + user.getId() + "/savedSearches/").contentType(MediaType.APPLICATION_JSON).content(json)
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(response).get("id").asText();
+	}
+
+	private String createItem(User seller, Category category, String title, double price) throws Exception {
+		String json = "{\"title\":\"" + title + "\",\"category_id\":\"" + category.getId() + "\",\"seller_id\":\"" + seller.getId()
+				+ "\",\"price\":" + price + ",\"itemCondition\":\"Used\",\"sold\":false}";
+		String response = mvc.perform(post("/items/").contentType(MediaType.APPLICATION_JSON).content(json))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(response).get("id").asText();
+	}
+
+	// Alerts are delivered on the alert worker
+	private void awaitAlerts(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (sink.alerts.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.marketplace.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.repositories.CategoryRepository;
+import com.marketplace.demo.repositories.ItemRepository;
+import com.marketplace.demo.repositories.UserRepository;
+import com.marketplace.demo.services.EventRelayService;
+import com.marketplace.demo.services.SimilarItemsService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// /items/{id}/similar follows the favorites made through /users/{id}/favoriteItems/, and the items and users
+// removed, without touching the database.
+// Own context (and database), relayed and refreshed by hand
+@SpringBootTest(properties = { "similar.refresh-interval-ms=600000", "outbox.relay-interval-ms=600000" })
+@AutoConfigureMockMvc
+class SimilarItemsTests {
+
+	@Autowired
+	MockMvc mvc;
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	@Autowired
+	SimilarItemsService similarItemsService;
+	@Autowired
+	EventRelayService eventRelayService;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	CategoryRepository categoryRepository;
+	@Autowired
+	ItemRepository itemRepository;
+
+	@Test
+	void similarItemsFollowFavorites() throws Exception {
+		User seller = userRepository.save(new User("similar-seller", "Seller", "ss@example.com", "pw", "", "Greece", "Patra", "6900000001"));
+		Category category = categoryRepository.save(new Category("Similar"));
+		Item guitar = itemRepository.save(new Item("Guitar", category, seller, 300, "Electric guitar", "Used", false));
+		Item amp = itemRepository.save(new Item("Amp", category, seller, 150, "Tube amp", "Used", false));
+		Item pedal = itemRepository.save(new Item("Pedal", category, seller, 50, "Overdrive", "New", false));
+		for (int i = 0; i < 3; i++) {
+			User buyer = userRepository.save(new User("similar-buyer" + i, "Buyer", "sb" + i + "@example.com", "pw", "", "Greece", "Patra", "690000001" + i));
+			favorite(buyer, guitar);
+			favorite(buyer, amp);
+			if (i == 0) {
+				favorite(buyer, pedal);
+			}
+		}
+		relayAndRefresh();
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		mvc.perform(get("/items/" + guitar.getId() + "/similar"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].item_id").value(amp.getId()))
+				.andExpect(jsonPath("$[0].co_favorites").value(3))
+				.andExpect(jsonPath("$[1].item_id").value(pedal.getId()));
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+
+		User first = userRepository.findByUsername("similar-buyer0").get();
+		mvc.perform(delete("/users/" + first.getId() + "/favoriteItems/").param("item_id", pedal.getId()))
+				.andExpect(status().isOk());
+		relayAndRefresh();
+		mvc.perform(get("/items/" + guitar.getId() + "/similar").param("size", "5"))
+				.andExpect(jsonPath("$.length()").value(1));
+		mvc.perform(get("/items/" + pedal.getId() + "/similar"))
+				.andExpect(jsonPath("$.length()").value(0));
+	}
+
+	@Test
+	void aDeletedItemIsNoLongerSimilar() throws Exception {
+		User seller = userRepository.save(new User("deleted-seller", "Seller", "ds@example.com", "pw", "", "Greece", "Patra", "6900000002"));
+		Category category = categoryRepository.save(new Category("Deleted"));
+		Item camera = itemRepository.save(new Item("Camera", category, seller, 400, "Mirrorless", "Used", false));
+		Item lens = itemRepository.save(new Item("Lens", category, seller, 200, "50mm", "Used", false));
+		Item tripod = itemRepository.save(new Item("Tripod", category, seller, 40, "Aluminium", "New", false));
+		User buyer = userRepository.save(new User("deleted-buyer", "Buyer", "db@example.com", "pw", "", "Greece", "Patra", "6900000003"));
+		favorite(buyer, camera);
+		favorite(buyer, lens);
+		favorite(buyer, tripod);
+		relayAndRefresh();
+		mvc.perform(get("/items/" + camera.getId() + "/similar"))
+				.andExpect(jsonPath("$.length()").value(2));
+
+		mvc.perform(delete("/items/" + lens.getId()))
+				.andExpect(status().isOk());
+		relayAndRefresh();
+		mvc.perform(get("/items/" + camera.getId() + "/similar"))
+				.andExpect(jsonPath("$.length()").value(1))
+				.andExpect(jsonPath("$[0].item_id").value(tripod.getId()));
+		mvc.perform(get("/items/" + lens.getId() + "/similar"))
+				.andExpect(jsonPath("$.length()").value(0));
+
+		// The seller's remaining items go with it
+		mvc.perform(delete("/users/" + seller.getId()))
+				.andExpect(status().isOk());
+		relayAndRefresh();
+		mvc.perform(get("/items/" + camera.getId() + "/similar"))
+				.andExpect(jsonPath("$.length()").value(0));
+	}
+
+	// The favorites reach the matrix as domain events
+	private void relayAndRefresh() {
+		eventRelayService.relay();
+		similarItemsService.refresh();
+	}
+
+	private void favorite(User user, Item item) throws Exception {
+		mvc.perform(post("/users/" + user.getId() + "/favoriteItems/").param("item_id", item.getId()))
+				.andExpect(status().isOk());
+	}
+
+}
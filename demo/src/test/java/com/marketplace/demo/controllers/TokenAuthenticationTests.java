@@ -0,0 +1,160 @@
+package com.marketplace.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.models.ids.BinaryUuids;
+import com.marketplace.demo.repositories.CategoryRepository;
+import com.marketplace.demo.repositories.ItemRepository;
+import com.marketplace.demo.repositories.UserRepository;
+import com.marketplace.demo.services.ItemTextIndexService;
+import com.marketplace.demo.services.PasswordService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Access tokens from /auth/login: the caller is resolved from the token without loading the user,
+// and forged, foreign or revoked tokens are refused.
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TokenAuthenticationTests {
+
+	@Autowired
+	MockMvc mvc;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	@Autowired
+	ItemTextIndexService itemTextIndexService;
+	@Autowired
+	PasswordService passwordService;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	CategoryRepository categoryRepository;
+	@Autowired
+	ItemRepository itemRepository;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	private Statistics statistics;
+	private User buyer;
+	private User other;
+	private Item item;
+
+	@BeforeAll
+	void seed() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		buyer = userRepository.save(new User("token-buyer", "Buyer", "token-buyer@example.com", passwordService.hash("buyer-pw"), "", "Greece", "Patra", "6911111111"));
+		other = userRepository.save(new User("token-other", "Other", "token-other@example.com", passwordService.hash("other-pw"), "", "Greece", "Patra", "6922222222"));
+		Category category = categoryRepository.save(new Category("Tokens"));
+		item = itemRepository.save(new Item("Lamp", category, other, 20, "Desk lamp", "Used", false));
+	}
+
+	private String login(String username, String password) throws Exception {
+		String body = mvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body).path("token").asText();
+	}
+
+	@Test
+	void callerIsResolvedFromTheTokenAlone() throws Exception {
+		awaitIndexRebuild();
+		String token = login("token-buyer", "buyer-pw");
+
+		statistics.clear();
+		mvc.perform(get("/users/me").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.id").value(buyer.getId()))
+				.andExpect(jsonPath("$.username").value("token-buyer"));
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+
+		statistics.clear();
+		mvc.perform(post("/users/" + buyer.getId() + "/favoriteItems/").param("item_id", item.getId())
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isOk());
+		assertThat(statistics.getEntityStatistics(User.class.getName()).getLoadCount()).isZero();
+		assertThat(statistics.getEntityStatistics(User.class.getName()).getFetchCount()).isZero();
+
+		mvc.perform(get("/users/" + buyer.getId() + "/favoriteItems/").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].id").value(item.getId()));
+	}
+
+	@Test
+	void forgedAndForeignTokensAreRefused() throws Exception {
+		String token = login("token-buyer", "buyer-pw");
+		String forged = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+		mvc.perform(get("/users/me").header(HttpHeaders.AUTHORIZATION, "Bearer " + forged))
+				.andExpect(status().isUnauthorized());
+		mvc.perform(get("/users/me").header(HttpHeaders.AUTHORIZATION, "Bearer not.a.token"))
+				.andExpect(status().isUnauthorized());
+		mvc.perform(get("/users/me"))
+				.andExpect(status().isUnauthorized());
+		mvc.perform(post("/users/" + other.getId() + "/favoriteItems/").param("item_id", item.getId())
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isForbidden());
+	}
+
+	@Test
+	void passwordChangeRevokesEarlierTokens() throws Exception {
+		String token = login("token-other", "other-pw");
+
+		mvc.perform(put("/users/" + other.getId()).contentType(MediaType.APPLICATION_JSON).content("{\"password\":\"new-pw\"}"))
+				.andExpect(status().isOk());
+
+		mvc.perform(get("/users/me").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isUnauthorized());
+		String renewed = login("token-other", "new-pw");
+		mvc.perform(get("/users/me").header(HttpHeaders.AUTHORIZATION, "Bearer " + renewed))
+				.andExpect(status().isOk());
+	}
+
+	// Removed through another instance: this one never revoked the token, which stays valid until it expires
+	@Test
+	void aRemovedUsersTokenCannotWrite() throws Exception {
+		User removed = userRepository.save(new User("token-removed", "Removed", "token-removed@example.com", passwordService.hash("removed-pw"), "", "Greece", "Patra", "6933333334"));
+		String token = login("token-removed", "removed-pw");
+		jdbcTemplate.update("DELETE FROM users WHERE id = ?", BinaryUuids.toBytes(removed.getId()));
+
+		mvc.perform(post("/users/" + removed.getId() + "/favoriteItems/").param("item_id", item.getId())
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isNotFound());
+		mvc.perform(post("/users/" + removed.getId() + "/savedSearches/").contentType(MediaType.APPLICATION_JSON).content("{\"keywords\":\"lamp\"}")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isNotFound());
+	}
+
+	// The index rebuild pages through the items in the background after startup
+	private void awaitIndexRebuild() throws InterruptedException {
+		while (itemTextIndexService.isRebuilding()) {
+			Thread.sleep(10);
+		}
+	}
+
+}
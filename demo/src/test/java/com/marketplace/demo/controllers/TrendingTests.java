@@ -0,0 +1,103 @@
+package com.marketplace.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.repositories.CategoryRepository;
+import com.marketplace.demo.repositories.ItemRepository;
+import com.marketplace.demo.repositories.UserRepository;
+import com.marketplace.demo.services.ItemTextIndexService;
+import com.marketplace.demo.services.TrendingService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// /categories/{id}/trending follows the favorites, is served from memory, and survives a restart
+// through its snapshot. Own context (and database), snapshots taken by hand
+@SpringBootTest(properties = "trending.snapshot-interval-ms=600000")
+@AutoConfigureMockMvc
+class TrendingTests {
+
+	@Autowired
+	MockMvc mvc;
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	TrendingService trendingService;
+	@Autowired
+	ItemTextIndexService itemTextIndexService;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	CategoryRepository categoryRepository;
+	@Autowired
+	ItemRepository itemRepository;
+
+	@Test
+	void trendingFollowsFavoritesAndSurvivesRestart() throws Exception {
+		User seller = userRepository.save(new User("trend-seller", "Seller", "ts@example.com", "pw", "", "Greece", "Patra", "6900000101"));
+		Category category = categoryRepository.save(new Category("Trending"));
+		Item lamp = itemRepository.save(new Item("Lamp", category, seller, 20, "Desk lamp", "Used", false));
+		Item chair = itemRepository.save(new Item("Chair", category, seller, 40, "Office chair", "Used", false));
+		for (int i = 0; i < 3; i++) {
+			User buyer = userRepository.save(new User("trend-buyer" + i, "Buyer", "tb" + i + "@example.com", "pw", "", "Greece", "Patra", "690000020" + i));
+			favorite(buyer, chair);
+			if (i == 0) {
+				favorite(buyer, lamp);
+			}
+		}
+
+		awaitIndexRebuild();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		mvc.perform(get("/categories/" + category.getId() + "/trending"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].item_id").value(chair.getId()))
+				.andExpect(jsonPath("$[1].item_id").value(lamp.getId()));
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		mvc.perform(get("/categories/" + category.getId() + "/trending").param("page", "1").param("size", "1"))
+				.andExpect(jsonPath("$[0].item_id").value(lamp.getId()));
+		// Past the end of any category, page * size doesn't fit an int
+		mvc.perform(get("/categories/" + category.getId() + "/trending").param("page", "1000000000").param("size", "100"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(0));
+
+		trendingService.snapshot();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM trending_scores", Integer.class)).isEqualTo(2);
+
+		// Restart: read back from the snapshot
+		trendingService.load();
+		mvc.perform(get("/categories/" + category.getId() + "/trending"))
+				.andExpect(jsonPath("$.length()").value(2))
+				.andExpect(jsonPath("$[0].item_id").value(chair.getId()));
+	}
+
+	// The index rebuild pages through the items in the background after startup
+	private void awaitIndexRebuild() throws InterruptedException {
+		while (itemTextIndexService.isRebuilding()) {
+			Thread.sleep(10);
+		}
+	}
+
+	private void favorite(User user, Item item) throws Exception {
+		mvc.perform(post("/users/" + user.getId() + "/favoriteItems/").param("item_id", item.getId()))
+				.andExpect(status().isOk());
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.marketplace.demo.recommendations;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+// The incremental counts against a recount from scratch, and the ranking rules
+class CoFavoriteMatrixTests {
+
+	private List<String> similarTo(CoFavoriteMatrix matrix, String item) {
+		CoFavoriteMatrix.Neighbors neighbors = matrix.neighbors(item);
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; neighbors != null && i < neighbors.size(); i++) {
+			ids.add(neighbors.idAt(i));
+		}
+		return ids;
+	}
+
+	@Test
+	void ranksByCosineOfFavoritingUsers() {
+		CoFavoriteMatrix matrix = new CoFavoriteMatrix(10, 100);
+		// guitar and amp share two users, guitar and the popular phone one user of many
+		matrix.add("u1", "guitar");
+		matrix.add("u1", "amp");
+		matrix.add("u2", "guitar");
+		matrix.add("u2", "amp");
+		matrix.add("u3", "guitar");
+		matrix.add("u3", "phone");
+		for (int i = 0; i < 20; i++) {
+			matrix.add("fan" + i, "phone");
+		}
+		matrix.refresh();
+
+		assertThat(similarTo(matrix, "guitar")).containsExactly("amp", "phone");
+		assertThat(matrix.neighbors("guitar").coFavoritesAt(0)).isEqualTo(2);
+		assertThat(similarTo(matrix, "nothing")).isEmpty();
+
+		matrix.remove("u1", "amp");
+		matrix.remove("u2", "amp");
+		matrix.refresh();
+		assertThat(similarTo(matrix, "guitar")).containsExactly("phone");
+		assertThat(similarTo(matrix, "amp")).isEmpty();
+	}
+
+	@Test
+	void incrementalCountsMatchARecount() {
+		int maxUserFavorites = 6;
+		CoFavoriteMatrix matrix = new CoFavoriteMatrix(1000, maxUserFavorites);
+		Map<String, Set<String>> favorites = new HashMap<>();
+		Random random = new Random(42);
+		for (int step = 0; step < 20000; step++) {
+			String user = "u" + random.nextInt(40);
+			String item = "i" + random.nextInt(60);
+			int action = random.nextInt(20);
+			if (action < 12) {
+				matrix.add(user, item);
+				favorites.computeIfAbsent(user, u -> new HashSet<>()).add(item);
+			} else if (action < 18) {
+				matrix.remove(user, item);
+				favorites.getOrDefault(user, new HashSet<>()).remove(item);
+			} else if (action == 18) {
+				matrix.removeUser(user);
+				favorites.remove(user);
+			} else {
+				// Favorited again later under a new index
+				matrix.removeItem(item);
+				for (Set<String> items : favorites.values()) {
+					items.remove(item);
+				}
+			}
+		}
+		matrix.refresh();
+
+		// Recount the co-favorites of the users under the limit
+		Map<String, Map<String, Integer>> expected = new HashMap<>();
+		for (Set<String> items : favorites.values()) {
+			if (items.size() > maxUserFavorites) {
+				continue;
+			}
+			for (String a : items) {
+				for (String b : items) {
+					if (!a.equals(b)) {
+						expected.computeIfAbsent(a, x -> new HashMap<>()).merge(b, 1, Integer::sum);
+					}
+				}
+			}
+		}
+		for (int i = 0; i < 60; i++) {
+			String item = "i" + i;
+			Map<String, Integer> actual = new HashMap<>();
+			CoFavoriteMatrix.Neighbors neighbors = matrix.neighbors(item);
+			for (int n = 0; neighbors != null && n < neighbors.size(); n++) {
+				actual.put(neighbors.idAt(n), neighbors.coFavoritesAt(n));
+				if (n > 0) {
+					assertThat(neighbors.scoreAt(n)).isLessThanOrEqualTo(neighbors.scoreAt(n - 1));
+				}
+			}
+			assertThat(actual).as(item).isEqualTo(expected.getOrDefault(item, new HashMap<>()));
+		}
+	}
+
+	@Test
+	void keepsOnlyTopK() {
+		CoFavoriteMatrix matrix = new CoFavoriteMatrix(3, 100);
+		for (int i = 0; i < 10; i++) {
+			// item i is co-favorited with "seed" by i + 1 users
+			for (int u = 0; u <= i; u++) {
+				matrix.add("user" + i + "_" + u, "seed");
+				matrix.add("user" + i + "_" + u, "item" + i);
+			}
+		}
+		matrix.refresh();
+		assertThat(similarTo(matrix, "seed")).containsExactly("item9", "item8", "item7");
+	}
+
+	@Test
+	void aRemovedItemLeavesItsNeighbours() {
+		CoFavoriteMatrix matrix = new CoFavoriteMatrix(10, 2);
+		matrix.add("u1", "guitar");
+		matrix.add("u1", "amp");
+		matrix.add("u2", "guitar");
+		matrix.add("u2", "pedal");
+		// Over the limit, counted again once amp is gone
+		matrix.add("u3", "amp");
+		matrix.add("u3", "guitar");
+		matrix.add("u3", "pedal");
+		matrix.refresh();
+		assertThat(similarTo(matrix, "guitar")).containsExactly("amp", "pedal");
+
+		matrix.removeItem("amp");
+		matrix.refresh();
+		assertThat(matrix.neighbors("amp")).isNull();
+		assertThat(similarTo(matrix, "guitar")).containsExactly("pedal");
+		assertThat(matrix.neighbors("guitar").coFavoritesAt(0)).isEqualTo(2);
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.marketplace.demo.recommendations;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+// Decay, ranking and bookkeeping of the trending scores, on a made up clock
+class TrendingScoresTests {
+
+	private static final long HOUR = 3600 * 1000L;
+	private static final long NOW = 1_750_000_000_000L;
+
+	private List<String> ranking(TrendingScores scores, String category) {
+		return scores.top(category, 0, 100, NOW).stream().map(TrendingScores.Scored::getItemId).collect(Collectors.toList());
+	}
+
+	@Test
+	void olderFavoritesWeighLess() {
+		TrendingScores scores = new TrendingScores(HOUR, 100);
+		// Three favorites two half-lives ago: 0.75 now. One favorite now: 1
+		for (int i = 0; i < 3; i++) {
+			scores.record("music", "old-hit", 1, NOW - 2 * HOUR);
+		}
+		scores.record("music", "new-hit", 1, NOW);
+		scores.record("music", "steady", 1, NOW - HOUR);
+		scores.record("music", "steady", 1, NOW);
+
+		assertThat(ranking(scores, "music")).containsExactly("steady", "new-hit", "old-hit");
+		List<TrendingScores.Scored> top = scores.top("music", 0, 3, NOW);
+		assertThat(top.get(0).getScore()).isCloseTo(1.5, within(1e-9));
+		assertThat(top.get(2).getScore()).isCloseTo(0.75, within(1e-9));
+		assertThat(scores.top("music", 1, 1, NOW).get(0).getItemId()).isEqualTo("new-hit");
+		assertThat(scores.top("books", 0, 10, NOW)).isEmpty();
+	}
+
+	@Test
+	void unfavoritesPruningAndLimits() {
+		TrendingScores scores = new TrendingScores(HOUR, 2);
+		scores.record("music", "a", 1, NOW);
+		scores.record("music", "a", 1, NOW);
+		scores.record("music", "a", -1, NOW);
+		assertThat(scores.top("music", 0, 1, NOW).get(0).getScore()).isCloseTo(1, within(1e-9));
+		scores.record("music", "a", -1, NOW);
+		assertThat(ranking(scores, "music")).isEmpty();
+
+		// Only the best two of a category are kept
+		scores.record("music", "b", 1, NOW - 3 * HOUR);
+		scores.record("music", "c", 1, NOW - HOUR);
+		scores.record("music", "d", 1, NOW);
+		assertThat(ranking(scores, "music")).containsExactly("d", "c");
+
+		scores.moved("c", "jazz");
+		assertThat(ranking(scores, "music")).containsExactly("d");
+		assertThat(ranking(scores, "jazz")).containsExactly("c");
+
+		// c is at 0.5 now, d at 1
+		assertThat(scores.prune(0.6, NOW)).isEqualTo(1);
+		assertThat(ranking(scores, "jazz")).isEmpty();
+		assertThat(scores.drainChanged()).containsExactlyInAnyOrder("a", "b", "c", "d");
+		assertThat(scores.categoryOf("c")).isNull();
+		assertThat(scores.drainChanged()).isEmpty();
+	}
+
+	@Test
+	void anUnfavoriteTakesBackOnlyWhatItsFavoriteAdded() {
+		TrendingScores scores = new TrendingScores(HOUR, 100);
+		// An old favorite (0.25 now) and a new one (1)
+		scores.record("music", "a", 1, NOW - 2 * HOUR);
+		scores.record("music", "a", 1, NOW);
+
+		// The old one is removed now: the new one is left, not nothing
+		scores.record("music", "a", -1, NOW - 2 * HOUR);
+		assertThat(ranking(scores, "music")).containsExactly("a");
+		assertThat(scores.top("music", 0, 1, NOW).get(0).getScore()).isCloseTo(1, within(1e-9));
+
+		scores.record("music", "b", 1, NOW - 2 * HOUR);
+		scores.record("music", "b", 1, NOW);
+		scores.record("music", "b", -1, NOW);
+		assertThat(scores.top("music", 1, 1, NOW).get(0).getScore()).isCloseTo(0.25, within(1e-9));
+
+		scores.record("music", "a", -1, NOW);
+		assertThat(ranking(scores, "music")).containsExactly("b");
+	}
+
+}
@@ -0,0 +1,191 @@
+package com.marketplace.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplace.demo.events.DomainEvent;
+import com.marketplace.demo.events.DomainEventSubscriber;
+import com.marketplace.demo.events.DomainEventType;
+import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.ids.BinaryUuids;
+import com.marketplace.demo.repositories.CategoryRepository;
+
+// Domain events from the outbox: written with their change only, relayed in order, redelivered after a
+// failing subscriber and on replay, not held back by an id a rolled back transaction took, and delivered
+// late when their transaction commits after later ones.
+// Own context, relayed often, events collected by an extra subscriber
+@SpringBootTest(properties = { "outbox.relay-interval-ms=50", "outbox.gap-timeout-ms=60000" })
+@AutoConfigureMockMvc
+class EventRelayTests {
+
+	@TestConfiguration
+	static class RecordingSubscriberConfig {
+		@Bean
+		RecordingSubscriber recordingSubscriber() {
+			return new RecordingSubscriber();
+		}
+	}
+
+	static class RecordingSubscriber implements DomainEventSubscriber {
+		final List<DomainEvent> events = new CopyOnWriteArrayList<>();
+		volatile int failures = 0;
+
+		@Override
+		public String getName() {
+			return "recorder";
+		}
+
+		@Override
+		public void onEvents(List<DomainEvent> delivered) {
+			if (failures > 0) {
+				failures--;
+				throw new IllegalStateException("failing on purpose");
+			}
+			events.addAll(delivered);
+		}
+	}
+
+	@Autowired
+	MockMvc mvc;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	RecordingSubscriber subscriber;
+	@Autowired
+	OutboxService outboxService;
+	@Autowired
+	EventRelayService eventRelayService;
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	@Autowired
+	CategoryRepository categoryRepository;
+
+	@Test
+	void committedChangesAreRelayedInOrderAtLeastOnce() throws Exception {
+		Category category = categoryRepository.save(new Category("Events"));
+		String seller_id = create("/users/", "{\"username\":\"event-seller\",\"password\":\"pw\"}");
+		String buyer_id = create("/users/", "{\"username\":\"event-buyer\",\"password\":\"pw\"}");
+		String item_id = create("/items/", "{\"title\":\"Lamp\",\"category_id\":\"" + category.getId() + "\",\"seller_id\":\"" + seller_id
+				+ "\",\"price\":20,\"sold\":false}");
+		mvc.perform(post("/users/" + buyer_id + "/favoriteItems/").param("item_id", item_id)).andExpect(status().isOk());
+		mvc.perform(put("/items/" + item_id).contentType(MediaType.APPLICATION_JSON).content("{\"sold\":true}")).andExpect(status().isOk());
+		// Rejected, rolled back with its event
+		mvc.perform(put("/items/" + item_id).contentType(MediaType.APPLICATION_JSON).content("{\"category_id\":\"" + BinaryUuids.next() + "\"}"))
+				.andExpect(status().isNotFound());
+
+		awaitEvents(e -> e.getAggregateId().equals(item_id), 4);
+		List<DomainEvent> itemEvents = eventsOf(item_id);
+		assertThat(itemEvents).extracting(DomainEvent::getType).containsExactly(DomainEventType.ITEM_CREATED,
+				DomainEventType.FAVORITE_ADDED, DomainEventType.ITEM_UPDATED, DomainEventType.ITEM_SOLD);
+		assertThat(itemEvents.get(0).getPayload().get("seller_id").asText()).isEqualTo(seller_id);
+		assertThat(itemEvents.get(1).getPayload().get("user_id").asText()).isEqualTo(buyer_id);
+		assertThat(itemEvents.get(2).getPayload().get("sold").asBoolean()).isTrue();
+		assertThat(eventsOf(seller_id)).extracting(DomainEvent::getType).containsExactly(DomainEventType.USER_CREATED);
+		assertThat(subscriber.events).extracting(DomainEvent::getId).isSorted();
+
+		// Only inside a transaction, and gone with it
+		assertThatThrownBy(() -> outboxService.userUpdated(seller_id)).isInstanceOf(IllegalTransactionStateException.class);
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.executeWithoutResult(status -> {
+			outboxService.userUpdated(seller_id);
+			status.setRollbackOnly();
+		});
+
+		// The rolled back event took an id, the next one goes without waiting for the gap timeout
+		subscriber.failures = 1;
+		transaction.executeWithoutResult(status -> outboxService.userUpdated(buyer_id));
+		awaitEvents(e -> e.getAggregateId().equals(buyer_id), 2);
+		assertThat(eventsOf(buyer_id)).extracting(DomainEvent::getType).containsExactly(DomainEventType.USER_CREATED, DomainEventType.USER_UPDATED);
+		assertThat(subscriber.failures).isZero();
+		assertThat(eventsOf(seller_id)).hasSize(1);
+
+		// Replay from the start
+		long last = subscriber.events.get(subscriber.events.size() - 1).getId();
+		assertThat(eventRelayService.getCursors()).containsEntry("recorder", last);
+		mvc.perform(post("/events/cursors/recorder/replay").param("after_event_id", "0")).andExpect(status().isOk());
+		awaitEvents(e -> e.getAggregateId().equals(item_id), 8);
+		assertThat(eventsOf(item_id)).hasSize(8);
+	}
+
+	@Test
+	void anEventCommittedAfterLaterOnesIsDeliveredLate() throws Exception {
+		String slow_id = BinaryUuids.next();
+		String fast_id = BinaryUuids.next();
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		CountDownLatch recorded = new CountDownLatch(1);
+		CountDownLatch commit = new CountDownLatch(1);
+		Thread slow = new Thread(() -> transaction.executeWithoutResult(status -> {
+			outboxService.userUpdated(slow_id);
+			recorded.countDown();
+			try {
+				commit.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		slow.start();
+		recorded.await();
+
+		// Relayed past the slow transaction's id
+		transaction.executeWithoutResult(status -> outboxService.userUpdated(fast_id));
+		awaitEvents(e -> e.getAggregateId().equals(fast_id), 1);
+		assertThat(eventsOf(fast_id)).hasSize(1);
+		long fastEventId = eventsOf(fast_id).get(0).getId();
+		awaitCursor(fastEventId);
+
+		commit.countDown();
+		slow.join();
+		awaitEvents(e -> e.getAggregateId().equals(slow_id), 1);
+		assertThat(eventsOf(slow_id)).hasSize(1);
+		assertThat(eventsOf(slow_id).get(0).getId()).isLessThan(fastEventId);
+	}
+
+	private void awaitCursor(long event_id) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (eventRelayService.getCursors().get("recorder") < event_id && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private List<DomainEvent> eventsOf(String aggregate_id) {
+		return subscriber.events.stream().filter(e -> aggregate_id.equals(e.getAggregateId())).collect(Collectors.toList());
+	}
+
+	// The relay runs every 50 ms
+	private void awaitEvents(Predicate<DomainEvent> filter, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (subscriber.events.stream().filter(filter).count() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private String create(String path, String json) throws Exception {
+		String response = mvc.perform(post(path).contentType(MediaType.APPLICATION_JSON).content(json))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(response).get("id").asText();
+	}
+
+}
@@ -0,0 +1,142 @@
+package com.marketplace.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.marketplace.demo.models.Category;
+import com.marketplace.demo.models.Item;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.models.ids.BinaryUuids;
+import com.marketplace.demo.repositories.CategoryRepository;
+import com.marketplace.demo.repositories.ItemRepository;
+import com.marketplace.demo.repositories.UserRepository;
+
+// Hammers one item with concurrent favorite / unfavorite calls through the HTTP API
+// and checks that its favorite count ends up equal to the number of FAVORITES rows,
+// and that counts left wrong by lost deltas are reconciled.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class FavoriteCounterConcurrencyTests {
+
+	private static final int USERS = 1000;
+	private static final int THREADS = 32;
+
+	@Autowired
+	TestRestTemplate restTemplate;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	FavoriteCounterService favoriteCounterService;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	ItemRepository itemRepository;
+	@Autowired
+	CategoryRepository categoryRepository;
+
+	@Test
+	void favoriteCountStaysExactUnderConcurrentCalls() throws Exception {
+		Category category = categoryRepository.save(new Category("Trending"));
+		User seller = userRepository.save(new User("trend_seller", "Seller", "seller@example.com", "pw", "", "Greece", "Chania", "6955555555"));
+		Item item = itemRepository.save(new Item("trending item", category, seller, 20.0, "Everyone wants it", "New", false));
+
+		List<String> userIds = new ArrayList<>();
+		for (int i = 0; i < USERS; i++) {
+			userIds.add(userRepository.save(new User("fan" + i, "Fan " + i, "fan" + i + "@example.com", "pw", "", "Greece", "Athens", "690000" + i)).getId());
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			// Every user favorites the item twice, the second call must not count twice
+			List<Future<?>> calls = new ArrayList<>();
+			for (String userId : userIds) {
+				calls.add(executor.submit(() -> favorite(userId, item.getId())));
+				calls.add(executor.submit(() -> favorite(userId, item.getId())));
+			}
+			waitFor(calls);
+
+			// Half of them change their mind while the other half favorite again
+			calls.clear();
+			for (int i = 0; i < USERS; i++) {
+				String userId = userIds.get(i);
+				if (i % 2 == 0) {
+					calls.add(executor.submit(() -> unfavorite(userId, item.getId())));
+				} else {
+					calls.add(executor.submit(() -> favorite(userId, item.getId())));
+				}
+			}
+			waitFor(calls);
+		} finally {
+			executor.shutdown();
+		}
+
+		favoriteCounterService.flush();
+
+		Integer favoriteRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM favorites WHERE item_id = ?", Integer.class, BinaryUuids.toBytes(item.getId()));
+		Integer favoriteCount = jdbcTemplate.queryForObject("SELECT favorite_count FROM items WHERE id = ?", Integer.class, BinaryUuids.toBytes(item.getId()));
+		assertThat(favoriteRows).isEqualTo(USERS / 2);
+		assertThat(favoriteCount).isEqualTo(favoriteRows);
+	}
+
+	// Deltas lost before their flush (a crash) leave a wrong count, corrected on the second reconcile that sees it.
+	// A count that only lags behind pending deltas is left alone
+	@Test
+	void lostDeltasAreReconciledFromTheFavorites() throws Exception {
+		Category category = categoryRepository.save(new Category("Reconciled"));
+		User seller = userRepository.save(new User("reconcile_seller", "Seller", "reconcile@example.com", "pw", "", "Greece", "Chania", "6955555556"));
+		Item lost = itemRepository.save(new Item("lost deltas", category, seller, 20.0, "Counted wrong", "New", false));
+		Item lagging = itemRepository.save(new Item("pending deltas", category, seller, 20.0, "Counted late", "New", false));
+		for (int i = 0; i < 3; i++) {
+			String userId = userRepository.save(new User("reconcile_fan" + i, "Fan " + i, "rfan" + i + "@example.com", "pw", "", "Greece", "Athens", "691000" + i)).getId();
+			favorite(userId, lost.getId());
+		}
+		favoriteCounterService.flush();
+		jdbcTemplate.update("UPDATE items SET favorite_count = 1 WHERE id = ?", BinaryUuids.toBytes(lost.getId()));
+
+		String lateFan = userRepository.save(new User("reconcile_late_fan", "Late fan", "rlate@example.com", "pw", "", "Greece", "Athens", "6910009")).getId();
+		favorite(lateFan, lagging.getId());
+
+		favoriteCounterService.reconcile();
+		assertThat(favoriteCount(lost)).isEqualTo(1);
+		favoriteCounterService.reconcile();
+		assertThat(favoriteCount(lost)).isEqualTo(3);
+		assertThat(favoriteCount(lagging)).isZero();
+
+		favoriteCounterService.flush();
+		assertThat(favoriteCount(lagging)).isEqualTo(1);
+	}
+
+	private Integer favoriteCount(Item item) {
+		return jdbcTemplate.queryForObject("SELECT favorite_count FROM items WHERE id = ?", Integer.class, BinaryUuids.toBytes(item.getId()));
+	}
+
+	// Every call must succeed, a failed one would leave the counts equal for the wrong reason
+	private void favorite(String userId, String itemId) {
+		ResponseEntity<String> response = restTemplate.postForEntity("/users/" + userId + "/favoriteItems/?item_id=" + itemId, null, String.class);
+		assertThat(response.getStatusCode().is2xxSuccessful()).as("favorite: %s", response.getBody()).isTrue();
+	}
+
+	private void unfavorite(String userId, String itemId) {
+		ResponseEntity<String> response = restTemplate.exchange("/users/" + userId + "/favoriteItems/?item_id=" + itemId, HttpMethod.DELETE, null, String.class);
+		assertThat(response.getStatusCode().is2xxSuccessful()).as("unfavorite: %s", response.getBody()).isTrue();
+	}
+
+	private void waitFor(List<Future<?>> calls) throws Exception {
+		for (Future<?> call : calls) {
+			call.get();
+		}
+	}
+
+}
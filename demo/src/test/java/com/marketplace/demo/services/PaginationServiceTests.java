@@ -0,0 +1,87 @@
+package com.marketplace.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.marketplace.demo.models.dto.CursorPage;
+import com.marketplace.demo.models.ids.BinaryUuids;
+
+// Cursors and page sizes, without a Spring context
+class PaginationServiceTests {
+
+	private final PaginationService pagination = paginationService(20, 100);
+
+	@Test
+	void cursorsRoundTrip() {
+		String id = BinaryUuids.next();
+		String cursor = pagination.encodeCursor(id);
+		assertThat(cursor).doesNotContain("=", "+", "/");
+		assertThat(pagination.decodeCursor(cursor)).isEqualTo(id);
+	}
+
+	@Test
+	void noCursorIsTheFirstPage() {
+		assertThat(pagination.decodeCursor(null)).isNull();
+		assertThat(pagination.decodeCursor("")).isNull();
+	}
+
+	@Test
+	void invalidCursorsAreRejected() {
+		assertBadRequest(() -> pagination.decodeCursor("not base64!"));
+		assertBadRequest(() -> pagination.decodeCursor(base64("page:" + BinaryUuids.next())));
+		// Would silently match no row, and look like the end of the list
+		assertBadRequest(() -> pagination.decodeCursor(base64("id:12345")));
+		assertBadRequest(() -> pagination.decodeCursor(base64("id:")));
+	}
+
+	@Test
+	void sizesAreBounded() {
+		assertThat(pagination.resolveSize(null)).isEqualTo(20);
+		assertThat(pagination.resolveSize(1)).isEqualTo(1);
+		assertThat(pagination.resolveSize(100)).isEqualTo(100);
+		assertThat(pagination.resolveSize(101)).isEqualTo(100);
+		assertThat(pagination.resolveSize(Integer.MAX_VALUE)).isEqualTo(100);
+		assertBadRequest(() -> pagination.resolveSize(0));
+		assertBadRequest(() -> pagination.resolveSize(-1));
+		assertThat(pagination.probeLimit(100).max()).isEqualTo(101);
+	}
+
+	@Test
+	void theExtraRowMakesTheNextCursor() {
+		List<String> ids = List.of(BinaryUuids.next(), BinaryUuids.next(), BinaryUuids.next());
+
+		CursorPage<String> full = pagination.toPage(ids, 2, id -> id);
+		assertThat(full.getItems()).containsExactly(ids.get(0), ids.get(1));
+		assertThat(pagination.decodeCursor(full.getNext_cursor())).isEqualTo(ids.get(1));
+
+		CursorPage<String> last = pagination.toPage(ids, 3, id -> id);
+		assertThat(last.getItems()).isEqualTo(ids);
+		assertThat(last.getNext_cursor()).isNull();
+	}
+
+	private static PaginationService paginationService(int defaultSize, int maxSize) {
+		PaginationService pagination = new PaginationService();
+		ReflectionTestUtils.setField(pagination, "defaultSize", defaultSize);
+		ReflectionTestUtils.setField(pagination, "maxSize", maxSize);
+		return pagination;
+	}
+
+	private static String base64(String cursor) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void assertBadRequest(Runnable call) {
+		assertThatThrownBy(call::run)
+				.isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+	}
+
+}
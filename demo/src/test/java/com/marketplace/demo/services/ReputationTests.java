@@ -0,0 +1,144 @@
+package com.marketplace.demo.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplace.demo.models.User;
+import com.marketplace.demo.models.ids.BinaryUuids;
+import com.marketplace.demo.repositories.UserRepository;
+
+// Review changes through the HTTP API and the reputation they leave behind.
+// Users are saved directly, without the reputation row UserService creates, like users from before reputations:
+// their first reviews insert it.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ReputationTests {
+
+	private static final int REVIEWERS = 40;
+	private static final int THREADS = 16;
+
+	@Autowired
+	TestRestTemplate restTemplate;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	UserRepository userRepository;
+
+	@Test
+	void reputationFollowsAddedChangedAndRemovedReviews() throws Exception {
+		String reviewee = user("rated").getId();
+		String today = LocalDate.now().toString();
+		String fiveStars = review(user("rater1").getId(), reviewee, 5, today);
+		review(user("rater2").getId(), reviewee, 3, today);
+		String old = review(user("rater3").getId(), reviewee, 1, LocalDate.now().minusYears(2).toString());
+		review(user("rater4").getId(), reviewee, 4, null);
+
+		JsonNode reputation = reputation(reviewee);
+		assertThat(reputation.path("review_count").asLong()).isEqualTo(4);
+		assertThat(reputation.path("average_rating").asDouble()).isEqualTo(3.25);
+		assertThat(histogram(reputation)).containsExactly(1L, 0L, 1L, 1L, 1L);
+		// Neither the old review nor the one without a date
+		assertThat(reputation.path("recent_review_count").asLong()).isEqualTo(2);
+		assertThat(reputation.path("recent_average_rating").asDouble()).isEqualTo(4.0);
+
+		// Moves from one star to two, and into the recent months
+		send(HttpMethod.PUT, "/reviews/" + old, "{\"rating\":2,\"date\":\"" + today + "\"}");
+		reputation = reputation(reviewee);
+		assertThat(reputation.path("review_count").asLong()).isEqualTo(4);
+		assertThat(histogram(reputation)).containsExactly(0L, 1L, 1L, 1L, 1L);
+		assertThat(reputation.path("recent_review_count").asLong()).isEqualTo(3);
+		assertThat(reputation.path("recent_average_rating").asDouble()).isEqualTo(10.0 / 3);
+
+		send(HttpMethod.DELETE, "/reviews/" + fiveStars, null);
+		reputation = reputation(reviewee);
+		assertThat(reputation.path("review_count").asLong()).isEqualTo(3);
+		assertThat(reputation.path("average_rating").asDouble()).isEqualTo(3.0);
+		assertThat(histogram(reputation)).containsExactly(0L, 1L, 1L, 1L, 0L);
+		assertThat(reputation.path("recent_review_count").asLong()).isEqualTo(2);
+		assertThat(reputation.path("recent_average_rating").asDouble()).isEqualTo(2.5);
+	}
+
+	@Test
+	void concurrentFirstReviewsAllCount() throws Exception {
+		String reviewee = user("popular").getId();
+		String today = LocalDate.now().toString();
+		List<String> reviewers = new ArrayList<String>();
+		for (int i = 0; i < REVIEWERS; i++) {
+			reviewers.add(user("critic" + i).getId());
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> calls = new ArrayList<Future<?>>();
+			for (int i = 0; i < REVIEWERS; i++) {
+				String reviewer = reviewers.get(i);
+				int rating = 1 + i % 5;
+				calls.add(executor.submit(() -> review(reviewer, reviewee, rating, today)));
+			}
+			for (Future<?> call : calls) {
+				call.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		JsonNode reputation = reputation(reviewee);
+		assertThat(reputation.path("review_count").asLong()).isEqualTo(REVIEWERS);
+		assertThat(reputation.path("average_rating").asDouble()).isEqualTo(3.0);
+		assertThat(histogram(reputation)).containsOnly((long) REVIEWERS / 5);
+		assertThat(reputation.path("recent_review_count").asLong()).isEqualTo(REVIEWERS);
+		Integer buckets = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reputation_buckets WHERE user_id = ?", Integer.class, BinaryUuids.toBytes(reviewee));
+		assertThat(buckets).isEqualTo(1);
+	}
+
+	private User user(String username) {
+		return userRepository.save(new User(username, username, username + "@example.com", "pw", "", "Greece", "Volos", "6911111111"));
+	}
+
+	// Returns the id of the review
+	private String review(String reviewer_id, String reviewee_id, int rating, String date) throws Exception {
+		String body = send(HttpMethod.POST, "/reviews/", "{\"reviewer_id\":\"" + reviewer_id + "\",\"reviewee_id\":\"" + reviewee_id
+				+ "\",\"rating\":" + rating + (date == null ? "" : ",\"date\":\"" + date + "\"") + "}");
+		return objectMapper.readTree(body).path("id").asText();
+	}
+
+	// Every call must succeed, the first review of a user or a month used to fail when another one raced it
+	private String send(HttpMethod method, String url, String json) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		ResponseEntity<String> response = restTemplate.exchange(url, method, new HttpEntity<String>(json, headers), String.class);
+		assertThat(response.getStatusCode().is2xxSuccessful()).as("%s %s: %s", method, url, response.getBody()).isTrue();
+		return response.getBody();
+	}
+
+	private JsonNode reputation(String user_id) throws Exception {
+		return objectMapper.readTree(send(HttpMethod.GET, "/users/" + user_id + "/reputation", null));
+	}
+
+	private List<Long> histogram(JsonNode reputation) {
+		List<Long> histogram = new ArrayList<Long>();
+		reputation.path("histogram").forEach(count -> histogram.add(count.asLong()));
+		return histogram;
+	}
+
+}